@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line
+ * options and always adds the gc profiler, so every run reports the
+ * allocation rate next to the throughput.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * @param args JMH command line options, e.g. a benchmark regexp
+     * @throws Exception if the options are invalid or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        final CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        final ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(cmdOptions)
+                .addProfiler(GCProfiler.class);
+        if (cmdOptions.getIncludes().isEmpty()) {
+            // some benchmarks live in the package of the code they measure
+            builder.include("com\\.amazonaws\\..*Benchmark\\.");
+        }
+        new Runner(builder.build()).run();
+    }
+}
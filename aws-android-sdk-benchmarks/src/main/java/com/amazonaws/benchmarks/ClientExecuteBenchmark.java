@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.kinesis.AmazonKinesisClient;
+import com.amazonaws.services.kinesis.model.PutRecordRequest;
+import com.amazonaws.services.kinesis.model.PutRecordResult;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.ObjectListing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete service calls through {@link AmazonHttpClient#execute}:
+ * marshalling, signing, executing against a {@link StubHttpClient} and
+ * unmarshalling.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientExecuteBenchmark {
+
+    private static final int LIST_OBJECTS_COUNT = 100;
+
+    private AmazonDynamoDBClient dynamoDB;
+    private AmazonKinesisClient kinesis;
+    private AmazonS3Client s3;
+
+    private GetItemRequest getItemRequest;
+    private PutRecordRequest putRecordRequest;
+
+    @Setup
+    public void setup() {
+        final AWSCredentialsProvider credentials = new StaticCredentialsProvider(
+                new BasicAWSCredentials("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY"));
+        final ClientConfiguration config = new ClientConfiguration();
+
+        dynamoDB = new AmazonDynamoDBClient(credentials, config,
+                new StubHttpClient(200, jsonHeaders(), Responses.dynamoDBGetItem()));
+        kinesis = new AmazonKinesisClient(credentials, config,
+                new StubHttpClient(200, jsonHeaders(), Responses.kinesisPutRecord()));
+        final Map<String, String> xmlHeaders = new HashMap<String, String>();
+        xmlHeaders.put("Content-Type", "application/xml");
+        xmlHeaders.put("x-amz-request-id", "EXAMPLE");
+        s3 = new AmazonS3Client(credentials, config,
+                new StubHttpClient(200, xmlHeaders, Responses.s3ListObjects(LIST_OBJECTS_COUNT)));
+
+        getItemRequest = new GetItemRequest()
+                .withTableName("benchmark")
+                .withKey(Collections.singletonMap("id", new AttributeValue("item-0")));
+        putRecordRequest = new PutRecordRequest()
+                .withStreamName("benchmark")
+                .withPartitionKey("partition")
+                .withData(ByteBuffer.wrap(new byte[1024]));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dynamoDB.shutdown();
+        kinesis.shutdown();
+        s3.shutdown();
+    }
+
+    @Benchmark
+    public GetItemResult dynamoDBGetItem() {
+        return dynamoDB.getItem(getItemRequest);
+    }
+
+    @Benchmark
+    public PutRecordResult kinesisPutRecord() {
+        putRecordRequest.getData().rewind();
+        return kinesis.putRecord(putRecordRequest);
+    }
+
+    @Benchmark
+    public ObjectListing s3ListObjects() {
+        return s3.listObjects("benchmark-bucket", "photos/");
+    }
+
+    private static Map<String, String> jsonHeaders() {
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/x-amz-json-1.0");
+        headers.put("x-amzn-RequestId", "EXAMPLE");
+        return headers;
+    }
+}
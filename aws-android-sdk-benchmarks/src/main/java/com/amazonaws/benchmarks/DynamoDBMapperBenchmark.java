@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.JsonResponseHandler;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.ConversionSchemas;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBAttribute;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBHashKey;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapper;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMapperConfig;
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.transform.GetItemResultJsonUnmarshaller;
+import com.amazonaws.util.StringUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DynamoDBMapper} converting between an annotated class and
+ * DynamoDB items, alone and as part of save and load calls against a
+ * {@link StubHttpClient}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamoDBMapperBenchmark {
+
+    private static final DynamoDBMapperConfig CONFIG = new DynamoDBMapperConfig(
+            ConversionSchemas.V2);
+
+    private AmazonDynamoDBClient saveClient;
+    private AmazonDynamoDBClient loadClient;
+    private DynamoDBMapper saveMapper;
+    private DynamoDBMapper loadMapper;
+    private Map<String, AttributeValue> attributes;
+    private Item item;
+
+    @Setup
+    public void setup() throws Exception {
+        final AWSCredentialsProvider credentials = new StaticCredentialsProvider(
+                new BasicAWSCredentials("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY"));
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Type", "application/x-amz-json-1.0");
+        headers.put("x-amzn-RequestId", "EXAMPLE");
+
+        saveClient = new AmazonDynamoDBClient(credentials, new ClientConfiguration(),
+                new StubHttpClient(200, headers, "{}".getBytes(StringUtils.UTF8)));
+        saveMapper = new DynamoDBMapper(saveClient, CONFIG);
+        loadClient = new AmazonDynamoDBClient(credentials, new ClientConfiguration(),
+                new StubHttpClient(200, headers, Responses.dynamoDBGetItem()));
+        loadMapper = new DynamoDBMapper(loadClient, CONFIG);
+
+        final GetItemResult result = new JsonResponseHandler<GetItemResult>(
+                GetItemResultJsonUnmarshaller.getInstance())
+                .handle(HttpResponse.builder()
+                        .statusCode(200)
+                        .content(new ByteArrayInputStream(Responses.dynamoDBGetItem()))
+                        .build())
+                .getResult();
+        attributes = result.getItem();
+        item = loadMapper.marshallIntoObject(Item.class, attributes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        saveClient.shutdown();
+        loadClient.shutdown();
+    }
+
+    @Benchmark
+    public Item unmarshallItem() {
+        return loadMapper.marshallIntoObject(Item.class, attributes);
+    }
+
+    @Benchmark
+    public Item save() {
+        saveMapper.save(item);
+        return item;
+    }
+
+    @Benchmark
+    public Item load() {
+        return loadMapper.load(Item.class, "item-0");
+    }
+
+    /**
+     * A mapped class in the shape of {@link Responses#dynamoDBItem(int)}.
+     */
+    @DynamoDBTable(tableName = "benchmark")
+    public static class Item {
+        private String id;
+        private String name;
+        private int count;
+        private double price;
+        private boolean active;
+        private Set<String> tags = new HashSet<String>();
+        private Set<Integer> scores = new HashSet<Integer>(Arrays.asList(1, 2, 3));
+        private ByteBuffer payload = ByteBuffer.allocate(0);
+        private Map<String, String> attributes = Collections.emptyMap();
+
+        @DynamoDBHashKey(attributeName = "id")
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        @DynamoDBAttribute(attributeName = "name")
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public Set<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(Set<String> tags) {
+            this.tags = tags;
+        }
+
+        public Set<Integer> getScores() {
+            return scores;
+        }
+
+        public void setScores(Set<Integer> scores) {
+            this.scores = scores;
+        }
+
+        public ByteBuffer getPayload() {
+            return payload;
+        }
+
+        public void setPayload(ByteBuffer payload) {
+            this.payload = payload;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.Request;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.dynamodbv2.model.transform.BatchWriteItemRequestMarshaller;
+import com.amazonaws.services.kinesis.model.PutRecordsRequest;
+import com.amazonaws.services.kinesis.model.PutRecordsRequestEntry;
+import com.amazonaws.services.kinesis.model.transform.PutRecordsRequestMarshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the marshalling of large DynamoDB and Kinesis batch requests into
+ * their JSON request body, without the rest of the client pipeline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestMarshallingBenchmark {
+
+    /** Size in bytes of each item or record. */
+    @Param({
+            "1024", "16384"
+    })
+    public int size;
+
+    private BatchWriteItemRequest batchWriteItemRequest;
+    private PutRecordsRequest putRecordsRequest;
+
+    private final BatchWriteItemRequestMarshaller batchWriteItemMarshaller =
+            new BatchWriteItemRequestMarshaller();
+    private final PutRecordsRequestMarshaller putRecordsMarshaller =
+            new PutRecordsRequestMarshaller();
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(1);
+        final StringBuilder text = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+
+        final List<WriteRequest> writeRequests = new ArrayList<WriteRequest>();
+        for (int i = 0; i < 25; i++) {
+            final Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("id", new AttributeValue().withS("item-" + i));
+            item.put("count", new AttributeValue().withN(String.valueOf(i)));
+            item.put("text", new AttributeValue().withS(text.toString()));
+            writeRequests.add(new WriteRequest().withPutRequest(new PutRequest(item)));
+        }
+        final Map<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
+        requestItems.put("Table", writeRequests);
+        batchWriteItemRequest = new BatchWriteItemRequest().withRequestItems(requestItems);
+
+        final List<PutRecordsRequestEntry> records = new ArrayList<PutRecordsRequestEntry>();
+        for (int i = 0; i < 500; i++) {
+            final byte[] data = new byte[size];
+            random.nextBytes(data);
+            records.add(new PutRecordsRequestEntry().withPartitionKey("key-" + i)
+                    .withData(ByteBuffer.wrap(data)));
+        }
+        putRecordsRequest = new PutRecordsRequest().withStreamName("stream")
+                .withRecords(records);
+    }
+
+    @Benchmark
+    public Request<BatchWriteItemRequest> dynamoDBBatchWriteItem() {
+        return batchWriteItemMarshaller.marshall(batchWriteItemRequest);
+    }
+
+    @Benchmark
+    public Request<PutRecordsRequest> kinesisPutRecords() {
+        return putRecordsMarshaller.marshall(putRecordsRequest);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.JsonResponseHandler;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.transform.GetItemResultJsonUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.QueryResultJsonUnmarshaller;
+import com.amazonaws.services.kinesis.model.GetRecordsResult;
+import com.amazonaws.services.kinesis.model.transform.GetRecordsResultJsonUnmarshaller;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.ListBucketHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the response handlers on representative DynamoDB and Kinesis JSON
+ * responses and S3 XML responses, without the rest of the client pipeline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseUnmarshallingBenchmark {
+
+    /** Number of items, records or objects in list responses. */
+    @Param({
+            "10", "100"
+    })
+    public int count;
+
+    private byte[] getItemBody;
+    private byte[] queryBody;
+    private byte[] getRecordsBody;
+    private byte[] listObjectsBody;
+
+    private JsonResponseHandler<GetItemResult> getItemHandler;
+    private JsonResponseHandler<QueryResult> queryHandler;
+    private JsonResponseHandler<GetRecordsResult> getRecordsHandler;
+    private XmlResponsesSaxParser saxParser;
+
+    @Setup
+    public void setup() {
+        getItemBody = Responses.dynamoDBGetItem();
+        queryBody = Responses.dynamoDBQuery(count);
+        getRecordsBody = Responses.kinesisGetRecords(count);
+        listObjectsBody = Responses.s3ListObjects(count);
+
+        getItemHandler = new JsonResponseHandler<GetItemResult>(
+                GetItemResultJsonUnmarshaller.getInstance());
+        queryHandler = new JsonResponseHandler<QueryResult>(
+                QueryResultJsonUnmarshaller.getInstance());
+        getRecordsHandler = new JsonResponseHandler<GetRecordsResult>(
+                GetRecordsResultJsonUnmarshaller.getInstance());
+        saxParser = new XmlResponsesSaxParser();
+    }
+
+    @Benchmark
+    public AmazonWebServiceResponse<GetItemResult> dynamoDBGetItem() throws Exception {
+        return getItemHandler.handle(response(getItemBody));
+    }
+
+    @Benchmark
+    public AmazonWebServiceResponse<QueryResult> dynamoDBQuery() throws Exception {
+        return queryHandler.handle(response(queryBody));
+    }
+
+    @Benchmark
+    public AmazonWebServiceResponse<GetRecordsResult> kinesisGetRecords() throws Exception {
+        return getRecordsHandler.handle(response(getRecordsBody));
+    }
+
+    @Benchmark
+    public ListBucketHandler s3ListObjects() throws Exception {
+        return saxParser.parseListBucketObjectsResponse(
+                new ByteArrayInputStream(listObjectsBody), false);
+    }
+
+    private static HttpResponse response(byte[] body) {
+        return HttpResponse.builder()
+                .statusCode(200)
+                .statusText("OK")
+                .header("x-amzn-RequestId", "EXAMPLE")
+                .content(new ByteArrayInputStream(body))
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Representative response bodies of the services exercised by the
+ * benchmarks.
+ */
+final class Responses {
+
+    private Responses() {
+    }
+
+    /**
+     * @return a DynamoDB GetItem response with an item of mixed attribute
+     *         types
+     */
+    static byte[] dynamoDBGetItem() {
+        return bytes("{\"Item\":" + dynamoDBItem(0) + "}");
+    }
+
+    /**
+     * @param count number of items
+     * @return a DynamoDB Query response with the given number of items
+     */
+    static byte[] dynamoDBQuery(int count) {
+        final StringBuilder sb = new StringBuilder("{\"Count\":").append(count)
+                .append(",\"ScannedCount\":").append(count).append(",\"Items\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(dynamoDBItem(i));
+        }
+        return bytes(sb.append("]}").toString());
+    }
+
+    /**
+     * @param id value of the hash key
+     * @return an item in the shape of {@link DynamoDBMapperBenchmark.Item}
+     */
+    static String dynamoDBItem(int id) {
+        return "{\"id\":{\"S\":\"item-" + id + "\"},"
+                + "\"name\":{\"S\":\"The quick brown fox jumps over the lazy dog\"},"
+                + "\"count\":{\"N\":\"" + (id * 31) + "\"},"
+                + "\"price\":{\"N\":\"1234.5678\"},"
+                + "\"active\":{\"N\":\"1\"},"
+                + "\"tags\":{\"SS\":[\"red\",\"green\",\"blue\",\"yellow\"]},"
+                + "\"scores\":{\"NS\":[\"1\",\"2\",\"3\",\"5\",\"8\",\"13\"]},"
+                + "\"payload\":{\"B\":\"AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=\"},"
+                + "\"attributes\":{\"M\":{\"color\":{\"S\":\"red\"},\"size\":{\"S\":\"XL\"},"
+                + "\"origin\":{\"S\":\"Seattle\"}}}}";
+    }
+
+    /**
+     * @return a Kinesis PutRecord response
+     */
+    static byte[] kinesisPutRecord() {
+        return bytes("{\"SequenceNumber\":\"49543463076548007577105092703039560359975228518395019266\","
+                + "\"ShardId\":\"shardId-000000000000\"}");
+    }
+
+    /**
+     * @param count number of records
+     * @return a Kinesis GetRecords response with the given number of records
+     */
+    static byte[] kinesisGetRecords(int count) {
+        final StringBuilder sb = new StringBuilder("{\"Records\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"Data\":\"eyJldmVudCI6ImNsaWNrIiwidXNlciI6InVzZXItMTIzNDUiLCJ0cyI6MTUyNTcyODAwMH0=\",")
+                    .append("\"PartitionKey\":\"partition-").append(i).append("\",")
+                    .append("\"SequenceNumber\":\"4954346307654800757710509270303956035997522851839")
+                    .append(String.format("%07d", i)).append("\",")
+                    .append("\"ApproximateArrivalTimestamp\":1.525728E9}");
+        }
+        return bytes(sb.append("],\"NextShardIterator\":\"AAAAAAAAAAHsW8zCWf9164uy8Epue6WS3w6wmj4a4USt+CNvMd6uXQ+HL5vAJMznqqC0DLKsIjuoiTi1BpT6nW0LN2M2D56zM5H8anHm30Gbri9ua+qaGgj+3XTyvbhpERfrezgLHbPB/rIcVpykJbaSj5tmcXYRmFnqZBEyHwtZYFmh6hvWVFkIwLuMZLMrpWhG5r5hzkE=\",\"MillisBehindLatest\":0}")
+                .toString());
+    }
+
+    /**
+     * @param count number of objects
+     * @return an S3 ListObjects response with the given number of objects
+     */
+    static byte[] s3ListObjects(int count) {
+        final StringBuilder sb = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>benchmark-bucket</Name><Prefix>photos/</Prefix><Marker></Marker>"
+                        + "<MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>");
+        for (int i = 0; i < count; i++) {
+            sb.append("<Contents><Key>photos/2018/05/07/IMG_").append(i).append(".jpg</Key>")
+                    .append("<LastModified>2018-05-07T20:13:51.000Z</LastModified>")
+                    .append("<ETag>&quot;fba9dede5f27731c9771645a39863328&quot;</ETag>")
+                    .append("<Size>434234</Size>")
+                    .append("<Owner><ID>75aa57f09aa0c8caeab4f8c24e99d10f8e7faeebf76c078efc7c6caea54ba06a</ID>")
+                    .append("<DisplayName>mtd@amazon.com</DisplayName></Owner>")
+                    .append("<StorageClass>STANDARD</StorageClass></Contents>");
+        }
+        return bytes(sb.append("</ListBucketResult>").toString());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StringUtils.UTF8);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.Request;
+import com.amazonaws.auth.AWS4Signer;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.transform.GetItemRequestMarshaller;
+import com.amazonaws.services.kinesis.model.PutRecordRequest;
+import com.amazonaws.services.kinesis.model.transform.PutRecordRequestMarshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AWS4Signer#sign(Request, AWSCredentials)} on marshalled
+ * DynamoDB and Kinesis requests.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignerBenchmark {
+
+    private final AWSCredentials credentials = new BasicAWSCredentials(
+            "AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY");
+
+    private AWS4Signer dynamoDBSigner;
+    private Request<GetItemRequest> getItemRequest;
+    private AWS4Signer kinesisSigner;
+    private Request<PutRecordRequest> putRecordRequest;
+
+    @Setup
+    public void setup() {
+        dynamoDBSigner = new AWS4Signer();
+        dynamoDBSigner.setServiceName("dynamodb");
+        dynamoDBSigner.setRegionName("us-east-1");
+        getItemRequest = new GetItemRequestMarshaller().marshall(new GetItemRequest()
+                .withTableName("benchmark")
+                .withKey(Collections.singletonMap("id", new AttributeValue("item-0"))));
+        getItemRequest.setEndpoint(URI.create("https://dynamodb.us-east-1.amazonaws.com"));
+
+        kinesisSigner = new AWS4Signer();
+        kinesisSigner.setServiceName("kinesis");
+        kinesisSigner.setRegionName("us-east-1");
+        putRecordRequest = new PutRecordRequestMarshaller().marshall(new PutRecordRequest()
+                .withStreamName("benchmark")
+                .withPartitionKey("partition")
+                .withData(ByteBuffer.wrap(new byte[1024])));
+        putRecordRequest.setEndpoint(URI.create("https://kinesis.us-east-1.amazonaws.com"));
+    }
+
+    @Benchmark
+    public Request<GetItemRequest> signDynamoDBGetItem() {
+        dynamoDBSigner.sign(getItemRequest, credentials);
+        return getItemRequest;
+    }
+
+    @Benchmark
+    public Request<PutRecordRequest> signKinesisPutRecord() {
+        kinesisSigner.sign(putRecordRequest, credentials);
+        return putRecordRequest;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.benchmarks;
+
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * An in-process {@link HttpClient} that answers every request with the same
+ * canned response, so that benchmarks measure the client pipeline rather than
+ * the network.
+ */
+public class StubHttpClient implements HttpClient {
+
+    private final int statusCode;
+    private final Map<String, String> headers;
+    private final byte[] content;
+
+    /**
+     * @param statusCode status code of every response
+     * @param headers headers of every response
+     * @param content body of every response
+     */
+    public StubHttpClient(int statusCode, Map<String, String> headers, byte[] content) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.content = content;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        // drain the request body like a real client would
+        final InputStream body = request.getContent();
+        if (body != null) {
+            final byte[] buffer = new byte[4096];
+            while (body.read(buffer) != -1) {
+                // discard
+            }
+        }
+        final HttpResponse.Builder builder = HttpResponse.builder()
+                .statusCode(statusCode)
+                .statusText("OK")
+                .content(new ByteArrayInputStream(content));
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void shutdown() {
+        // nothing to release
+    }
+}
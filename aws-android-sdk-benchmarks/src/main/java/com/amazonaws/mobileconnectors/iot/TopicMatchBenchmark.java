@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the subscriptions of an incoming message with the
+ * {@link TopicTrie} used by {@link AWSIotMqttManager} and with a scan of all
+ * the subscriptions. The subscriptions are the device shadow topics of many
+ * things plus a few wildcard filters. Lives in the package of the manager to
+ * reach the package private matching code.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopicMatchBenchmark {
+
+    private static final String[] SHADOW_TOPICS = {
+            "update/accepted", "update/rejected", "update/delta", "get/accepted", "delete/accepted"
+    };
+
+    @Param({"10", "100"})
+    private int things;
+
+    private final TopicTrie<String> trie = new TopicTrie<String>();
+    private final List<String> topicFilters = new ArrayList<String>();
+    private final String[] topics = new String[SHADOW_TOPICS.length];
+    private final CountingVisitor visitor = new CountingVisitor();
+    private int next;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < things; i++) {
+            for (final String shadowTopic : SHADOW_TOPICS) {
+                subscribe("$aws/things/thing-" + i + "/shadow/" + shadowTopic);
+            }
+            subscribe("sensors/thing-" + i + "/+/temperature");
+        }
+        subscribe("$aws/things/+/shadow/update/documents");
+        subscribe("alerts/#");
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = "$aws/things/thing-" + (things / 2) + "/shadow/" + SHADOW_TOPICS[i];
+        }
+    }
+
+    private void subscribe(String topicFilter) {
+        trie.put(topicFilter, topicFilter);
+        topicFilters.add(topicFilter);
+    }
+
+    private String nextTopic() {
+        final String topic = topics[next];
+        next = (next + 1) % topics.length;
+        return topic;
+    }
+
+    @Benchmark
+    public int trie() {
+        visitor.matches = 0;
+        trie.match(nextTopic(), null, visitor);
+        return visitor.matches;
+    }
+
+    @Benchmark
+    public int linearScan() {
+        final String topic = nextTopic();
+        int matches = 0;
+        for (final String topicFilter : topicFilters) {
+            if (AWSIotMqttManager.isTopicMatch(topicFilter, topic)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static final class CountingVisitor implements TopicTrie.Visitor<String, Object> {
+        int matches;
+
+        @Override
+        public void visit(String value, String topic, Object argument) {
+            matches++;
+        }
+    }
+}
@@ -39,6 +39,9 @@ public class ClientConfiguration {
     /** The default max connection pool size. */
     public static final int DEFAULT_MAX_CONNECTIONS = 10;
 
+    /** The default time an idle pooled connection is kept alive. */
+    public static final long DEFAULT_CONNECTION_MAX_IDLE_MILLIS = 60 * 1000;
+
     /** The default HTTP user agent header for AWS Java SDK clients. */
     public static final String DEFAULT_USER_AGENT = VersionInfoUtils.getUserAgent();
 
@@ -124,6 +127,18 @@ public class ClientConfiguration {
     /** The maximum number of open HTTP connections. */
     private int maxConnections = DEFAULT_MAX_CONNECTIONS;
 
+    /**
+     * The maximum number of open HTTP connections to a single host. A value of
+     * 0 or less means the same as {@link #maxConnections}.
+     */
+    private int maxConnectionsPerRoute = 0;
+
+    /**
+     * The amount of time (in milliseconds) an idle connection is kept in the
+     * pool for reuse before it is closed.
+     */
+    private long connectionMaxIdleMillis = DEFAULT_CONNECTION_MAX_IDLE_MILLIS;
+
     /**
      * The amount of time to wait (in milliseconds) for data to be transfered
      * over an established, open connection before the connection is timed out.
@@ -197,6 +212,8 @@ public class ClientConfiguration {
     public ClientConfiguration(ClientConfiguration other) {
         this.connectionTimeout = other.connectionTimeout;
         this.maxConnections = other.maxConnections;
+        this.maxConnectionsPerRoute = other.maxConnectionsPerRoute;
+        this.connectionMaxIdleMillis = other.connectionMaxIdleMillis;
         this.maxErrorRetry = other.maxErrorRetry;
         this.retryPolicy = other.retryPolicy;
         this.localAddress = other.localAddress;
@@ -313,6 +330,80 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the maximum number of allowed open HTTP connections to a single
+     * host. Unless set, this is the same as {@link #getMaxConnections()}.
+     *
+     * @return The maximum number of allowed open HTTP connections to a single
+     *         host.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute > 0 ? maxConnectionsPerRoute : maxConnections;
+    }
+
+    /**
+     * Sets the maximum number of allowed open HTTP connections to a single
+     * host. A value of 0 or less means the same as
+     * {@link #getMaxConnections()}.
+     *
+     * @param maxConnectionsPerRoute The maximum number of allowed open HTTP
+     *            connections to a single host.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of allowed open HTTP connections to a single
+     * host and returns the updated ClientConfiguration object.
+     *
+     * @param maxConnectionsPerRoute The maximum number of allowed open HTTP
+     *            connections to a single host.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        setMaxConnectionsPerRoute(maxConnectionsPerRoute);
+        return this;
+    }
+
+    /**
+     * Returns the amount of time (in milliseconds) an idle pooled connection
+     * is kept alive for reuse.
+     *
+     * @return The maximum idle time of a pooled connection.
+     */
+    public long getConnectionMaxIdleMillis() {
+        return connectionMaxIdleMillis;
+    }
+
+    /**
+     * Sets the amount of time (in milliseconds) an idle pooled connection is
+     * kept alive for reuse. The server may close the connection earlier.
+     *
+     * @param connectionMaxIdleMillis The maximum idle time of a pooled
+     *            connection.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public void setConnectionMaxIdleMillis(long connectionMaxIdleMillis) {
+        this.connectionMaxIdleMillis = connectionMaxIdleMillis;
+    }
+
+    /**
+     * Sets the amount of time (in milliseconds) an idle pooled connection is
+     * kept alive for reuse and returns the updated ClientConfiguration object.
+     *
+     * @param connectionMaxIdleMillis The maximum idle time of a pooled
+     *            connection.
+     * @return The updated ClientConfiguration object.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public ClientConfiguration withConnectionMaxIdleMillis(long connectionMaxIdleMillis) {
+        setConnectionMaxIdleMillis(connectionMaxIdleMillis);
+        return this;
+    }
+
     /**
      * Returns the HTTP user agent header to send with all requests.
      *
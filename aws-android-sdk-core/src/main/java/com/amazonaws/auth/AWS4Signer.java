@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Signer implementation that signs requests with the AWS4 signing protocol.
@@ -48,6 +49,23 @@ public class AWS4Signer extends AbstractAWSSigner
 
     /** Seconds in a week, which is the max expiration time Sig-v4 accepts */
     private static final long MAX_EXPIRATION_TIME_IN_SECONDS = 60 * 60 * 24 * 7;
+
+    /** Maximum number of derived signing keys kept across all signers */
+    private static final int MAX_SIGNING_KEY_CACHE_SIZE = 300;
+    static final SigningKeyCache SIGNING_KEY_CACHE =
+            new SigningKeyCache(MAX_SIGNING_KEY_CACHE_SIZE);
+
+    private static final int CANONICAL_REQUEST_BUFFER_SIZE = 512;
+    /** Buffers larger than this are not kept for reuse */
+    private static final int MAX_REUSED_BUFFER_SIZE = 8 * 1024;
+    private static final ThreadLocal<StringBuilder> CANONICAL_REQUEST_BUFFER =
+            new ThreadLocal<StringBuilder>() {
+                @Override
+                protected StringBuilder initialValue() {
+                    return new StringBuilder(CANONICAL_REQUEST_BUFFER_SIZE);
+                }
+            };
+
     /**
      * Service name override for use when the endpoint can't be used to
      * determine the service name.
@@ -208,43 +226,14 @@ public class AWS4Signer extends AbstractAWSSigner
     }
 
     protected String getCanonicalizedHeaderString(Request<?> request) {
-        final List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
         final StringBuilder buffer = new StringBuilder();
-        for (final String header : sortedHeaders) {
-            if (needsSign(header)) {
-                final String key = StringUtils.lowerCase(header).replaceAll("\\s+", " ");
-                final String value = request.getHeaders().get(header);
-
-                buffer.append(key).append(":");
-                if (value != null) {
-                    buffer.append(value.replaceAll("\\s+", " "));
-                }
-
-                buffer.append("\n");
-            }
-        }
-
+        appendCanonicalizedHeaders(buffer, request.getHeaders(), getSortedSignedHeaders(request));
         return buffer.toString();
     }
 
     protected String getSignedHeadersString(Request<?> request) {
-        final List<String> sortedHeaders = new ArrayList<String>();
-        sortedHeaders.addAll(request.getHeaders().keySet());
-        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
-
         final StringBuilder buffer = new StringBuilder();
-        for (final String header : sortedHeaders) {
-            if (needsSign(header)) {
-                if (buffer.length() > 0) {
-                    buffer.append(";");
-                }
-                buffer.append(StringUtils.lowerCase(header));
-            }
-        }
-
+        appendSignedHeaders(buffer, getSortedSignedHeaders(request));
         return buffer.toString();
     }
 
@@ -252,19 +241,26 @@ public class AWS4Signer extends AbstractAWSSigner
         /* This would url-encode the resource path for the first time */
         final String path = HttpUtils.appendUri(request.getEndpoint().getPath(),
                 request.getResourcePath());
-
-        final String canonicalRequest =
-                request.getHttpMethod().toString() + "\n" +
-                        /*
-                         * This would optionally double url-encode the resource
-                         * path
-                         */
-                        getCanonicalizedResourcePath(path, doubleUrlEncode) + "\n" +
-                        getCanonicalizedQueryString(request) + "\n" +
-                        getCanonicalizedHeaderString(request) + "\n" +
-                        getSignedHeadersString(request) + "\n" +
-                        contentSha256;
-        log.debug("AWS4 Canonical Request: '\"" + canonicalRequest + "\"");
+        final List<String> signedHeaders = getSortedSignedHeaders(request);
+
+        final StringBuilder buffer = CANONICAL_REQUEST_BUFFER.get();
+        buffer.setLength(0);
+        buffer.append(request.getHttpMethod().toString()).append('\n')
+                /* This would optionally double url-encode the resource path */
+                .append(getCanonicalizedResourcePath(path, doubleUrlEncode)).append('\n')
+                .append(getCanonicalizedQueryString(request)).append('\n');
+        appendCanonicalizedHeaders(buffer, request.getHeaders(), signedHeaders);
+        buffer.append('\n');
+        appendSignedHeaders(buffer, signedHeaders);
+        buffer.append('\n').append(contentSha256);
+
+        final String canonicalRequest = buffer.toString();
+        if (buffer.capacity() > MAX_REUSED_BUFFER_SIZE) {
+            CANONICAL_REQUEST_BUFFER.remove();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("AWS4 Canonical Request: '\"" + canonicalRequest + "\"");
+        }
         return canonicalRequest;
     }
 
@@ -275,10 +271,70 @@ public class AWS4Signer extends AbstractAWSSigner
                         dateTime + "\n" +
                         scope + "\n" +
                         BinaryUtils.toHex(hash(canonicalRequest));
-        log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
+        if (log.isDebugEnabled()) {
+            log.debug("AWS4 String to Sign: '\"" + stringToSign + "\"");
+        }
         return stringToSign;
     }
 
+    /**
+     * Returns the names of the headers of the request that need to be signed,
+     * sorted case-insensitively.
+     */
+    private List<String> getSortedSignedHeaders(Request<?> request) {
+        final Map<String, String> headers = request.getHeaders();
+        final List<String> sortedHeaders = new ArrayList<String>(headers.size());
+        for (final String header : headers.keySet()) {
+            if (needsSign(header)) {
+                sortedHeaders.add(header);
+            }
+        }
+        Collections.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+        return sortedHeaders;
+    }
+
+    private static void appendCanonicalizedHeaders(StringBuilder buffer,
+            Map<String, String> headers, List<String> sortedHeaders) {
+        for (final String header : sortedHeaders) {
+            appendCompactedWhitespace(buffer, StringUtils.lowerCase(header));
+            buffer.append(':');
+            final String value = headers.get(header);
+            if (value != null) {
+                appendCompactedWhitespace(buffer, value);
+            }
+            buffer.append('\n');
+        }
+    }
+
+    private static void appendSignedHeaders(StringBuilder buffer, List<String> sortedHeaders) {
+        for (int i = 0; i < sortedHeaders.size(); i++) {
+            if (i > 0) {
+                buffer.append(';');
+            }
+            buffer.append(StringUtils.lowerCase(sortedHeaders.get(i)));
+        }
+    }
+
+    /**
+     * Appends the value with every run of whitespace replaced by a single
+     * space, the same as {@code value.replaceAll("\\s+", " ")}.
+     */
+    private static void appendCompactedWhitespace(StringBuilder buffer, String value) {
+        boolean inWhitespace = false;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r') {
+                if (!inWhitespace) {
+                    buffer.append(' ');
+                    inWhitespace = true;
+                }
+            } else {
+                buffer.append(c);
+                inWhitespace = false;
+            }
+        }
+    }
+
     @SuppressWarnings("checkstyle:hiddenfield")
     protected final HeaderSigningResult computeSignature(
             Request<?> request,
@@ -294,20 +350,38 @@ public class AWS4Signer extends AbstractAWSSigner
         final String stringToSign = getStringToSign(algorithm, timeStamp, scope,
                 getCanonicalRequest(request, contentSha256));
 
-        // AWS4 uses a series of derived keys, formed by hashing different
-        // pieces of data
-        final byte[] kSecret = ("AWS4" + sanitizedCredentials.getAWSSecretKey())
-                .getBytes(StringUtils.UTF8);
-        final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
-        final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
-        final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
-        final byte[] kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+        final byte[] kSigning = getSigningKey(sanitizedCredentials.getAWSSecretKey(), dateStamp,
+                regionName, serviceName);
 
         final byte[] signature = sign(stringToSign.getBytes(StringUtils.UTF8), kSigning,
                 SigningAlgorithm.HmacSHA256);
         return new HeaderSigningResult(timeStamp, scope, kSigning, signature);
     }
 
+    /**
+     * Returns the key that signs requests of the given scope. It is derived
+     * from the secret key once and then served from a cache shared by all
+     * signers.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    private byte[] getSigningKey(String secretKey, String dateStamp, String regionName,
+            String serviceName) {
+        final String cacheKey = SigningKeyCache.keyOf(secretKey, dateStamp, regionName,
+                serviceName);
+        byte[] kSigning = SIGNING_KEY_CACHE.get(cacheKey);
+        if (kSigning == null) {
+            // AWS4 uses a series of derived keys, formed by hashing different
+            // pieces of data
+            final byte[] kSecret = ("AWS4" + secretKey).getBytes(StringUtils.UTF8);
+            final byte[] kDate = sign(dateStamp, kSecret, SigningAlgorithm.HmacSHA256);
+            final byte[] kRegion = sign(regionName, kDate, SigningAlgorithm.HmacSHA256);
+            final byte[] kService = sign(serviceName, kRegion, SigningAlgorithm.HmacSHA256);
+            kSigning = sign(TERMINATOR, kService, SigningAlgorithm.HmacSHA256);
+            SIGNING_KEY_CACHE.put(cacheKey, kSigning);
+        }
+        return kSigning;
+    }
+
     protected final String getTimeStamp(long dateMilli) {
         return DateUtils.format(TIME_PATTERN, new Date(dateMilli));
     }
@@ -23,6 +23,7 @@ import com.amazonaws.SDKGlobalConfiguration;
 import com.amazonaws.internal.SdkDigestInputStream;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.ByteArrayContentInputStream;
 import com.amazonaws.util.HttpUtils;
 import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.StringUtils;
@@ -58,6 +59,16 @@ public abstract class AbstractAWSSigner implements Signer {
     private static final int DEFAULT_BUFFER_SIZE = 1024;
     private static final int BUFFER_SIZE_MULTIPLIER = 5;
     private static final int TIME_MILLISEC = 1000;
+    private static final int QUERY_STRING_BUFFER_SIZE = 256;
+    /** Buffers larger than this are not kept for reuse */
+    private static final int MAX_REUSED_BUFFER_SIZE = 8 * 1024;
+    private static final ThreadLocal<StringBuilder> QUERY_STRING_BUFFER =
+            new ThreadLocal<StringBuilder>() {
+                @Override
+                protected StringBuilder initialValue() {
+                    return new StringBuilder(QUERY_STRING_BUFFER_SIZE);
+                }
+            };
 
     static {
         SHA256_MESSAGE_DIGEST = new ThreadLocal<MessageDigest>() {
@@ -119,7 +130,7 @@ public abstract class AbstractAWSSigner implements Signer {
 
     protected byte[] sign(byte[] data, byte[] key, SigningAlgorithm algorithm) {
         try {
-            final Mac mac = Mac.getInstance(algorithm.toString());
+            final Mac mac = algorithm.getMac();
             mac.init(new SecretKeySpec(key, algorithm.toString()));
             return mac.doFinal(data);
         } catch (final Exception e) {
@@ -156,6 +167,12 @@ public abstract class AbstractAWSSigner implements Signer {
     protected byte[] hash(InputStream input) {
         try {
             final MessageDigest md = getMessageDigestInstance();
+            if (input instanceof ByteArrayContentInputStream) {
+                // hash the content in place rather than reading it through
+                final ByteArrayContentInputStream content = (ByteArrayContentInputStream) input;
+                md.update(content.getBuffer(), content.getOffset(), content.getLength());
+                return md.digest();
+            }
             @SuppressWarnings("resource")
             final DigestInputStream digestInputStream = new SdkDigestInputStream(input, md);
             final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
@@ -178,7 +195,7 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     public byte[] hash(byte[] data) {
         try {
-            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            final MessageDigest md = getMessageDigestInstance();
             md.update(data);
             return md.digest();
         } catch (final Exception e) {
@@ -199,6 +216,9 @@ public abstract class AbstractAWSSigner implements Signer {
      * @return A canonicalized form for the specified query string parameters.
      */
     protected String getCanonicalizedQueryString(Map<String, String> parameters) {
+        if (parameters.isEmpty()) {
+            return "";
+        }
 
         final SortedMap<String, String> sorted = new TreeMap<String, String>();
 
@@ -210,19 +230,24 @@ public abstract class AbstractAWSSigner implements Signer {
             sorted.put(HttpUtils.urlEncode(key, false), HttpUtils.urlEncode(value, false));
         }
 
-        final StringBuilder builder = new StringBuilder();
+        final StringBuilder builder = QUERY_STRING_BUFFER.get();
+        builder.setLength(0);
         pairs = sorted.entrySet().iterator();
         while (pairs.hasNext()) {
             final Map.Entry<String, String> pair = pairs.next();
             builder.append(pair.getKey());
-            builder.append("=");
+            builder.append('=');
             builder.append(pair.getValue());
             if (pairs.hasNext()) {
-                builder.append("&");
+                builder.append('&');
             }
         }
 
-        return builder.toString();
+        final String queryString = builder.toString();
+        if (builder.capacity() > MAX_REUSED_BUFFER_SIZE) {
+            QUERY_STRING_BUFFER.remove();
+        }
+        return queryString;
     }
 
     protected String getCanonicalizedQueryString(Request<?> request) {
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.auth;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of AWS4 signing keys. A signing key
+ * only depends on the secret key, date, region and service, so it can be
+ * reused for every request signed with the same scope on the same day instead
+ * of being derived with four HMAC operations each time.
+ */
+final class SigningKeyCache {
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int KEY_BUFFER_SIZE = 96;
+
+    private final Map<String, byte[]> cache;
+
+    /**
+     * @param maxSize maximum number of signing keys kept
+     */
+    SigningKeyCache(final int maxSize) {
+        cache = new LinkedHashMap<String, byte[]>(maxSize, LOAD_FACTOR, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param secretKey the secret key
+     * @param dateStamp the date of the scope, as yyyyMMdd
+     * @param regionName the region of the scope
+     * @param serviceName the service of the scope
+     * @return the cache key of the signing key of the given scope
+     */
+    static String keyOf(String secretKey, String dateStamp, String regionName,
+            String serviceName) {
+        // the secret key goes last as it's the only part that may contain '/'
+        return new StringBuilder(KEY_BUFFER_SIZE)
+                .append(dateStamp).append('/')
+                .append(regionName).append('/')
+                .append(serviceName).append('/')
+                .append(secretKey)
+                .toString();
+    }
+
+    /**
+     * @param key a key returned by {@link #keyOf}
+     * @return the signing key, or null if it isn't cached
+     */
+    synchronized byte[] get(String key) {
+        return cache.get(key);
+    }
+
+    /**
+     * @param key a key returned by {@link #keyOf}
+     * @param signingKey the signing key, which must not be modified afterwards
+     */
+    synchronized void put(String key, byte[] signingKey) {
+        cache.put(key, signingKey);
+    }
+
+    synchronized int size() {
+        return cache.size();
+    }
+
+    synchronized void clear() {
+        cache.clear();
+    }
+}
@@ -34,7 +34,9 @@ import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.AdaptiveRateLimiter;
 import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.retry.RetryTokenBucket;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
@@ -53,6 +55,12 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The Amazon HTTP Client class.
@@ -71,6 +79,13 @@ public class AmazonHttpClient {
 
     private static final int TIME_MILLISEC = 1000;
 
+    /** Number of threads of the executor shared by asynchronous requests */
+    private static final int DEFAULT_ASYNC_THREADS = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
+    /** Executor shared by asynchronous requests, created on first use */
+    private static ScheduledExecutorService defaultAsyncExecutor;
+
     /**
      * Logger providing detailed information on requests/responses. Users can
      * enable this logger to get access to AWS request IDs for responses,
@@ -265,53 +280,216 @@ public class AmazonHttpClient {
      * @see AmazonHttpClient#execute(Request, HttpResponseHandler,
      *      HttpResponseHandler, ExecutionContext)
      */
-    @SuppressWarnings("checkstyle:methodlength")
     <T> Response<T> executeHelper(Request<?> request,
             HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
             HttpResponseHandler<AmazonServiceException> errorResponseHandler,
             ExecutionContext executionContext) {
-        /*
-         * Depending on which response handler we end up choosing to handle the
-         * HTTP response, it might require us to leave the underlying HTTP
-         * connection open, depending on whether or not it reads the complete
-         * HTTP response stream from the HTTP connection, or if delays reading
-         * any of the content until after a response is returned to the caller.
-         */
-        boolean leaveHttpConnectionOpen = false;
+        final RequestExecution<T> execution = new RequestExecution<T>(request, responseHandler,
+                errorResponseHandler, executionContext);
         final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
-        /*
-         * add the service endpoint to the logs. You can infer service name from
-         * service endpoint
+        long backoffDelay = 0;
+        while (true) {
+            final long sendDelay = execution.acquireSendPermit();
+            if (sendDelay > 0) {
+                awsRequestMetrics.startEvent(Field.RateLimiterPauseTime);
+                try {
+                    Thread.sleep(sendDelay);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw handleUnexpectedFailure(new AmazonClientException(e.getMessage(), e),
+                            awsRequestMetrics);
+                } finally {
+                    awsRequestMetrics.endEvent(Field.RateLimiterPauseTime);
+                }
+            }
+            final Response<T> response = execution.attempt(backoffDelay);
+            if (response != null) {
+                return response;
+            }
+            awsRequestMetrics.startEvent(Field.RetryPauseTime);
+            try {
+                backoffDelay = execution.nextBackoffDelay();
+                Thread.sleep(backoffDelay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw handleUnexpectedFailure(new AmazonClientException(e.getMessage(), e),
+                        awsRequestMetrics);
+            } catch (final RuntimeException e) {
+                throw handleUnexpectedFailure(e, awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RetryPauseTime);
+            }
+        }
+    }
+
+    /**
+     * Executes the request without blocking the calling thread and returns a
+     * future of the result. Attempts run on the shared executor of the SDK,
+     * and retries are scheduled on it after the back-off delay instead of
+     * sleeping, so a request waiting to be retried doesn't hold a thread.
+     *
+     * @param request The AmazonWebServices request to send to the remote server
+     * @param responseHandler A response handler to accept a successful response
+     *            from the remote server
+     * @param errorResponseHandler A response handler to accept an unsuccessful
+     *            response from the remote server
+     * @param executionContext Additional information about the context of this
+     *            web service call
+     * @param <T> the response type.
+     * @return the future result of the request.
+     * @see #executeAsync(Request, HttpResponseHandler, HttpResponseHandler,
+     *      ExecutionContext, ScheduledExecutorService)
+     */
+    public <T> ResponseFuture<Response<T>> executeAsync(Request<?> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext) {
+        return executeAsync(request, responseHandler, errorResponseHandler, executionContext,
+                getDefaultAsyncExecutor());
+    }
+
+    /**
+     * Executes the request on the given executor and returns a future of the
+     * result. Each attempt runs as a separate task, and a retry is scheduled
+     * on the executor after the back-off delay. The executor bounds the number
+     * of requests that are sending or receiving at the same time; any number
+     * of requests may be waiting to be retried.
+     *
+     * @param request The AmazonWebServices request to send to the remote server
+     * @param responseHandler A response handler to accept a successful response
+     *            from the remote server
+     * @param errorResponseHandler A response handler to accept an unsuccessful
+     *            response from the remote server
+     * @param executionContext Additional information about the context of this
+     *            web service call
+     * @param executor the executor running the attempts
+     * @param <T> the response type.
+     * @return the future result of the request. Cancelling it cancels a
+     *         pending retry.
+     */
+    public <T> ResponseFuture<Response<T>> executeAsync(Request<?> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext, ScheduledExecutorService executor) {
+        if (executionContext == null) {
+            throw new AmazonClientException(
+                    "Internal SDK Error: No execution context parameter specified.");
+        }
+        final AsyncExecution<T> execution = new AsyncExecution<T>(request, responseHandler,
+                errorResponseHandler, executionContext, executor);
+        try {
+            executor.execute(execution);
+        } catch (final RejectedExecutionException e) {
+            execution.future.fail(new AmazonClientException(
+                    "Unable to schedule the request: " + e.getMessage(), e));
+        }
+        return execution.future;
+    }
+
+    /**
+     * Returns the executor shared by all clients for asynchronous requests,
+     * creating it on first use. It has a fixed number of daemon threads.
+     */
+    static ScheduledExecutorService getDefaultAsyncExecutor() {
+        synchronized (AmazonHttpClient.class) {
+            if (defaultAsyncExecutor == null) {
+                final AtomicInteger threadCount = new AtomicInteger();
+                defaultAsyncExecutor = new ScheduledThreadPoolExecutor(DEFAULT_ASYNC_THREADS,
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                final Thread thread = new Thread(r,
+                                        "aws-http-async-" + threadCount.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+            }
+            return defaultAsyncExecutor;
+        }
+    }
+
+    /**
+     * The state of a request across its attempts: the original parameters,
+     * headers and content every attempt starts over with, the redirect and the
+     * exception that caused the last retry.
+     */
+    final class RequestExecution<T> {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final AWSRequestMetrics awsRequestMetrics;
+        private final Map<String, String> originalParameters;
+        private final Map<String, String> originalHeaders;
+        private final InputStream originalContent;
+        private final AWSCredentials credentials;
+
+        private int requestCount = 0;
+        private URI redirectedURI = null;
+        private AmazonClientException retriedException = null;
+        private Signer signer = null;
+        /** Tokens the last retry took from the retry quota */
+        private int retryTokens = 0;
+        private int retryTokensConsumed = 0;
+
+        RequestExecution(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.awsRequestMetrics = executionContext.getAwsRequestMetrics();
+            /*
+             * add the service endpoint to the logs. You can infer service name
+             * from service endpoint
+             */
+            awsRequestMetrics.addProperty(Field.ServiceName, request.getServiceName());
+            awsRequestMetrics.addProperty(Field.ServiceEndpoint, request.getEndpoint());
+
+            // Apply whatever request options we know how to handle, such as
+            // user-agent.
+            setUserAgent(request);
+            request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
+
+            // Make a copy of the original request params and headers so that
+            // we can permute it in every attempt and start over with the
+            // original every time.
+            originalParameters = new LinkedHashMap<String, String>(request.getParameters());
+            originalHeaders = new HashMap<String, String>(request.getHeaders());
+            // mark input stream if supported
+            originalContent = request.getContent();
+            if (originalContent != null && originalContent.markSupported()) {
+                originalContent.mark(-1);
+            }
+            credentials = executionContext.getCredentials();
+        }
+
+        /**
+         * Sends the request once.
+         *
+         * @param lastBackoffDelay the delay waited before this attempt
+         * @return the response, or null if the request should be retried
+         *         after {@link #nextBackoffDelay()}
+         * @throws AmazonClientException if the request failed and shouldn't
+         *             be retried
          */
-        awsRequestMetrics.addProperty(Field.ServiceName, request.getServiceName());
-        awsRequestMetrics.addProperty(Field.ServiceEndpoint, request.getEndpoint());
-
-        // Apply whatever request options we know how to handle, such as
-        // user-agent.
-        setUserAgent(request);
-        request.addHeader(HEADER_SDK_TRANSACTION_ID, UUID.randomUUID().toString());
-        int requestCount = 0;
-        long lastBackoffDelay = 0;
-        URI redirectedURI = null;
-        AmazonClientException retriedException = null;
-
-        // Make a copy of the original request params and headers so that we can
-        // permute it in this loop and start over with the original every time.
-        final Map<String, String> originalParameters = new LinkedHashMap<String, String>(
-                request.getParameters());
-        final Map<String, String> originalHeaders = new HashMap<String, String>(request.getHeaders());
-        // mark input stream if supported
-        final InputStream originalContent = request.getContent();
-        if (originalContent != null && originalContent.markSupported()) {
-            originalContent.mark(-1);
-        }
-
-        final AWSCredentials credentials = executionContext.getCredentials();
-        Signer signer = null;
-        HttpResponse httpResponse = null;
-        HttpRequest httpRequest = null;
+        @SuppressWarnings("checkstyle:methodlength")
+        Response<T> attempt(long lastBackoffDelay) {
+            /*
+             * Depending on which response handler we end up choosing to handle
+             * the HTTP response, it might require us to leave the underlying
+             * HTTP connection open, depending on whether or not it reads the
+             * complete HTTP response stream from the HTTP connection, or if
+             * delays reading any of the content until after a response is
+             * returned to the caller.
+             */
+            boolean leaveHttpConnectionOpen = false;
+            HttpResponse httpResponse = null;
+            HttpRequest httpRequest = null;
 
-        while (true) {
             ++requestCount;
             awsRequestMetrics.setCounter(Field.RequestCount, requestCount);
             if (requestCount > 1) { // retry
@@ -328,22 +506,13 @@ public class AmazonHttpClient {
 
             try {
                 if (requestCount > 1) { // retry
-                    awsRequestMetrics.startEvent(Field.RetryPauseTime);
-                    try {
-                        lastBackoffDelay = pauseBeforeNextRetry(request.getOriginalRequest(),
-                                retriedException,
-                                requestCount,
-                                config.getRetryPolicy());
-                    } finally {
-                        awsRequestMetrics.endEvent(Field.RetryPauseTime);
-                    }
                     final InputStream content = request.getContent();
                     if (content != null && content.markSupported()) {
                         content.reset();
                     }
                 }
                 request.addHeader(HEADER_SDK_RETRY_INFO,
-                        (requestCount - 1) + "/" + lastBackoffDelay);
+                        (requestCount - 1) + "/" + (requestCount > 1 ? lastBackoffDelay : 0));
 
                 // Sign the request if a signer was provided
                 if (signer == null) {
@@ -383,6 +552,7 @@ public class AmazonHttpClient {
                     final T response = handleResponse(request, responseHandler,
                             httpResponse,
                             executionContext);
+                    onSuccess();
                     return new Response<T>(response, httpResponse);
                 } else if (isTemporaryRedirect(httpResponse)) {
                     /*
@@ -407,12 +577,9 @@ public class AmazonHttpClient {
                     awsRequestMetrics.addProperty(Field.AWSRequestID, ase.getRequestId());
                     awsRequestMetrics.addProperty(Field.AWSErrorCode, ase.getErrorCode());
                     awsRequestMetrics.addProperty(Field.StatusCode, ase.getStatusCode());
+                    onErrorResponse(ase);
 
-                    if (!shouldRetry(request.getOriginalRequest(),
-                            httpRequest.getContent(),
-                            ase,
-                            requestCount,
-                            config.getRetryPolicy())) {
+                    if (!shouldRetry(httpRequest.getContent(), ase)) {
                         throw ase;
                     }
 
@@ -439,11 +606,7 @@ public class AmazonHttpClient {
 
                 final AmazonClientException ace = new AmazonClientException(
                         "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
-                if (!shouldRetry(request.getOriginalRequest(),
-                        httpRequest.getContent(),
-                        ace,
-                        requestCount,
-                        config.getRetryPolicy())) {
+                if (!shouldRetry(httpRequest.getContent(), ace)) {
                     throw ace;
                 }
 
@@ -472,7 +635,179 @@ public class AmazonHttpClient {
                     }
                 }
             }
-        } /* end while (true) */
+            return null;
+        }
+
+        /**
+         * Takes the permit to send the next attempt from the rate limiter of
+         * the retry policy, if any.
+         *
+         * @return the time in milliseconds to wait before the next attempt.
+         */
+        long acquireSendPermit() {
+            final AdaptiveRateLimiter rateLimiter = config.getRetryPolicy().getRateLimiter();
+            return rateLimiter == null ? 0 : rateLimiter.acquire();
+        }
+
+        /**
+         * Returns true if a failed attempt should be retried, which also takes
+         * the tokens for the retry from the retry quota.
+         */
+        private boolean shouldRetry(InputStream inputStream, AmazonClientException exception) {
+            final RetryPolicy retryPolicy = config.getRetryPolicy();
+            if (!AmazonHttpClient.this.shouldRetry(request.getOriginalRequest(), inputStream,
+                    exception, requestCount, retryPolicy)) {
+                return false;
+            }
+            final RetryTokenBucket bucket = retryPolicy.getRetryTokenBucket();
+            if (bucket == null) {
+                return true;
+            }
+            retryTokens = bucket.acquireRetry(exception);
+            awsRequestMetrics.setCounter(Field.RetryCapacityAvailable,
+                    bucket.getAvailableTokens());
+            if (retryTokens < 0) {
+                retryTokens = 0;
+                if (log.isDebugEnabled()) {
+                    log.debug("Retry quota exhausted, not retrying");
+                }
+                return false;
+            }
+            retryTokensConsumed += retryTokens;
+            awsRequestMetrics.setCounter(Field.RetryCapacityConsumed, retryTokensConsumed);
+            return true;
+        }
+
+        private void onSuccess() {
+            final RetryPolicy retryPolicy = config.getRetryPolicy();
+            final RetryTokenBucket bucket = retryPolicy.getRetryTokenBucket();
+            if (bucket != null) {
+                bucket.releaseOnSuccess(retryTokens);
+                awsRequestMetrics.setCounter(Field.RetryCapacityAvailable,
+                        bucket.getAvailableTokens());
+            }
+            updateSendRate(retryPolicy.getRateLimiter(), false);
+        }
+
+        private void onErrorResponse(AmazonServiceException ase) {
+            final boolean throttled = RetryUtils.isThrottlingException(ase);
+            if (throttled) {
+                awsRequestMetrics.incrementCounter(Field.ThrottleException);
+            }
+            updateSendRate(config.getRetryPolicy().getRateLimiter(), throttled);
+        }
+
+        private void updateSendRate(AdaptiveRateLimiter rateLimiter, boolean throttled) {
+            if (rateLimiter != null) {
+                rateLimiter.updateSendRate(throttled);
+                awsRequestMetrics.addProperty(Field.SendRateLimit, rateLimiter.getSendRate());
+            }
+        }
+
+        /**
+         * @return the time to wait before the next attempt, to avoid flooding
+         *         a service with retries.
+         */
+        long nextBackoffDelay() {
+            final int retries = requestCount - 1; // number of attempted retries
+            final long delay = config.getRetryPolicy().getBackoffStrategy().delayBeforeNextRetry(
+                    request.getOriginalRequest(), retriedException, retries);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Retriable error detected, " +
+                        "will retry in " + delay + "ms, attempt number: " + retries);
+            }
+            return delay;
+        }
+    }
+
+    /**
+     * A request executed by tasks of an executor, one per attempt.
+     */
+    private final class AsyncExecution<T> implements Runnable {
+        private final Request<?> request;
+        private final HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final ScheduledExecutorService executor;
+        final ResponseFuture<Response<T>> future = new ResponseFuture<Response<T>>();
+
+        private List<RequestHandler2> requestHandler2s;
+        private RequestExecution<T> execution;
+        private long backoffDelay;
+        private boolean retryPending;
+        private boolean sendPermitted;
+
+        AsyncExecution(Request<?> request,
+                HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+                HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                ExecutionContext executionContext, ScheduledExecutorService executor) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            if (future.isDone()) {
+                return;
+            }
+            final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+            Response<T> response = null;
+            try {
+                if (execution == null) {
+                    requestHandler2s = requestHandler2s(request, executionContext);
+                    execution = new RequestExecution<T>(request, responseHandler,
+                            errorResponseHandler, executionContext);
+                } else if (retryPending) {
+                    retryPending = false;
+                    awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                } else if (sendPermitted) {
+                    awsRequestMetrics.endEvent(Field.RateLimiterPauseTime);
+                }
+
+                if (!sendPermitted) {
+                    sendPermitted = true;
+                    final long sendDelay = execution.acquireSendPermit();
+                    if (sendDelay > 0) {
+                        awsRequestMetrics.startEvent(Field.RateLimiterPauseTime);
+                        future.setPendingTask(executor.schedule(this, sendDelay,
+                                TimeUnit.MILLISECONDS));
+                        return;
+                    }
+                }
+
+                sendPermitted = false;
+                response = execution.attempt(backoffDelay);
+                if (response == null) {
+                    awsRequestMetrics.startEvent(Field.RetryPauseTime);
+                    retryPending = true;
+                    backoffDelay = execution.nextBackoffDelay();
+                    future.setPendingTask(executor.schedule(this, backoffDelay,
+                            TimeUnit.MILLISECONDS));
+                    return;
+                }
+
+                final TimingInfo timingInfo = awsRequestMetrics.getTimingInfo().endTiming();
+                afterResponse(request, requestHandler2s, response, timingInfo);
+                future.complete(response);
+            } catch (final AmazonClientException e) {
+                if (requestHandler2s != null) {
+                    afterError(request, response, requestHandler2s, e);
+                }
+                future.fail(e);
+            } catch (final RejectedExecutionException e) {
+                future.fail(new AmazonClientException(
+                        "Unable to schedule the retry: " + e.getMessage(), e));
+            } catch (final RuntimeException e) {
+                future.fail(e);
+            } catch (final Error e) {
+                future.fail(e);
+                throw e;
+            }
+        }
     }
 
     /**
@@ -731,43 +1066,6 @@ public class AmazonHttpClient {
         return exception;
     }
 
-    /**
-     * Sleep for a period of time on failed request to avoid flooding a service
-     * with retries.
-     *
-     * @param originalRequest The original service request that is being
-     *            executed.
-     * @param previousException Exception information for the previous attempt,
-     *            if any.
-     * @param requestCount current request count (including the next attempt
-     *            after the delay)
-     * @param retryPolicy The retry policy configured in this http client.
-     */
-    private long pauseBeforeNextRetry(AmazonWebServiceRequest originalRequest,
-            AmazonClientException previousException,
-            int requestCount,
-            RetryPolicy retryPolicy) {
-        final int retries = requestCount // including next attempt
-                - 1 // number of attempted requests
-                - 1; // number of attempted retries
-
-        final long delay = retryPolicy.getBackoffStrategy().delayBeforeNextRetry(
-                originalRequest, previousException, retries);
-
-        if (log.isDebugEnabled()) {
-            log.debug("Retriable error detected, " +
-                    "will retry in " + delay + "ms, attempt number: " + retries);
-        }
-
-        try {
-            Thread.sleep(delay);
-            return delay;
-        } catch (final InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new AmazonClientException(e.getMessage(), e);
-        }
-    }
-
     /**
      * Returns date string from the exception message body in form of
      * yyyyMMdd'T'HHmmss'Z' We needed to extract date from the message body
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+/**
+ * A snapshot of the state of the connection pool of a
+ * {@link PooledHttpClient}.
+ */
+public final class ConnectionPoolStats {
+
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final long created;
+    private final long reused;
+    private final long closed;
+
+    ConnectionPoolStats(int leased, int available, int pending, int max, long created,
+            long reused, long closed) {
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.created = created;
+        this.reused = reused;
+        this.closed = closed;
+    }
+
+    /**
+     * @return the number of connections currently executing a request.
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @return the number of idle connections kept alive for reuse.
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return the number of requests waiting for a connection.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the maximum number of open connections.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return the number of connections opened since the pool was created.
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the number of requests that were sent over a kept-alive
+     *         connection.
+     */
+    public long getReused() {
+        return reused;
+    }
+
+    /**
+     * @return the number of connections closed since the pool was created.
+     */
+    public long getClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return "[leased: " + leased + "; available: " + available + "; pending: " + pending
+                + "; max: " + max + "; created: " + created + "; reused: " + reused
+                + "; closed: " + closed + "]";
+    }
+}
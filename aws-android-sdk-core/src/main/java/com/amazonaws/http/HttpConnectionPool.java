@@ -0,0 +1,464 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * A pool of keep-alive connections, limited in total and per route. Idle
+ * connections are closed once they have been idle for longer than the idle
+ * timeout. Before reuse, a connection is checked for having been closed, and
+ * only one idle for longer than the validation interval is probed with a read,
+ * which takes a millisecond when the connection is alive.
+ */
+final class HttpConnectionPool {
+
+    private static final Log log = LogFactory.getLog(HttpConnectionPool.class);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    /** How long a reused connection is probed for having been closed */
+    private static final int STALE_CHECK_TIMEOUT_MILLIS = 1;
+
+    /**
+     * Opens the socket of a new connection.
+     */
+    interface SocketFactory {
+        /**
+         * @param route the route to connect to
+         * @return a connected socket, with TLS negotiated for secure routes
+         * @throws IOException if the connection can't be established
+         */
+        Socket open(Route route) throws IOException;
+    }
+
+    /**
+     * The endpoint a connection is established to.
+     */
+    static final class Route {
+        final String host;
+        final int port;
+        final boolean secure;
+        private final String key;
+
+        Route(String host, int port, boolean secure) {
+            this.host = host;
+            this.port = port;
+            this.secure = secure;
+            this.key = (secure ? "https://" : "http://") + host + ":" + port;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Route && key.equals(((Route) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    /**
+     * A connection of the pool.
+     */
+    static final class Connection {
+        final Route route;
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        /** Number of requests sent over this connection */
+        int requestCount;
+        /** Time after which the connection can't be reused */
+        long expiry;
+        /** Time the connection was last given back to the pool */
+        long idleSince;
+
+        Connection(Route route, Socket socket) throws IOException {
+            this.route = route;
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        /**
+         * Checks whether the server has closed the idle connection, or sent
+         * something unexpected on it.
+         *
+         * @param probe whether to wait for a read, which is the only way to
+         *            notice that the server closed the connection but takes
+         *            a millisecond
+         */
+        boolean isStale(boolean probe) {
+            if (socket.isClosed() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+                return true;
+            }
+            try {
+                if (in.available() > 0) {
+                    return true;
+                }
+                if (!probe) {
+                    return false;
+                }
+                final int soTimeout = socket.getSoTimeout();
+                try {
+                    socket.setSoTimeout(STALE_CHECK_TIMEOUT_MILLIS);
+                    // either closed by the server, or unexpected data
+                    in.read();
+                    return true;
+                } catch (final SocketTimeoutException e) {
+                    return false;
+                } finally {
+                    socket.setSoTimeout(soTimeout);
+                }
+            } catch (final IOException e) {
+                return true;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                log.debug("Error closing connection to " + route, e);
+            }
+        }
+    }
+
+    /**
+     * Connections of one route.
+     */
+    private static final class RoutePool {
+        /** Idle connections, most recently used first */
+        final LinkedList<Connection> available = new LinkedList<Connection>();
+        int leased;
+
+        int size() {
+            return leased + available.size();
+        }
+    }
+
+    private final SocketFactory socketFactory;
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final long maxIdleMillis;
+    private final long validateAfterIdleMillis;
+
+    private final Map<Route, RoutePool> routes = new LinkedHashMap<Route, RoutePool>();
+    private int leased;
+    private int available;
+    private int pending;
+    private long created;
+    private long reused;
+    private long closed;
+    private boolean isShutdown;
+
+    /**
+     * @param socketFactory opens new connections
+     * @param maxTotal maximum number of connections
+     * @param maxPerRoute maximum number of connections to one route
+     * @param maxIdleMillis time after which an idle connection is closed
+     * @param validateAfterIdleMillis time after which an idle connection is
+     *            probed before reuse
+     */
+    HttpConnectionPool(SocketFactory socketFactory, int maxTotal, int maxPerRoute,
+            long maxIdleMillis, long validateAfterIdleMillis) {
+        if (maxTotal <= 0 || maxPerRoute <= 0) {
+            throw new IllegalArgumentException("Connection limits must be positive");
+        }
+        this.socketFactory = socketFactory;
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+        this.maxIdleMillis = maxIdleMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+    }
+
+    /**
+     * Returns an idle connection to the route, or opens a new one. If the
+     * connection limits are reached, waits for a connection to be released.
+     *
+     * @param route the route to connect to
+     * @param timeoutMillis maximum time to wait for a connection, 0 for no
+     *            limit
+     * @return a connection that must be given back with
+     *         {@link #release(Connection, boolean, long)}
+     * @throws IOException if the pool is shut down, no connection is released
+     *             in time or a new connection can't be opened
+     */
+    Connection lease(Route route, long timeoutMillis) throws IOException {
+        final long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0;
+        while (true) {
+            Connection candidate = null;
+            synchronized (this) {
+                final RoutePool routePool = acquireSlot(route, deadline);
+                if (!routePool.available.isEmpty()) {
+                    candidate = routePool.available.removeFirst();
+                    available--;
+                }
+                routePool.leased++;
+                leased++;
+            }
+
+            if (candidate == null) {
+                return open(route);
+            }
+            final long now = System.currentTimeMillis();
+            final boolean probe = now - candidate.idleSince >= validateAfterIdleMillis;
+            if (candidate.expiry > now && !candidate.isStale(probe)) {
+                synchronized (this) {
+                    reused++;
+                }
+                return candidate;
+            }
+            // try again without the stale connection
+            candidate.close();
+            synchronized (this) {
+                closed++;
+                freeSlot(route);
+            }
+        }
+    }
+
+    /**
+     * Gives a leased connection back to the pool.
+     *
+     * @param connection the leased connection
+     * @param reusable whether the connection can be kept alive
+     * @param keepAliveMillis how long the server keeps the connection alive,
+     *            or a negative value if it didn't say
+     */
+    void release(Connection connection, boolean reusable, long keepAliveMillis) {
+        final long now = System.currentTimeMillis();
+        boolean close = !reusable;
+        synchronized (this) {
+            final RoutePool routePool = routes.get(connection.route);
+            routePool.leased--;
+            leased--;
+            if (isShutdown) {
+                close = true;
+            }
+            if (!close) {
+                long idle = maxIdleMillis;
+                if (keepAliveMillis >= 0 && keepAliveMillis < idle) {
+                    idle = keepAliveMillis;
+                }
+                connection.expiry = now + idle;
+                connection.idleSince = now;
+                routePool.available.addFirst(connection);
+                available++;
+            } else {
+                closed++;
+                if (routePool.size() == 0) {
+                    routes.remove(connection.route);
+                }
+            }
+            notifyAll();
+        }
+        if (close) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the idle
+     * timeout.
+     *
+     * @return the number of connections closed
+     */
+    int closeExpiredConnections() {
+        final long now = System.currentTimeMillis();
+        final LinkedList<Connection> expired = new LinkedList<Connection>();
+        synchronized (this) {
+            final Iterator<RoutePool> iterator = routes.values().iterator();
+            while (iterator.hasNext()) {
+                final RoutePool routePool = iterator.next();
+                final Iterator<Connection> connections = routePool.available.iterator();
+                while (connections.hasNext()) {
+                    final Connection connection = connections.next();
+                    if (connection.expiry <= now) {
+                        connections.remove();
+                        available--;
+                        closed++;
+                        expired.add(connection);
+                    }
+                }
+                if (routePool.size() == 0) {
+                    iterator.remove();
+                }
+            }
+            if (!expired.isEmpty()) {
+                notifyAll();
+            }
+        }
+        for (final Connection connection : expired) {
+            connection.close();
+        }
+        return expired.size();
+    }
+
+    /**
+     * Closes the idle connections and refuses further leases. Leased
+     * connections are closed when released.
+     */
+    void shutdown() {
+        final LinkedList<Connection> idle = new LinkedList<Connection>();
+        synchronized (this) {
+            isShutdown = true;
+            for (final RoutePool routePool : routes.values()) {
+                idle.addAll(routePool.available);
+                closed += routePool.available.size();
+                available -= routePool.available.size();
+                routePool.available.clear();
+            }
+            notifyAll();
+        }
+        for (final Connection connection : idle) {
+            connection.close();
+        }
+    }
+
+    synchronized ConnectionPoolStats getStats() {
+        return new ConnectionPoolStats(leased, available, pending, maxTotal, created, reused,
+                closed);
+    }
+
+    /**
+     * Waits until a connection to the route may be leased: there is an idle
+     * connection to the route, or a new one is within the limits. Closes an
+     * idle connection of another route if that is what stands in the way.
+     */
+    private RoutePool acquireSlot(Route route, long deadline) throws IOException {
+        pending++;
+        try {
+            while (true) {
+                if (isShutdown) {
+                    throw new IOException("Connection pool shut down");
+                }
+                RoutePool routePool = routes.get(route);
+                if (routePool == null) {
+                    routePool = new RoutePool();
+                    routes.put(route, routePool);
+                }
+                if (!routePool.available.isEmpty()) {
+                    return routePool;
+                }
+                if (routePool.size() < maxPerRoute) {
+                    if (leased + available < maxTotal) {
+                        return routePool;
+                    }
+                    if (available > 0) {
+                        closeEldestIdle(route);
+                        return routePool;
+                    }
+                }
+
+                long wait = 0;
+                if (deadline > 0) {
+                    wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        throw new IOException("Timeout waiting for a connection to " + route
+                                + " from the pool");
+                    }
+                }
+                try {
+                    wait(wait);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for a connection to " + route);
+                }
+            }
+        } catch (final IOException e) {
+            final RoutePool routePool = routes.get(route);
+            if (routePool != null && routePool.size() == 0) {
+                routes.remove(route);
+            }
+            throw e;
+        } finally {
+            pending--;
+        }
+    }
+
+    /**
+     * Closes the least recently used idle connection of a route other than
+     * the given one.
+     */
+    private void closeEldestIdle(Route except) {
+        Connection eldest = null;
+        RoutePool eldestPool = null;
+        for (final Map.Entry<Route, RoutePool> entry : routes.entrySet()) {
+            if (entry.getKey().equals(except) || entry.getValue().available.isEmpty()) {
+                continue;
+            }
+            final Connection candidate = entry.getValue().available.getLast();
+            if (eldest == null || candidate.expiry < eldest.expiry) {
+                eldest = candidate;
+                eldestPool = entry.getValue();
+            }
+        }
+        if (eldest != null) {
+            eldestPool.available.removeLast();
+            available--;
+            closed++;
+            if (eldestPool.size() == 0) {
+                routes.remove(eldest.route);
+            }
+            eldest.close();
+        }
+    }
+
+    private synchronized void freeSlot(Route route) {
+        final RoutePool routePool = routes.get(route);
+        routePool.leased--;
+        leased--;
+        if (routePool.size() == 0) {
+            routes.remove(route);
+        }
+        notifyAll();
+    }
+
+    private Connection open(Route route) throws IOException {
+        try {
+            final Connection connection = new Connection(route, socketFactory.open(route));
+            synchronized (this) {
+                created++;
+            }
+            return connection;
+        } catch (final IOException e) {
+            freeSlot(route);
+            throw e;
+        } catch (final RuntimeException e) {
+            freeSlot(route);
+            throw e;
+        }
+    }
+}
@@ -20,11 +20,13 @@ import com.amazonaws.ResponseMetadata;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.transform.JsonUnmarshallerContext;
 import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.transform.Utf8JsonUnmarshaller;
 import com.amazonaws.transform.VoidJsonUnmarshaller;
 import com.amazonaws.util.CRC32ChecksumCalculatingInputStream;
 import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.json.AwsJsonReader;
 import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.Utf8JsonReader;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -108,8 +110,13 @@ public class JsonResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
             }
         }
 
-        final AwsJsonReader jsonReader = JsonUtils.getJsonReader(new InputStreamReader(content,
-                StringUtils.UTF8));
+        final AwsJsonReader jsonReader;
+        if (responseUnmarshaller instanceof Utf8JsonUnmarshaller) {
+            jsonReader = new Utf8JsonReader(content);
+        } else {
+            jsonReader = JsonUtils.getJsonReader(new InputStreamReader(content,
+                    StringUtils.UTF8));
+        }
 
         try {
             final AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
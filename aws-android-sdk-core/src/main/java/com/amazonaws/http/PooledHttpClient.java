@@ -0,0 +1,648 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.http.HttpConnectionPool.Connection;
+import com.amazonaws.http.HttpConnectionPool.Route;
+import com.amazonaws.util.StringUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+
+/**
+ * An implementation of {@link HttpClient} that keeps connections alive and
+ * reuses them across requests. Compared to {@link UrlHttpClient}, a request
+ * to a host that was recently talked to skips the TCP and TLS handshakes, and
+ * the number of connections is bounded by
+ * {@link ClientConfiguration#getMaxConnections()} in total and by
+ * {@link ClientConfiguration#getMaxConnectionsPerRoute()} per host. A request
+ * waits at most {@link ClientConfiguration#getConnectionTimeout()} for a
+ * connection to become available. Idle connections are closed after
+ * {@link ClientConfiguration#getConnectionMaxIdleMillis()}, or earlier if the
+ * server asks for it.
+ * <p>
+ * Proxies aren't supported, and the Expect header isn't sent, so the request
+ * body is always sent right after the headers. The body is sent with its
+ * Content-Length, even for streaming requests, since Amazon S3 rejects chunked
+ * uploads. A request with content but no Content-Length header is sent with
+ * {@link UrlHttpClient} instead. The client must be shut down with
+ * {@link #shutdown()} to close the pooled connections.
+ */
+public class PooledHttpClient implements HttpClient {
+
+    private static final Log log = LogFactory.getLog(PooledHttpClient.class);
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** Bytes left in a closed response that are read to keep the connection */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    /** Idle time after which a connection is probed before reuse */
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = 2000;
+
+    private final ClientConfiguration config;
+    private final HttpConnectionPool pool;
+    private javax.net.ssl.SSLSocketFactory sslSocketFactory;
+    private UrlHttpClient fallbackClient;
+
+    /**
+     * Constructor.
+     *
+     * @param config the client config.
+     */
+    public PooledHttpClient(ClientConfiguration config) {
+        this(config, VALIDATE_AFTER_IDLE_MILLIS);
+    }
+
+    PooledHttpClient(ClientConfiguration config, long validateAfterIdleMillis) {
+        if (config.getProxyHost() != null && config.getProxyPort() > 0) {
+            throw new IllegalArgumentException(
+                    "Proxies aren't supported by PooledHttpClient, use UrlHttpClient instead");
+        }
+        this.config = config;
+        this.pool = new HttpConnectionPool(new HttpConnectionPool.SocketFactory() {
+            @Override
+            public Socket open(Route route) throws IOException {
+                return connect(route);
+            }
+        }, config.getMaxConnections(), config.getMaxConnectionsPerRoute(),
+                config.getConnectionMaxIdleMillis(), validateAfterIdleMillis);
+    }
+
+    @Override
+    public HttpResponse execute(final HttpRequest request) throws IOException {
+        if (request.getContent() != null && !hasContentLength(request)) {
+            return getFallbackClient().execute(request);
+        }
+
+        final URI uri = request.getUri();
+        final boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        final int port = uri.getPort() > 0 ? uri.getPort() : secure ? HTTPS_PORT : HTTP_PORT;
+        final Route route = new Route(uri.getHost(), port, secure);
+
+        pool.closeExpiredConnections();
+        final Connection connection = pool.lease(route, config.getConnectionTimeout());
+        boolean released = false;
+        try {
+            connection.requestCount++;
+            writeRequest(request, connection);
+            final HttpResponse response = readResponse(request, connection);
+            released = true;
+            return response;
+        } finally {
+            if (!released) {
+                pool.release(connection, false, -1);
+            }
+        }
+    }
+
+    /**
+     * Closes the pooled connections. Connections executing a request are
+     * closed when the response is consumed.
+     */
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+        synchronized (this) {
+            if (fallbackClient != null) {
+                fallbackClient.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than
+     * {@link ClientConfiguration#getConnectionMaxIdleMillis()}. This is done
+     * before each request anyway, but may be called to free up the sockets of
+     * a client that is no longer used.
+     */
+    public void closeExpiredConnections() {
+        pool.closeExpiredConnections();
+    }
+
+    /**
+     * @return a snapshot of the state of the connection pool.
+     */
+    public ConnectionPoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    private static boolean hasContentLength(HttpRequest request) {
+        final String contentLength = request.getHeaders() == null ? null
+                : request.getHeaders().get(HttpHeader.CONTENT_LENGTH);
+        return contentLength != null && !contentLength.isEmpty();
+    }
+
+    /**
+     * The client sending the requests whose content length isn't known, which
+     * it may have to buffer.
+     */
+    private synchronized UrlHttpClient getFallbackClient() {
+        if (fallbackClient == null) {
+            fallbackClient = new UrlHttpClient(config);
+        }
+        return fallbackClient;
+    }
+
+    private Socket connect(Route route) throws IOException {
+        final Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            final int[] bufferSizeHints = config.getSocketBufferSizeHints();
+            if (bufferSizeHints[0] > 0) {
+                socket.setSendBufferSize(bufferSizeHints[0]);
+            }
+            if (bufferSizeHints[1] > 0) {
+                socket.setReceiveBufferSize(bufferSizeHints[1]);
+            }
+            if (config.getLocalAddress() != null) {
+                socket.bind(new InetSocketAddress(config.getLocalAddress(), 0));
+            }
+            socket.connect(new InetSocketAddress(route.host, route.port),
+                    config.getConnectionTimeout());
+            socket.setSoTimeout(config.getSocketTimeout());
+            if (!route.secure) {
+                return socket;
+            }
+
+            final SSLSocket ssl = (SSLSocket) getSSLSocketFactory().createSocket(socket,
+                    route.host, route.port, true);
+            try {
+                ssl.startHandshake();
+                // wildcard certificates must match every subdomain, see
+                // HttpClient
+                SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER.verify(route.host, ssl);
+            } catch (final IOException e) {
+                ssl.close();
+                throw e;
+            }
+            return ssl;
+        } catch (final IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * A single socket factory is shared by all connections so that TLS
+     * sessions are resumed when a new connection to a host is opened.
+     */
+    private synchronized javax.net.ssl.SSLSocketFactory getSSLSocketFactory() {
+        if (sslSocketFactory == null) {
+            if (config.getTrustManager() == null) {
+                sslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+            } else {
+                try {
+                    final SSLContext sc = SSLContext.getInstance("TLS");
+                    sc.init(null, new TrustManager[] {
+                            config.getTrustManager()
+                    }, null);
+                    sslSocketFactory = sc.getSocketFactory();
+                } catch (final GeneralSecurityException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return sslSocketFactory;
+    }
+
+    private void writeRequest(HttpRequest request, Connection connection) throws IOException {
+        final URI uri = request.getUri();
+        final StringBuilder head = new StringBuilder(512);
+        head.append(request.getMethod()).append(' ');
+        final String path = uri.getRawPath();
+        head.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(" HTTP/1.1\r\n");
+
+        head.append(HttpHeader.HOST).append(": ").append(uri.getHost());
+        final Route route = connection.route;
+        if (route.port != (route.secure ? HTTPS_PORT : HTTP_PORT)) {
+            head.append(':').append(route.port);
+        }
+        head.append("\r\n");
+
+        if (request.getHeaders() != null) {
+            for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                final String key = header.getKey();
+                if (key.equalsIgnoreCase(HttpHeader.CONTENT_LENGTH)
+                        || key.equalsIgnoreCase(HttpHeader.HOST)
+                        || key.equalsIgnoreCase(HttpHeader.EXPECT)) {
+                    continue;
+                }
+                head.append(key).append(": ").append(header.getValue()).append("\r\n");
+            }
+        }
+
+        final InputStream content = request.getContent();
+        final long contentLength = request.getContentLength();
+        if (content != null) {
+            head.append(HttpHeader.CONTENT_LENGTH).append(": ").append(contentLength)
+                    .append("\r\n");
+        } else if ("POST".equals(request.getMethod()) || "PUT".equals(request.getMethod())) {
+            head.append(HttpHeader.CONTENT_LENGTH).append(": 0\r\n");
+        }
+        head.append("\r\n");
+
+        final OutputStream out = connection.out;
+        out.write(head.toString().getBytes(StringUtils.UTF8));
+        if (content != null) {
+            writeFixedLength(content, contentLength, out);
+        }
+        out.flush();
+    }
+
+    private static void writeFixedLength(InputStream content, long contentLength,
+            OutputStream out) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long remaining = contentLength;
+        while (remaining > 0) {
+            final int read = content.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new IOException("Request content ended " + remaining
+                        + " bytes before the Content-Length of " + contentLength);
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private HttpResponse readResponse(HttpRequest request, Connection connection)
+            throws IOException {
+        final InputStream in = connection.in;
+        String statusLine;
+        int statusCode;
+        do {
+            statusLine = readLine(in);
+            statusCode = parseStatusCode(statusLine);
+            if (statusCode < 200) {
+                // skip informational responses such as 100 Continue
+                readHeaders(in, null, null);
+            }
+        } while (statusCode < 200);
+
+        final HttpResponse.Builder builder = HttpResponse.builder().statusCode(statusCode);
+        final int textStart = statusLine.indexOf(' ', statusLine.indexOf(' ') + 1);
+        builder.statusText(textStart > 0 ? statusLine.substring(textStart + 1) : "");
+        final Map<String, String> headers = new HashMap<String, String>();
+        readHeaders(in, builder, headers);
+
+        final boolean http10 = statusLine.startsWith("HTTP/1.0");
+        final String connectionHeader = headers.get("connection");
+        boolean reusable = http10 ? "keep-alive".equalsIgnoreCase(connectionHeader)
+                : !"close".equalsIgnoreCase(connectionHeader);
+        final long keepAliveMillis = parseKeepAliveMillis(headers.get("keep-alive"));
+
+        final InputStream body;
+        final String transferEncoding = headers.get("transfer-encoding");
+        final String contentLength = headers.get("content-length");
+        if ("HEAD".equals(request.getMethod()) || statusCode == 204 || statusCode == 304) {
+            body = null;
+        } else if (transferEncoding != null && !"identity".equalsIgnoreCase(transferEncoding)) {
+            body = new ChunkedInputStream(in);
+        } else if (contentLength != null) {
+            try {
+                body = new FixedLengthInputStream(in, Long.parseLong(contentLength.trim()));
+            } catch (final NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + contentLength);
+            }
+        } else {
+            // the body ends when the server closes the connection
+            body = in;
+            reusable = false;
+        }
+
+        if (body == null) {
+            pool.release(connection, reusable, keepAliveMillis);
+        } else {
+            builder.content(new ConnectionReleasingInputStream(body, connection, reusable,
+                    keepAliveMillis));
+        }
+        return builder.build();
+    }
+
+    private static int parseStatusCode(String statusLine) throws IOException {
+        if (!statusLine.startsWith("HTTP/") || statusLine.length() < 12) {
+            throw new IOException("Unexpected status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(statusLine.substring(9, 12));
+        } catch (final NumberFormatException e) {
+            throw new IOException("Unexpected status line: " + statusLine);
+        }
+    }
+
+    /**
+     * Reads the headers up to the empty line. The first value of a header is
+     * added to the builder, as UrlHttpClient does, and to the given map with
+     * a lower case name.
+     */
+    private static void readHeaders(InputStream in, HttpResponse.Builder builder,
+            Map<String, String> headers) throws IOException {
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            final int colon = line.indexOf(':');
+            if (colon <= 0 || builder == null) {
+                continue;
+            }
+            final String name = line.substring(0, colon).trim();
+            final String lowerCaseName = name.toLowerCase(Locale.US);
+            if (headers.containsKey(lowerCaseName)) {
+                continue;
+            }
+            final String value = line.substring(colon + 1).trim();
+            headers.put(lowerCaseName, value);
+            builder.header(name, value);
+        }
+    }
+
+    /**
+     * @return the timeout of a "Keep-Alive: timeout=5, max=100" header in
+     *         milliseconds, or -1 if not present.
+     */
+    static long parseKeepAliveMillis(String keepAlive) {
+        if (keepAlive == null) {
+            return -1;
+        }
+        for (final String param : keepAlive.split(",")) {
+            final int equals = param.indexOf('=');
+            if (equals > 0 && "timeout".equalsIgnoreCase(param.substring(0, equals).trim())) {
+                try {
+                    return Long.parseLong(param.substring(equals + 1).trim()) * 1000;
+                } catch (final NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a line terminated by LF or CRLF, without the terminator.
+     */
+    static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("Connection closed before the end of the line");
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new IOException("Line longer than " + MAX_LINE_LENGTH + " characters");
+            }
+            line.append((char) b);
+        }
+        final int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * A response body of a known length.
+     */
+    static final class FixedLengthInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        FixedLengthInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Connection closed before the end of the response");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new EOFException("Connection closed before the end of the response");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+
+    /**
+     * A response body with chunked transfer encoding.
+     */
+    static final class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long chunkRemaining;
+        private boolean eof;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (chunkRemaining == 0) {
+                nextChunk();
+                if (eof) {
+                    return -1;
+                }
+            }
+            final int read = in.read(b, off, (int) Math.min(len, chunkRemaining));
+            if (read == -1) {
+                throw new EOFException("Connection closed before the end of the response");
+            }
+            chunkRemaining -= read;
+            if (chunkRemaining == 0) {
+                // CRLF after the chunk data
+                readLine(in);
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return eof ? 0 : (int) Math.min(in.available(), chunkRemaining);
+        }
+
+        private void nextChunk() throws IOException {
+            String sizeLine = readLine(in);
+            final int extension = sizeLine.indexOf(';');
+            if (extension >= 0) {
+                sizeLine = sizeLine.substring(0, extension);
+            }
+            try {
+                chunkRemaining = Long.parseLong(sizeLine.trim(), 16);
+            } catch (final NumberFormatException e) {
+                throw new IOException("Invalid chunk size: " + sizeLine);
+            }
+            if (chunkRemaining == 0) {
+                // skip the trailers
+                while (!readLine(in).isEmpty()) {
+                    continue;
+                }
+                eof = true;
+            }
+        }
+    }
+
+    /**
+     * Gives the connection back to the pool once the response body has been
+     * read entirely or closed.
+     */
+    private final class ConnectionReleasingInputStream extends InputStream {
+        private final InputStream body;
+        private final Connection connection;
+        private final boolean reusable;
+        private final long keepAliveMillis;
+        private boolean released;
+
+        ConnectionReleasingInputStream(InputStream body, Connection connection,
+                boolean reusable, long keepAliveMillis) {
+            this.body = body;
+            this.connection = connection;
+            this.reusable = reusable;
+            this.keepAliveMillis = keepAliveMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (released) {
+                return -1;
+            }
+            try {
+                final int b = body.read();
+                if (b == -1) {
+                    release(reusable);
+                }
+                return b;
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (released) {
+                return -1;
+            }
+            try {
+                final int read = body.read(b, off, len);
+                if (read == -1) {
+                    release(reusable);
+                }
+                return read;
+            } catch (final IOException e) {
+                release(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return released ? 0 : body.available();
+        }
+
+        /**
+         * Reads the rest of a small body so that the connection can be
+         * reused, otherwise closes the connection.
+         */
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            if (!reusable) {
+                release(false);
+                return;
+            }
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long drained = 0;
+            try {
+                int read;
+                while (drained < MAX_DRAIN_BYTES
+                        && (read = body.read(buffer)) != -1) {
+                    drained += read;
+                }
+                release(drained < MAX_DRAIN_BYTES || body.read() == -1);
+            } catch (final IOException e) {
+                log.debug("Unable to read the rest of the response", e);
+                release(false);
+            }
+        }
+
+        private void release(boolean reuse) {
+            if (!released) {
+                released = true;
+                pool.release(connection, reuse, keepAliveMillis);
+            }
+        }
+    }
+}
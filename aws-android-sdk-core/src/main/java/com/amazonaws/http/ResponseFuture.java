@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+
+package com.amazonaws.http;
+
+import com.amazonaws.AmazonClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The future result of a request executed with
+ * {@link AmazonHttpClient#executeAsync}.
+ * Besides blocking on {@link #get()}, callers can register a
+ * {@link Callback} that is notified on completion, so that no thread has to
+ * wait for the result.
+ *
+ * @param <T> the result type.
+ */
+public final class ResponseFuture<T> implements Future<T> {
+
+    /**
+     * Notified when the future completes.
+     *
+     * @param <T> the result type.
+     */
+    public interface Callback<T> {
+        /**
+         * Invoked with the result of a successful request.
+         *
+         * @param result the result.
+         */
+        void onSuccess(T result);
+
+        /**
+         * Invoked when the request failed or was cancelled.
+         *
+         * @param exception the failure, a {@link CancellationException} if the
+         *            request was cancelled.
+         */
+        void onError(Exception exception);
+    }
+
+    private final List<Callback<? super T>> callbacks = new ArrayList<Callback<? super T>>(1);
+    private boolean done;
+    private boolean cancelled;
+    private T result;
+    private Throwable failure;
+    /** The scheduled retry, cancelled with the future */
+    private Future<?> pendingTask;
+
+    /**
+     * Registers a callback, which is invoked right away on the calling thread
+     * if the future is already complete, otherwise on the thread completing
+     * it.
+     *
+     * @param callback the callback.
+     * @return this future.
+     */
+    public ResponseFuture<T> addCallback(Callback<? super T> callback) {
+        synchronized (this) {
+            if (!done) {
+                callbacks.add(callback);
+                return this;
+            }
+        }
+        invoke(callback);
+        return this;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        final Future<?> task;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            cancelled = true;
+            failure = new CancellationException("Request cancelled");
+            task = pendingTask;
+            pendingTask = null;
+        }
+        if (task != null) {
+            task.cancel(mayInterruptIfRunning);
+        }
+        completed();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    void complete(T value) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            result = value;
+        }
+        completed();
+    }
+
+    void fail(Throwable t) {
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+            done = true;
+            failure = t;
+        }
+        completed();
+    }
+
+    synchronized void setPendingTask(Future<?> task) {
+        if (cancelled) {
+            task.cancel(false);
+        } else {
+            pendingTask = task;
+        }
+    }
+
+    private T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw (CancellationException) failure;
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+
+    /**
+     * Wakes the waiting threads and notifies the callbacks, once the outcome
+     * has been set by the caller that marked the future done.
+     */
+    private void completed() {
+        final List<Callback<? super T>> toNotify;
+        synchronized (this) {
+            notifyAll();
+            toNotify = new ArrayList<Callback<? super T>>(callbacks);
+            callbacks.clear();
+        }
+        for (final Callback<? super T> callback : toNotify) {
+            invoke(callback);
+        }
+    }
+
+    private void invoke(Callback<? super T> callback) {
+        final T value;
+        final Throwable t;
+        synchronized (this) {
+            value = result;
+            t = failure;
+        }
+        if (t == null) {
+            callback.onSuccess(value);
+        } else if (t instanceof Exception) {
+            callback.onError((Exception) t);
+        } else {
+            callback.onError(new AmazonClientException(t.getMessage(), t));
+        }
+    }
+}
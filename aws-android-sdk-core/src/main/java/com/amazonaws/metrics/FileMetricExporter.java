@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Appends each snapshot to a text file, one metric per line. Once the file
+ * reaches its size limit it is renamed with a ".1" suffix, replacing the
+ * previous one, and a new file is started, so at most twice the limit is
+ * kept on disk.
+ */
+public class FileMetricExporter implements MetricExporter {
+    /** Default size limit of the file, 256 KB. */
+    public static final long DEFAULT_MAX_FILE_BYTES = 256 * 1024;
+
+    private final File file;
+    private final long maxFileBytes;
+
+    /**
+     * Constructor with a {@link #DEFAULT_MAX_FILE_BYTES} limit.
+     *
+     * @param file the file to append to.
+     */
+    public FileMetricExporter(File file) {
+        this(file, DEFAULT_MAX_FILE_BYTES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param file the file to append to.
+     * @param maxFileBytes the size after which the file is rotated.
+     */
+    public FileMetricExporter(File file, long maxFileBytes) {
+        if (file == null) {
+            throw new IllegalArgumentException("file can't be null");
+        }
+        if (maxFileBytes <= 0) {
+            throw new IllegalArgumentException("maxFileBytes must be positive");
+        }
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    /**
+     * @return the file metrics are appended to.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) throws IOException {
+        if (file.length() >= maxFileBytes) {
+            final File previous = new File(file.getPath() + ".1");
+            if (previous.exists() && !previous.delete()) {
+                throw new IOException("Unable to delete " + previous);
+            }
+            if (!file.renameTo(previous)) {
+                throw new IOException("Unable to rename " + file + " to " + previous);
+            }
+        }
+
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StringUtils.UTF8));
+        try {
+            writer.write(snapshot.toString());
+            writer.write('\n');
+            for (final MetricsSnapshot.Entry entry : snapshot.getEntries()) {
+                writer.write(entry.toString());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
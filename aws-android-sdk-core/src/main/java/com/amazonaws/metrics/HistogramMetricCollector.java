@@ -0,0 +1,450 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An in-process metric collector that keeps a {@link LatencyHistogram} per
+ * service, operation and timed {@link Field}, counts requests, errors and
+ * retries, and sums the byte throughput reported by the SDK's streams. At
+ * the end of every interval it hands a {@link MetricsSnapshot} to a
+ * {@link MetricExporter} and starts over.
+ * <p>
+ * Recording takes no locks and, once a series exists, allocates nothing. The
+ * number of series is capped, so memory stays bounded however many
+ * operations are called; samples for series over the cap are dropped and
+ * counted as "DroppedSamples".
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * HistogramMetricCollector collector = new HistogramMetricCollector(
+ *         new LogMetricExporter());
+ * collector.start();
+ * AwsSdkMetrics.setMetricCollector(collector);
+ * </pre>
+ */
+public class HistogramMetricCollector extends MetricCollector {
+    /** Default interval between snapshots, one minute. */
+    public static final long DEFAULT_INTERVAL_MILLIS = 60 * 1000;
+    /** Default maximum number of histograms and counter sets. */
+    public static final int DEFAULT_MAX_SERIES = 128;
+
+    /** The request metrics that hold a duration. */
+    private static final Field[] TIMED_FIELDS = {
+            Field.ClientExecuteTime,
+            Field.CredentialsRequestTime,
+            Field.RequestMarshallTime,
+            Field.RequestSigningTime,
+            Field.HttpRequestTime,
+            Field.HttpClientSendRequestTime,
+            Field.HttpClientReceiveResponseTime,
+            Field.ResponseProcessingTime,
+            Field.RetryPauseTime,
+            Field.RateLimiterPauseTime
+    };
+    /** The index in TIMED_FIELDS of every field by ordinal, or -1. */
+    private static final int[] TIMED_FIELD_INDEXES = new int[Field.values().length];
+    private static final int NANOS_PER_MICRO = 1000;
+
+    static {
+        Arrays.fill(TIMED_FIELD_INDEXES, -1);
+        for (int i = 0; i < TIMED_FIELDS.length; i++) {
+            TIMED_FIELD_INDEXES[TIMED_FIELDS[i].ordinal()] = i;
+        }
+    }
+
+    private final MetricExporter exporter;
+    private final long intervalMillis;
+    private final int maxSeries;
+
+    private final ConcurrentMap<Object, OperationMetrics> operations =
+            new ConcurrentHashMap<Object, OperationMetrics>();
+    private final ConcurrentMap<ServiceMetricType, LatencyHistogram> serviceLatencies =
+            new ConcurrentHashMap<ServiceMetricType, LatencyHistogram>();
+    private final ConcurrentMap<ThroughputMetricType, ThroughputMetrics> throughputs =
+            new ConcurrentHashMap<ThroughputMetricType, ThroughputMetrics>();
+    private final AtomicInteger seriesCount = new AtomicInteger();
+    private final AtomicLong droppedSamples = new AtomicLong();
+
+    private volatile long intervalStartMillis = System.currentTimeMillis();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean enabled;
+
+    private final RequestMetricCollector requestMetricCollector = new RequestMetricCollector() {
+        @Override
+        public void collectMetrics(Request<?> request, Response<?> response) {
+            recordRequest(request, response);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+    };
+
+    private final ServiceMetricCollector serviceMetricCollector = new ServiceMetricCollector() {
+        @Override
+        public void collectByteThroughput(ByteThroughputProvider provider) {
+            recordThroughput(provider);
+        }
+
+        @Override
+        public void collectLatency(ServiceLatencyProvider provider) {
+            recordLatency(provider);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+    };
+
+    /**
+     * Constructor with the default interval and series limit.
+     *
+     * @param exporter the exporter to hand snapshots to.
+     */
+    public HistogramMetricCollector(MetricExporter exporter) {
+        this(exporter, DEFAULT_INTERVAL_MILLIS, DEFAULT_MAX_SERIES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param exporter the exporter to hand snapshots to.
+     * @param intervalMillis the time between snapshots, in milliseconds.
+     * @param maxSeries the maximum number of histograms and counter sets kept.
+     */
+    public HistogramMetricCollector(MetricExporter exporter, long intervalMillis, int maxSeries) {
+        if (exporter == null) {
+            throw new IllegalArgumentException("exporter can't be null");
+        }
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        if (maxSeries <= 0) {
+            throw new IllegalArgumentException("maxSeries must be positive");
+        }
+        this.exporter = exporter;
+        this.intervalMillis = intervalMillis;
+        this.maxSeries = maxSeries;
+    }
+
+    /**
+     * Starts taking a snapshot every interval on a background daemon thread.
+     */
+    @Override
+    public synchronized boolean start() {
+        if (scheduler != null) {
+            return false;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "aws-sdk-metrics-exporter");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                export();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        enabled = true;
+        return true;
+    }
+
+    /**
+     * Stops the background thread and exports what was recorded since the
+     * last snapshot.
+     */
+    @Override
+    public synchronized boolean stop() {
+        if (scheduler == null) {
+            return false;
+        }
+        enabled = false;
+        scheduler.shutdown();
+        scheduler = null;
+        export();
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public RequestMetricCollector getRequestMetricCollector() {
+        return requestMetricCollector;
+    }
+
+    @Override
+    public ServiceMetricCollector getServiceMetricCollector() {
+        return serviceMetricCollector;
+    }
+
+    /**
+     * Takes the metrics recorded since the previous snapshot and starts a new
+     * interval. Called by the background thread at the end of every interval;
+     * can also be called directly to export on demand.
+     *
+     * @return the metrics of the interval that just ended.
+     */
+    public synchronized MetricsSnapshot snapshot() {
+        final long start = intervalStartMillis;
+        final long end = System.currentTimeMillis();
+        intervalStartMillis = end;
+
+        final List<MetricsSnapshot.Entry> entries = new ArrayList<MetricsSnapshot.Entry>();
+        for (final OperationMetrics operation : operations.values()) {
+            operation.snapshot(entries);
+        }
+        for (final Map.Entry<ServiceMetricType, LatencyHistogram> latency : serviceLatencies
+                .entrySet()) {
+            final LatencyHistogram.Snapshot histogram = latency.getValue().snapshotAndReset();
+            if (histogram.getCount() > 0) {
+                entries.add(new MetricsSnapshot.Latency(latency.getKey().getServiceName(), null,
+                        latency.getKey().name(), histogram));
+            }
+        }
+        for (final Map.Entry<ThroughputMetricType, ThroughputMetrics> throughput : throughputs
+                .entrySet()) {
+            final long bytes = throughput.getValue().byteCount.getAndSet(0);
+            final long duration = throughput.getValue().durationNano.getAndSet(0);
+            if (bytes > 0) {
+                entries.add(new MetricsSnapshot.Throughput(throughput.getKey().getServiceName(),
+                        throughput.getKey().name(), bytes, duration));
+            }
+        }
+        final long dropped = droppedSamples.getAndSet(0);
+        if (dropped > 0) {
+            entries.add(new MetricsSnapshot.Counter(null, null, "DroppedSamples", dropped));
+        }
+        return new MetricsSnapshot(start, end, entries);
+    }
+
+    private void export() {
+        try {
+            exporter.export(snapshot());
+        } catch (final Exception e) {
+            LogFactory.getLog(HistogramMetricCollector.class).warn("Failed to export metrics", e);
+        }
+    }
+
+    private void recordRequest(Request<?> request, Response<?> response) {
+        final AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
+        final Object key = originalRequest == null ? request.getServiceName() : originalRequest
+                .getClass();
+        OperationMetrics operation = operations.get(key);
+        if (operation == null) {
+            if (!reserveSeries()) {
+                droppedSamples.incrementAndGet();
+                return;
+            }
+            final OperationMetrics created = new OperationMetrics(request.getServiceName(),
+                    operationNameOf(originalRequest));
+            operation = operations.putIfAbsent(key, created);
+            if (operation == null) {
+                operation = created;
+            } else {
+                seriesCount.decrementAndGet();
+            }
+        }
+
+        operation.requestCount.incrementAndGet();
+        if (response == null) {
+            operation.errorCount.incrementAndGet();
+        }
+
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null) {
+            return;
+        }
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final long attempts = timingInfo.getCounter(Field.RequestCount, 0);
+        if (attempts > 1) {
+            operation.retryCount.addAndGet(attempts - 1);
+        }
+        final int measurements = timingInfo.getFieldSubMeasurementCount();
+        for (int i = 0; i < measurements; i++) {
+            final int timedField = TIMED_FIELD_INDEXES[timingInfo.getFieldSubMeasurementField(i)
+                    .ordinal()];
+            if (timedField < 0) {
+                continue;
+            }
+            final LatencyHistogram histogram = operation.histogram(timedField);
+            if (histogram == null) {
+                droppedSamples.incrementAndGet();
+            } else {
+                histogram.record((timingInfo.getFieldSubMeasurementEndNano(i)
+                        - timingInfo.getFieldSubMeasurementStartNano(i)) / NANOS_PER_MICRO);
+            }
+        }
+    }
+
+    private void recordLatency(ServiceLatencyProvider provider) {
+        final ServiceMetricType type = provider.getServiceMetricType();
+        LatencyHistogram histogram = serviceLatencies.get(type);
+        if (histogram == null) {
+            if (!reserveSeries()) {
+                droppedSamples.incrementAndGet();
+                return;
+            }
+            final LatencyHistogram created = new LatencyHistogram();
+            histogram = serviceLatencies.putIfAbsent(type, created);
+            if (histogram == null) {
+                histogram = created;
+            } else {
+                seriesCount.decrementAndGet();
+            }
+        }
+        histogram.record((long) (provider.getDurationMilli() * 1000));
+    }
+
+    private void recordThroughput(ByteThroughputProvider provider) {
+        final ThroughputMetricType type = provider.getThroughputMetricType();
+        ThroughputMetrics throughput = throughputs.get(type);
+        if (throughput == null) {
+            if (!reserveSeries()) {
+                droppedSamples.incrementAndGet();
+                return;
+            }
+            final ThroughputMetrics created = new ThroughputMetrics();
+            throughput = throughputs.putIfAbsent(type, created);
+            if (throughput == null) {
+                throughput = created;
+            } else {
+                seriesCount.decrementAndGet();
+            }
+        }
+        throughput.byteCount.addAndGet(provider.getByteCount());
+        throughput.durationNano.addAndGet(provider.getDurationNano());
+    }
+
+    private boolean reserveSeries() {
+        if (seriesCount.incrementAndGet() > maxSeries) {
+            seriesCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private static String operationNameOf(AmazonWebServiceRequest originalRequest) {
+        if (originalRequest == null) {
+            return "Unknown";
+        }
+        final String name = originalRequest.getClass().getSimpleName();
+        return name.endsWith("Request") && name.length() > "Request".length()
+                ? name.substring(0, name.length() - "Request".length())
+                : name;
+    }
+
+    /**
+     * The histograms and counters of one operation.
+     */
+    private final class OperationMetrics {
+        private final String serviceName;
+        private final String operationName;
+        private final AtomicReferenceArray<LatencyHistogram> histograms =
+                new AtomicReferenceArray<LatencyHistogram>(TIMED_FIELDS.length);
+        private final AtomicLong requestCount = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong retryCount = new AtomicLong();
+
+        OperationMetrics(String serviceName, String operationName) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+        }
+
+        /**
+         * @return the histogram of the given timed field, created on first
+         *         use, or null if the series limit has been reached.
+         */
+        LatencyHistogram histogram(int field) {
+            final LatencyHistogram histogram = histograms.get(field);
+            if (histogram != null) {
+                return histogram;
+            }
+            if (!reserveSeries()) {
+                return null;
+            }
+            final LatencyHistogram created = new LatencyHistogram();
+            if (histograms.compareAndSet(field, null, created)) {
+                return created;
+            }
+            seriesCount.decrementAndGet();
+            return histograms.get(field);
+        }
+
+        void snapshot(List<MetricsSnapshot.Entry> entries) {
+            addCounter(entries, "RequestCount", requestCount.getAndSet(0));
+            addCounter(entries, "ErrorCount", errorCount.getAndSet(0));
+            addCounter(entries, "RetryCount", retryCount.getAndSet(0));
+            for (int i = 0; i < TIMED_FIELDS.length; i++) {
+                final LatencyHistogram histogram = histograms.get(i);
+                if (histogram == null) {
+                    continue;
+                }
+                final LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+                if (snapshot.getCount() > 0) {
+                    entries.add(new MetricsSnapshot.Latency(serviceName, operationName,
+                            TIMED_FIELDS[i].name(), snapshot));
+                }
+            }
+        }
+
+        private void addCounter(List<MetricsSnapshot.Entry> entries, String name, long count) {
+            if (count > 0) {
+                entries.add(new MetricsSnapshot.Counter(serviceName, operationName, name, count));
+            }
+        }
+    }
+
+    /**
+     * Bytes and time summed over the reports of one throughput metric.
+     */
+    private static final class ThroughputMetrics {
+        private final AtomicLong byteCount = new AtomicLong();
+        private final AtomicLong durationNano = new AtomicLong();
+    }
+}
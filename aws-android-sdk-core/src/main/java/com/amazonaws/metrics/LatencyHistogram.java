@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size latency histogram that many threads can record into without
+ * locking or allocating.
+ * <p>
+ * Values are in microseconds and are counted in log-linear buckets: every
+ * power of two is split into {@value #SUB_BUCKETS} equal buckets, so a
+ * reported value is within about 6% of the recorded one. Values above
+ * {@link #MAX_VALUE} (about 12 days) are counted as {@link #MAX_VALUE}.
+ */
+public final class LatencyHistogram {
+    /** Number of buckets each power of two is split into. */
+    static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int MAX_EXPONENT = 40;
+
+    /** The largest value that can be told apart from larger ones. */
+    public static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Records one value.
+     *
+     * @param micros the value in microseconds; negative values are counted
+     *            as zero.
+     */
+    public void record(long micros) {
+        final long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+        count.incrementAndGet();
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+        current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return the number of values recorded since the last
+     *         {@link #snapshotAndReset()}.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Takes the values recorded so far and starts a new interval. A value
+     * recorded while the snapshot is taken ends up in either this snapshot or
+     * the next one, never in both.
+     *
+     * @return the values recorded since the previous call.
+     */
+    public Snapshot snapshotAndReset() {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.getAndSet(i, 0);
+            total += counts[i];
+        }
+        // the count follows the buckets taken rather than being reset, so a
+        // value whose bucket was left for the next interval stays counted
+        count.addAndGet(-total);
+        // min, max and sum are reset as they are; a value recorded right now
+        // may be reflected in them one interval early
+        final long sumValue = sum.getAndSet(0);
+        final long minValue = min.getAndSet(Long.MAX_VALUE);
+        final long maxValue = max.getAndSet(Long.MIN_VALUE);
+        return new Snapshot(counts, total, sumValue, minValue, maxValue);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the largest value counted in the given bucket.
+     */
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS)
+                << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * An immutable copy of the values recorded in one interval.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long min, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = count == 0 ? 0 : min;
+            this.max = count == 0 ? 0 : max;
+        }
+
+        /** @return the number of recorded values. */
+        public long getCount() {
+            return count;
+        }
+
+        /** @return the smallest recorded value in microseconds, or 0. */
+        public long getMin() {
+            return min;
+        }
+
+        /** @return the largest recorded value in microseconds, or 0. */
+        public long getMax() {
+            return max;
+        }
+
+        /** @return the mean of the recorded values in microseconds, or 0. */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile the percentile, from 0 to 100.
+         * @return the value in microseconds that the given percentage of the
+         *         recorded values are less than or equal to, or 0 if there are
+         *         none.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final double clamped = Math.max(0, Math.min(100, percentile));
+            final long rank = Math.max(1, (long) Math.ceil(clamped / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max, highestValueOf(i)));
+                }
+            }
+            return max;
+        }
+    }
+}
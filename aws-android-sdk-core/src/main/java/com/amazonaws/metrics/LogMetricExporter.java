@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Writes each metric of a snapshot as one info line to the log. On Android
+ * the log is logcat.
+ */
+public class LogMetricExporter implements MetricExporter {
+    private final Log log;
+
+    /**
+     * Constructor, logging under the name of this class.
+     */
+    public LogMetricExporter() {
+        this(LogFactory.getLog(LogMetricExporter.class));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param log the log to write to.
+     */
+    public LogMetricExporter(Log log) {
+        this.log = log;
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        log.info(snapshot);
+        for (final MetricsSnapshot.Entry entry : snapshot.getEntries()) {
+            log.info(entry);
+        }
+    }
+}
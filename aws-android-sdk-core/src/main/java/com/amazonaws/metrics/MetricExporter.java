@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import java.io.IOException;
+
+/**
+ * Receives the metrics a {@link HistogramMetricCollector} takes at the end of
+ * each interval.
+ *
+ * @see LogMetricExporter
+ * @see FileMetricExporter
+ */
+public interface MetricExporter {
+    /**
+     * Exports one snapshot. Called on the collector's own thread, one
+     * snapshot at a time.
+     *
+     * @param snapshot the metrics of the interval that just ended.
+     * @throws IOException if the metrics could not be written out; the
+     *             collector logs it and carries on with the next interval.
+     */
+    void export(MetricsSnapshot snapshot) throws IOException;
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import com.amazonaws.util.DateUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The metrics a {@link HistogramMetricCollector} recorded in one interval, as
+ * handed to a {@link MetricExporter}.
+ */
+public final class MetricsSnapshot {
+    private final long startTimeMillis;
+    private final long endTimeMillis;
+    private final List<Entry> entries;
+
+    MetricsSnapshot(long startTimeMillis, long endTimeMillis, List<Entry> entries) {
+        this.startTimeMillis = startTimeMillis;
+        this.endTimeMillis = endTimeMillis;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /** @return the start of the interval, in milliseconds since the epoch. */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /** @return the end of the interval, in milliseconds since the epoch. */
+    public long getEndTimeMillis() {
+        return endTimeMillis;
+    }
+
+    /** @return the metrics recorded in the interval; never null. */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return "metrics " + DateUtils.formatISO8601Date(new Date(startTimeMillis)) + " - "
+                + DateUtils.formatISO8601Date(new Date(endTimeMillis)) + ": " + entries.size()
+                + " entries";
+    }
+
+    /**
+     * One metric of a snapshot. Its {@link #toString()} is a single line
+     * meant for logs.
+     */
+    public abstract static class Entry {
+        private final String serviceName;
+        private final String operationName;
+        private final String metricName;
+
+        Entry(String serviceName, String operationName, String metricName) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+            this.metricName = metricName;
+        }
+
+        /** @return the service name, or null for metrics not tied to one. */
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        /**
+         * @return the operation name, such as "PutItem", or null for metrics
+         *         not tied to an operation.
+         */
+        public String getOperationName() {
+            return operationName;
+        }
+
+        /** @return the metric name, such as "ClientExecuteTime". */
+        public String getMetricName() {
+            return metricName;
+        }
+
+        String prefix() {
+            final StringBuilder sb = new StringBuilder();
+            if (serviceName != null) {
+                sb.append(serviceName).append(' ');
+            }
+            if (operationName != null) {
+                sb.append(operationName).append(' ');
+            }
+            return sb.append(metricName).toString();
+        }
+    }
+
+    /**
+     * The distribution of a latency, in microseconds.
+     */
+    public static final class Latency extends Entry {
+        private final LatencyHistogram.Snapshot histogram;
+
+        Latency(String serviceName, String operationName, String metricName,
+                LatencyHistogram.Snapshot histogram) {
+            super(serviceName, operationName, metricName);
+            this.histogram = histogram;
+        }
+
+        /** @return the recorded latencies. */
+        public LatencyHistogram.Snapshot getHistogram() {
+            return histogram;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s count=%d min=%.3f mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f ms",
+                    prefix(), histogram.getCount(), histogram.getMin() / 1000.0,
+                    histogram.getMean() / 1000.0,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getMax() / 1000.0);
+        }
+    }
+
+    /**
+     * The bytes read or written and the time spent doing so.
+     */
+    public static final class Throughput extends Entry {
+        private final long byteCount;
+        private final long durationNano;
+
+        Throughput(String serviceName, String metricName, long byteCount, long durationNano) {
+            super(serviceName, null, metricName);
+            this.byteCount = byteCount;
+            this.durationNano = durationNano;
+        }
+
+        /** @return the number of bytes. */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        /** @return the time spent transferring the bytes, in nanoseconds. */
+        public long getDurationNano() {
+            return durationNano;
+        }
+
+        /** @return the bytes per second, or 0 if no time was recorded. */
+        public double getBytesPerSecond() {
+            return durationNano == 0 ? 0 : byteCount * 1e9 / durationNano;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s bytes=%d duration=%.3f ms rate=%.0f bytes/s",
+                    prefix(), byteCount, durationNano / 1e6, getBytesPerSecond());
+        }
+    }
+
+    /**
+     * A number of events, such as requests or retries.
+     */
+    public static final class Counter extends Entry {
+        private final long count;
+
+        Counter(String serviceName, String operationName, String metricName, long count) {
+            super(serviceName, operationName, metricName);
+            this.count = count;
+        }
+
+        /** @return the number of events. */
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return prefix() + " " + count;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+/**
+ * A client side limit of the rate requests are sent at, which adapts to the
+ * throttling errors of a service. The limiter is off until the first
+ * throttling error. Then the send rate drops multiplicatively on every
+ * throttling error and recovers along a cubic curve, as in the CUBIC
+ * congestion control algorithm, while requests succeed.
+ * <p>
+ * This class is thread safe. A limiter is shared by all requests of the
+ * clients using the {@link RetryPolicy} it belongs to.
+ */
+public final class AdaptiveRateLimiter {
+
+    private static final double MIN_FILL_RATE = 0.5;
+    private static final double MIN_CAPACITY = 1.0;
+    /** Weight of the latest measurement in the measured send rate */
+    private static final double SMOOTH = 0.8;
+    /** Factor the send rate is multiplied with on a throttling error */
+    private static final double BETA = 0.7;
+    private static final double SCALE_CONSTANT = 0.4;
+    /** Width in seconds of the buckets the send rate is measured in */
+    private static final double MEASUREMENT_INTERVAL = 0.5;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+
+    private boolean enabled;
+    private double fillRate;
+    private double maxCapacity;
+    private double currentCapacity;
+    private double lastRefillTime = -1;
+
+    private double measuredSendRate;
+    private double lastMeasurementTime = -1;
+    private long requestsInMeasurement;
+
+    private double lastMaxRate;
+    private double lastThrottleTime;
+    private double timeWindow;
+    private long throttleCount;
+
+    /**
+     * Constructs a limiter that lets all requests through until the first
+     * throttling error.
+     */
+    public AdaptiveRateLimiter() {
+    }
+
+    /**
+     * Takes the permit to send a request.
+     *
+     * @return the time in milliseconds the request has to wait before it is
+     *         sent, 0 to send it right away.
+     */
+    public long acquire() {
+        return acquire(now());
+    }
+
+    /**
+     * Updates the send rate with the outcome of a request.
+     *
+     * @param throttled whether the service returned a throttling error.
+     */
+    public void updateSendRate(boolean throttled) {
+        updateSendRate(throttled, now());
+    }
+
+    /**
+     * @return whether requests are limited, which is the case once a
+     *         throttling error was seen.
+     */
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the current limit in requests per second, or 0 if requests
+     *         aren't limited.
+     */
+    public synchronized double getSendRate() {
+        return enabled ? fillRate : 0;
+    }
+
+    /**
+     * @return the number of throttling errors seen.
+     */
+    public synchronized long getThrottleCount() {
+        return throttleCount;
+    }
+
+    synchronized long acquire(double now) {
+        if (!enabled) {
+            return 0;
+        }
+        refill(now);
+        // the capacity goes negative to reserve tokens for waiting requests
+        currentCapacity -= 1;
+        if (currentCapacity >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-currentCapacity / fillRate * MILLIS_PER_SECOND);
+    }
+
+    synchronized void updateSendRate(boolean throttled, double now) {
+        updateMeasuredRate(now);
+        double calculatedRate;
+        if (throttled) {
+            throttleCount++;
+            final double rateToUse = enabled ? Math.min(measuredSendRate, fillRate)
+                    : measuredSendRate;
+            lastMaxRate = rateToUse;
+            calculateTimeWindow();
+            lastThrottleTime = now;
+            calculatedRate = rateToUse * BETA;
+            enabled = true;
+        } else {
+            calculateTimeWindow();
+            final double elapsed = now - lastThrottleTime - timeWindow;
+            calculatedRate = SCALE_CONSTANT * elapsed * elapsed * elapsed + lastMaxRate;
+        }
+        updateFillRate(Math.min(calculatedRate, 2 * measuredSendRate), now);
+    }
+
+    synchronized double getMeasuredSendRate() {
+        return measuredSendRate;
+    }
+
+    private void updateMeasuredRate(double now) {
+        final double measurementTime = Math.floor(now / MEASUREMENT_INTERVAL)
+                * MEASUREMENT_INTERVAL;
+        if (lastMeasurementTime < 0) {
+            lastMeasurementTime = measurementTime;
+            lastThrottleTime = now;
+        }
+        requestsInMeasurement++;
+        if (measurementTime > lastMeasurementTime) {
+            final double currentRate = requestsInMeasurement
+                    / (measurementTime - lastMeasurementTime);
+            measuredSendRate = currentRate * SMOOTH + measuredSendRate * (1 - SMOOTH);
+            requestsInMeasurement = 0;
+            lastMeasurementTime = measurementTime;
+        }
+    }
+
+    private void calculateTimeWindow() {
+        timeWindow = Math.cbrt(lastMaxRate * (1 - BETA) / SCALE_CONSTANT);
+    }
+
+    private void updateFillRate(double newRate, double now) {
+        refill(now);
+        fillRate = Math.max(newRate, MIN_FILL_RATE);
+        maxCapacity = Math.max(newRate, MIN_CAPACITY);
+        currentCapacity = Math.min(currentCapacity, maxCapacity);
+    }
+
+    private void refill(double now) {
+        if (lastRefillTime < 0) {
+            lastRefillTime = now;
+            return;
+        }
+        final double elapsed = Math.max(0, now - lastRefillTime);
+        currentCapacity = Math.min(maxCapacity, currentCapacity + elapsed * fillRate);
+        lastRefillTime = now;
+    }
+
+    private static double now() {
+        return System.nanoTime() / NANOS_PER_SECOND;
+    }
+}
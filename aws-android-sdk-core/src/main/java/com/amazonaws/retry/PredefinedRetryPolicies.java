@@ -115,6 +115,43 @@ public class PredefinedRetryPolicies {
                 true);
     }
 
+    /**
+     * @return the SDK default retry policy with a quota of
+     * {@link RetryTokenBucket#DEFAULT_CAPACITY} retry tokens. Every call
+     * returns a policy with its own quota, which is shared by the clients
+     * configured with it. This policy will honor the maxErrorRetry set in
+     * ClientConfiguration.
+     *
+     * @see RetryTokenBucket
+     */
+    public static RetryPolicy getDefaultRetryPolicyWithRetryQuota() {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                DEFAULT_BACKOFF_STRATEGY,
+                DEFAULT_MAX_ERROR_RETRY,
+                true,
+                new RetryTokenBucket(),
+                null);
+    }
+
+    /**
+     * @return the SDK default retry policy with a quota of retry tokens and a
+     * send rate limiter that adapts to throttling errors. Every call returns a
+     * policy with its own quota and limiter, which are shared by the clients
+     * configured with it. This policy will honor the maxErrorRetry set in
+     * ClientConfiguration.
+     *
+     * @see RetryTokenBucket
+     * @see AdaptiveRateLimiter
+     */
+    public static RetryPolicy getAdaptiveRetryPolicy() {
+        return new RetryPolicy(DEFAULT_RETRY_CONDITION,
+                DEFAULT_BACKOFF_STRATEGY,
+                DEFAULT_MAX_ERROR_RETRY,
+                true,
+                new RetryTokenBucket(),
+                new AdaptiveRateLimiter());
+    }
+
     /**
      * @param maxErrorRetry the max error retry count.
      * @return the SDK default retry policy with the specified max retry count.
@@ -54,6 +54,18 @@ public final class RetryPolicy {
      */
     private final boolean honorMaxErrorRetryInClientConfig;
 
+    /**
+     * Optional quota of retries shared by the requests using this policy, or
+     * null if retries are unlimited.
+     */
+    private final RetryTokenBucket retryTokenBucket;
+
+    /**
+     * Optional limiter of the send rate shared by the requests using this
+     * policy, or null if the send rate isn't limited.
+     */
+    private final AdaptiveRateLimiter rateLimiter;
+
     /**
      * Constructs a new retry policy. See {@link PredefinedRetryPolicies} for
      * some pre-defined policy components, and also the default policies used by
@@ -77,6 +89,37 @@ public final class RetryPolicy {
             BackoffStrategy backoffStrategy,
             int maxErrorRetry,
             boolean honorMaxErrorRetryInClientConfig) {
+        this(retryCondition, backoffStrategy, maxErrorRetry, honorMaxErrorRetryInClientConfig,
+                null, null);
+    }
+
+    /**
+     * Constructs a new retry policy with a retry quota and an adaptive send
+     * rate limiter. Unlike the other components, both hold state, which is
+     * shared by all clients configured with this policy.
+     *
+     * @param retryCondition Retry condition on whether a specific request and
+     *            exception should be retried. If null value is specified, the
+     *            SDK' default retry condition is used.
+     * @param backoffStrategy Back-off strategy for controlling how long the
+     *            next retry should wait. If null value is specified, the SDK'
+     *            default exponential back-off strategy is used.
+     * @param maxErrorRetry Maximum number of retry attempts for failed
+     *            requests.
+     * @param honorMaxErrorRetryInClientConfig Whether this retry policy should
+     *            honor the max error retry set by
+     *            {@link ClientConfiguration#setMaxErrorRetry(int)}
+     * @param retryTokenBucket The quota retries are taken from, or null for
+     *            no quota.
+     * @param rateLimiter The limiter of the send rate, or null for no limit.
+     * @see PredefinedRetryPolicies#getAdaptiveRetryPolicy()
+     */
+    public RetryPolicy(RetryCondition retryCondition,
+            BackoffStrategy backoffStrategy,
+            int maxErrorRetry,
+            boolean honorMaxErrorRetryInClientConfig,
+            RetryTokenBucket retryTokenBucket,
+            AdaptiveRateLimiter rateLimiter) {
         if (retryCondition == null) {
             retryCondition = PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION;
         }
@@ -92,6 +135,8 @@ public final class RetryPolicy {
         this.backoffStrategy = backoffStrategy;
         this.maxErrorRetry = maxErrorRetry;
         this.honorMaxErrorRetryInClientConfig = honorMaxErrorRetryInClientConfig;
+        this.retryTokenBucket = retryTokenBucket;
+        this.rateLimiter = rateLimiter;
     };
 
     /**
@@ -133,6 +178,24 @@ public final class RetryPolicy {
         return honorMaxErrorRetryInClientConfig;
     }
 
+    /**
+     * Returns the quota retries are taken from.
+     *
+     * @return The retry quota, or null if retries are unlimited.
+     */
+    public RetryTokenBucket getRetryTokenBucket() {
+        return retryTokenBucket;
+    }
+
+    /**
+     * Returns the limiter of the rate requests are sent at.
+     *
+     * @return The send rate limiter, or null if the send rate isn't limited.
+     */
+    public AdaptiveRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     /**
      * The hook for providing custom condition on whether a failed request
      * should be retried.
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import com.amazonaws.AmazonClientException;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * A quota of retries shared by all requests of the clients using a
+ * {@link RetryPolicy}. Every retry takes tokens from the bucket and every
+ * successful request gives some back, so when a service is failing most
+ * requests the bucket drains and requests fail right away instead of adding
+ * retries to the load of the service.
+ * <p>
+ * This class is thread safe.
+ */
+public final class RetryTokenBucket {
+
+    /** The default number of tokens of a full bucket. */
+    public static final int DEFAULT_CAPACITY = 500;
+
+    /** The default number of tokens a retry takes. */
+    public static final int DEFAULT_RETRY_COST = 5;
+
+    /** The default number of tokens a retry after a timeout takes. */
+    public static final int DEFAULT_TIMEOUT_RETRY_COST = 10;
+
+    /** Number of tokens a request that succeeded without a retry gives back */
+    private static final int NO_RETRY_REFUND = 1;
+
+    private final int capacity;
+    private final int retryCost;
+    private final int timeoutRetryCost;
+    private int available;
+
+    /**
+     * Constructs a full bucket of {@link #DEFAULT_CAPACITY} tokens.
+     */
+    public RetryTokenBucket() {
+        this(DEFAULT_CAPACITY, DEFAULT_RETRY_COST, DEFAULT_TIMEOUT_RETRY_COST);
+    }
+
+    /**
+     * Constructs a full bucket.
+     *
+     * @param capacity the number of tokens of a full bucket.
+     * @param retryCost the number of tokens a retry takes.
+     * @param timeoutRetryCost the number of tokens a retry after a socket
+     *            timeout takes.
+     */
+    public RetryTokenBucket(int capacity, int retryCost, int timeoutRetryCost) {
+        if (capacity < 0 || retryCost < 0 || timeoutRetryCost < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide non-negative values for the retry token bucket.");
+        }
+        this.capacity = capacity;
+        this.retryCost = retryCost;
+        this.timeoutRetryCost = timeoutRetryCost;
+        this.available = capacity;
+    }
+
+    /**
+     * Takes the tokens for retrying a request that failed with the given
+     * exception.
+     *
+     * @param exception the exception of the failed attempt.
+     * @return the number of tokens taken, or -1 if the bucket doesn't hold
+     *         enough tokens and the request shouldn't be retried.
+     */
+    public int acquireRetry(AmazonClientException exception) {
+        final int cost = exception != null
+                && exception.getCause() instanceof SocketTimeoutException
+                ? timeoutRetryCost : retryCost;
+        synchronized (this) {
+            if (available < cost) {
+                return -1;
+            }
+            available -= cost;
+            return cost;
+        }
+    }
+
+    /**
+     * Gives back tokens after a request succeeded.
+     *
+     * @param retryTokens the tokens taken by the last retry of the request, 0
+     *            if the request succeeded without a retry.
+     */
+    public void releaseOnSuccess(int retryTokens) {
+        final int refund = retryTokens > 0 ? retryTokens : NO_RETRY_REFUND;
+        synchronized (this) {
+            available = Math.min(capacity, available + refund);
+        }
+    }
+
+    /**
+     * @return the number of tokens currently in the bucket.
+     */
+    public synchronized int getAvailableTokens() {
+        return available;
+    }
+
+    /**
+     * @return the number of tokens of a full bucket.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -17,6 +17,11 @@ package com.amazonaws.transform;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.Base64;
+import com.amazonaws.util.json.AwsJsonReader;
+import com.amazonaws.util.json.AwsJsonToken;
+import com.amazonaws.util.json.Utf8JsonReader;
+
+import java.io.IOException;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -30,6 +35,22 @@ import java.util.Locale;
  * SimpleTypeJsonUnmarshallers class.
  */
 public class SimpleTypeJsonUnmarshallers {
+
+    /**
+     * Returns the reader of the context when it is a {@link Utf8JsonReader}
+     * positioned on a non null value, so the value can be parsed straight
+     * from its bytes. Returns null otherwise, in which case the value is read
+     * as a string.
+     */
+    private static Utf8JsonReader utf8Reader(JsonUnmarshallerContext unmarshallerContext)
+            throws IOException {
+        final AwsJsonReader reader = unmarshallerContext.getReader();
+        if (reader instanceof Utf8JsonReader && reader.peek() != AwsJsonToken.VALUE_NULL) {
+            return (Utf8JsonReader) reader;
+        }
+        return null;
+    }
+
     /**
      * Unmarshaller for String values.
      */
@@ -60,6 +81,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Double, JsonUnmarshallerContext> {
         @Override
         public Double unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            Utf8JsonReader utf8Reader = utf8Reader(unmarshallerContext);
+            if (utf8Reader != null) {
+                return utf8Reader.nextDouble();
+            }
             String doubleString = unmarshallerContext.getReader().nextString();
             return (doubleString == null) ? null : Double.parseDouble(doubleString);
         }
@@ -84,6 +109,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Integer, JsonUnmarshallerContext> {
         @Override
         public Integer unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            Utf8JsonReader utf8Reader = utf8Reader(unmarshallerContext);
+            if (utf8Reader != null) {
+                return utf8Reader.nextInt();
+            }
             String intString = unmarshallerContext.getReader().nextString();
             return (intString == null) ? null : Integer.parseInt(intString);
         }
@@ -156,6 +185,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<Boolean, JsonUnmarshallerContext> {
         @Override
         public Boolean unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            Utf8JsonReader utf8Reader = utf8Reader(unmarshallerContext);
+            if (utf8Reader != null) {
+                return utf8Reader.nextBoolean();
+            }
             String booleanString = unmarshallerContext.getReader().nextString();
             return (booleanString == null) ? null : Boolean.parseBoolean(booleanString);
         }
@@ -203,6 +236,10 @@ public class SimpleTypeJsonUnmarshallers {
     public static class LongJsonUnmarshaller implements Unmarshaller<Long, JsonUnmarshallerContext> {
         @Override
         public Long unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            Utf8JsonReader utf8Reader = utf8Reader(unmarshallerContext);
+            if (utf8Reader != null) {
+                return utf8Reader.nextLong();
+            }
             String longString = unmarshallerContext.getReader().nextString();
             return (longString == null) ? null : Long.parseLong(longString);
         }
@@ -251,6 +288,14 @@ public class SimpleTypeJsonUnmarshallers {
         private static final int DATE_MULTIPLIER = 1000;
         @Override
         public Date unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            Utf8JsonReader utf8Reader = utf8Reader(unmarshallerContext);
+            if (utf8Reader != null) {
+                try {
+                    return new Date(utf8Reader.nextEpochMillis());
+                } catch (NumberFormatException e) {
+                    throw new AmazonClientException("Unable to parse date: " + e.getMessage(), e);
+                }
+            }
             String dateString = unmarshallerContext.getReader().nextString();
             if (dateString == null)
                 return null;
@@ -285,6 +330,10 @@ public class SimpleTypeJsonUnmarshallers {
             Unmarshaller<ByteBuffer, JsonUnmarshallerContext> {
         @Override
         public ByteBuffer unmarshall(JsonUnmarshallerContext unmarshallerContext) throws Exception {
+            Utf8JsonReader utf8Reader = utf8Reader(unmarshallerContext);
+            if (utf8Reader != null) {
+                return utf8Reader.nextByteBuffer();
+            }
             String base64EncodedString = unmarshallerContext.getReader().nextString();
             byte[] decodedBytes = Base64.decode(base64EncodedString);
             return ByteBuffer.wrap(decodedBytes);
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.transform;
+
+/**
+ * Marker for JSON response unmarshallers that opt into the byte level
+ * {@link com.amazonaws.util.json.Utf8JsonReader}. The
+ * {@link com.amazonaws.http.JsonResponseHandler} parses the responses of such
+ * unmarshallers straight from the UTF-8 bytes of the response instead of
+ * decoding them through a character reader first, and the
+ * {@link SimpleTypeJsonUnmarshallers} then parse numbers, dates and binary
+ * values without going through an intermediate string.
+ * <p>
+ * An unmarshaller may implement this interface when it, and every
+ * unmarshaller it delegates to, only uses the methods of
+ * {@link com.amazonaws.util.json.AwsJsonReader} and expects strict JSON.
+ */
+public interface Utf8JsonUnmarshaller {
+}
@@ -141,6 +141,30 @@ public class AWSRequestMetrics {
 
         /** RetryPauseTime. */
         RetryPauseTime,
+        /**
+         * Number of tokens taken from the retry quota of the retry policy for
+         * retrying a request.
+         */
+        RetryCapacityConsumed,
+        /**
+         * Number of tokens left in the retry quota of the retry policy after a
+         * request.
+         */
+        RetryCapacityAvailable,
+        /**
+         * Number of throttling errors returned for a request.
+         */
+        ThrottleException,
+        /**
+         * The send rate, in requests per second, of the adaptive rate limiter
+         * of the retry policy after a request.
+         */
+        SendRateLimit,
+        /**
+         * Time a request waited for the adaptive rate limiter of the retry
+         * policy before it was sent.
+         */
+        RateLimiterPauseTime,
         // S3DownloadThroughput, // migrated to S3RequestMetric in the S3 clint
         // library
         // S3UploadThroughput, // migrated to S3RequestMetric in the S3 clint
@@ -23,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,16 +37,36 @@ import java.util.Map.Entry;
  * This class is instantiated instead of {@link AWSRequestMetrics} when request
  * metric collection is required during a particular service request/response
  * cycle.
+ * <p>
+ * Events, counters and properties of the {@link Field} metrics, which are all
+ * the SDK itself records, are kept in fixed slots indexed by the field
+ * ordinal, as primitive longs where possible. Recording them allocates
+ * nothing per call beyond the occasional growth of the property log; other
+ * names fall back to maps created on first use.
  *
  * @deprecated metrics is deprecated
  */
 @Deprecated
 public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
-    /* Stores some key value pairs. */
-    private final Map<String, List<Object>> properties = new HashMap<String, List<Object>>();
+    private static final Field[] FIELDS = Field.values();
+    private static final int INITIAL_PROPERTIES = 8;
+
+    private final TimingInfoFullSupport fullTimingInfo;
+
+    /* Start times of the field events being profiled, by ordinal. */
+    private final long[] eventStartNanos = new long[FIELDS.length];
+    /* Bit i is set once the event of FIELDS[i] has been started. */
+    private long eventsStarted;
+    /* Field properties in the order they were added. */
+    private int[] propertyFields;
+    private Object[] propertyValues;
+    private int propertyCount;
 
-    /* A map to store events that are being profiled. */
-    private final Map<String, TimingInfo> eventsBeingProfiled = new HashMap<String, TimingInfo>();
+    /* Stores some key value pairs, for names other than fields. */
+    private Map<String, List<Object>> properties;
+
+    /* A map to store events that are being profiled, for names other than fields. */
+    private Map<String, TimingInfo> eventsBeingProfiled;
     /* Latency Logger */
     private static final Log LATENCY_LOGGER = LogFactory.getLog("com.amazonaws.latency");
     private static final Object KEY_VALUE_SEPARATOR = "=";
@@ -59,6 +80,7 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     public AWSRequestMetricsFullSupport() {
         super(TimingInfo.startTimingFullSupport());
+        this.fullTimingInfo = (TimingInfoFullSupport) timingInfo;
     }
 
     /**
@@ -78,6 +100,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void startEvent(String eventName) {
+        final Field field = TimingInfoFullSupport.fieldNamed(eventName);
+        if (field != null) {
+            startFieldEvent(field);
+            return;
+        }
+        if (eventsBeingProfiled == null) {
+            eventsBeingProfiled = new HashMap<String, TimingInfo>();
+        }
         /* This will overwrite past events */
         // ignoring the wall clock time
         eventsBeingProfiled.put(eventName, TimingInfo.startTimingFullSupport(System.nanoTime()));
@@ -85,7 +115,17 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void startEvent(MetricType f) {
-        startEvent(f.name());
+        if (f instanceof Field) {
+            startFieldEvent((Field) f);
+        } else {
+            startEvent(f.name());
+        }
+    }
+
+    private void startFieldEvent(Field field) {
+        /* This will overwrite past events */
+        eventStartNanos[field.ordinal()] = System.nanoTime();
+        eventsStarted |= 1L << field.ordinal();
     }
 
     /**
@@ -97,7 +137,12 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void endEvent(String eventName) {
-        TimingInfo event = eventsBeingProfiled.get(eventName);
+        final Field field = TimingInfoFullSupport.fieldNamed(eventName);
+        if (field != null) {
+            endFieldEvent(field);
+            return;
+        }
+        TimingInfo event = eventsBeingProfiled == null ? null : eventsBeingProfiled.get(eventName);
         /* Somebody tried to end an event that was not started. */
         if (event == null) {
             LogFactory.getLog(getClass()).warn("Trying to end an event which was never started: " + eventName);
@@ -113,7 +158,21 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void endEvent(MetricType f) {
-        endEvent(f.name());
+        if (f instanceof Field) {
+            endFieldEvent((Field) f);
+        } else {
+            endEvent(f.name());
+        }
+    }
+
+    private void endFieldEvent(Field field) {
+        if ((eventsStarted & (1L << field.ordinal())) == 0) {
+            LogFactory.getLog(getClass()).warn(
+                    "Trying to end an event which was never started: " + field.name());
+            return;
+        }
+        fullTimingInfo.addSubMeasurement(field, eventStartNanos[field.ordinal()],
+                System.nanoTime());
     }
 
     /**
@@ -133,7 +192,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void incrementCounter(MetricType f) {
-        incrementCounter(f.name());
+        if (f instanceof Field) {
+            fullTimingInfo.incrementCounter((Field) f);
+        } else {
+            incrementCounter(f.name());
+        }
     }
 
     @Override
@@ -143,7 +206,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void setCounter(MetricType f, long count) {
-        setCounter(f.name(), count);
+        if (f instanceof Field) {
+            fullTimingInfo.setCounter((Field) f, count);
+        } else {
+            setCounter(f.name(), count);
+        }
     }
 
     /**
@@ -158,6 +225,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void addProperty(String propertyName, Object value) {
+        final Field field = TimingInfoFullSupport.fieldNamed(propertyName);
+        if (field != null) {
+            addFieldProperty(field, value);
+            return;
+        }
+        if (properties == null) {
+            properties = new HashMap<String, List<Object>>();
+        }
         List<Object> propertyList = properties.get(propertyName);
         if (propertyList == null) {
             propertyList = new ArrayList<Object>();
@@ -169,7 +244,41 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void addProperty(MetricType f, Object value) {
-        addProperty(f.name(), value);
+        if (f instanceof Field) {
+            addFieldProperty((Field) f, value);
+        } else {
+            addProperty(f.name(), value);
+        }
+    }
+
+    private void addFieldProperty(Field field, Object value) {
+        if (propertyFields == null) {
+            propertyFields = new int[INITIAL_PROPERTIES];
+            propertyValues = new Object[INITIAL_PROPERTIES];
+        } else if (propertyCount == propertyFields.length) {
+            propertyFields = Arrays.copyOf(propertyFields, propertyCount * 2);
+            propertyValues = Arrays.copyOf(propertyValues, propertyCount * 2);
+        }
+        propertyFields[propertyCount] = field.ordinal();
+        propertyValues[propertyCount] = value;
+        propertyCount++;
+    }
+
+    /**
+     * @return the values of a field property in the order they were added,
+     *         or null if there are none.
+     */
+    private List<Object> getFieldProperty(Field field) {
+        List<Object> values = null;
+        for (int i = 0; i < propertyCount; i++) {
+            if (propertyFields[i] == field.ordinal()) {
+                if (values == null) {
+                    values = new ArrayList<Object>();
+                }
+                values.add(propertyValues[i]);
+            }
+        }
+        return values;
     }
 
     @Override
@@ -177,8 +286,16 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
         if (LATENCY_LOGGER.isInfoEnabled()) {
             StringBuilder builder = new StringBuilder();
 
-            for (Entry<String, List<Object>> entry : properties.entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
+            for (final Field field : FIELDS) {
+                final List<Object> values = getFieldProperty(field);
+                if (values != null) {
+                    keyValueFormat(field.name(), values, builder);
+                }
+            }
+            if (properties != null) {
+                for (Entry<String, List<Object>> entry : properties.entrySet()) {
+                    keyValueFormat(entry.getKey(), entry.getValue(), builder);
+                }
             }
 
             for (Entry<String, Number> entry : timingInfo.getAllCounters()
@@ -199,11 +316,18 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public List<Object> getProperty(String propertyName) {
-        return properties.get(propertyName);
+        final Field field = TimingInfoFullSupport.fieldNamed(propertyName);
+        if (field != null) {
+            return getFieldProperty(field);
+        }
+        return properties == null ? null : properties.get(propertyName);
     }
 
     @Override
     public List<Object> getProperty(MetricType f) {
+        if (f instanceof Field) {
+            return getFieldProperty((Field) f);
+        }
         return getProperty(f.name());
     }
 
@@ -69,4 +69,16 @@ public enum Base64 {
     public static byte[] decode(byte[] b64) {
         return b64 == null || b64.length == 0 ? b64 : CODEC.decode(b64, b64.length);
     }
+
+    /**
+     * Decodes the first {@code length} base 64 encoded bytes of the given
+     * buffer, which allows a reusable scratch buffer to be decoded without
+     * copying it to an array of the exact size first.
+     * @param b64 the buffer holding the base 64 encoded bytes.
+     * @param length the number of encoded bytes in the buffer.
+     * @return the decoded result.
+     */
+    public static byte[] decode(byte[] b64, int length) {
+        return length == 0 ? new byte[0] : CODEC.decode(b64, length);
+    }
 }
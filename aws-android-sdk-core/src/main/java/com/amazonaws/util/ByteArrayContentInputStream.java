@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * A {@link ByteArrayInputStream} over a region of a byte array that exposes
+ * the region, so that the content can be hashed or written out without being
+ * read through the stream. The stream is marked at the start of the region,
+ * so {@link #reset()} always makes the whole content available again.
+ */
+public class ByteArrayContentInputStream extends ByteArrayInputStream {
+
+    private final int offset;
+    private final int length;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the array holding the content. It's not copied.
+     * @param offset the offset of the content in the array.
+     * @param length the length of the content.
+     */
+    public ByteArrayContentInputStream(byte[] buffer, int offset, int length) {
+        super(buffer, offset, length);
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("Invalid content region " + offset + ", "
+                    + length + " of an array of " + buffer.length + " bytes");
+        }
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the array holding the content. It must not be modified.
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    /**
+     * @return the offset of the content in the array.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the length of the content.
+     */
+    public int getLength() {
+        return length;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utilities for the thread pools shared by the clients of an application.
+ */
+public final class ThreadPools {
+
+    /** How long an idle thread waits for a task before it terminates. */
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private ThreadPools() {
+    }
+
+    /**
+     * Creates a fixed size pool of daemon threads with an unbounded queue.
+     * Idle threads time out, so the pool holds no thread while unused and
+     * doesn't keep the application alive.
+     *
+     * @param threadNamePrefix the prefix of the names of the threads, which
+     *            are numbered from 1.
+     * @param threads the maximum number of tasks run at once.
+     * @return the executor.
+     */
+    public static ExecutorService newDaemonThreadPool(final String threadNamePrefix,
+            int threads) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r,
+                                threadNamePrefix + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
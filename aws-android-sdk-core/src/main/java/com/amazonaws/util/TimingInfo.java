@@ -15,6 +15,8 @@
 
 package com.amazonaws.util;
 
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -374,6 +376,52 @@ public class TimingInfo {
         return Collections.emptyMap();
     }
 
+    /**
+     * Reads the counter of a field without boxing it.
+     *
+     * @param field the field.
+     * @param defaultValue the value returned if the counter isn't set.
+     * @return the counter.
+     */
+    public long getCounter(Field field, long defaultValue) {
+        return defaultValue;
+    }
+
+    /**
+     * Sub-measurements of {@link Field}s are kept in the order they were
+     * added and can be read by index, without allocating a
+     * {@link TimingInfo} for each.
+     *
+     * @return the number of sub-measurements of fields.
+     */
+    public int getFieldSubMeasurementCount() {
+        return 0;
+    }
+
+    /**
+     * @param index the index, less than {@link #getFieldSubMeasurementCount()}.
+     * @return the field of the sub-measurement.
+     */
+    public Field getFieldSubMeasurementField(int index) {
+        throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    /**
+     * @param index the index, less than {@link #getFieldSubMeasurementCount()}.
+     * @return the start time in nanosecond of the sub-measurement.
+     */
+    public long getFieldSubMeasurementStartNano(int index) {
+        throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    /**
+     * @param index the index, less than {@link #getFieldSubMeasurementCount()}.
+     * @return the end time in nanosecond of the sub-measurement.
+     */
+    public long getFieldSubMeasurementEndNano(int index) {
+        throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
     /**
      * @param key the key.
      * @param count the count.
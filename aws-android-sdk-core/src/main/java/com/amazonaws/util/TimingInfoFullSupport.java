@@ -15,9 +15,12 @@
 
 package com.amazonaws.util;
 
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
 import org.apache.commons.logging.LogFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,10 +32,39 @@ import java.util.Map;
  * <p>
  * This class is instantiated instead of {@link TimingInfo} when request metric
  * collection is required during a particular service request/response cycle.
+ * <p>
+ * Counters and sub-measurements named after a {@link Field} are kept in
+ * fixed slots indexed by the field ordinal, as primitive longs, so recording
+ * them allocates nothing beyond the occasional growth of the measurement log.
+ * Any other name is kept in maps created on first use. The maps and lists
+ * returned by the getters are built when asked for.
  */
 class TimingInfoFullSupport extends TimingInfo {
-    private final Map<String, List<TimingInfo>> subMeasurementsByName = new HashMap<String, List<TimingInfo>>();
-    private final Map<String, Number> countersByName = new HashMap<String, Number>();
+    private static final Field[] FIELDS = Field.values();
+    private static final Map<String, Field> FIELDS_BY_NAME = new HashMap<String, Field>();
+    /** Each sub-measurement takes the field ordinal, start and end nanos. */
+    private static final int MEASUREMENT_WIDTH = 3;
+    private static final int INITIAL_MEASUREMENTS = 8;
+
+    static {
+        // the counters that are set are tracked in the bits of a long
+        if (FIELDS.length > Long.SIZE) {
+            throw new IllegalStateException("Too many request metric fields");
+        }
+        for (final Field field : FIELDS) {
+            FIELDS_BY_NAME.put(field.name(), field);
+        }
+    }
+
+    private final long[] fieldCounters = new long[FIELDS.length];
+    /* Bit i is set once the counter of FIELDS[i] has been set. */
+    private long fieldCountersSet;
+    /* Sub-measurements of fields, in the order they were added. */
+    private long[] fieldMeasurements;
+    private int fieldMeasurementCount;
+
+    private Map<String, List<TimingInfo>> subMeasurementsByName;
+    private Map<String, Number> countersByName;
 
     /**
      * A private ctor to facilitate the deprecation of using millisecond and
@@ -50,8 +82,57 @@ class TimingInfoFullSupport extends TimingInfo {
         super(startEpochTimeMilli, startTimeNano, endTimeNano);
     }
 
+    /**
+     * @return the field of the given name, or null if there is none.
+     */
+    static Field fieldNamed(String name) {
+        return FIELDS_BY_NAME.get(name);
+    }
+
+    /**
+     * Adds a sub-measurement of a field without allocating a
+     * {@link TimingInfo} for it.
+     */
+    void addSubMeasurement(Field field, long startTimeNano, long endTimeNano) {
+        if (fieldMeasurements == null) {
+            fieldMeasurements = new long[INITIAL_MEASUREMENTS * MEASUREMENT_WIDTH];
+        } else if (fieldMeasurementCount * MEASUREMENT_WIDTH == fieldMeasurements.length) {
+            fieldMeasurements = Arrays.copyOf(fieldMeasurements, fieldMeasurements.length * 2);
+        }
+        final int offset = fieldMeasurementCount * MEASUREMENT_WIDTH;
+        fieldMeasurements[offset] = field.ordinal();
+        fieldMeasurements[offset + 1] = startTimeNano;
+        fieldMeasurements[offset + 2] = endTimeNano;
+        fieldMeasurementCount++;
+    }
+
+    /**
+     * Sets the counter of a field.
+     */
+    void setCounter(Field field, long count) {
+        fieldCounters[field.ordinal()] = count;
+        fieldCountersSet |= 1L << field.ordinal();
+    }
+
+    /**
+     * Adds one to the counter of a field, starting from zero.
+     */
+    void incrementCounter(Field field) {
+        setCounter(field, fieldCounters[field.ordinal()] + 1);
+    }
+
     @Override
     public void addSubMeasurement(String subMeasurementName, TimingInfo ti) {
+        final Field field = fieldNamed(subMeasurementName);
+        if (field != null && ti.isEndTimeKnown()) {
+            // kept with the other sub-measurements of fields, so that they
+            // can all be read by index
+            addSubMeasurement(field, ti.getStartTimeNano(), ti.getEndTimeNano());
+            return;
+        }
+        if (subMeasurementsByName == null) {
+            subMeasurementsByName = new HashMap<String, List<TimingInfo>>();
+        }
         List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
         if (timings == null) {
             timings = new ArrayList<TimingInfo>();
@@ -74,7 +155,7 @@ class TimingInfoFullSupport extends TimingInfo {
     @Override
     public TimingInfo getSubMeasurement(String subMesurementName, int index) {
 
-        List<TimingInfo> timings = subMeasurementsByName.get(subMesurementName);
+        List<TimingInfo> timings = getAllSubMeasurements(subMesurementName);
         if (index < 0 || timings == null || timings.size() == 0
                 || index >= timings.size()) {
             return null;
@@ -86,11 +167,7 @@ class TimingInfoFullSupport extends TimingInfo {
     @Override
     public TimingInfo getLastSubMeasurement(String subMeasurementName) {
 
-        if (subMeasurementsByName == null || subMeasurementsByName.size() == 0) {
-            return null;
-        }
-
-        List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
+        List<TimingInfo> timings = getAllSubMeasurements(subMeasurementName);
         if (timings == null || timings.size() == 0) {
             return null;
         }
@@ -100,31 +177,129 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public List<TimingInfo> getAllSubMeasurements(String subMeasurementName) {
-        return subMeasurementsByName.get(subMeasurementName);
+        final List<TimingInfo> added = subMeasurementsByName == null ? null
+                : subMeasurementsByName.get(subMeasurementName);
+        final Field field = fieldNamed(subMeasurementName);
+        if (field == null) {
+            return added;
+        }
+
+        List<TimingInfo> timings = null;
+        for (int i = 0; i < fieldMeasurementCount; i++) {
+            final int offset = i * MEASUREMENT_WIDTH;
+            if (fieldMeasurements[offset] == field.ordinal()) {
+                if (timings == null) {
+                    timings = new ArrayList<TimingInfo>();
+                }
+                timings.add(TimingInfo.unmodifiableTimingInfo(fieldMeasurements[offset + 1],
+                        fieldMeasurements[offset + 2]));
+            }
+        }
+        if (timings == null) {
+            return added;
+        }
+        if (added != null) {
+            timings.addAll(added);
+        }
+        return timings;
     }
 
     @Override
     public Map<String, List<TimingInfo>> getSubMeasurementsByName() {
-        return subMeasurementsByName;
+        final Map<String, List<TimingInfo>> timingsByName = new HashMap<String, List<TimingInfo>>();
+        if (subMeasurementsByName != null) {
+            timingsByName.putAll(subMeasurementsByName);
+        }
+        long fieldsMeasured = 0;
+        for (int i = 0; i < fieldMeasurementCount; i++) {
+            fieldsMeasured |= 1L << fieldMeasurements[i * MEASUREMENT_WIDTH];
+        }
+        for (int i = 0; i < FIELDS.length; i++) {
+            if ((fieldsMeasured & (1L << i)) != 0) {
+                timingsByName.put(FIELDS[i].name(), getAllSubMeasurements(FIELDS[i].name()));
+            }
+        }
+        return timingsByName;
     }
 
     @Override
     public Number getCounter(String key) {
-        return countersByName.get(key);
+        final Field field = fieldNamed(key);
+        if (field != null) {
+            return (fieldCountersSet & (1L << field.ordinal())) == 0 ? null
+                    : Long.valueOf(fieldCounters[field.ordinal()]);
+        }
+        return countersByName == null ? null : countersByName.get(key);
+    }
+
+    @Override
+    public long getCounter(Field field, long defaultValue) {
+        return (fieldCountersSet & (1L << field.ordinal())) == 0 ? defaultValue
+                : fieldCounters[field.ordinal()];
+    }
+
+    @Override
+    public int getFieldSubMeasurementCount() {
+        return fieldMeasurementCount;
+    }
+
+    @Override
+    public Field getFieldSubMeasurementField(int index) {
+        return FIELDS[(int) fieldMeasurements[measurementOffset(index)]];
+    }
+
+    @Override
+    public long getFieldSubMeasurementStartNano(int index) {
+        return fieldMeasurements[measurementOffset(index) + 1];
+    }
+
+    @Override
+    public long getFieldSubMeasurementEndNano(int index) {
+        return fieldMeasurements[measurementOffset(index) + 2];
+    }
+
+    private int measurementOffset(int index) {
+        if (index < 0 || index >= fieldMeasurementCount) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + fieldMeasurementCount);
+        }
+        return index * MEASUREMENT_WIDTH;
     }
 
     @Override
     public Map<String, Number> getAllCounters() {
-        return countersByName;
+        final Map<String, Number> counters = new HashMap<String, Number>();
+        if (countersByName != null) {
+            counters.putAll(countersByName);
+        }
+        for (int i = 0; i < FIELDS.length; i++) {
+            if ((fieldCountersSet & (1L << i)) != 0) {
+                counters.put(FIELDS[i].name(), fieldCounters[i]);
+            }
+        }
+        return counters;
     }
 
     @Override
     public void setCounter(String key, long count) {
+        final Field field = fieldNamed(key);
+        if (field != null) {
+            setCounter(field, count);
+            return;
+        }
+        if (countersByName == null) {
+            countersByName = new HashMap<String, Number>();
+        }
         countersByName.put(key, count);
     }
 
     @Override
     public void incrementCounter(String key) {
+        final Field field = fieldNamed(key);
+        if (field != null) {
+            incrementCounter(field);
+            return;
+        }
 
         int count = 0;
         Number counter = getCounter(key);
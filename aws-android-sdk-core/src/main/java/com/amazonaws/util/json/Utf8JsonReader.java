@@ -0,0 +1,836 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import com.amazonaws.util.Base64;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An {@link AwsJsonReader} that parses UTF-8 encoded JSON straight from the
+ * bytes of an {@link InputStream}, without decoding the whole document to
+ * characters first. Names and string values are decoded into a reusable
+ * character buffer, and the typed accessors such as {@link #nextLong()},
+ * {@link #nextEpochMillis()} and {@link #nextByteBuffer()} parse their value
+ * directly from the byte buffer so no intermediate {@link String} is created
+ * for them.
+ * <p>
+ * The reader is strict: it accepts RFC 7159 JSON only. A value that one of
+ * the typed accessors fails to parse is still consumed. The reader is not
+ * thread safe.
+ */
+public final class Utf8JsonReader implements AwsJsonReader {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    private static final int INITIAL_STACK_SIZE = 32;
+    private static final int INITIAL_SCRATCH_SIZE = 64;
+
+    /** The longest run of decimal digits that always fits in a long. */
+    private static final int MAX_LONG_DIGITS = 18;
+    /** The longest run of decimal digits that a double represents exactly. */
+    private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final int RADIX = 10;
+    private static final int HEX_RADIX = 16;
+    private static final int UNICODE_ESCAPE_LENGTH = 4;
+
+    private static final int MASK_6_BITS = 0x3f;
+    private static final int MASK_5_BITS = 0x1f;
+    private static final int MASK_4_BITS = 0x0f;
+    private static final int MASK_3_BITS = 0x07;
+    private static final int SHIFT_6 = 6;
+    private static final int SHIFT_12 = 12;
+    private static final int SHIFT_18 = 18;
+    private static final int TWO_BYTE_LEAD = 0xc0;
+    private static final int THREE_BYTE_LEAD = 0xe0;
+    private static final int FOUR_BYTE_LEAD = 0xf0;
+    private static final int FIVE_BYTE_LEAD = 0xf8;
+    private static final int CONTINUATION_MASK = 0xc0;
+    private static final int CONTINUATION = 0x80;
+    private static final int BYTE_MASK = 0xff;
+    private static final int MIN_SUPPLEMENTARY_CODE_POINT = 0x10000;
+    private static final int SPACE = 0x20;
+
+    // scopes on the stack
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    // peeked tokens
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_STRING = 8;
+    private static final int PEEKED_NAME = 9;
+    private static final int PEEKED_NUMBER = 10;
+    private static final int PEEKED_EOF = 11;
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int pos;
+    private int limit;
+
+    private int[] stack = new int[INITIAL_STACK_SIZE];
+    private int stackSize;
+    private int peeked = PEEKED_NONE;
+
+    /** Reusable buffer for decoded names and strings. */
+    private char[] chars = new char[INITIAL_SCRATCH_SIZE];
+    /** Reusable buffer for the bytes of numbers and base 64 blobs. */
+    private byte[] bytes = new byte[INITIAL_SCRATCH_SIZE];
+
+    /**
+     * Creates a reader over the UTF-8 encoded JSON in the given stream.
+     *
+     * @param in the stream to read the JSON document from.
+     */
+    public Utf8JsonReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader over the UTF-8 encoded JSON in the given stream.
+     *
+     * @param in the stream to read the JSON document from.
+     * @param bufferSize the size of the read buffer in bytes.
+     */
+    public Utf8JsonReader(InputStream in, int bufferSize) {
+        if (in == null) {
+            throw new IllegalArgumentException("in can't be null");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(PEEKED_BEGIN_ARRAY, "BEGIN_ARRAY");
+        push(EMPTY_ARRAY);
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(PEEKED_END_ARRAY, "END_ARRAY");
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(PEEKED_BEGIN_OBJECT, "BEGIN_OBJECT");
+        push(EMPTY_OBJECT);
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(PEEKED_END_OBJECT, "END_OBJECT");
+        stackSize--;
+        peeked = PEEKED_NONE;
+    }
+
+    @Override
+    public boolean isContainer() throws IOException {
+        final int p = doPeekIfNone();
+        return p == PEEKED_BEGIN_ARRAY || p == PEEKED_BEGIN_OBJECT;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        final int p = doPeekIfNone();
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(PEEKED_NAME, "FIELD_NAME");
+        final String name = readString();
+        peeked = PEEKED_NONE;
+        return name;
+    }
+
+    /**
+     * Returns the next string value, or the literal text of a number or
+     * boolean value, or null for a JSON null, consuming it.
+     */
+    @Override
+    public String nextString() throws IOException {
+        final int p = doPeekIfNone();
+        final String result;
+        switch (p) {
+            case PEEKED_STRING:
+                result = readString();
+                break;
+            case PEEKED_NUMBER:
+                final int length = readNumberBytes();
+                result = asciiString(length);
+                break;
+            case PEEKED_TRUE:
+                result = "true";
+                break;
+            case PEEKED_FALSE:
+                result = "false";
+                break;
+            case PEEKED_NULL:
+                result = null;
+                break;
+            default:
+                throw unexpected("a string");
+        }
+        peeked = PEEKED_NONE;
+        return result;
+    }
+
+    /**
+     * Consumes the next number, or string holding a number, and returns it as
+     * a long. Integral numbers of up to 18 digits are accumulated straight
+     * from the byte buffer.
+     *
+     * @return the next value as a long.
+     * @throws IOException if the stream could not be read.
+     * @throws NumberFormatException if the value is not a number or does not
+     *             fit in a long.
+     */
+    public long nextLong() throws IOException {
+        final int p = consumeNumberOrString("a number");
+        return p == PEEKED_NUMBER ? parseLong(readNumberBytes()) : Long.parseLong(readString());
+    }
+
+    /**
+     * Consumes the next number, or string holding a number, and returns it as
+     * an int.
+     *
+     * @return the next value as an int.
+     * @throws IOException if the stream could not be read.
+     * @throws NumberFormatException if the value is not a number or does not
+     *             fit in an int.
+     */
+    public int nextInt() throws IOException {
+        final long result = nextLong();
+        if ((int) result != result) {
+            throw new NumberFormatException("Value " + result + " does not fit in an int");
+        }
+        return (int) result;
+    }
+
+    /**
+     * Consumes the next number, or string holding a number, and returns it as
+     * a double. Integral numbers that a double represents exactly are
+     * converted without creating a {@link String}.
+     *
+     * @return the next value as a double.
+     * @throws IOException if the stream could not be read.
+     * @throws NumberFormatException if the value is not a number.
+     */
+    public double nextDouble() throws IOException {
+        final int p = consumeNumberOrString("a number");
+        if (p == PEEKED_STRING) {
+            return Double.parseDouble(readString());
+        }
+        final int length = readNumberBytes();
+        if (isSimpleInteger(length, MAX_EXACT_DOUBLE_DIGITS)) {
+            return accumulate(length);
+        }
+        return Double.parseDouble(asciiString(length));
+    }
+
+    /**
+     * Consumes the next boolean, or string holding a boolean, and returns it.
+     *
+     * @return the next value as a boolean.
+     * @throws IOException if the stream could not be read.
+     */
+    public boolean nextBoolean() throws IOException {
+        final int p = doPeekIfNone();
+        if (p != PEEKED_TRUE && p != PEEKED_FALSE && p != PEEKED_STRING) {
+            throw unexpected("a boolean");
+        }
+        peeked = PEEKED_NONE;
+        return p == PEEKED_STRING ? Boolean.parseBoolean(readString()) : p == PEEKED_TRUE;
+    }
+
+    /**
+     * Consumes the next timestamp, which JSON services send as epoch seconds
+     * either as a number or as a string, and returns it in milliseconds. Like
+     * the string based date unmarshaller, the fraction of a second is dropped.
+     *
+     * @return the next timestamp in milliseconds since the epoch.
+     * @throws IOException if the stream could not be read.
+     * @throws NumberFormatException if the value is not a number.
+     */
+    public long nextEpochMillis() throws IOException {
+        final int p = consumeNumberOrString("a timestamp");
+        final long seconds = p == PEEKED_NUMBER ? parseEpochSeconds(readNumberBytes())
+                : new BigDecimal(readString().trim()).longValue();
+        return seconds * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Consumes the next base 64 encoded string and returns the decoded bytes.
+     * The encoded characters are copied into a reusable buffer and decoded
+     * from there, so neither a {@link String} nor a character array is
+     * created for the encoded form.
+     *
+     * @return the decoded bytes, or null for a JSON null.
+     * @throws IOException if the stream could not be read.
+     * @throws IllegalArgumentException if the value is not valid base 64.
+     */
+    public ByteBuffer nextByteBuffer() throws IOException {
+        final int p = doPeekIfNone();
+        if (p == PEEKED_NULL) {
+            peeked = PEEKED_NONE;
+            return null;
+        }
+        if (p != PEEKED_STRING) {
+            throw unexpected("a base 64 string");
+        }
+        peeked = PEEKED_NONE;
+        final int length = readBase64Bytes();
+        return ByteBuffer.wrap(Base64.decode(bytes, length));
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            final int p = doPeekIfNone();
+            switch (p) {
+                case PEEKED_BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    count++;
+                    break;
+                case PEEKED_BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    count++;
+                    break;
+                case PEEKED_END_ARRAY:
+                case PEEKED_END_OBJECT:
+                    stackSize--;
+                    count--;
+                    break;
+                case PEEKED_STRING:
+                case PEEKED_NAME:
+                    skipString();
+                    break;
+                case PEEKED_NUMBER:
+                    skipNumber();
+                    break;
+                case PEEKED_EOF:
+                    throw new EOFException("End of input");
+                default:
+                    break;
+            }
+            peeked = PEEKED_NONE;
+        } while (count > 0);
+    }
+
+    @Override
+    public AwsJsonToken peek() throws IOException {
+        final int p;
+        try {
+            p = doPeekIfNone();
+        } catch (final EOFException e) {
+            return null;
+        }
+        switch (p) {
+            case PEEKED_BEGIN_OBJECT:
+                return AwsJsonToken.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT:
+                return AwsJsonToken.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY:
+                return AwsJsonToken.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY:
+                return AwsJsonToken.END_ARRAY;
+            case PEEKED_NAME:
+                return AwsJsonToken.FIELD_NAME;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE:
+                return AwsJsonToken.VALUE_BOOLEAN;
+            case PEEKED_NULL:
+                return AwsJsonToken.VALUE_NULL;
+            case PEEKED_STRING:
+                return AwsJsonToken.VALUE_STRING;
+            case PEEKED_NUMBER:
+                return AwsJsonToken.VALUE_NUMBER;
+            case PEEKED_EOF:
+                return null;
+            default:
+                return AwsJsonToken.UNKNOWN;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = PEEKED_NONE;
+        stack[0] = CLOSED;
+        stackSize = 1;
+        in.close();
+    }
+
+    /**
+     * Consumes the peeked token, which must be a number or a string, before
+     * its value is read so a value that fails to parse is still skipped.
+     */
+    private int consumeNumberOrString(String expected) throws IOException {
+        final int p = doPeekIfNone();
+        if (p != PEEKED_NUMBER && p != PEEKED_STRING) {
+            throw unexpected(expected);
+        }
+        peeked = PEEKED_NONE;
+        return p;
+    }
+
+    private void expect(int token, String name) throws IOException {
+        if (doPeekIfNone() != token) {
+            throw unexpected(name);
+        }
+    }
+
+    private IllegalStateException unexpected(String expected) throws IOException {
+        return new IllegalStateException("Expected " + expected + " but was " + peek());
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private int doPeekIfNone() throws IOException {
+        return peeked == PEEKED_NONE ? doPeek() : peeked;
+    }
+
+    /**
+     * Reads up to the start of the next token and records its type. Literals
+     * are consumed here; for strings and names the position is left after
+     * the opening quote and for numbers on their first byte.
+     */
+    @SuppressWarnings("checkstyle:cyclomaticcomplexity")
+    private int doPeek() throws IOException {
+        final int scope = stack[stackSize - 1];
+        if (scope == EMPTY_ARRAY) {
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+        } else if (scope == NONEMPTY_ARRAY) {
+            final int c = nextNonWhitespace();
+            if (c == ']') {
+                return peeked = PEEKED_END_ARRAY;
+            } else if (c != ',') {
+                throw syntaxError("Unterminated array");
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            stack[stackSize - 1] = DANGLING_NAME;
+            if (scope == NONEMPTY_OBJECT) {
+                final int c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = PEEKED_END_OBJECT;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated object");
+                }
+            }
+            final int c = nextNonWhitespace();
+            if (c == '"') {
+                return peeked = PEEKED_NAME;
+            } else if (c == '}' && scope == EMPTY_OBJECT) {
+                return peeked = PEEKED_END_OBJECT;
+            }
+            throw syntaxError("Expected name");
+        } else if (scope == DANGLING_NAME) {
+            stack[stackSize - 1] = NONEMPTY_OBJECT;
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+        } else if (scope == EMPTY_DOCUMENT) {
+            stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        } else if (scope == NONEMPTY_DOCUMENT) {
+            if (skipWhitespace() == -1) {
+                return peeked = PEEKED_EOF;
+            }
+            throw syntaxError("Expected end of document");
+        } else if (scope == CLOSED) {
+            throw new IllegalStateException("JsonReader is closed");
+        }
+
+        final int c = nextNonWhitespace();
+        switch (c) {
+            case ']':
+                if (scope == EMPTY_ARRAY) {
+                    return peeked = PEEKED_END_ARRAY;
+                }
+                throw syntaxError("Unexpected value");
+            case '[':
+                return peeked = PEEKED_BEGIN_ARRAY;
+            case '{':
+                return peeked = PEEKED_BEGIN_OBJECT;
+            case '"':
+                return peeked = PEEKED_STRING;
+            case 't':
+                consumeLiteral("rue");
+                return peeked = PEEKED_TRUE;
+            case 'f':
+                consumeLiteral("alse");
+                return peeked = PEEKED_FALSE;
+            case 'n':
+                consumeLiteral("ull");
+                return peeked = PEEKED_NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return peeked = PEEKED_NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void consumeLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    /**
+     * Makes at least one more byte available in the buffer.
+     *
+     * @return false at the end of the stream.
+     */
+    private boolean fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n == -1) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            throw new EOFException("End of input");
+        }
+        return buffer[pos++] & BYTE_MASK;
+    }
+
+    /**
+     * @return the next non whitespace byte without consuming it, or -1 at the
+     *         end of the stream.
+     */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                return -1;
+            }
+            final int c = buffer[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+            } else {
+                return c & BYTE_MASK;
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        if (skipWhitespace() == -1) {
+            throw new EOFException("End of input");
+        }
+        return buffer[pos++] & BYTE_MASK;
+    }
+
+    /**
+     * Decodes the string or name that starts at the current position, which
+     * is just after its opening quote, up to and including its closing quote.
+     */
+    private String readString() throws IOException {
+        int length = 0;
+        while (true) {
+            // fast path for runs of plain ASCII within the buffer
+            int p = pos;
+            final int l = limit;
+            final byte[] b = buffer;
+            while (p < l) {
+                final int c = b[p];
+                if (c < SPACE || c == '"' || c == '\\') {
+                    break;
+                }
+                if (length == chars.length) {
+                    chars = Arrays.copyOf(chars, length * 2);
+                }
+                chars[length++] = (char) c;
+                p++;
+            }
+            pos = p;
+            if (p == l) {
+                if (!fill()) {
+                    throw syntaxError("Unterminated string");
+                }
+                continue;
+            }
+
+            final int c = read();
+            if (c == '"') {
+                return new String(chars, 0, length);
+            }
+            if (length + 2 > chars.length) {
+                chars = Arrays.copyOf(chars, (length + 2) * 2);
+            }
+            if (c == '\\') {
+                chars[length++] = readEscape();
+            } else if (c < CONTINUATION) {
+                throw syntaxError("Unescaped control character in string");
+            } else {
+                length = decodeMultiByte(c, length);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        final int c = read();
+        switch (c) {
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < UNICODE_ESCAPE_LENGTH; i++) {
+                    final int digit = Character.digit(read(), HEX_RADIX);
+                    if (digit < 0) {
+                        throw syntaxError("Invalid unicode escape");
+                    }
+                    value = (value << UNICODE_ESCAPE_LENGTH) | digit;
+                }
+                return (char) value;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Decodes the UTF-8 sequence that starts with the given lead byte into
+     * the character buffer, which has room for two more characters.
+     */
+    private int decodeMultiByte(int lead, int length) throws IOException {
+        final int codePoint;
+        if ((lead & THREE_BYTE_LEAD) == TWO_BYTE_LEAD) {
+            codePoint = ((lead & MASK_5_BITS) << SHIFT_6) | continuation();
+        } else if ((lead & FOUR_BYTE_LEAD) == THREE_BYTE_LEAD) {
+            codePoint = ((lead & MASK_4_BITS) << SHIFT_12) | (continuation() << SHIFT_6)
+                    | continuation();
+        } else if ((lead & FIVE_BYTE_LEAD) == FOUR_BYTE_LEAD) {
+            codePoint = ((lead & MASK_3_BITS) << SHIFT_18) | (continuation() << SHIFT_12)
+                    | (continuation() << SHIFT_6) | continuation();
+        } else {
+            throw syntaxError("Malformed UTF-8 input");
+        }
+        if (codePoint < MIN_SUPPLEMENTARY_CODE_POINT) {
+            chars[length] = (char) codePoint;
+            return length + 1;
+        }
+        return length + Character.toChars(codePoint, chars, length);
+    }
+
+    private int continuation() throws IOException {
+        final int c = read();
+        if ((c & CONTINUATION_MASK) != CONTINUATION) {
+            throw syntaxError("Malformed UTF-8 input");
+        }
+        return c & MASK_6_BITS;
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            final int c = read();
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    /**
+     * Copies the raw characters of a base 64 string into the byte scratch
+     * buffer, skipping line breaks and unescaping "\/".
+     */
+    private int readBase64Bytes() throws IOException {
+        int length = 0;
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return length;
+            }
+            if (c == '\\') {
+                c = read();
+                if (c == 'n' || c == 'r') {
+                    continue;
+                } else if (c != '/') {
+                    throw new IllegalArgumentException("Invalid base 64 character");
+                }
+            } else if (c == '\n' || c == '\r' || c == ' ') {
+                continue;
+            }
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = (byte) c;
+        }
+    }
+
+    /**
+     * Copies the bytes of the number at the current position into the byte
+     * scratch buffer.
+     */
+    private int readNumberBytes() throws IOException {
+        int length = 0;
+        while (true) {
+            if (pos == limit && !fill()) {
+                break;
+            }
+            final int c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e'
+                    || c == 'E') {
+                if (length == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, length * 2);
+                }
+                bytes[length++] = (byte) c;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (length == 0 || (length == 1 && bytes[0] == '-')) {
+            throw syntaxError("Invalid number");
+        }
+        return length;
+    }
+
+    private void skipNumber() throws IOException {
+        readNumberBytes();
+    }
+
+    /**
+     * @return true if the scratch buffer holds an optionally negative run of
+     *         at most the given number of digits.
+     */
+    private boolean isSimpleInteger(int length, int maxDigits) {
+        final int start = bytes[0] == '-' ? 1 : 0;
+        if (length - start > maxDigits) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Accumulates the digits of a simple integer in the scratch buffer.
+     */
+    private long accumulate(int length) {
+        final boolean negative = bytes[0] == '-';
+        long value = 0;
+        for (int i = negative ? 1 : 0; i < length; i++) {
+            value = value * RADIX + (bytes[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private long parseLong(int length) {
+        if (isSimpleInteger(length, MAX_LONG_DIGITS)) {
+            return accumulate(length);
+        }
+        final String s = asciiString(length);
+        try {
+            return Long.parseLong(s);
+        } catch (final NumberFormatException e) {
+            try {
+                return new BigDecimal(s).longValueExact();
+            } catch (final ArithmeticException ae) {
+                throw new NumberFormatException("Value " + s + " does not fit in a long");
+            }
+        }
+    }
+
+    private long parseEpochSeconds(int length) {
+        int end = 0;
+        while (end < length && bytes[end] != '.') {
+            end++;
+        }
+        if (isSimpleInteger(end, MAX_LONG_DIGITS)) {
+            boolean plainFraction = true;
+            for (int i = end + 1; i < length; i++) {
+                if (bytes[i] < '0' || bytes[i] > '9') {
+                    plainFraction = false;
+                    break;
+                }
+            }
+            if (plainFraction) {
+                return accumulate(end);
+            }
+        }
+        return new BigDecimal(asciiString(length)).longValue();
+    }
+
+    /**
+     * Creates a string from the ASCII bytes in the scratch buffer without
+     * going through a charset decoder.
+     */
+    @SuppressWarnings("deprecation")
+    private String asciiString(int length) {
+        return new String(bytes, 0, 0, length);
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " in JSON input");
+    }
+}
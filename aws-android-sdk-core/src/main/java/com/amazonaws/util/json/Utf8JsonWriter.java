@@ -0,0 +1,447 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import com.amazonaws.util.ByteArrayContentInputStream;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * An {@link AwsJsonWriter} that encodes JSON as UTF-8 straight into a growable
+ * byte array, instead of writing characters to a {@link java.io.Writer} that
+ * are then copied to a String and encoded again. When the document is
+ * complete, {@link #toInputStream()} hands the array over as the request
+ * content without copying it, and its length is known from {@link #size()}.
+ * Blobs are base 64 encoded straight from their {@link ByteBuffer}.
+ * <p>
+ * The output is the same as the one of the Gson engine. The writer is not
+ * thread safe.
+ */
+public final class Utf8JsonWriter implements AwsJsonWriter {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final int NEGATIVE_THREE = -3;
+    /** Escaped as they end lines in JavaScript. */
+    private static final char LINE_SEPARATOR = '\u2028';
+    private static final char PARAGRAPH_SEPARATOR = '\u2029';
+    private static final int DEFAULT_STACK_DEPTH = 16;
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+
+    private static final byte[] HEX = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+    private static final byte[] BASE64 = {
+            'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P',
+            'Q', 'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f',
+            'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'u', 'v',
+            'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/'
+    };
+    private static final byte[] NULL = {
+            'n', 'u', 'l', 'l'
+    };
+    private static final byte[] TRUE = {
+            't', 'r', 'u', 'e'
+    };
+    private static final byte[] FALSE = {
+            'f', 'a', 'l', 's', 'e'
+    };
+
+    private byte[] buffer;
+    private int count;
+
+    /** The scope of each open array or object. */
+    private int[] stack = new int[DEFAULT_STACK_DEPTH];
+    private int depth;
+    private boolean hasTopLevelValue;
+
+    /**
+     * Creates a writer with a small initial buffer.
+     */
+    public Utf8JsonWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a writer.
+     *
+     * @param initialCapacity the initial size of the buffer in bytes. It
+     *            grows as needed.
+     */
+    public Utf8JsonWriter(int initialCapacity) {
+        buffer = new byte[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * @return the number of bytes written so far.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns a repeatable stream over the bytes written so far, backed by the
+     * buffer of this writer.
+     *
+     * @return the content written.
+     */
+    public ByteArrayContentInputStream toInputStream() {
+        return new ByteArrayContentInputStream(buffer, 0, count);
+    }
+
+    @Override
+    public AwsJsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        writeByte('[');
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter endArray() throws IOException {
+        final int scope = peek();
+        if (scope != EMPTY_ARRAY && scope != NONEMPTY_ARRAY) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        depth--;
+        writeByte(']');
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        writeByte('{');
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter endObject() throws IOException {
+        final int scope = peek();
+        if (scope != EMPTY_OBJECT && scope != NONEMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        depth--;
+        writeByte('}');
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        final int scope = peek();
+        if (scope == NONEMPTY_OBJECT) {
+            writeByte(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        writeString(name);
+        writeByte(':');
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeBytes(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeAscii(Long.toString(value));
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        final String string = value.toString();
+        if (string.equals("-Infinity") || string.equals("Infinity") || string.equals("NaN")) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        beforeValue();
+        writeAscii(string);
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value(Date value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        final BigDecimal dateValue = BigDecimal.valueOf(value.getTime());
+        return value(dateValue.scaleByPowerOfTen(NEGATIVE_THREE));
+    }
+
+    @Override
+    public AwsJsonWriter value(ByteBuffer value) throws IOException {
+        if (value == null) {
+            return value();
+        }
+        beforeValue();
+        final int length = value.remaining();
+        ensureCapacity((length + 2) / 3 * 4 + 2);
+        buffer[count++] = '"';
+        if (value.hasArray()) {
+            writeBase64(value.array(), value.arrayOffset() + value.position(), length);
+        } else {
+            final int start = value.position();
+            final int end = start + length - length % 3;
+            for (int i = start; i < end; i += 3) {
+                encodeBase64(value.get(i), value.get(i + 1), value.get(i + 2));
+            }
+            encodeBase64Tail(length % 3, length % 3 > 0 ? value.get(end) : 0,
+                    length % 3 > 1 ? value.get(end + 1) : 0);
+        }
+        buffer[count++] = '"';
+        return this;
+    }
+
+    @Override
+    public AwsJsonWriter value() throws IOException {
+        beforeValue();
+        writeBytes(NULL);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // the bytes are in the buffer already
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (depth > 0 || !hasTopLevelValue) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    private int peek() {
+        if (depth == 0) {
+            throw new IllegalStateException("JsonWriter is closed.");
+        }
+        return stack[depth - 1];
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    /**
+     * Writes the separator due before a value, and updates the scope.
+     */
+    private void beforeValue() {
+        if (depth == 0) {
+            if (hasTopLevelValue) {
+                throw new IllegalStateException("JSON must have only one top-level value.");
+            }
+            hasTopLevelValue = true;
+            return;
+        }
+        switch (stack[depth - 1]) {
+            case NONEMPTY_ARRAY:
+                writeByte(',');
+                break;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            case DANGLING_NAME:
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Nesting problem.");
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (count + needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + needed));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeAscii(String s) {
+        final int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a quoted and escaped string, encoding it as UTF-8 the way
+     * {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    @SuppressWarnings("checkstyle:magicnumber")
+    private void writeString(String s) {
+        final int length = s.length();
+        // room for the quotes and for a string of ASCII without escapes
+        ensureCapacity(length + 2);
+        buffer[count++] = '"';
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    if (count == buffer.length) {
+                        ensureCapacity(length - i + 1);
+                    }
+                    buffer[count++] = (byte) c;
+                } else {
+                    writeEscape(c);
+                }
+            } else if (c < 0x800) {
+                ensureCapacity(length - i + 2);
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                writeEscape(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                ensureCapacity(length - i + 4);
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // an unpaired surrogate can't be encoded
+                ensureCapacity(length - i + 1);
+                buffer[count++] = '?';
+            } else {
+                ensureCapacity(length - i + 3);
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        writeByte('"');
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private void writeEscape(char c) {
+        ensureCapacity(6);
+        buffer[count++] = '\\';
+        switch (c) {
+            case '"':
+                buffer[count++] = '"';
+                break;
+            case '\\':
+                buffer[count++] = '\\';
+                break;
+            case '\t':
+                buffer[count++] = 't';
+                break;
+            case '\b':
+                buffer[count++] = 'b';
+                break;
+            case '\n':
+                buffer[count++] = 'n';
+                break;
+            case '\r':
+                buffer[count++] = 'r';
+                break;
+            case '\f':
+                buffer[count++] = 'f';
+                break;
+            default:
+                buffer[count++] = 'u';
+                buffer[count++] = HEX[(c >> 12) & 0xf];
+                buffer[count++] = HEX[(c >> 8) & 0xf];
+                buffer[count++] = HEX[(c >> 4) & 0xf];
+                buffer[count++] = HEX[c & 0xf];
+                break;
+        }
+    }
+
+    private void writeBase64(byte[] src, int offset, int length) {
+        final int end = offset + length - length % 3;
+        for (int i = offset; i < end; i += 3) {
+            encodeBase64(src[i], src[i + 1], src[i + 2]);
+        }
+        encodeBase64Tail(length % 3, length % 3 > 0 ? src[end] : 0,
+                length % 3 > 1 ? src[end + 1] : 0);
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private void encodeBase64(byte b0, byte b1, byte b2) {
+        final int bits = (b0 & 0xff) << 16 | (b1 & 0xff) << 8 | (b2 & 0xff);
+        buffer[count++] = BASE64[bits >>> 18];
+        buffer[count++] = BASE64[(bits >>> 12) & 0x3f];
+        buffer[count++] = BASE64[(bits >>> 6) & 0x3f];
+        buffer[count++] = BASE64[bits & 0x3f];
+    }
+
+    @SuppressWarnings("checkstyle:magicnumber")
+    private void encodeBase64Tail(int remaining, byte b0, byte b1) {
+        if (remaining == 0) {
+            return;
+        }
+        final int bits = (b0 & 0xff) << 16 | (b1 & 0xff) << 8;
+        buffer[count++] = BASE64[bits >>> 18];
+        buffer[count++] = BASE64[(bits >>> 12) & 0x3f];
+        buffer[count++] = remaining == 2 ? BASE64[(bits >>> 6) & 0x3f] : (byte) '=';
+        buffer[count++] = '=';
+    }
+}
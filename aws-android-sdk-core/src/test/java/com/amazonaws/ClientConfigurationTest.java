@@ -55,6 +55,19 @@ public class ClientConfigurationTest {
         c.setMaxConnections(2);
         assertEquals(c.getMaxConnections(), 2);
 
+        assertEquals(c.getMaxConnectionsPerRoute(), 2);
+        c.withMaxConnectionsPerRoute(1);
+        assertEquals(c.getMaxConnectionsPerRoute(), 1);
+        c.setMaxConnectionsPerRoute(0);
+        assertEquals(c.getMaxConnectionsPerRoute(), 2);
+
+        assertEquals(c.getConnectionMaxIdleMillis(),
+                ClientConfiguration.DEFAULT_CONNECTION_MAX_IDLE_MILLIS);
+        c.withConnectionMaxIdleMillis(1);
+        assertEquals(c.getConnectionMaxIdleMillis(), 1);
+        c.setConnectionMaxIdleMillis(2);
+        assertEquals(c.getConnectionMaxIdleMillis(), 2);
+
         c.withMaxErrorRetry(1);
         assertEquals(c.getMaxErrorRetry(), 1);
         c.setMaxErrorRetry(2);
@@ -137,6 +150,8 @@ public class ClientConfigurationTest {
         InetAddress ina = InetAddress.getByName(null);
         c.withLocalAddress(ina);
         c.withMaxConnections(1);
+        c.withMaxConnectionsPerRoute(1);
+        c.withConnectionMaxIdleMillis(1);
         c.withMaxErrorRetry(1);
         c.withPreemptiveBasicProxyAuth(true);
         c.withProtocol(Protocol.HTTP);
@@ -159,6 +174,8 @@ public class ClientConfigurationTest {
         assertEquals(c.getConnectionTimeout(), n.getConnectionTimeout());
         assertEquals(c.getLocalAddress(), n.getLocalAddress());
         assertEquals(c.getMaxConnections(), n.getMaxConnections());
+        assertEquals(c.getMaxConnectionsPerRoute(), n.getMaxConnectionsPerRoute());
+        assertEquals(c.getConnectionMaxIdleMillis(), n.getConnectionMaxIdleMillis());
         assertEquals(c.getMaxErrorRetry(), n.getMaxErrorRetry());
         assertEquals(c.isPreemptiveBasicProxyAuth(), n.isPreemptiveBasicProxyAuth());
         assertEquals(c.getProtocol(), n.getProtocol());
@@ -22,6 +22,8 @@ import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.DefaultRequest;
 import com.amazonaws.Request;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.ByteArrayContentInputStream;
 import com.amazonaws.util.StringUtils;
 
 import org.junit.Assert;
@@ -31,8 +33,11 @@ import java.io.ByteArrayInputStream;
 import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.SimpleTimeZone;
 import java.util.TimeZone;
 
@@ -169,10 +174,47 @@ public class AWS4SignerTest {
         assertFalse(signer.needsSign("User-Agent"));
     }
 
+    @Test
+    public void testSigningKeyIsCached() throws Exception {
+        final Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+        signer.overrideDate(c.getTime());
+        AWS4Signer.SIGNING_KEY_CACHE.clear();
+
+        Request<?> request = generateBasicRequest();
+        signer.sign(request, new BasicAWSCredentials("access", "secret"));
+        final String authorization = request.getHeaders().get("Authorization");
+        assertEquals(1, AWS4Signer.SIGNING_KEY_CACHE.size());
+
+        request = generateBasicRequest();
+        signer.sign(request, new BasicAWSCredentials("access", "secret"));
+        assertEquals("cached key gives the same signature", authorization,
+                request.getHeaders().get("Authorization"));
+        assertEquals(1, AWS4Signer.SIGNING_KEY_CACHE.size());
+
+        request = generateBasicRequest();
+        signer.sign(request, new BasicAWSCredentials("access", "another secret"));
+        assertFalse("different secret key gives a different signature",
+                authorization.equals(request.getHeaders().get("Authorization")));
+        assertEquals(2, AWS4Signer.SIGNING_KEY_CACHE.size());
+    }
+
     /**
      * Tests that if passed anonymous credentials, signer will not generate a
      * signature
      */
+    @Test
+    public void testByteArrayContentIsHashedInPlace() throws Exception {
+        final byte[] bytes = "--{\"a\":1}--".getBytes(StringUtils.UTF8);
+        final Request<?> request = new DefaultRequest<Void>("demo");
+        request.setContent(new ByteArrayContentInputStream(bytes, 2, bytes.length - 4));
+        final String contentHash = signer.calculateContentHash(request);
+
+        assertEquals(BinaryUtils.toHex(signer.hash("{\"a\":1}")), contentHash);
+        assertEquals(bytes.length - 4, request.getContent().available());
+    }
+
     @Test
     public void testAnonymous() throws Exception {
         final AWSCredentials credentials = new AnonymousAWSCredentials();
@@ -229,4 +271,25 @@ public class AWS4SignerTest {
         final String old = getOldDateStamp(now);
         assertEquals(old, dateStamp);
     }
+
+    @Test
+    public void testCanonicalizedQueryStringOfConsecutiveRequests() {
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("prefix", "a b");
+        parameters.put("delimiter", "/");
+        assertEquals("delimiter=%2F&prefix=a%20b", signer.getCanonicalizedQueryString(parameters));
+
+        final StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 10 * 1024; i++) {
+            longValue.append('x');
+        }
+        final Map<String, String> large = new HashMap<String, String>();
+        large.put("token", longValue.toString());
+        assertEquals("token=" + longValue, signer.getCanonicalizedQueryString(large));
+
+        // nothing of the earlier query strings is left
+        assertEquals("list-type=2",
+                signer.getCanonicalizedQueryString(Collections.singletonMap("list-type", "2")));
+        assertEquals("", signer.getCanonicalizedQueryString(new HashMap<String, String>()));
+    }
 }
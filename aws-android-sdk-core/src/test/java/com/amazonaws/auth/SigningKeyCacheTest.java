@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.amazonaws.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SigningKeyCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedKeyIsEvicted() {
+        final SigningKeyCache cache = new SigningKeyCache(2);
+        final byte[] first = new byte[] { 1 };
+        final byte[] second = new byte[] { 2 };
+        final byte[] third = new byte[] { 3 };
+        cache.put("first", first);
+        cache.put("second", second);
+        // touch first so that second is the eldest
+        assertSame(first, cache.get("first"));
+        cache.put("third", third);
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get("first"));
+        assertNull(cache.get("second"));
+        assertSame(third, cache.get("third"));
+    }
+
+    @Test
+    public void testKeyOfDistinguishesScopes() {
+        final String key = SigningKeyCache.keyOf("secret", "20180507", "us-east-1", "s3");
+        assertFalse(key.equals(SigningKeyCache.keyOf("secret", "20180508", "us-east-1", "s3")));
+        assertFalse(key.equals(SigningKeyCache.keyOf("secret", "20180507", "us-west-2", "s3")));
+        assertFalse(key.equals(SigningKeyCache.keyOf("secret", "20180507", "us-east-1", "sqs")));
+        assertFalse(key.equals(SigningKeyCache.keyOf("secret2", "20180507", "us-east-1", "s3")));
+    }
+}
@@ -16,6 +16,7 @@
 package com.amazonaws.http;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -36,6 +37,8 @@ import com.amazonaws.handlers.CredentialsRequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.internal.CRC32MismatchException;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.util.AWSRequestMetrics;
 
 import org.easymock.Capture;
@@ -51,6 +54,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AmazonHttpClientTest {
     private HttpClient httpClient;
@@ -727,4 +735,154 @@ public class AmazonHttpClientTest {
         String userAgent = request.getHeaders().get("User-Agent");
         assertEquals("same user agent", targetUserAgent, userAgent);
     }
+
+    private static final HttpResponseHandler<AmazonWebServiceResponse<String>> RESULT_HANDLER =
+            new HttpResponseHandler<AmazonWebServiceResponse<String>>() {
+                @Override
+                public AmazonWebServiceResponse<String> handle(HttpResponse response) {
+                    AmazonWebServiceResponse<String> awsResponse = new AmazonWebServiceResponse<String>();
+                    awsResponse.setResult("Result");
+                    return awsResponse;
+                }
+
+                @Override
+                public boolean needsConnectionLeftOpen() {
+                    return false;
+                }
+            };
+
+    /**
+     * Fails the first attempt of every request with an IOException.
+     */
+    private static final class FailFirstAttemptHttpClient implements HttpClient {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            attempts.incrementAndGet();
+            if (request.getHeaders().get("aws-sdk-retry").startsWith("0/")) {
+                throw new IOException("BOOM");
+            }
+            return HttpResponse.builder().statusCode(200).build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    private static ClientConfiguration constantBackoffConfig(final long delay) {
+        return new ClientConfiguration().withRetryPolicy(new RetryPolicy(
+                PredefinedRetryPolicies.DEFAULT_RETRY_CONDITION,
+                new RetryPolicy.BackoffStrategy() {
+                    @Override
+                    public long delayBeforeNextRetry(AmazonWebServiceRequest originalRequest,
+                            AmazonClientException exception, int retriesAttempted) {
+                        return delay;
+                    }
+                }, 3, false));
+    }
+
+    private static Request<?> newRequest() {
+        Request<?> request = new DefaultRequest<String>(new AmazonWebServiceRequest() {
+        }, "TestService");
+        request.setHttpMethod(HttpMethodName.GET);
+        request.setEndpoint(URI.create("https://www.test.com"));
+        return request;
+    }
+
+    @Test
+    public void testExecuteAsyncRetriesOnScheduler() throws Exception {
+        FailFirstAttemptHttpClient failFirst = new FailFirstAttemptHttpClient();
+        client = new AmazonHttpClient(constantBackoffConfig(200), failFirst);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            // all requests wait for their retry at the same time on one thread
+            List<ResponseFuture<Response<String>>> futures = new ArrayList<ResponseFuture<Response<String>>>();
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 20; i++) {
+                futures.add(client.executeAsync(newRequest(), RESULT_HANDLER, null,
+                        new ExecutionContext(), executor));
+            }
+            for (ResponseFuture<Response<String>> future : futures) {
+                assertEquals("Result", future.get(5, TimeUnit.SECONDS).getAwsResponse());
+            }
+            assertTrue(System.currentTimeMillis() - start < 20 * 200);
+            assertEquals(40, failFirst.attempts.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecuteAsyncCallbacks() throws Exception {
+        client = new AmazonHttpClient(constantBackoffConfig(0), new FailFirstAttemptHttpClient());
+        final List<Object> outcomes = new ArrayList<Object>();
+        ResponseFuture<Response<String>> future = client.executeAsync(newRequest(),
+                RESULT_HANDLER, null, new ExecutionContext());
+        future.get();
+        future.addCallback(new ResponseFuture.Callback<Response<String>>() {
+            @Override
+            public void onSuccess(Response<String> result) {
+                outcomes.add(result.getAwsResponse());
+            }
+
+            @Override
+            public void onError(Exception exception) {
+                outcomes.add(exception);
+            }
+        });
+        assertEquals(1, outcomes.size());
+        assertEquals("Result", outcomes.get(0));
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+    }
+
+    @Test
+    public void testExecuteAsyncFailure() throws Exception {
+        EasyMock.expect(httpClient.execute(EasyMock.<HttpRequest> anyObject()))
+                .andThrow(new IOException("BOOM")).times(4);
+        EasyMock.replay(httpClient);
+        client = new AmazonHttpClient(constantBackoffConfig(0), httpClient);
+
+        ResponseFuture<Response<String>> future = client.executeAsync(newRequest(),
+                RESULT_HANDLER, null, new ExecutionContext());
+        try {
+            future.get();
+            Assert.fail("the request fails every attempt");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AmazonClientException);
+            assertTrue(e.getCause().getMessage().contains("BOOM"));
+        }
+        EasyMock.verify(httpClient);
+    }
+
+    @Test
+    public void testCancelExecuteAsyncCancelsRetry() throws Exception {
+        FailFirstAttemptHttpClient failFirst = new FailFirstAttemptHttpClient();
+        client = new AmazonHttpClient(constantBackoffConfig(60 * 1000), failFirst);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        try {
+            ResponseFuture<Response<String>> future = client.executeAsync(newRequest(),
+                    RESULT_HANDLER, null, new ExecutionContext(), executor);
+            // wait for the first attempt to schedule the retry
+            while (executor.getCompletedTaskCount() == 0) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, executor.getQueue().size());
+            assertTrue(future.cancel(false));
+            assertTrue(future.isCancelled());
+            try {
+                future.get();
+                Assert.fail("cancelled");
+            } catch (CancellationException e) {
+                // expected
+            }
+            executor.purge();
+            assertTrue(executor.getQueue().isEmpty());
+            assertEquals(1, failFirst.attempts.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.amazonaws.http.HttpConnectionPool.Connection;
+import com.amazonaws.http.HttpConnectionPool.Route;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class HttpConnectionPoolTest {
+
+    private ServerSocket serverSocket;
+    private Route route;
+    /** The server ends of the accepted connections */
+    private final List<Socket> accepted = Collections.synchronizedList(new ArrayList<Socket>());
+    /** The number of times a read timeout was set, which a probe does */
+    private int soTimeoutChanges;
+
+    @Before
+    public void setup() throws IOException {
+        serverSocket = new ServerSocket(0);
+        route = new Route("localhost", serverSocket.getLocalPort(), false);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        accepted.add(serverSocket.accept());
+                    }
+                } catch (final IOException e) {
+                    // closed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        serverSocket.close();
+        for (final Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testRecentlyReleasedConnectionIsNotProbed() throws IOException {
+        final HttpConnectionPool pool = newPool(60 * 1000);
+        final Connection first = pool.lease(route, 1000);
+        pool.release(first, true, -1);
+
+        assertSame(first, pool.lease(route, 1000));
+        assertEquals(0, soTimeoutChanges);
+        assertEquals(1, pool.getStats().getReused());
+    }
+
+    @Test
+    public void testConnectionIdleForLongIsProbed() throws Exception {
+        final HttpConnectionPool pool = newPool(0);
+        final Connection first = pool.lease(route, 1000);
+        pool.release(first, true, -1);
+
+        assertSame(first, pool.lease(route, 1000));
+        // set to 1 ms and back
+        assertEquals(2, soTimeoutChanges);
+        pool.release(first, true, -1);
+
+        // the server closes the idle connection
+        waitForAccepted(1);
+        accepted.get(0).close();
+        Thread.sleep(50);
+        assertNotSame(first, pool.lease(route, 1000));
+        assertEquals(2, pool.getStats().getCreated());
+    }
+
+    @Test
+    public void testClosedConnectionIsNotReusedWithoutProbe() throws IOException {
+        final HttpConnectionPool pool = newPool(60 * 1000);
+        final Connection first = pool.lease(route, 1000);
+        pool.release(first, true, -1);
+        first.socket.close();
+
+        assertNotSame(first, pool.lease(route, 1000));
+        assertEquals(0, pool.getStats().getReused());
+    }
+
+    private HttpConnectionPool newPool(long validateAfterIdleMillis) {
+        return new HttpConnectionPool(new HttpConnectionPool.SocketFactory() {
+            @Override
+            public Socket open(Route route) throws IOException {
+                final Socket socket = new Socket() {
+                    @Override
+                    public synchronized void setSoTimeout(int timeout) throws SocketException {
+                        soTimeoutChanges++;
+                        super.setSoTimeout(timeout);
+                    }
+                };
+                socket.connect(new InetSocketAddress(route.host, route.port), 1000);
+                return socket;
+            }
+        }, 10, 10, 60 * 1000, validateAfterIdleMillis);
+    }
+
+    private void waitForAccepted(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && accepted.size() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
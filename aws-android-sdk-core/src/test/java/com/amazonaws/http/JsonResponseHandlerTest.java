@@ -23,7 +23,9 @@ import static org.junit.Assert.assertTrue;
 import com.amazonaws.AmazonWebServiceResponse;
 import com.amazonaws.transform.JsonUnmarshallerContext;
 import com.amazonaws.transform.Unmarshaller;
+import com.amazonaws.transform.Utf8JsonUnmarshaller;
 import com.amazonaws.util.StringUtils;
+import com.amazonaws.util.json.Utf8JsonReader;
 
 import org.junit.Test;
 
@@ -91,6 +93,33 @@ public class JsonResponseHandlerTest {
         assertEquals(awsResponse.getResult(), "Content");
     }
 
+    private static final class Utf8StringUnmarshaller implements
+            Unmarshaller<String, JsonUnmarshallerContext>, Utf8JsonUnmarshaller {
+        @Override
+        public String unmarshall(JsonUnmarshallerContext in) throws Exception {
+            assertTrue(in.getReader() instanceof Utf8JsonReader);
+            in.getReader().beginObject();
+            in.getReader().nextName();
+            return in.getReader().nextString();
+        }
+    }
+
+    @Test
+    public void testHandleWithUtf8JsonUnmarshaller() throws Exception {
+        byte[] content = "{\"key\" :\"Cont\u00e9nt\"}".getBytes(StringUtils.UTF8);
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+        HttpResponse response = new HttpResponse.Builder().statusText("testResponse")
+                .statusCode(200).header("x-amz-crc32", String.valueOf(crc32.getValue()))
+                .content(new ByteArrayInputStream(content)).build();
+
+        JsonResponseHandler<String> toTest = new JsonResponseHandler<String>(
+                new Utf8StringUnmarshaller());
+
+        AmazonWebServiceResponse<String> awsResponse = toTest.handle(response);
+        assertEquals("Cont\u00e9nt", awsResponse.getResult());
+    }
+
     @Test
     public void testHandleWithNullContent() throws Exception {
 
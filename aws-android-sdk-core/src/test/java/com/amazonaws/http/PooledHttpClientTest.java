@@ -0,0 +1,365 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PooledHttpClientTest {
+
+    private FakeServer server;
+    private PooledHttpClient client;
+
+    @Before
+    public void setup() throws IOException {
+        server = new FakeServer();
+        client = new PooledHttpClient(new ClientConfiguration()
+                .withConnectionTimeout(1000)
+                .withSocketTimeout(5000));
+    }
+
+    @After
+    public void teardown() throws IOException {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws IOException {
+        server.respond(response("200 OK", "Content-Length: 5", "hello"));
+        server.respond(response("200 OK", "Content-Length: 5", "world"));
+
+        assertEquals("hello", body(client.execute(get("/a"))));
+        assertEquals("world", body(client.execute(get("/b?x=1"))));
+
+        assertEquals(1, server.accepted.get());
+        assertEquals("GET /a HTTP/1.1", server.requestLines.get(0));
+        assertEquals("GET /b?x=1 HTTP/1.1", server.requestLines.get(1));
+        final ConnectionPoolStats stats = client.getPoolStats();
+        assertEquals(1, stats.getCreated());
+        assertEquals(1, stats.getReused());
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+    }
+
+    @Test
+    public void testClosingUnreadResponseKeepsConnection() throws IOException {
+        server.respond(response("200 OK", "Content-Length: 5", "hello"));
+        server.respond(response("200 OK", "Content-Length: 5", "world"));
+
+        client.execute(get("/a")).getRawContent().close();
+        assertEquals("world", body(client.execute(get("/b"))));
+        assertEquals(1, server.accepted.get());
+    }
+
+    @Test
+    public void testChunkedResponse() throws IOException {
+        server.respond(response("200 OK", "Transfer-Encoding: chunked",
+                "5\r\nhello\r\n1;ext=1\r\n!\r\n0\r\nTrailer: x\r\n\r\n"));
+        server.respond(response("204 No Content", null, ""));
+
+        assertEquals("hello!", body(client.execute(get("/"))));
+        final HttpResponse response = client.execute(get("/"));
+        assertEquals(204, response.getStatusCode());
+        assertNull(response.getRawContent());
+        assertEquals(1, server.accepted.get());
+    }
+
+    @Test
+    public void testRequestContentAndHeaders() throws IOException {
+        server.respond(response("200 OK", "Content-Length: 0", ""));
+        server.respond(response("200 OK", "Content-Length: 0", ""));
+
+        final Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Content-Length", "7");
+        headers.put("Expect", "100-continue");
+        headers.put("X-Test", "value");
+        final HttpRequest put = new HttpRequest("PUT",
+                URI.create("http://localhost:" + server.getPort() + "/put"), headers,
+                new ByteArrayInputStream(bytes("content")));
+        body(client.execute(put));
+
+        final Map<String, String> streamingHeaders = new HashMap<String, String>();
+        streamingHeaders.put("Content-Length", "8");
+        final HttpRequest streaming = new HttpRequest("POST",
+                URI.create("http://localhost:" + server.getPort() + "/post"), streamingHeaders,
+                new ByteArrayInputStream(bytes("streamed")));
+        streaming.setStreaming(true);
+        body(client.execute(streaming));
+
+        final Map<String, String> first = server.requestHeaders.get(0);
+        assertEquals("localhost:" + server.getPort(), first.get("host"));
+        assertEquals("7", first.get("content-length"));
+        assertEquals("value", first.get("x-test"));
+        assertNull(first.get("expect"));
+        assertEquals("content", server.requestBodies.get(0));
+        // a streaming request isn't chunked, as Amazon S3 rejects that
+        assertNull(server.requestHeaders.get(1).get("transfer-encoding"));
+        assertEquals("8", server.requestHeaders.get(1).get("content-length"));
+        assertEquals("streamed", server.requestBodies.get(1));
+        assertEquals(1, server.accepted.get());
+    }
+
+    @Test
+    public void testContentWithoutLengthIsSentWithUrlHttpClient() throws IOException {
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+
+        final HttpRequest streaming = new HttpRequest("POST",
+                URI.create("http://localhost:" + server.getPort() + "/post"),
+                new HashMap<String, String>(), new ByteArrayInputStream(bytes("streamed")));
+        streaming.setStreaming(true);
+        assertEquals("ok", body(client.execute(streaming)));
+
+        assertEquals("streamed", server.requestBodies.get(0));
+        assertEquals(0, client.getPoolStats().getCreated());
+    }
+
+    @Test
+    public void testConnectionCloseIsNotReused() throws IOException {
+        server.respond(response("200 OK", "Content-Length: 2\r\nConnection: close", "ok"));
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+
+        final HttpResponse response = client.execute(get("/"));
+        assertEquals("ok", body(response));
+        assertEquals("OK", response.getStatusText());
+        assertEquals("close", response.getHeaders().get("Connection"));
+        assertEquals("ok", body(client.execute(get("/"))));
+        assertEquals(2, server.accepted.get());
+        assertEquals(2, client.getPoolStats().getCreated());
+    }
+
+    @Test
+    public void testServerClosedConnectionIsNotReused() throws Exception {
+        client.shutdown();
+        // probe every idle connection before reuse
+        client = new PooledHttpClient(new ClientConfiguration()
+                .withConnectionTimeout(1000)
+                .withSocketTimeout(5000), 0);
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+        server.closeAfterResponse = true;
+        assertEquals("ok", body(client.execute(get("/"))));
+
+        server.closeAfterResponse = false;
+        // let the close reach the client
+        Thread.sleep(50);
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+        assertEquals("ok", body(client.execute(get("/"))));
+        assertEquals(2, server.accepted.get());
+        assertEquals(0, client.getPoolStats().getReused());
+    }
+
+    @Test
+    public void testWaitsForConnectionOfRoute() throws IOException {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration()
+                .withMaxConnectionsPerRoute(1)
+                .withConnectionTimeout(100));
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+
+        final HttpResponse leased = client.execute(get("/"));
+        try {
+            client.execute(get("/"));
+            fail("the only connection is leased");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage().startsWith("Timeout waiting for a connection"));
+        }
+        assertEquals(1, client.getPoolStats().getLeased());
+        assertEquals("ok", body(leased));
+        assertEquals(0, client.getPoolStats().getLeased());
+    }
+
+    @Test
+    public void testIdleConnectionExpires() throws Exception {
+        client.shutdown();
+        client = new PooledHttpClient(new ClientConfiguration()
+                .withConnectionMaxIdleMillis(50));
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+        server.respond(response("200 OK", "Content-Length: 2", "ok"));
+
+        assertEquals("ok", body(client.execute(get("/"))));
+        Thread.sleep(100);
+        client.closeExpiredConnections();
+        assertEquals(0, client.getPoolStats().getAvailable());
+        assertEquals(1, client.getPoolStats().getClosed());
+        assertEquals("ok", body(client.execute(get("/"))));
+        assertEquals(2, server.accepted.get());
+    }
+
+    @Test
+    public void testParseKeepAliveMillis() {
+        assertEquals(5000, PooledHttpClient.parseKeepAliveMillis("timeout=5, max=100"));
+        assertEquals(-1, PooledHttpClient.parseKeepAliveMillis("max=100"));
+        assertEquals(-1, PooledHttpClient.parseKeepAliveMillis(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testProxyIsNotSupported() {
+        new PooledHttpClient(new ClientConfiguration().withProxyHost("proxy")
+                .withProxyPort(8080));
+    }
+
+    private HttpRequest get(String path) {
+        return new HttpRequest("GET", URI.create("http://localhost:" + server.getPort() + path));
+    }
+
+    private static String body(HttpResponse response) throws IOException {
+        return IOUtils.toString(response.getContent());
+    }
+
+    private static String response(String status, String headers, String body) {
+        return "HTTP/1.1 " + status + "\r\n" + (headers == null ? "" : headers + "\r\n")
+                + "\r\n" + body;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StringUtils.UTF8);
+    }
+
+    /**
+     * Answers each request with the next scripted response.
+     */
+    private static final class FakeServer implements Runnable {
+        private final ServerSocket serverSocket;
+        private final LinkedList<String> responses = new LinkedList<String>();
+        final AtomicInteger accepted = new AtomicInteger();
+        final List<String> requestLines = Collections.synchronizedList(new ArrayList<String>());
+        final List<Map<String, String>> requestHeaders = Collections
+                .synchronizedList(new ArrayList<Map<String, String>>());
+        final List<String> requestBodies = Collections.synchronizedList(new ArrayList<String>());
+        volatile boolean closeAfterResponse;
+
+        FakeServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            final Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        synchronized void respond(String response) {
+            responses.add(response);
+        }
+
+        private synchronized String nextResponse() {
+            return responses.removeFirst();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final IOException e) {
+                    return;
+                }
+                accepted.incrementAndGet();
+                final Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                final InputStream in = new BufferedInputStream(socket.getInputStream());
+                final OutputStream out = socket.getOutputStream();
+                while (true) {
+                    final String requestLine;
+                    try {
+                        requestLine = PooledHttpClient.readLine(in);
+                    } catch (final IOException e) {
+                        break;
+                    }
+                    final Map<String, String> headers = new HashMap<String, String>();
+                    String line;
+                    while (!(line = PooledHttpClient.readLine(in)).isEmpty()) {
+                        final int colon = line.indexOf(':');
+                        headers.put(line.substring(0, colon).toLowerCase(Locale.US),
+                                line.substring(colon + 1).trim());
+                    }
+                    final InputStream body;
+                    if (headers.containsKey("transfer-encoding")) {
+                        body = new PooledHttpClient.ChunkedInputStream(in);
+                    } else {
+                        final String length = headers.get("content-length");
+                        body = new PooledHttpClient.FixedLengthInputStream(in,
+                                length == null ? 0 : Long.parseLong(length));
+                    }
+                    requestBodies.add(IOUtils.toString(body));
+                    requestLines.add(requestLine);
+                    requestHeaders.add(headers);
+
+                    final String response = nextResponse();
+                    final boolean close = closeAfterResponse
+                            || response.contains("Connection: close");
+                    out.write(bytes(response));
+                    out.flush();
+                    if (close) {
+                        break;
+                    }
+                }
+            } catch (final IOException e) {
+                // the client went away
+            } finally {
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                    // ignored
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ResponseFutureTest {
+
+    private static final int ROUNDS = 2000;
+
+    @Test
+    public void testCompleteAfterCancelIsIgnored() throws Exception {
+        final ResponseFuture<String> future = new ResponseFuture<String>();
+        assertTrue(future.cancel(false));
+        future.complete("result");
+        future.fail(new RuntimeException());
+        assertFalse(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail();
+        } catch (final CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void testFailAfterCompleteIsIgnored() throws Exception {
+        final ResponseFuture<String> future = new ResponseFuture<String>();
+        future.complete("result");
+        future.fail(new RuntimeException());
+        assertFalse(future.cancel(false));
+        assertFalse(future.isCancelled());
+        assertEquals("result", future.get());
+    }
+
+    @Test
+    public void testConcurrentCompleteAndCancelHaveOneOutcome() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final ResponseFuture<String> future = new ResponseFuture<String>();
+            final RecordingCallback callback = new RecordingCallback();
+            future.addCallback(callback);
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final AtomicBoolean cancelled = new AtomicBoolean();
+            final Thread canceller = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(barrier);
+                    cancelled.set(future.cancel(false));
+                }
+            });
+            canceller.start();
+            await(barrier);
+            future.complete("result");
+            canceller.join();
+
+            callback.done.await();
+            assertEquals(1, callback.calls.get());
+            assertEquals(cancelled.get(), future.isCancelled());
+            if (cancelled.get()) {
+                assertTrue(callback.error.get() instanceof CancellationException);
+                try {
+                    future.get();
+                    fail();
+                } catch (final CancellationException expected) {
+                }
+            } else {
+                assertEquals("result", callback.result.get());
+                assertEquals("result", future.get());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentCancelsReturnTrueOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final ResponseFuture<String> future = new ResponseFuture<String>();
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final AtomicInteger successes = new AtomicInteger();
+            final Runnable cancel = new Runnable() {
+                @Override
+                public void run() {
+                    await(barrier);
+                    if (future.cancel(false)) {
+                        successes.incrementAndGet();
+                    }
+                }
+            };
+            final Thread other = new Thread(cancel);
+            other.start();
+            cancel.run();
+            other.join();
+            assertEquals(1, successes.get());
+        }
+    }
+
+    @Test
+    public void testConcurrentFailAndCompleteHaveOneOutcome() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            final ResponseFuture<String> future = new ResponseFuture<String>();
+            final RecordingCallback callback = new RecordingCallback();
+            future.addCallback(callback);
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final RuntimeException failure = new RuntimeException("failed");
+            final Thread failer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(barrier);
+                    future.fail(failure);
+                }
+            });
+            failer.start();
+            await(barrier);
+            future.complete("result");
+            failer.join();
+
+            callback.done.await();
+            assertEquals(1, callback.calls.get());
+            try {
+                assertEquals(future.get(), callback.result.get());
+                assertEquals(null, callback.error.get());
+            } catch (final ExecutionException e) {
+                assertEquals(failure, e.getCause());
+                assertEquals(failure, callback.error.get());
+            }
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class RecordingCallback implements ResponseFuture.Callback<String> {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicReference<String> result = new AtomicReference<String>();
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        @Override
+        public void onSuccess(String value) {
+            result.set(value);
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            error.set(exception);
+            calls.incrementAndGet();
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HistogramMetricCollectorTest {
+
+    private static class PutThingRequest extends AmazonWebServiceRequest {
+    }
+
+    private static class GetThingRequest extends AmazonWebServiceRequest {
+    }
+
+    private static class DeleteThingRequest extends AmazonWebServiceRequest {
+    }
+
+    private static class CapturingExporter implements MetricExporter {
+        final List<MetricsSnapshot> snapshots = new ArrayList<MetricsSnapshot>();
+
+        @Override
+        public void export(MetricsSnapshot snapshot) {
+            snapshots.add(snapshot);
+        }
+    }
+
+    @Test
+    public void testRecordsLatenciesAndCountersPerOperation() {
+        final HistogramMetricCollector collector = new HistogramMetricCollector(
+                new CapturingExporter());
+        for (int i = 0; i < 10; i++) {
+            final DefaultRequest<?> request = newRequest(new PutThingRequest());
+            final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+            metrics.incrementCounter(Field.RequestCount);
+            if (i == 0) {
+                metrics.incrementCounter(Field.RequestCount);
+            }
+            metrics.startEvent(Field.ClientExecuteTime);
+            metrics.endEvent(Field.ClientExecuteTime);
+            collector.getRequestMetricCollector().collectMetrics(request,
+                    i == 9 ? null : new Response<Object>(null, null));
+        }
+
+        final MetricsSnapshot snapshot = collector.snapshot();
+        assertEquals(10, ((MetricsSnapshot.Counter) find(snapshot, "RequestCount")).getCount());
+        assertEquals(1, ((MetricsSnapshot.Counter) find(snapshot, "ErrorCount")).getCount());
+        assertEquals(1, ((MetricsSnapshot.Counter) find(snapshot, "RetryCount")).getCount());
+        final MetricsSnapshot.Latency latency = (MetricsSnapshot.Latency) find(snapshot,
+                "ClientExecuteTime");
+        assertEquals("Things", latency.getServiceName());
+        assertEquals("PutThing", latency.getOperationName());
+        assertEquals(10, latency.getHistogram().getCount());
+        assertNull(find(snapshot, "HttpRequestTime"));
+
+        assertTrue(collector.snapshot().getEntries().isEmpty());
+    }
+
+    @Test
+    public void testSeriesBeyondTheLimitAreDropped() {
+        final HistogramMetricCollector collector = new HistogramMetricCollector(
+                new CapturingExporter(), HistogramMetricCollector.DEFAULT_INTERVAL_MILLIS, 2);
+        final RequestMetricCollector requests = collector.getRequestMetricCollector();
+        requests.collectMetrics(newRequest(new PutThingRequest()), null);
+        requests.collectMetrics(newRequest(new GetThingRequest()), null);
+        requests.collectMetrics(newRequest(new DeleteThingRequest()), null);
+
+        final MetricsSnapshot snapshot = collector.snapshot();
+        assertEquals(1, ((MetricsSnapshot.Counter) find(snapshot, "DroppedSamples")).getCount());
+        for (final MetricsSnapshot.Entry entry : snapshot.getEntries()) {
+            assertFalse("DeleteThing".equals(entry.getOperationName()));
+        }
+    }
+
+    @Test
+    public void testThroughputIsSummedAndExportedOnStop() {
+        final CapturingExporter exporter = new CapturingExporter();
+        final HistogramMetricCollector collector = new HistogramMetricCollector(exporter);
+        final ThroughputMetricType type = new SimpleThroughputMetricType("ReadThroughput",
+                "Things", "BytesRead");
+        final ByteThroughputProvider provider = new ByteThroughputProvider(type) {
+        };
+        provider.increment(1000, System.nanoTime());
+        provider.increment(500, System.nanoTime());
+
+        assertTrue(collector.start());
+        assertTrue(collector.isEnabled());
+        collector.getServiceMetricCollector().collectByteThroughput(provider);
+        assertTrue(collector.stop());
+        assertFalse(collector.isEnabled());
+
+        assertEquals(1, exporter.snapshots.size());
+        final MetricsSnapshot.Throughput throughput = (MetricsSnapshot.Throughput) find(
+                exporter.snapshots.get(0), "ReadThroughput");
+        assertEquals(1500, throughput.getByteCount());
+        assertEquals("Things", throughput.getServiceName());
+    }
+
+    @Test
+    public void testFileExporterRotatesAtTheSizeLimit() throws Exception {
+        final File file = File.createTempFile("HistogramMetricCollectorTest-", ".txt");
+        final File previous = new File(file.getPath() + ".1");
+        try {
+            final HistogramMetricCollector collector = new HistogramMetricCollector(
+                    new CapturingExporter());
+            collector.getRequestMetricCollector().collectMetrics(
+                    newRequest(new PutThingRequest()), null);
+            final FileMetricExporter exporter = new FileMetricExporter(file, 10);
+            exporter.export(collector.snapshot());
+            final long firstLength = file.length();
+            assertTrue(firstLength > 10);
+            assertFalse(previous.exists());
+
+            exporter.export(collector.snapshot());
+            assertEquals(firstLength, previous.length());
+            assertTrue(file.length() > 0 && file.length() < firstLength);
+        } finally {
+            assertTrue(file.delete());
+            previous.delete();
+        }
+    }
+
+    private static DefaultRequest<?> newRequest(AmazonWebServiceRequest originalRequest) {
+        final DefaultRequest<?> request = new DefaultRequest<Object>(originalRequest, "Things");
+        request.setAWSRequestMetrics(new AWSRequestMetricsFullSupport());
+        return request;
+    }
+
+    private static MetricsSnapshot.Entry find(MetricsSnapshot snapshot, String metricName) {
+        for (final MetricsSnapshot.Entry entry : snapshot.getEntries()) {
+            if (entry.getMetricName().equals(metricName)) {
+                assertNotNull(entry.toString());
+                return entry;
+            }
+        }
+        return null;
+    }
+}
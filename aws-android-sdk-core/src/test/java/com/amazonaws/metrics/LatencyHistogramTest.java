@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValueInOrder() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 16; value++) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index == previous || index == previous + 1);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE,
+                LatencyHistogram.highestValueOf(LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentilesAreWithinBucketPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(1, snapshot.getMin());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertWithin(5000, snapshot.getValueAtPercentile(50));
+        assertWithin(9900, snapshot.getValueAtPercentile(99));
+        assertEquals(10000, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSnapshotStartsANewInterval() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshotAndReset();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+        assertEquals(0, histogram.getCount());
+
+        snapshot = histogram.snapshotAndReset();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMax());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " not close to " + expected,
+                Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdaptiveRateLimiterTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testNoLimitBeforeThrottling() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, limiter.acquire());
+            limiter.updateSendRate(false);
+        }
+        assertFalse(limiter.isEnabled());
+        assertEquals(0, limiter.getSendRate(), DELTA);
+    }
+
+    @Test
+    public void testThrottlingLowersSendRate() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        // 10 requests per second for 5 seconds
+        double now = 1000;
+        for (int i = 0; i < 50; i++) {
+            limiter.updateSendRate(false, now);
+            now += 0.1;
+        }
+        double measured = limiter.getMeasuredSendRate();
+        assertEquals(10, measured, 1);
+
+        limiter.updateSendRate(true, now);
+        assertTrue(limiter.isEnabled());
+        assertEquals(1, limiter.getThrottleCount());
+        assertEquals(limiter.getMeasuredSendRate() * 0.7, limiter.getSendRate(), DELTA);
+
+        double throttledRate = limiter.getSendRate();
+        limiter.updateSendRate(true, now + 0.01);
+        assertTrue(limiter.getSendRate() < throttledRate);
+    }
+
+    @Test
+    public void testSendRateRecoversAfterThrottling() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        double now = 1000;
+        for (int i = 0; i < 50; i++) {
+            limiter.updateSendRate(false, now);
+            now += 0.1;
+        }
+        limiter.updateSendRate(true, now);
+        double throttledRate = limiter.getSendRate();
+        for (int i = 0; i < 50; i++) {
+            now += 0.1;
+            limiter.updateSendRate(false, now);
+        }
+        assertTrue(limiter.getSendRate() > throttledRate);
+    }
+
+    @Test
+    public void testAcquireWaitsWhenRateIsExceeded() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter();
+        double now = 1000;
+        // the rate drops to the minimum of 0.5 requests per second
+        limiter.updateSendRate(true, now);
+        assertEquals(0.5, limiter.getSendRate(), DELTA);
+
+        // the bucket starts empty
+        assertEquals(2000, limiter.acquire(now));
+        now += 4;
+        assertEquals(0, limiter.acquire(now));
+        // the next one has to wait for the bucket to fill again
+        assertEquals(2000, limiter.acquire(now));
+        // and the one after that waits in line behind it
+        assertEquals(4000, limiter.acquire(now));
+    }
+}
@@ -297,4 +297,66 @@ public class AmazonHttpClientRetryPolicyTest extends RetryPolicyTestBase {
                         .getTimingInfo()
                         .getCounter(AWSRequestMetrics.Field.RequestCount.toString()).intValue());
     }
+
+    /**
+     * Tests that retries stop once the retry quota of the policy is drained.
+     */
+    @Test
+    public void testRetryQuotaStopsRetries() {
+        RetryTokenBucket bucket = new RetryTokenBucket(12, 5, 10);
+        clientConfiguration.setRetryPolicy(new RetryPolicy(retryCondition, backoffStrategy,
+                EXPECTED_RETRY_COUNT, false, bucket, null));
+        injectMockHttpClient(testedClient, new ReturnServiceErrorHttpClient(500, "error"));
+
+        ExecutionContext context = new ExecutionContext(true);
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, context);
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals(500, ase.getStatusCode());
+        }
+        // two retries of 5 tokens, then the quota is drained
+        Assert.assertEquals(2, backoffStrategy.retriesAttemptedValues.size());
+        Assert.assertEquals(2, bucket.getAvailableTokens());
+        Assert.assertEquals(10, context.getAwsRequestMetrics().getTimingInfo()
+                .getCounter(AWSRequestMetrics.Field.RetryCapacityConsumed.toString())
+                .intValue());
+
+        // the next request isn't retried at all
+        context = new ExecutionContext(true);
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, context);
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals(500, ase.getStatusCode());
+        }
+        Assert.assertEquals(1, context.getAwsRequestMetrics().getTimingInfo()
+                .getCounter(AWSRequestMetrics.Field.RequestCount.toString()).intValue());
+    }
+
+    /**
+     * Tests that throttling errors turn on the rate limiter of the policy.
+     */
+    @Test
+    public void testThrottlingEnablesRateLimiter() {
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter();
+        clientConfiguration.setRetryPolicy(new RetryPolicy(retryCondition, backoffStrategy,
+                1, false, null, rateLimiter));
+        injectMockHttpClient(testedClient, new ReturnServiceErrorHttpClient(400, "Throttling"));
+
+        ExecutionContext context = new ExecutionContext(true);
+        try {
+            testedClient.execute(getSampleRequestWithRepeatableContent(originalRequest),
+                    null, errorResponseHandler, context);
+            Assert.fail("AmazonServiceException is expected.");
+        } catch (AmazonServiceException ase) {
+            Assert.assertEquals("Throttling", ase.getErrorCode());
+        }
+        Assert.assertTrue(rateLimiter.isEnabled());
+        Assert.assertEquals(2, rateLimiter.getThrottleCount());
+        Assert.assertEquals(2, context.getAwsRequestMetrics().getTimingInfo()
+                .getCounter(AWSRequestMetrics.Field.ThrottleException.toString()).intValue());
+    }
 }
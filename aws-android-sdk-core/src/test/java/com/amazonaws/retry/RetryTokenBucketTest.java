@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.retry;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.AmazonClientException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+public class RetryTokenBucketTest {
+
+    @Test
+    public void testAcquireAndRelease() {
+        RetryTokenBucket bucket = new RetryTokenBucket(10, 5, 10);
+        AmazonClientException ioError = new AmazonClientException("io", new IOException());
+        assertEquals(5, bucket.acquireRetry(ioError));
+        assertEquals(5, bucket.getAvailableTokens());
+        assertEquals(5, bucket.acquireRetry(ioError));
+        assertEquals(-1, bucket.acquireRetry(ioError));
+        assertEquals(0, bucket.getAvailableTokens());
+
+        bucket.releaseOnSuccess(5);
+        assertEquals(5, bucket.getAvailableTokens());
+        bucket.releaseOnSuccess(0);
+        assertEquals(6, bucket.getAvailableTokens());
+    }
+
+    @Test
+    public void testTimeoutCostsMore() {
+        RetryTokenBucket bucket = new RetryTokenBucket(10, 5, 10);
+        assertEquals(10, bucket.acquireRetry(
+                new AmazonClientException("timeout", new SocketTimeoutException())));
+        assertEquals(0, bucket.getAvailableTokens());
+    }
+
+    @Test
+    public void testReleaseIsCappedAtCapacity() {
+        RetryTokenBucket bucket = new RetryTokenBucket();
+        bucket.releaseOnSuccess(0);
+        bucket.releaseOnSuccess(RetryTokenBucket.DEFAULT_RETRY_COST);
+        assertEquals(RetryTokenBucket.DEFAULT_CAPACITY, bucket.getAvailableTokens());
+        assertEquals(RetryTokenBucket.DEFAULT_CAPACITY, bucket.getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new RetryTokenBucket(-1, 5, 10);
+    }
+}
@@ -16,6 +16,7 @@
 package com.amazonaws.transform;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.util.Base64;
@@ -23,9 +24,11 @@ import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.json.AwsJsonReader;
 import com.amazonaws.util.json.AwsJsonWriter;
 import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.Utf8JsonReader;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigDecimal;
@@ -298,4 +301,43 @@ public class SimpleTypeJsonUnmarshallerTest {
         assertEquals(sUnmarshaller.unmarshall(context), "String");
     }
 
+    @Test
+    public void testUtf8JsonReader() throws Exception {
+        String json = "[1.5,7,true,12345678901,1507000000.5,\""
+                + Base64.encodeAsString("byte".getBytes(StringUtils.UTF8))
+                + "\",\"s\",null,null,null,null,null]";
+        AwsJsonReader jr = new Utf8JsonReader(new ByteArrayInputStream(
+                json.getBytes(StringUtils.UTF8)));
+        JsonUnmarshallerContext context = new JsonUnmarshallerContext(jr);
+        context.getReader().beginArray();
+
+        assertEquals(1.5, SimpleTypeJsonUnmarshallers.DoubleJsonUnmarshaller.getInstance()
+                .unmarshall(context), 0);
+        assertEquals(Integer.valueOf(7), SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller
+                .getInstance().unmarshall(context));
+        assertTrue(SimpleTypeJsonUnmarshallers.BooleanJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertEquals(Long.valueOf(12345678901L), SimpleTypeJsonUnmarshallers.LongJsonUnmarshaller
+                .getInstance().unmarshall(context));
+        assertEquals(1507000000000L, SimpleTypeJsonUnmarshallers.DateJsonUnmarshaller
+                .getInstance().unmarshall(context).getTime());
+        assertEquals(ByteBuffer.wrap("byte".getBytes(StringUtils.UTF8)),
+                SimpleTypeJsonUnmarshallers.ByteBufferJsonUnmarshaller.getInstance()
+                        .unmarshall(context));
+        assertEquals("s", SimpleTypeJsonUnmarshallers.StringJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+
+        assertNull(SimpleTypeJsonUnmarshallers.DoubleJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.IntegerJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.BooleanJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.LongJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        assertNull(SimpleTypeJsonUnmarshallers.DateJsonUnmarshaller.getInstance()
+                .unmarshall(context));
+        context.getReader().endArray();
+    }
+
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.metrics.SimpleMetricType;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class AWSRequestMetricsFullSupportTest {
+
+    @Test
+    public void testFieldEventsAreSubMeasurementsByName() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.startEvent(Field.HttpRequestTime.name());
+        metrics.endEvent(Field.HttpRequestTime.name());
+        metrics.endEvent(Field.RequestSigningTime);
+
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final List<TimingInfo> timings = timingInfo.getAllSubMeasurements("HttpRequestTime");
+        assertEquals(2, timings.size());
+        for (final TimingInfo timing : timings) {
+            assertTrue(timing.isEndTimeKnown());
+            assertTrue(timing.getEndTimeNano() >= timing.getStartTimeNano());
+        }
+        assertEquals(timings.get(1).getStartTimeNano(),
+                timingInfo.getLastSubMeasurement("HttpRequestTime").getStartTimeNano());
+        assertNull(timingInfo.getAllSubMeasurements("RequestSigningTime"));
+        assertEquals(1, timingInfo.getSubMeasurementsByName().size());
+    }
+
+    @Test
+    public void testFieldCountersAndProperties() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.setCounter(Field.RequestCount, 1);
+        metrics.incrementCounter(Field.RequestCount);
+        metrics.incrementCounter("RequestCount");
+        metrics.incrementCounter(Field.Exception);
+        metrics.addProperty(Field.StatusCode, 500);
+        metrics.addProperty(Field.AWSRequestID, null);
+        metrics.addProperty("StatusCode", 200);
+
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        assertEquals(3, timingInfo.getCounter("RequestCount").intValue());
+        assertEquals(1, timingInfo.getCounter(Field.Exception.name()).intValue());
+        assertNull(timingInfo.getCounter(Field.RetryCount.name()));
+        assertEquals(2, timingInfo.getAllCounters().size());
+        assertEquals(Arrays.<Object> asList(500, 200), metrics.getProperty(Field.StatusCode));
+        assertEquals(Arrays.<Object> asList((Object) null), metrics.getProperty("AWSRequestID"));
+        assertNull(metrics.getProperty(Field.ServiceName));
+    }
+
+    @Test
+    public void testOtherNamesAreKeptAlongsideFields() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        final SimpleMetricType custom = new SimpleMetricType() {
+            @Override
+            public String name() {
+                return "CustomTime";
+            }
+        };
+        metrics.startEvent(custom);
+        metrics.endEvent(custom);
+        metrics.startEvent(Field.ClientExecuteTime);
+        metrics.endEvent(Field.ClientExecuteTime);
+        metrics.incrementCounter("CustomCount");
+        metrics.addProperty(custom, "value");
+
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        final Map<String, List<TimingInfo>> byName = timingInfo.getSubMeasurementsByName();
+        assertEquals(1, byName.get("CustomTime").size());
+        assertEquals(1, byName.get("ClientExecuteTime").size());
+        assertEquals(1, timingInfo.getCounter("CustomCount").intValue());
+        assertEquals(Arrays.<Object> asList("value"), metrics.getProperty("CustomTime"));
+    }
+
+    @Test
+    public void testFieldSubMeasurementsAreReadByIndex() {
+        final AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        metrics.startEvent(Field.HttpRequestTime);
+        metrics.endEvent(Field.HttpRequestTime);
+        metrics.startEvent("CustomTime");
+        metrics.endEvent("CustomTime");
+        metrics.setCounter(Field.RequestCount, 2);
+
+        final TimingInfo timingInfo = metrics.getTimingInfo();
+        // a field timing added by name joins the ones recorded by the metrics
+        timingInfo.addSubMeasurement(Field.RetryPauseTime.name(),
+                TimingInfo.unmodifiableTimingInfo(10L, Long.valueOf(25L)));
+        timingInfo.addSubMeasurement(Field.RetryPauseTime.name(), TimingInfo.startTiming());
+
+        assertEquals(2, timingInfo.getFieldSubMeasurementCount());
+        assertEquals(Field.HttpRequestTime, timingInfo.getFieldSubMeasurementField(0));
+        assertTrue(timingInfo.getFieldSubMeasurementEndNano(0)
+                >= timingInfo.getFieldSubMeasurementStartNano(0));
+        assertEquals(Field.RetryPauseTime, timingInfo.getFieldSubMeasurementField(1));
+        assertEquals(10L, timingInfo.getFieldSubMeasurementStartNano(1));
+        assertEquals(25L, timingInfo.getFieldSubMeasurementEndNano(1));
+        assertEquals(1, timingInfo.getAllSubMeasurements(Field.RetryPauseTime.name()).size());
+        try {
+            timingInfo.getFieldSubMeasurementField(2);
+            fail();
+        } catch (final IndexOutOfBoundsException expected) {
+        }
+
+        assertEquals(2, timingInfo.getCounter(Field.RequestCount, 0));
+        assertEquals(-1, timingInfo.getCounter(Field.RetryCount, -1));
+    }
+
+    @Test
+    public void testMinimalTimingInfoHasNoFieldSubMeasurements() {
+        final TimingInfo timingInfo = TimingInfo.startTiming();
+        timingInfo.setCounter(Field.RequestCount.name(), 2);
+        assertEquals(0, timingInfo.getFieldSubMeasurementCount());
+        assertEquals(0, timingInfo.getCounter(Field.RequestCount, 0));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class ThreadPoolsTest {
+
+    @Test
+    public void testNewDaemonThreadPool() throws Exception {
+        final ExecutorService pool = ThreadPools.newDaemonThreadPool("test-pool-", 3);
+        try {
+            final Thread thread = pool.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertTrue(thread.isDaemon());
+            assertEquals("test-pool-1", thread.getName());
+
+            final ThreadPoolExecutor executor = (ThreadPoolExecutor) pool;
+            assertEquals(3, executor.getCorePoolSize());
+            assertEquals(3, executor.getMaximumPoolSize());
+            assertTrue(executor.allowsCoreThreadTimeOut());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
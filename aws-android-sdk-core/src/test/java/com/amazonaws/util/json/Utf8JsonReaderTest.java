@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.util.Base64;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Utf8JsonReaderTest {
+    private static final String JSON_STRING = "{\"string\":\"string\","
+            + "\"long\":123,"
+            + "\"double\":-123.45e1,"
+            + "\"null\":null,"
+            + "\"true\":true,"
+            + "\"false\":false,"
+            + "\"encoding\":\"Chlo\u00eb \u20ac \ud83d\ude00\","
+            + "\"escapes\":\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e9\","
+            + "\"array\":[\"string\",123,123.45,null,true,false],"
+            + " \"object\" : { } ,\n\"empty\":[]"
+            + "}";
+
+    private static Utf8JsonReader reader(String json, int bufferSize) {
+        return new Utf8JsonReader(new ByteArrayInputStream(json.getBytes(StringUtils.UTF8)),
+                bufferSize);
+    }
+
+    /**
+     * Walks the document and records every token and scalar value.
+     */
+    private static List<String> walk(AwsJsonReader reader) throws IOException {
+        final List<String> events = new ArrayList<String>();
+        AwsJsonToken token;
+        while ((token = reader.peek()) != null) {
+            switch (token) {
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    break;
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    break;
+                case FIELD_NAME:
+                    events.add(token + ":" + reader.nextName());
+                    continue;
+                default:
+                    events.add(token + ":" + reader.nextString());
+                    continue;
+            }
+            events.add(token.toString());
+        }
+        return events;
+    }
+
+    @Test
+    public void testMatchesGsonReader() throws IOException {
+        final List<String> expected = walk(new GsonFactory().getJsonReader(new StringReader(
+                JSON_STRING)));
+        assertEquals(expected, walk(reader(JSON_STRING, 8192)));
+        // values spanning buffer boundaries
+        assertEquals(expected, walk(reader(JSON_STRING, 1)));
+        assertEquals(expected, walk(reader(JSON_STRING, 3)));
+    }
+
+    @Test
+    public void testHasNextAndIsContainer() throws IOException {
+        final Utf8JsonReader reader = reader("{\"a\":[1,{}],\"b\":2}", 4);
+        assertTrue(reader.isContainer());
+        reader.beginObject();
+        assertTrue(reader.hasNext());
+        assertEquals("a", reader.nextName());
+        assertTrue(reader.isContainer());
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        assertTrue(reader.hasNext());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("b", reader.nextName());
+        assertFalse(reader.isContainer());
+        assertEquals(2L, reader.nextLong());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertNull(reader.peek());
+        reader.close();
+    }
+
+    @Test
+    public void testNumbers() throws IOException {
+        final Utf8JsonReader reader = reader("[9223372036854775807,-9223372036854775808,"
+                + "\"42\",1.0,12345678901234567890,2147483648,-0.5,1e3,\"2.5\",7]", 5);
+        reader.beginArray();
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(42L, reader.nextLong());
+        assertEquals(1L, reader.nextLong());
+        try {
+            reader.nextLong();
+            fail("value does not fit in a long");
+        } catch (final NumberFormatException e) {
+            // expected
+        }
+        try {
+            reader.nextInt();
+            fail("value does not fit in an int");
+        } catch (final NumberFormatException e) {
+            // expected
+        }
+        assertEquals(-0.5, reader.nextDouble(), 0);
+        assertEquals(1000.0, reader.nextDouble(), 0);
+        assertEquals(2.5, reader.nextDouble(), 0);
+        assertEquals("7", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void testEpochMillis() throws IOException {
+        final Utf8JsonReader reader = reader(
+                "[1507000000,1507000000.987,\"1507000000\",1.507E9,-1.5]", 2);
+        reader.beginArray();
+        assertEquals(1507000000000L, reader.nextEpochMillis());
+        assertEquals(1507000000000L, reader.nextEpochMillis());
+        assertEquals(1507000000000L, reader.nextEpochMillis());
+        assertEquals(1507000000000L, reader.nextEpochMillis());
+        assertEquals(-1000L, reader.nextEpochMillis());
+        reader.endArray();
+    }
+
+    @Test
+    public void testBooleans() throws IOException {
+        final Utf8JsonReader reader = reader("[true,false,\"true\"]", 8192);
+        reader.beginArray();
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.nextBoolean());
+        assertTrue(reader.nextBoolean());
+        reader.endArray();
+    }
+
+    @Test
+    public void testByteBuffer() throws IOException {
+        final byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final String encoded = Base64.encodeAsString(data).replace("/", "\\/");
+        final Utf8JsonReader reader = reader("[\"" + encoded + "\",\"\",null]", 7);
+        reader.beginArray();
+        assertEquals(ByteBuffer.wrap(data), reader.nextByteBuffer());
+        assertEquals(0, reader.nextByteBuffer().remaining());
+        assertNull(reader.nextByteBuffer());
+        reader.endArray();
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        final Utf8JsonReader reader = reader("{\"skip\":{\"a\":[1,\"x\\\"]\",{\"b\":null}],"
+                + "\"c\":true},\"keep\":\"value\"}", 3);
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals("value", reader.nextString());
+        reader.endObject();
+        assertNull(reader.peek());
+    }
+
+    @Test
+    public void testEmptyDocument() throws IOException {
+        assertNull(reader("", 8192).peek());
+        assertNull(reader("  \n", 8192).peek());
+    }
+
+    @Test
+    public void testUnexpectedToken() throws IOException {
+        final Utf8JsonReader reader = reader("{\"a\":1}", 8192);
+        try {
+            reader.beginArray();
+            fail("document is an object");
+        } catch (final IllegalStateException e) {
+            assertEquals("Expected BEGIN_ARRAY but was BEGIN_OBJECT", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMalformedDocuments() {
+        final String[] malformed = {
+                "{\"a\" 1}", "{\"a\":1,}x", "[1 2]", "{a:1}", "[tru]", "\"unterminated",
+                "[\"\\x\"]", "[-]", "{} {}"
+        };
+        for (final String json : malformed) {
+            try {
+                walk(reader(json, 8192));
+                fail("expected a syntax error for " + json);
+            } catch (final IOException e) {
+                // expected
+            }
+        }
+    }
+}
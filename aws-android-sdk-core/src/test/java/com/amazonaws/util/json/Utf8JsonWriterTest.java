@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util.json;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.util.ByteArrayContentInputStream;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+public class Utf8JsonWriterTest {
+
+    /**
+     * Writes the same document with the given writer.
+     */
+    private static void writeDocument(AwsJsonWriter writer) throws IOException {
+        writer.beginObject();
+        writer.name("string").value("Chlo\u00eb \u20ac \ud83d\ude00 \u2028\u2029 \u0100");
+        writer.name("escapes").value("\"\\/\b\f\n\r\t\u0001\u001f");
+        writer.name("unpaired").value("\ud83d-\ude00");
+        writer.name("long").value(-123L);
+        writer.name("double").value(123.45);
+        writer.name("number").value(new BigDecimal("1.50"));
+        writer.name("date").value(new Date(1423875641895L));
+        writer.name("true").value(true);
+        writer.name("false").value(false);
+        writer.name("null").value();
+        writer.name("nullString").value((String) null);
+        writer.name("array").beginArray();
+        for (int length = 0; length < 5; length++) {
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) (0xfb + i);
+            }
+            writer.value(ByteBuffer.wrap(bytes));
+            final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+            direct.put(bytes).flip();
+            writer.value(direct);
+        }
+        writer.beginObject().endObject();
+        writer.beginArray().endArray();
+        writer.endArray();
+        writer.endObject();
+        writer.close();
+    }
+
+    @Test
+    public void testOutputMatchesGson() throws IOException {
+        final StringWriter gson = new StringWriter();
+        writeDocument(new GsonFactory().getJsonWriter(gson));
+
+        // a tiny buffer exercises the growth of the buffer
+        final Utf8JsonWriter writer = new Utf8JsonWriter(1);
+        writeDocument(writer);
+
+        final byte[] expected = gson.toString().getBytes(StringUtils.UTF8);
+        assertEquals(expected.length, writer.size());
+        final ByteArrayContentInputStream content = writer.toInputStream();
+        assertArrayEquals(expected, IOUtils.toByteArray(content));
+        // the content is repeatable
+        content.reset();
+        assertArrayEquals(expected, IOUtils.toByteArray(content));
+    }
+
+    @Test
+    public void testByteBufferPositionIsKept() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[] {
+                0, 1, 2, 3
+        });
+        buffer.position(1);
+        final Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.value(buffer);
+        writer.close();
+        assertEquals("\"AQID\"", IOUtils.toString(writer.toInputStream()));
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    public void testInvalidDocuments() throws IOException {
+        final Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginObject();
+        try {
+            writer.value("no name");
+            fail("a value of an object needs a name");
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        try {
+            writer.close();
+            fail("the object isn't ended");
+        } catch (final IOException e) {
+            // expected
+        }
+        try {
+            writer.value(Double.NaN);
+            fail("NaN isn't valid JSON");
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
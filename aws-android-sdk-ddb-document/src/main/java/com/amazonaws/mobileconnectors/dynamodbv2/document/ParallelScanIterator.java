@@ -0,0 +1,173 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Iterates the documents of the segments of a parallel scan as their pages
+ * arrive. Each page is scanned by a separate task on a shared executor, so
+ * no thread waits on the caller. A segment scans at most a prefetch depth of
+ * pages ahead of the caller, and resumes as the caller takes its pages, so
+ * an abandoned iterator stops scanning and holds no thread.
+ */
+class ParallelScanIterator implements Iterator<Document> {
+
+    /**
+     * The scan of each segment. Guarded by this iterator.
+     */
+    private final List<SegmentScan> segmentScans;
+    private final Executor executor;
+    private final int prefetchDepth;
+
+    /** The page being iterated, accessed by the caller only. */
+    private Iterator<Document> current = Collections.<Document> emptyList().iterator();
+    /** The segment to take the next page from, so all segments progress. */
+    private int nextSegment;
+
+    ParallelScanIterator(List<Search> segmentSearches, Executor executor, int prefetchDepth) {
+        this.executor = executor;
+        this.prefetchDepth = Math.max(prefetchDepth, 1);
+        segmentScans = new ArrayList<SegmentScan>(segmentSearches.size());
+        for (final Search search : segmentSearches) {
+            segmentScans.add(new SegmentScan(search));
+        }
+        synchronized (this) {
+            for (final SegmentScan segmentScan : segmentScans) {
+                startScanNextPage(segmentScan);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            final List<Document> page = takePage();
+            if (page == null) {
+                return false;
+            }
+            current = page.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Waits for the next page of any segment.
+     *
+     * @return the page, or null when all the segments have been scanned.
+     */
+    private synchronized List<Document> takePage() {
+        while (true) {
+            boolean scanning = false;
+            for (int i = 0; i < segmentScans.size(); i++) {
+                final int index = (nextSegment + i) % segmentScans.size();
+                final SegmentScan segmentScan = segmentScans.get(index);
+                if (segmentScan.failure != null) {
+                    final Throwable cause = segmentScan.failure;
+                    if (cause instanceof AmazonClientException) {
+                        throw (AmazonClientException) cause;
+                    }
+                    throw new AmazonClientException(
+                            "Internal error during the scan on segment #" + index + ".", cause);
+                }
+                if (!segmentScan.pages.isEmpty()) {
+                    nextSegment = index + 1;
+                    final List<Document> page = segmentScan.pages.removeFirst();
+                    // resume the segment if it stopped at its prefetch depth
+                    if (!segmentScan.scanning && !segmentScan.search.isDone()) {
+                        startScanNextPage(segmentScan);
+                    }
+                    return page;
+                }
+                scanning |= segmentScan.scanning;
+            }
+            if (!scanning) {
+                return null;
+            }
+            try {
+                wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Parallel scan interrupted by other thread.", e);
+            }
+        }
+    }
+
+    private void startScanNextPage(final SegmentScan segmentScan) {
+        segmentScan.scanning = true;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scanPage(segmentScan);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            segmentScan.scanning = false;
+            segmentScan.failure = e;
+        }
+    }
+
+    private void scanPage(SegmentScan segmentScan) {
+        List<Document> page = null;
+        Throwable failure = null;
+        try {
+            page = segmentScan.search.getNextResultSet();
+        } catch (final Throwable t) {
+            failure = t;
+        }
+
+        synchronized (this) {
+            segmentScan.scanning = false;
+            if (failure != null) {
+                segmentScan.failure = failure;
+            } else {
+                if (!page.isEmpty()) {
+                    segmentScan.pages.add(page);
+                }
+                if (!segmentScan.search.isDone() && segmentScan.pages.size() < prefetchDepth) {
+                    startScanNextPage(segmentScan);
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * The state of the scan of a segment.
+     */
+    private static final class SegmentScan {
+        final Search search;
+        /** Pages scanned and not yet taken by the caller. */
+        final LinkedList<List<Document>> pages = new LinkedList<List<Document>>();
+        /** Is a page being scanned? */
+        boolean scanning;
+        /** Why the scan failed, or null. */
+        Throwable failure;
+
+        SegmentScan(Search search) {
+            this.search = search;
+        }
+    }
+}
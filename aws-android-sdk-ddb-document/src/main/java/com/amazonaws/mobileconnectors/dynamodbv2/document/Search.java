@@ -131,6 +131,11 @@ public class Search {
      */
     private final List<Document> matches = new ArrayList<Document>();
 
+    /**
+     * Attribute names of the items read so far, shared by their documents
+     */
+    private final Map<String, String> attributeNames = new HashMap<String, String>();
+
     /**
      * <p>
      * For parallel <i>Scan</i> requests, <i>TotalSegments</i>represents the
@@ -335,7 +340,7 @@ public class Search {
 
         final ScanResult result = table.getClient().scan(request);
         for (final Map<String, AttributeValue> item : result.getItems()) {
-            final Document doc = Document.fromAttributeMap(item);
+            final Document doc = Document.fromAttributeMap(item, attributeNames);
             returnValue.add(doc);
             if (this.collectResults) {
                 this.matches.add(doc);
@@ -392,7 +397,7 @@ public class Search {
 
         final QueryResult result = table.getClient().query(request);
         for (final Map<String, AttributeValue> item : result.getItems()) {
-            final Document doc = Document.fromAttributeMap(item);
+            final Document doc = Document.fromAttributeMap(item, attributeNames);
             returnValue.add(doc);
             if (this.collectResults) {
                 this.matches.add(doc);
@@ -419,6 +424,13 @@ public class Search {
         return returnValue;
     }
 
+    /**
+     * @return true if all the results have been fetched.
+     */
+    public boolean isDone() {
+        return isDone;
+    }
+
     private Map<String, Condition> getKeyConditions(QueryFilter filter, String indexName) {
         final Map<String, Condition> keyConditions = new HashMap<String, Condition>();
         final Map<String, Condition> conditions = filter.toConditions();
@@ -1,6 +1,7 @@
 
 package com.amazonaws.mobileconnectors.dynamodbv2.document;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.Search.SearchType;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
@@ -13,30 +14,45 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
 import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.util.ThreadPools;
 import com.amazonaws.util.VersionInfoUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Table class is the starting object when using the Document API. It is
@@ -46,6 +62,41 @@ import java.util.Set;
 @SuppressWarnings("checkstyle:hiddenfield")
 public class Table {
 
+    /** The max number of keys in a BatchGetItem request. */
+    static final int MAX_BATCH_GET_ITEMS = 100;
+    /** The max number of requests in a BatchWriteItem request. */
+    static final int MAX_BATCH_WRITE_ITEMS = 25;
+    /** The max number of retries of a batch that made no progress. */
+    static final int MAX_BATCH_RETRIES = 5;
+    private static final long MAX_BACKOFF_IN_MILLISECONDS = 1000 * 3;
+    private static final int EXPONENTIAL_BACKOFF_OFFSET = 500;
+    private static final int EXPONENTIAL_BACKOFF_RANDOMIZATION_OFFSET = 100;
+    /** Randomizes the back off of the batches of all the tables. */
+    private static final Random RANDOM = new Random();
+
+    /** The threads scanning the pages of all the parallel scans. */
+    static final int PARALLEL_SCAN_THREADS = 10;
+    /** The max number of pages a parallel scan segment scans ahead. */
+    static final int PARALLEL_SCAN_PREFETCH_PAGES = 1;
+    /** The max number of segments of a parallel scan. */
+    private static final int MAX_TOTAL_SEGMENTS = 1000000;
+
+    /**
+     * How long {@link #loadTable} uses a cached table description before it
+     * describes the table again, so that schema and index changes are seen.
+     */
+    static final long TABLE_DESCRIPTION_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * The table descriptions loaded by {@link #loadTable}, by table name for
+     * each client. Guarded by itself.
+     */
+    private static final Map<AmazonDynamoDB, Map<String, CachedTableDescription>> TABLE_DESCRIPTIONS =
+            new WeakHashMap<AmazonDynamoDB, Map<String, CachedTableDescription>>();
+
+    /** Created when the first parallel scan runs. */
+    private static ExecutorService parallelScanExecutor;
+
     private final AmazonDynamoDB client;
     private final String tableName;
     private TableDescription tableDescription;
@@ -97,33 +148,110 @@ public class Table {
     }
 
     /**
-     * Load table configuration.
+     * Load table configuration. The table description is cached for the
+     * client for five minutes, so that loading the table again within that
+     * time doesn't describe it.
      *
      * @param client the dynamodb client.
      * @param tableName the tablename.
      * @return a table object.
      */
     public static Table loadTable(AmazonDynamoDB client, String tableName) {
+        return loadTable(client, tableName, System.nanoTime());
+    }
+
+    static Table loadTable(AmazonDynamoDB client, String tableName, long nowNanos) {
         final Table table = new Table(client, tableName);
-        // TODO: we need to be able to cache table information so that we can
-        // avoid making too many describe table calls.
-        table.loadTableDescription();
+        final TableDescription cached = getCachedTableDescription(client, tableName, nowNanos);
+        if (cached != null) {
+            table.applyTableDescription(cached);
+        } else {
+            table.loadTableDescription();
+        }
         return table;
     }
 
     /**
-     * Load table description.
+     * Load table description. The description is cached for the client, so
+     * that {@link #loadTable(AmazonDynamoDB, String)} doesn't describe the
+     * table again. Call this method to refresh it, e.g. after an index has
+     * been added to the table.
      */
     public void loadTableDescription() {
-        clear();
-
         final DescribeTableRequest request = Table
                 .appendDynamoDBDocumentUserAgentString(new DescribeTableRequest(this.tableName));
 
         final DescribeTableResult result = client
                 .describeTable(request);
 
-        this.tableDescription = result.getTable();
+        final TableDescription description = result.getTable();
+        final CachedTableDescription cached = new CachedTableDescription(description,
+                System.nanoTime());
+        synchronized (TABLE_DESCRIPTIONS) {
+            Map<String, CachedTableDescription> descriptions = TABLE_DESCRIPTIONS.get(client);
+            if (descriptions == null) {
+                descriptions = new HashMap<String, CachedTableDescription>();
+                TABLE_DESCRIPTIONS.put(client, descriptions);
+            }
+            descriptions.put(tableName, cached);
+        }
+        applyTableDescription(description);
+    }
+
+    /**
+     * Clears the table descriptions cached by
+     * {@link #loadTable(AmazonDynamoDB, String)}.
+     */
+    public static void clearTableDescriptionCache() {
+        synchronized (TABLE_DESCRIPTIONS) {
+            TABLE_DESCRIPTIONS.clear();
+        }
+    }
+
+    /**
+     * Clears the description of a table cached by
+     * {@link #loadTable(AmazonDynamoDB, String)}, e.g. after the table has
+     * been updated, so that the table is described when it's loaded again.
+     *
+     * @param client the dynamodb client.
+     * @param tableName the table name.
+     */
+    public static void clearTableDescriptionCache(AmazonDynamoDB client, String tableName) {
+        synchronized (TABLE_DESCRIPTIONS) {
+            final Map<String, CachedTableDescription> descriptions = TABLE_DESCRIPTIONS
+                    .get(client);
+            if (descriptions != null) {
+                descriptions.remove(tableName);
+            }
+        }
+    }
+
+    /**
+     * @return the cached description of the table, or null if it isn't
+     *         cached or has expired.
+     */
+    private static TableDescription getCachedTableDescription(AmazonDynamoDB client,
+            String tableName, long nowNanos) {
+        synchronized (TABLE_DESCRIPTIONS) {
+            final Map<String, CachedTableDescription> descriptions = TABLE_DESCRIPTIONS
+                    .get(client);
+            final CachedTableDescription cached = descriptions == null ? null
+                    : descriptions.get(tableName);
+            if (cached == null) {
+                return null;
+            }
+            if (nowNanos - cached.loadedAtNanos >= TABLE_DESCRIPTION_TTL_NANOS) {
+                descriptions.remove(tableName);
+                return null;
+            }
+            return cached.description;
+        }
+    }
+
+    private void applyTableDescription(TableDescription description) {
+        clear();
+
+        this.tableDescription = description;
 
         for (final KeySchemaElement element : this.tableDescription.getKeySchema()) {
             final String keyName = element.getAttributeName();
@@ -356,6 +484,159 @@ public class Table {
         return returnDocument;
     }
 
+    /**
+     * Gets documents from DynamoDB by primary key. The keys are requested in
+     * batches of up to 100 keys, and the keys the service didn't process are
+     * requested again with an exponential back off.
+     *
+     * @param keys the documents holding the primary key attributes of the
+     *            documents to get.
+     * @return the documents found, in no particular order.
+     */
+    public List<Document> batchGetItems(List<Document> keys) {
+        return batchGetItems(keys, null);
+    }
+
+    /**
+     * Gets documents from DynamoDB by primary key, using specified configs.
+     * The keys are requested in batches of up to 100 keys, and the keys the
+     * service didn't process are requested again with an exponential back
+     * off.
+     *
+     * @param keys the documents holding the primary key attributes of the
+     *            documents to get.
+     * @param config the {@link GetItemOperationConfig}.
+     * @return the documents found, in no particular order.
+     */
+    public List<Document> batchGetItems(List<Document> keys, GetItemOperationConfig config) {
+        final List<Document> documents = new ArrayList<Document>();
+        final Map<String, String> attributeNames = new HashMap<String, String>();
+        for (int start = 0; start < keys.size(); start += MAX_BATCH_GET_ITEMS) {
+            final List<Map<String, AttributeValue>> batch = new ArrayList<Map<String, AttributeValue>>();
+            for (final Document key : keys.subList(start,
+                    Math.min(start + MAX_BATCH_GET_ITEMS, keys.size()))) {
+                batch.add(makeKey(key));
+            }
+
+            final KeysAndAttributes keysAndAttributes = new KeysAndAttributes().withKeys(batch);
+            if (config != null) {
+                keysAndAttributes.setConsistentRead(config.isConsistentRead());
+                if (config.getAttributesToGet() != null && config.getAttributesToGet().size() > 0) {
+                    keysAndAttributes.setAttributesToGet(config.getAttributesToGet());
+                }
+            }
+            batchGetItems(keysAndAttributes, documents, attributeNames);
+        }
+        return documents;
+    }
+
+    private void batchGetItems(KeysAndAttributes keysAndAttributes, List<Document> documents,
+            Map<String, String> attributeNames) {
+        Map<String, KeysAndAttributes> requestItems = Collections.singletonMap(tableName,
+                keysAndAttributes);
+        int retries = 0;
+        while (true) {
+            final BatchGetItemRequest request = new BatchGetItemRequest()
+                    .withRequestItems(requestItems);
+            Table.appendDynamoDBDocumentUserAgentString(request);
+            final BatchGetItemResult result = client.batchGetItem(request);
+
+            final List<Map<String, AttributeValue>> items = result.getResponses() == null ? null
+                    : result.getResponses().get(tableName);
+            if (items != null) {
+                for (final Map<String, AttributeValue> item : items) {
+                    final Document document = Document.fromAttributeMap(item, attributeNames);
+                    document.commit();
+                    documents.add(document);
+                }
+            }
+
+            final KeysAndAttributes unprocessed = result.getUnprocessedKeys() == null ? null
+                    : result.getUnprocessedKeys().get(tableName);
+            if (unprocessed == null || unprocessed.getKeys() == null
+                    || unprocessed.getKeys().isEmpty()) {
+                return;
+            }
+            retries = nextRetry(retries,
+                    unprocessed.getKeys().size() < requestItems.get(tableName).getKeys().size());
+            requestItems = Collections.singletonMap(tableName, unprocessed);
+        }
+    }
+
+    /**
+     * Puts and deletes documents in DynamoDB. The requests are sent in batches
+     * of up to 25 requests, and the requests the service didn't process are
+     * sent again with an exponential back off. A batch can't put and delete
+     * the same document.
+     *
+     * @param documentsToPut the documents to put, or null.
+     * @param keysToDelete the documents holding the primary key attributes of
+     *            the documents to delete, or null.
+     */
+    public void batchWriteItems(List<Document> documentsToPut, List<Document> keysToDelete) {
+        final List<WriteRequest> writeRequests = new ArrayList<WriteRequest>();
+        if (documentsToPut != null) {
+            for (final Document document : documentsToPut) {
+                writeRequests.add(new WriteRequest().withPutRequest(
+                        new PutRequest().withItem(toAttributeMap(document))));
+            }
+        }
+        if (keysToDelete != null) {
+            for (final Document key : keysToDelete) {
+                writeRequests.add(new WriteRequest().withDeleteRequest(
+                        new DeleteRequest().withKey(makeKey(key))));
+            }
+        }
+
+        for (int start = 0; start < writeRequests.size(); start += MAX_BATCH_WRITE_ITEMS) {
+            List<WriteRequest> batch = new ArrayList<WriteRequest>(writeRequests.subList(start,
+                    Math.min(start + MAX_BATCH_WRITE_ITEMS, writeRequests.size())));
+            int retries = 0;
+            while (true) {
+                final BatchWriteItemRequest request = new BatchWriteItemRequest()
+                        .withRequestItems(Collections.singletonMap(tableName, batch));
+                Table.appendDynamoDBDocumentUserAgentString(request);
+                final BatchWriteItemResult result = client.batchWriteItem(request);
+
+                final List<WriteRequest> unprocessed = result.getUnprocessedItems() == null ? null
+                        : result.getUnprocessedItems().get(tableName);
+                if (unprocessed == null || unprocessed.isEmpty()) {
+                    break;
+                }
+                retries = nextRetry(retries, unprocessed.size() < batch.size());
+                batch = unprocessed;
+            }
+        }
+    }
+
+    /**
+     * Waits before a batch is retried. The back off starts again when the
+     * previous attempt made progress.
+     *
+     * @param retries the number of retries so far without progress.
+     * @param progress did the previous attempt process part of the batch?
+     * @return the number of retries without progress, this one included.
+     */
+    private static int nextRetry(int retries, boolean progress) {
+        final int retry = progress ? 1 : retries + 1;
+        if (retry > MAX_BATCH_RETRIES) {
+            throw new AmazonClientException("Batch request to server hasn't processed any item "
+                    + "after " + MAX_BATCH_RETRIES + " retries. Please try again later.");
+        }
+
+        final long scaleFactor = EXPONENTIAL_BACKOFF_OFFSET
+                + RANDOM.nextInt(EXPONENTIAL_BACKOFF_RANDOMIZATION_OFFSET);
+        final long delay = Math.min((long) (Math.pow(2, retry) * scaleFactor),
+                MAX_BACKOFF_IN_MILLISECONDS);
+        try {
+            Thread.sleep(delay);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+        return retry;
+    }
+
     /**
      * Delete a document in DynamoDB.
      *
@@ -618,6 +899,47 @@ public class Table {
         return search;
     }
 
+    /**
+     * Scans a DynamoDB table on logically partitioned segments in parallel,
+     * with the specified config. The documents of all the segments are
+     * returned as their pages arrive, in no particular order. The pages are
+     * scanned on threads shared by all the parallel scans, and a segment
+     * scans at most one page ahead of the caller, so the scan holds a bounded
+     * number of documents whatever the size of the table. The segment and
+     * total segments of the config are ignored.
+     *
+     * @param config Configuration to use.
+     * @param totalSegments the number of segments to scan in parallel.
+     * @return an iterator over the documents scanned.
+     */
+    public Iterator<Document> parallelScan(ScanOperationConfig config, int totalSegments) {
+        if (config == null) {
+            throw new IllegalArgumentException("config is null");
+        }
+        if (totalSegments < 1 || totalSegments > MAX_TOTAL_SEGMENTS) {
+            throw new IllegalArgumentException("totalSegments must be between 1 and "
+                    + MAX_TOTAL_SEGMENTS);
+        }
+
+        final List<Search> segmentSearches = new ArrayList<Search>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            segmentSearches.add(scan(config)
+                    .withCollectResults(false)
+                    .withTotalSegments(totalSegments)
+                    .withSegment(segment));
+        }
+        return new ParallelScanIterator(segmentSearches, getParallelScanExecutor(),
+                PARALLEL_SCAN_PREFETCH_PAGES);
+    }
+
+    private static synchronized ExecutorService getParallelScanExecutor() {
+        if (parallelScanExecutor == null) {
+            parallelScanExecutor = ThreadPools.newDaemonThreadPool("dynamodb-document-scan-",
+                    PARALLEL_SCAN_THREADS);
+        }
+        return parallelScanExecutor;
+    }
+
     private boolean haveKeysChanged(Document doc) {
         final Set<String> keyNames = this.keys.keySet();
         for (final String keyName : keyNames) {
@@ -748,4 +1070,18 @@ public class Table {
         this.tableDescription = tableDescription;
     }
 
+    /**
+     * A table description and when it was loaded.
+     */
+    private static final class CachedTableDescription {
+        final TableDescription description;
+        /** The {@link System#nanoTime()} when the table was described. */
+        final long loadedAtNanos;
+
+        CachedTableDescription(TableDescription description, long loadedAtNanos) {
+            this.description = description;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
 }
@@ -5,30 +5,65 @@ import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Primitive.Dyn
 import com.amazonaws.mobileconnectors.dynamodbv2.document.internal.JsonUtils;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.util.json.AwsJsonReader;
+import com.amazonaws.util.json.AwsJsonToken;
 import com.google.common.base.Objects;
+import com.google.gson.JsonParseException;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * A collection of attribute key-value pairs that defines an item in DynamoDB.
+ * <p>
+ * Documents loaded from DynamoDB or parsed from JSON keep their attributes in
+ * a compact, read-only array form. The first mutation copies them into a
+ * {@link HashMap}; committed values are kept in the array form and are
+ * shared with the current values until then, so a document that is only read
+ * is never copied into a map. Documents with more than a few attributes keep
+ * them sorted by name and are binary searched.
  */
 public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry> {
 
-    private final Map<String, DynamoDBEntry> originalValues;
-    private final Map<String, DynamoDBEntry> currentValues;
+    /**
+     * Number of attributes up to which names are searched linearly, and left
+     * in the order they were read.
+     */
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    /**
+     * Committed values, or null if nothing has been committed yet.
+     */
+    private Attributes originalValues;
+
+    /**
+     * Current values while the document has not been modified, or null once
+     * {@link #currentValues} has been materialized.
+     */
+    private Attributes attributes;
+
+    /**
+     * Current values once the document has been modified, or null before.
+     */
+    private Map<String, DynamoDBEntry> currentValues;
 
     /**
      * Constructor.
      */
     public Document() {
-        this.originalValues = new HashMap<String, DynamoDBEntry>();
-        this.currentValues = new HashMap<String, DynamoDBEntry>();
+        this.attributes = Attributes.EMPTY;
     }
 
     /**
@@ -37,68 +72,115 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @param values attribute key-value pair
      */
     public Document(Map<String, DynamoDBEntry> values) {
-        this.currentValues = new HashMap<String, DynamoDBEntry>(values);
-        this.originalValues = new HashMap<String, DynamoDBEntry>();
+        this.attributes = Attributes.copyOf(values);
+    }
+
+    private Document(Attributes attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Returns the current values as a map, copying them out of the compact
+     * form on the first call.
+     */
+    private Map<String, DynamoDBEntry> mutableValues() {
+        if (this.currentValues == null) {
+            final Attributes values = this.attributes;
+            final Map<String, DynamoDBEntry> map = new HashMap<String, DynamoDBEntry>(
+                    Math.max(values.size * 4 / 3 + 1, 16));
+            for (int i = 0; i < values.size; i++) {
+                map.put(values.names[i], values.entries[i]);
+            }
+            this.currentValues = map;
+            this.attributes = null;
+        }
+        return this.currentValues;
     }
 
     @Override
     public DynamoDBEntry put(String key, DynamoDBEntry value) {
-        return this.currentValues.put(key, value);
+        return this.mutableValues().put(key, value);
     }
 
     @Override
     public boolean containsKey(Object key) {
-        return this.currentValues.containsKey(key);
+        if (this.currentValues != null) {
+            return this.currentValues.containsKey(key);
+        }
+        return this.attributes.indexOf(key) >= 0;
     }
 
     @Override
     public DynamoDBEntry get(Object key) {
-        return this.currentValues.get(key);
+        if (this.currentValues != null) {
+            return this.currentValues.get(key);
+        }
+        return this.attributes.get(key);
     }
 
     @Override
     public DynamoDBEntry remove(Object key) {
-        return this.currentValues.remove(key);
+        if (this.currentValues == null && this.attributes.indexOf(key) < 0) {
+            return null;
+        }
+        return this.mutableValues().remove(key);
     }
 
     @Override
     public Set<String> keySet() {
-        return this.currentValues.keySet();
+        return new KeySet();
     }
 
     @Override
     public Set<Entry<String, DynamoDBEntry>> entrySet() {
-        return this.currentValues.entrySet();
+        return new EntrySet();
     }
 
     @Override
     public int size() {
-        return this.currentValues.size();
+        if (this.currentValues != null) {
+            return this.currentValues.size();
+        }
+        return this.attributes.size;
     }
 
     @Override
     public boolean isEmpty() {
-        return this.currentValues.isEmpty();
+        return this.size() == 0;
     }
 
     @Override
     public boolean containsValue(Object paramObject) {
-        return this.currentValues.containsValue(paramObject);
+        if (this.currentValues != null) {
+            return this.currentValues.containsValue(paramObject);
+        }
+        final Attributes values = this.attributes;
+        for (int i = 0; i < values.size; i++) {
+            if (Objects.equal(values.entries[i], paramObject)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public void putAll(java.util.Map<? extends String, ? extends DynamoDBEntry> m) {
-        this.currentValues.putAll(m);
+        this.mutableValues().putAll(m);
     }
 
     @Override
     public void clear() {
-        this.currentValues.clear();
+        if (this.currentValues == null) {
+            this.currentValues = new HashMap<String, DynamoDBEntry>();
+            this.attributes = null;
+        } else {
+            this.currentValues.clear();
+        }
     }
 
     @Override
     public Collection<DynamoDBEntry> values() {
-        return this.currentValues.values();
+        return new Values();
     }
 
     /**
@@ -108,7 +190,16 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @return {@link Document}
      */
     public static Document fromJson(String json) {
-        return JsonUtils.fromJson(json);
+        final AwsJsonReader reader = com.amazonaws.util.json.JsonUtils
+                .getJsonReader(new StringReader(json));
+        try {
+            if (reader.peek() != AwsJsonToken.BEGIN_OBJECT) {
+                throw new IllegalArgumentException("expected object as JSON root");
+            }
+            return readJsonDocument(reader, new HashMap<String, String>());
+        } catch (final IOException e) {
+            throw new JsonParseException("unable to parse json", e);
+        }
     }
 
     /**
@@ -137,7 +228,7 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
     @Override
     public AttributeValue convertToAttributeValue() {
         final Map<String, AttributeValue> map = new HashMap<String, AttributeValue>();
-        for (final Entry<String, DynamoDBEntry> item : this.currentValues.entrySet()) {
+        for (final Entry<String, DynamoDBEntry> item : this.entrySet()) {
             final String key = item.getKey();
             final DynamoDBEntry entry = item.getValue();
             final AttributeValue entryAttributeValue = entry
@@ -160,7 +251,7 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
     public Map<String, AttributeValue> toAttributeMap() {
         final Map<String, AttributeValue> ret = new HashMap<String, AttributeValue>();
 
-        for (final Entry<String, DynamoDBEntry> kvp : this.currentValues.entrySet()) {
+        for (final Entry<String, DynamoDBEntry> kvp : this.entrySet()) {
             final String attributeName = kvp.getKey();
             final DynamoDBEntry entry = kvp.getValue();
 
@@ -182,7 +273,7 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
     public Map<String, AttributeValueUpdate> toAttributeUpdateMap(boolean changeAttributesOnly) {
         final Map<String, AttributeValueUpdate> ret = new HashMap<String, AttributeValueUpdate>();
 
-        for (final Entry<String, DynamoDBEntry> kvp : this.currentValues.entrySet()) {
+        for (final Entry<String, DynamoDBEntry> kvp : this.entrySet()) {
             final String attributeName = kvp.getKey();
             final DynamoDBEntry entry = kvp.getValue();
 
@@ -205,21 +296,42 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @return {@link Document}.
      */
     public static Document fromAttributeMap(final Map<String, AttributeValue> attributes) {
-        final Document doc = new Document();
-        if (attributes != null) {
-            // Add Primitives and PrimitiveLists
-            for (final Entry<String, AttributeValue> attribute : attributes.entrySet()) {
-                final String key = attribute.getKey();
-                final AttributeValue value = attribute.getValue();
-
-                final DynamoDBEntry convertedValue = attributeValueToDynamoDBEntry(value);
-                if (convertedValue != null) {
-                    doc.put(key, convertedValue);
-                }
+        return fromAttributeMap(attributes, null);
+    }
+
+    /**
+     * Construct a {@link Document} from an attribute key to
+     * {@link AttributeValue} value map, reusing the attribute names already
+     * held in the given name table. Items returned by the same scan or query
+     * mostly share their attribute names, so passing one table for all of
+     * them keeps a single copy of each name.
+     *
+     * @param attributes an attribute key to {@link AttributeValue} value map.
+     * @param attributeNames the attribute names seen so far, which new names
+     *            are added to, or null to use the names as they are.
+     * @return {@link Document}.
+     */
+    public static Document fromAttributeMap(final Map<String, AttributeValue> attributes,
+            final Map<String, String> attributeNames) {
+        if (attributes == null) {
+            return new Document();
+        }
+
+        final String[] names = new String[attributes.size()];
+        final DynamoDBEntry[] entries = new DynamoDBEntry[names.length];
+        int size = 0;
+        // Add Primitives and PrimitiveLists
+        for (final Entry<String, AttributeValue> attribute : attributes.entrySet()) {
+            final DynamoDBEntry convertedValue = attributeValueToDynamoDBEntry(
+                    attribute.getValue(), attributeNames);
+            if (convertedValue != null) {
+                names[size] = intern(attributeNames, attribute.getKey());
+                entries[size] = convertedValue;
+                size++;
             }
         }
 
-        return doc;
+        return new Document(new Attributes(names, entries, size));
     }
 
     /**
@@ -229,8 +341,11 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * @return true if the attribute value has changed.
      */
     public boolean hasAttributeChanged(String attributeName) {
+        if (this.originalValues == null) {
+            return false;
+        }
         final DynamoDBEntry originalEntry = this.originalValues.get(attributeName);
-        final DynamoDBEntry currentEntry = this.currentValues.get(attributeName);
+        final DynamoDBEntry currentEntry = this.get(attributeName);
         if (originalEntry == null || currentEntry == null) {
 
             return false;
@@ -240,7 +355,20 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
         return flag;
     }
 
-    private static DynamoDBEntry attributeValueToDynamoDBEntry(AttributeValue value) {
+    private static String intern(Map<String, String> names, String name) {
+        if (names == null) {
+            return name;
+        }
+        final String interned = names.get(name);
+        if (interned != null) {
+            return interned;
+        }
+        names.put(name, name);
+        return name;
+    }
+
+    private static DynamoDBEntry attributeValueToDynamoDBEntry(AttributeValue value,
+            Map<String, String> names) {
         final Primitive primitive = toPrimitive(value);
         if (primitive != null) {
             return primitive;
@@ -261,12 +389,12 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
             return nullEntry;
         }
 
-        final DynamoDBList listEntry = toDynamoDBList(value);
+        final DynamoDBList listEntry = toDynamoDBList(value, names);
         if (listEntry != null) {
             return listEntry;
         }
 
-        final Document document = toDynamoDBDocument(value);
+        final Document document = toDynamoDBDocument(value, names);
         if (document != null) {
             return document;
         }
@@ -325,31 +453,109 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
         return null;
     }
 
-    private static DynamoDBList toDynamoDBList(final AttributeValue attributeValue) {
+    private static DynamoDBList toDynamoDBList(final AttributeValue attributeValue,
+            final Map<String, String> names) {
         DynamoDBList list = null;
         if (attributeValue.getL() != null) {
             list = new DynamoDBList();
             final List<AttributeValue> listAttributes = attributeValue.getL();
             for (final AttributeValue av : listAttributes) {
-                final DynamoDBEntry entry = attributeValueToDynamoDBEntry(av);
+                final DynamoDBEntry entry = attributeValueToDynamoDBEntry(av, names);
                 list.add(entry);
             }
         }
         return list;
     }
 
-    private static Document toDynamoDBDocument(final AttributeValue attributeValue) {
+    private static Document toDynamoDBDocument(final AttributeValue attributeValue,
+            final Map<String, String> names) {
         Document document = null;
         if (attributeValue.getM() != null) {
-            document = new Document();
             final Map<String, AttributeValue> mapAttributes = attributeValue.getM();
+            final String[] keys = new String[mapAttributes.size()];
+            final DynamoDBEntry[] entries = new DynamoDBEntry[keys.length];
+            int size = 0;
             for (final Entry<String, AttributeValue> entry : mapAttributes.entrySet()) {
-                document.put(entry.getKey(), attributeValueToDynamoDBEntry(entry.getValue()));
+                keys[size] = intern(names, entry.getKey());
+                entries[size] = attributeValueToDynamoDBEntry(entry.getValue(), names);
+                size++;
             }
+            document = new Document(new Attributes(keys, entries, size));
         }
         return document;
     }
 
+    private static Document readJsonDocument(AwsJsonReader reader, Map<String, String> names)
+            throws IOException {
+        String[] keys = new String[LINEAR_SEARCH_LIMIT];
+        DynamoDBEntry[] entries = new DynamoDBEntry[keys.length];
+        Map<String, Integer> positions = null;
+        int size = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String key = intern(names, reader.nextName());
+            final DynamoDBEntry entry = readJsonEntry(reader, names);
+            // a repeated name replaces the earlier value
+            int index = 0;
+            if (positions != null) {
+                final Integer position = positions.get(key);
+                index = position == null ? size : position;
+            } else {
+                while (index < size && !keys[index].equals(key)) {
+                    index++;
+                }
+            }
+            if (index == keys.length) {
+                keys = Arrays.copyOf(keys, index * 2);
+                entries = Arrays.copyOf(entries, index * 2);
+            }
+            keys[index] = key;
+            entries[index] = entry;
+            if (index == size) {
+                size++;
+                if (positions != null) {
+                    positions.put(key, index);
+                } else if (size > LINEAR_SEARCH_LIMIT) {
+                    positions = new HashMap<String, Integer>(size * 4);
+                    for (int i = 0; i < size; i++) {
+                        positions.put(keys[i], i);
+                    }
+                }
+            }
+        }
+        reader.endObject();
+        return new Document(new Attributes(keys, entries, size));
+    }
+
+    private static DynamoDBEntry readJsonEntry(AwsJsonReader reader, Map<String, String> names)
+            throws IOException {
+        final AwsJsonToken token = reader.peek();
+        switch (token) {
+            case BEGIN_OBJECT:
+                return readJsonDocument(reader, names);
+            case BEGIN_ARRAY: {
+                final DynamoDBList list = new DynamoDBList();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(readJsonEntry(reader, names));
+                }
+                reader.endArray();
+                return list;
+            }
+            case VALUE_NULL:
+                reader.skipValue();
+                return DynamoDBNull.NULL;
+            case VALUE_BOOLEAN:
+                return new DynamoDBBool(Boolean.parseBoolean(reader.nextString()));
+            case VALUE_NUMBER:
+                return new Primitive(reader.nextString(), true);
+            case VALUE_STRING:
+                return new Primitive(reader.nextString());
+            default:
+                throw new JsonParseException("unable to parse json token " + token);
+        }
+    }
+
     /**
      * Attribute accessor, allows getting or setting of an individual attribute.
      *
@@ -427,9 +633,11 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
      * Commit the new values.
      */
     public void commit() {
-        this.originalValues.clear();
-        for (final Entry<String, DynamoDBEntry> entry : this.currentValues.entrySet()) {
-            this.originalValues.put(entry.getKey(), entry.getValue());
+        if (this.currentValues == null) {
+            // unmodified, so the committed values can share the current ones
+            this.originalValues = this.attributes;
+        } else {
+            this.originalValues = Attributes.copyOf(this.currentValues);
         }
     }
 
@@ -445,12 +653,325 @@ public class Document extends DynamoDBEntry implements Map<String, DynamoDBEntry
             return false;
         }
         final Document other = (Document) obj;
-        return Objects.equal(this.currentValues, other.currentValues);
+        if (this.size() != other.size()) {
+            return false;
+        }
+        for (final Entry<String, DynamoDBEntry> entry : this.entrySet()) {
+            final DynamoDBEntry value = entry.getValue();
+            if (value == null) {
+                if (other.get(entry.getKey()) != null || !other.containsKey(entry.getKey())) {
+                    return false;
+                }
+            } else if (!value.equals(other.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(this.currentValues);
+        int hash = 0;
+        for (final Entry<String, DynamoDBEntry> entry : this.entrySet()) {
+            hash += entry.hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * Read-only attribute storage: names and values in two parallel arrays.
+     * Never modified once built, so it can be shared between the current and
+     * the committed values of a document. Small documents are searched
+     * linearly; larger ones are sorted by name when built and binary searched,
+     * so a lookup never allocates and the storage stays two arrays.
+     */
+    private static final class Attributes {
+        static final Attributes EMPTY = new Attributes(new String[0], new DynamoDBEntry[0], 0);
+
+        final String[] names;
+        final DynamoDBEntry[] entries;
+        final int size;
+
+        /**
+         * Takes ownership of the arrays, which are sorted in place when there
+         * are more than {@link #LINEAR_SEARCH_LIMIT} names. The names must be
+         * distinct.
+         */
+        Attributes(String[] names, DynamoDBEntry[] entries, int size) {
+            if (size > LINEAR_SEARCH_LIMIT) {
+                sort(names, entries, size);
+            }
+            this.names = names;
+            this.entries = entries;
+            this.size = size;
+        }
+
+        static Attributes copyOf(Map<String, DynamoDBEntry> values) {
+            final String[] names = new String[values.size()];
+            final DynamoDBEntry[] entries = new DynamoDBEntry[names.length];
+            int size = 0;
+            for (final Entry<String, DynamoDBEntry> entry : values.entrySet()) {
+                names[size] = entry.getKey();
+                entries[size] = entry.getValue();
+                size++;
+            }
+            return new Attributes(names, entries, size);
+        }
+
+        int indexOf(Object name) {
+            if (size > LINEAR_SEARCH_LIMIT) {
+                if (name != null && !(name instanceof String)) {
+                    return -1;
+                }
+                int low = 0;
+                int high = size - 1;
+                while (low <= high) {
+                    final int middle = (low + high) >>> 1;
+                    final int comparison = compare(names[middle], (String) name);
+                    if (comparison < 0) {
+                        low = middle + 1;
+                    } else if (comparison > 0) {
+                        high = middle - 1;
+                    } else {
+                        return middle;
+                    }
+                }
+                return -1;
+            }
+            for (int i = 0; i < size; i++) {
+                final String candidate = names[i];
+                if (candidate == name || (candidate != null && candidate.equals(name))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        DynamoDBEntry get(Object name) {
+            final int index = indexOf(name);
+            return index < 0 ? null : entries[index];
+        }
+
+        /** Orders names, with null before any other name. */
+        private static int compare(String name, String other) {
+            if (name == null) {
+                return other == null ? 0 : -1;
+            }
+            return other == null ? 1 : name.compareTo(other);
+        }
+
+        /** Heap sort of the names, moving the entries along, without allocating. */
+        private static void sort(String[] names, DynamoDBEntry[] entries, int size) {
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(names, entries, i, size);
+            }
+            for (int end = size - 1; end > 0; end--) {
+                swap(names, entries, 0, end);
+                siftDown(names, entries, 0, end);
+            }
+        }
+
+        private static void siftDown(String[] names, DynamoDBEntry[] entries, int root,
+                int size) {
+            while (true) {
+                int child = 2 * root + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && compare(names[child], names[child + 1]) < 0) {
+                    child++;
+                }
+                if (compare(names[root], names[child]) >= 0) {
+                    return;
+                }
+                swap(names, entries, root, child);
+                root = child;
+            }
+        }
+
+        private static void swap(String[] names, DynamoDBEntry[] entries, int i, int j) {
+            final String name = names[i];
+            names[i] = names[j];
+            names[j] = name;
+            final DynamoDBEntry entry = entries[i];
+            entries[i] = entries[j];
+            entries[j] = entry;
+        }
+    }
+
+    /**
+     * Iterates over the current values, whichever form they are in. Removing
+     * through an iterator over the compact form copies the values into the map
+     * and keeps iterating over the unchanged array.
+     */
+    private abstract class AttributeIterator<T> implements Iterator<T> {
+        private final Iterator<Entry<String, DynamoDBEntry>> mapIterator;
+        private final Attributes snapshot;
+        private int index = -1;
+        private boolean removed;
+
+        AttributeIterator() {
+            this.mapIterator = currentValues == null ? null : currentValues.entrySet().iterator();
+            this.snapshot = attributes;
+        }
+
+        abstract T element(String name, DynamoDBEntry entry, Entry<String, DynamoDBEntry> mapEntry);
+
+        @Override
+        public boolean hasNext() {
+            if (mapIterator != null) {
+                return mapIterator.hasNext();
+            }
+            return index + 1 < snapshot.size;
+        }
+
+        @Override
+        public T next() {
+            if (mapIterator != null) {
+                final Entry<String, DynamoDBEntry> entry = mapIterator.next();
+                return element(entry.getKey(), entry.getValue(), entry);
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            index++;
+            removed = false;
+            return element(snapshot.names[index], snapshot.entries[index], null);
+        }
+
+        @Override
+        public void remove() {
+            if (mapIterator != null) {
+                mapIterator.remove();
+                return;
+            }
+            if (index < 0 || removed) {
+                throw new IllegalStateException();
+            }
+            Document.this.remove(snapshot.names[index]);
+            removed = true;
+        }
+    }
+
+    private final class AttributeEntry extends AbstractMap.SimpleEntry<String, DynamoDBEntry> {
+        private static final long serialVersionUID = 1L;
+
+        AttributeEntry(String name, DynamoDBEntry entry) {
+            super(name, entry);
+        }
+
+        @Override
+        public DynamoDBEntry setValue(DynamoDBEntry value) {
+            Document.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, DynamoDBEntry>> {
+        @Override
+        public Iterator<Entry<String, DynamoDBEntry>> iterator() {
+            return new AttributeIterator<Entry<String, DynamoDBEntry>>() {
+                @Override
+                Entry<String, DynamoDBEntry> element(String name, DynamoDBEntry entry,
+                        Entry<String, DynamoDBEntry> mapEntry) {
+                    return mapEntry != null ? mapEntry : new AttributeEntry(name, entry);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Document.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) o;
+            return Document.this.containsKey(entry.getKey())
+                    && Objects.equal(Document.this.get(entry.getKey()), entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            Document.this.remove(((Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            Document.this.clear();
+        }
+    }
+
+    private final class KeySet extends AbstractSet<String> {
+        @Override
+        public Iterator<String> iterator() {
+            return new AttributeIterator<String>() {
+                @Override
+                String element(String name, DynamoDBEntry entry,
+                        Entry<String, DynamoDBEntry> mapEntry) {
+                    return name;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Document.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return Document.this.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!Document.this.containsKey(o)) {
+                return false;
+            }
+            Document.this.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            Document.this.clear();
+        }
+    }
+
+    private final class Values extends AbstractCollection<DynamoDBEntry> {
+        @Override
+        public Iterator<DynamoDBEntry> iterator() {
+            return new AttributeIterator<DynamoDBEntry>() {
+                @Override
+                DynamoDBEntry element(String name, DynamoDBEntry entry,
+                        Entry<String, DynamoDBEntry> mapEntry) {
+                    return entry;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return Document.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return Document.this.containsValue(o);
+        }
+
+        @Override
+        public void clear() {
+            Document.this.clear();
+        }
     }
 
 }
@@ -10,35 +10,18 @@ import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Primitive;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Primitive.DynamoDBPrimitiveType;
 import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.PrimitiveList;
 import com.amazonaws.util.Base64;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonPrimitive;
 import com.google.gson.stream.JsonWriter;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.nio.ByteBuffer;
-import java.util.Iterator;
 import java.util.Map.Entry;
 
 public final class JsonUtils {
 
     public static Document fromJson(String jsonText) {
-        final JsonParser parser = new JsonParser();
-        final JsonObject json = parser.parse(jsonText).getAsJsonObject();
-
-        if (!json.isJsonObject()) {
-            throw new IllegalArgumentException("expected object as JSON root");
-        }
-
-        final Document doc = (Document) JsonUtils.toEntry(json);
-        if (doc == null) {
-            throw new IllegalStateException();
-        }
-        return doc;
+        return Document.fromJson(jsonText);
     }
 
     public static String toJson(DynamoDBEntry entry) throws IOException {
@@ -130,48 +113,4 @@ public final class JsonUtils {
             }
         }
     }
-
-    private static DynamoDBEntry toEntry(JsonElement data) {
-        if (data == null || data.isJsonNull()) {
-            return DynamoDBNull.NULL;
-        }
-
-        if (data.isJsonObject()) {
-            final Document doc = new Document();
-            for (final Entry<String, JsonElement> entry : data.getAsJsonObject().entrySet()) {
-                final String key = entry.getKey();
-                final JsonElement element = entry.getValue();
-                doc.put(key, toEntry(element));
-            }
-
-            return doc;
-        }
-
-        if (data.isJsonArray()) {
-            final DynamoDBList list = new DynamoDBList();
-            final JsonArray array = data.getAsJsonArray();
-            for (final Iterator<JsonElement> iterator = array.iterator(); iterator.hasNext();) {
-                final JsonElement type = iterator.next();
-                list.add(toEntry(type));
-            }
-
-            return list;
-        }
-
-        final JsonPrimitive primitive = data.getAsJsonPrimitive();
-        if (primitive.isBoolean()) {
-            return new DynamoDBBool(primitive.getAsBoolean());
-        }
-
-        if (primitive.isString()) {
-            return new Primitive(primitive.getAsString());
-        }
-
-        if (primitive.isNumber()) {
-            return new Primitive(primitive.getAsNumber());
-        }
-
-
-        throw new JsonParseException("unable to parse json for key " + data.toString());
-    }
 }
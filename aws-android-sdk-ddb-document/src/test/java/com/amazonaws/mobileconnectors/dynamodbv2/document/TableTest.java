@@ -0,0 +1,367 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Document;
+import com.amazonaws.mobileconnectors.dynamodbv2.document.datatype.Primitive;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TableTest {
+
+    private static final String TABLE_NAME = "table";
+    private static final String KEY = "id";
+
+    @Test
+    public void testLoadTableCachesDescriptionUntilItExpires() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        final AmazonDynamoDB client = client(fake);
+
+        Table.loadTable(client, TABLE_NAME);
+        Table.loadTable(client, TABLE_NAME);
+        assertEquals(1, fake.describeTableCalls);
+
+        Table.loadTable(client, TABLE_NAME,
+                System.nanoTime() + Table.TABLE_DESCRIPTION_TTL_NANOS);
+        assertEquals(2, fake.describeTableCalls);
+        Table.loadTable(client, TABLE_NAME);
+        assertEquals(2, fake.describeTableCalls);
+    }
+
+    @Test
+    public void testClearTableDescriptionCacheDescribesTheTableAgain() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        final AmazonDynamoDB client = client(fake);
+
+        Table.loadTable(client, TABLE_NAME);
+        Table.clearTableDescriptionCache(client, "other");
+        Table.loadTable(client, TABLE_NAME);
+        assertEquals(1, fake.describeTableCalls);
+
+        Table.clearTableDescriptionCache(client, TABLE_NAME);
+        Table.loadTable(client, TABLE_NAME);
+        assertEquals(2, fake.describeTableCalls);
+    }
+
+    @Test
+    public void testBatchGetItemsChunksAtTheBatchLimit() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+
+        final List<Document> documents = table.batchGetItems(keys(0, 250));
+
+        assertEquals(3, fake.batchGetSizes.size());
+        assertEquals(Table.MAX_BATCH_GET_ITEMS, fake.batchGetSizes.get(0).intValue());
+        assertEquals(Table.MAX_BATCH_GET_ITEMS, fake.batchGetSizes.get(1).intValue());
+        assertEquals(50, fake.batchGetSizes.get(2).intValue());
+        assertEquals(ids(0, 250), idsOf(documents));
+    }
+
+    @Test
+    public void testBatchGetItemsRetriesUnprocessedKeys() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        fake.unprocessedOnFirstBatch = 3;
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+
+        final List<Document> documents = table.batchGetItems(keys(0, 10));
+
+        assertEquals(2, fake.batchGetSizes.size());
+        assertEquals(10, fake.batchGetSizes.get(0).intValue());
+        assertEquals(3, fake.batchGetSizes.get(1).intValue());
+        assertEquals(10, documents.size());
+        assertEquals(ids(0, 10), idsOf(documents));
+    }
+
+    @Test
+    public void testBatchWriteItemsChunksAtTheBatchLimit() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+
+        table.batchWriteItems(keys(0, 30), keys(30, 60));
+
+        assertEquals(3, fake.batchWriteSizes.size());
+        assertEquals(Table.MAX_BATCH_WRITE_ITEMS, fake.batchWriteSizes.get(0).intValue());
+        assertEquals(Table.MAX_BATCH_WRITE_ITEMS, fake.batchWriteSizes.get(1).intValue());
+        assertEquals(10, fake.batchWriteSizes.get(2).intValue());
+        assertEquals(ids(0, 30), fake.putIds);
+        assertEquals(ids(30, 60), fake.deletedIds);
+    }
+
+    @Test
+    public void testBatchWriteItemsRetriesUnprocessedItems() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        fake.unprocessedOnFirstBatch = 2;
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+
+        table.batchWriteItems(keys(0, 5), null);
+
+        assertEquals(2, fake.batchWriteSizes.size());
+        assertEquals(5, fake.batchWriteSizes.get(0).intValue());
+        assertEquals(2, fake.batchWriteSizes.get(1).intValue());
+        assertEquals(ids(0, 5), fake.putIds);
+    }
+
+    @Test
+    public void testBatchErrorsPropagate() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+        fake.failure = new AmazonServiceException("throttled");
+
+        try {
+            table.batchGetItems(keys(0, 10));
+            fail("expected the client's exception");
+        } catch (final AmazonServiceException e) {
+            assertSame(fake.failure, e);
+        }
+        try {
+            table.batchWriteItems(keys(0, 10), null);
+            fail("expected the client's exception");
+        } catch (final AmazonServiceException e) {
+            assertSame(fake.failure, e);
+        }
+    }
+
+    @Test
+    public void testParallelScanMergesTheSegments() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        fake.pagesPerSegment = 3;
+        fake.itemsPerPage = 2;
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+
+        final Iterator<Document> iterator = table.parallelScan(new ScanOperationConfig(), 4);
+        final List<Document> documents = new ArrayList<Document>();
+        while (iterator.hasNext()) {
+            documents.add(iterator.next());
+        }
+
+        assertEquals(24, documents.size());
+        final Set<String> expected = new HashSet<String>();
+        for (int segment = 0; segment < 4; segment++) {
+            for (int page = 0; page < 3; page++) {
+                for (int item = 0; item < 2; item++) {
+                    expected.add(segment + "-" + page + "-" + item);
+                }
+            }
+        }
+        assertEquals(expected, idsOf(documents));
+        assertEquals(12, fake.scanCalls);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testParallelScanPropagatesTheFailureOfASegment() {
+        final FakeDynamoDB fake = new FakeDynamoDB();
+        fake.pagesPerSegment = 3;
+        fake.itemsPerPage = 2;
+        fake.failingSegment = 2;
+        fake.failure = new AmazonServiceException("segment failed");
+        final Table table = Table.loadTable(client(fake), TABLE_NAME);
+
+        final Iterator<Document> iterator = table.parallelScan(new ScanOperationConfig(), 4);
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            fail("expected the segment's exception");
+        } catch (final AmazonServiceException e) {
+            assertSame(fake.failure, e);
+        }
+    }
+
+    private static List<Document> keys(int from, int to) {
+        final List<Document> keys = new ArrayList<Document>();
+        for (int i = from; i < to; i++) {
+            final Document key = new Document();
+            key.put(KEY, new Primitive(String.valueOf(i)));
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static Set<String> ids(int from, int to) {
+        final Set<String> ids = new HashSet<String>();
+        for (int i = from; i < to; i++) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+
+    private static Set<String> idsOf(List<Document> documents) {
+        final Set<String> ids = new HashSet<String>();
+        for (final Document document : documents) {
+            assertTrue(ids.add(document.get(KEY).asString()));
+        }
+        return ids;
+    }
+
+    private static Map<String, AttributeValue> item(String id) {
+        return Collections.singletonMap(KEY, new AttributeValue().withS(id));
+    }
+
+    /**
+     * @return a client whose methods call the methods of the same signature
+     *         of the fake.
+     */
+    private static AmazonDynamoDB client(final Object fake) {
+        return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+                new Class<?>[] {
+                    AmazonDynamoDB.class
+                }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                            throws Throwable {
+                        if ("hashCode".equals(method.getName())) {
+                            return System.identityHashCode(proxy);
+                        }
+                        if ("equals".equals(method.getName())) {
+                            return proxy == args[0];
+                        }
+                        try {
+                            return fake.getClass()
+                                    .getMethod(method.getName(), method.getParameterTypes())
+                                    .invoke(fake, args);
+                        } catch (final NoSuchMethodException e) {
+                            throw new UnsupportedOperationException(method.getName());
+                        } catch (final InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * A table with a string hash key, whose items are the keys asked for.
+     */
+    public static class FakeDynamoDB {
+        int describeTableCalls;
+        final List<Integer> batchGetSizes = new ArrayList<Integer>();
+        final List<Integer> batchWriteSizes = new ArrayList<Integer>();
+        final Set<String> putIds = new HashSet<String>();
+        final Set<String> deletedIds = new HashSet<String>();
+        /** The number of keys or items the first batch leaves unprocessed. */
+        int unprocessedOnFirstBatch;
+        int pagesPerSegment;
+        int itemsPerPage;
+        int scanCalls;
+        /** The segment failing on its second page, or -1. */
+        int failingSegment = -1;
+        /** Thrown by the batches, or by the scan of the failing segment. */
+        AmazonServiceException failure;
+
+        public DescribeTableResult describeTable(DescribeTableRequest request) {
+            describeTableCalls++;
+            return new DescribeTableResult().withTable(new TableDescription()
+                    .withTableName(request.getTableName())
+                    .withKeySchema(new KeySchemaElement(KEY, "HASH"))
+                    .withAttributeDefinitions(new AttributeDefinition(KEY, "S")));
+        }
+
+        public synchronized BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+            if (failure != null) {
+                throw failure;
+            }
+            final List<Map<String, AttributeValue>> keys = request.getRequestItems()
+                    .get(TABLE_NAME).getKeys();
+            batchGetSizes.add(keys.size());
+            final int processed = keys.size() - unprocessed();
+
+            final List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+            for (final Map<String, AttributeValue> key : keys.subList(0, processed)) {
+                items.add(item(key.get(KEY).getS()));
+            }
+            final BatchGetItemResult result = new BatchGetItemResult()
+                    .withResponses(Collections.singletonMap(TABLE_NAME, items));
+            if (processed < keys.size()) {
+                result.setUnprocessedKeys(Collections.singletonMap(TABLE_NAME,
+                        new KeysAndAttributes().withKeys(keys.subList(processed, keys.size()))));
+            }
+            return result;
+        }
+
+        public synchronized BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+            if (failure != null) {
+                throw failure;
+            }
+            final List<WriteRequest> writes = request.getRequestItems().get(TABLE_NAME);
+            batchWriteSizes.add(writes.size());
+            final int processed = writes.size() - unprocessed();
+
+            for (final WriteRequest write : writes.subList(0, processed)) {
+                if (write.getPutRequest() != null) {
+                    assertTrue(putIds.add(write.getPutRequest().getItem().get(KEY).getS()));
+                } else {
+                    assertTrue(deletedIds.add(write.getDeleteRequest().getKey().get(KEY).getS()));
+                }
+            }
+            final BatchWriteItemResult result = new BatchWriteItemResult();
+            if (processed < writes.size()) {
+                result.setUnprocessedItems(Collections.singletonMap(TABLE_NAME,
+                        writes.subList(processed, writes.size())));
+            }
+            return result;
+        }
+
+        public ScanResult scan(ScanRequest request) {
+            final int segment = request.getSegment();
+            final int page = request.getExclusiveStartKey() == null ? 0
+                    : Integer.parseInt(request.getExclusiveStartKey().get(KEY).getN());
+            synchronized (this) {
+                scanCalls++;
+            }
+            if (segment == failingSegment && page == 1) {
+                throw failure;
+            }
+
+            final List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+            for (int item = 0; item < itemsPerPage; item++) {
+                items.add(item(segment + "-" + page + "-" + item));
+            }
+            final ScanResult result = new ScanResult().withItems(items);
+            if (page + 1 < pagesPerSegment) {
+                final Map<String, AttributeValue> lastKey = new HashMap<String, AttributeValue>();
+                lastKey.put(KEY, new AttributeValue().withN(String.valueOf(page + 1)));
+                result.setLastEvaluatedKey(lastKey);
+            }
+            return result;
+        }
+
+        private int unprocessed() {
+            final int unprocessed = unprocessedOnFirstBatch;
+            unprocessedOnFirstBatch = 0;
+            return unprocessed;
+        }
+    }
+}
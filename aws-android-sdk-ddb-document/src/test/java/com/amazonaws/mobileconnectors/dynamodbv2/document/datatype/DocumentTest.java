@@ -0,0 +1,283 @@
+package com.amazonaws.mobileconnectors.dynamodbv2.document.datatype;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+public class DocumentTest {
+
+    /** Sizes on both sides of the limit where names are sorted and searched. */
+    private static final int[] SIZES = {
+            0, 1, 4, 8, 9, 12, 40
+    };
+
+    @Test
+    public void testLookupsInCompactForm() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            for (final Document document : compactDocuments(expected)) {
+                assertSameContents(expected, document);
+                assertNull(document.get("missing"));
+                assertFalse(document.containsKey("missing"));
+                assertFalse(document.containsKey(null));
+                assertFalse(document.containsKey(Integer.valueOf(1)));
+                assertEquals(size > 0, document.containsValue(new Primitive("v0")));
+                assertFalse(document.containsValue(new Primitive("missing")));
+            }
+        }
+    }
+
+    @Test
+    public void testPutCopiesIntoMap() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            for (final Document document : compactDocuments(expected)) {
+                final Map<String, DynamoDBEntry> reference =
+                        new HashMap<String, DynamoDBEntry>(expected);
+                assertEquals(reference.put("added", new Primitive("new")),
+                        document.put("added", new Primitive("new")));
+                if (size > 0) {
+                    assertEquals(reference.put("k0", new Primitive("replaced")),
+                            document.put("k0", new Primitive("replaced")));
+                }
+                assertSameContents(reference, document);
+            }
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            for (final Document document : compactDocuments(expected)) {
+                final Map<String, DynamoDBEntry> reference =
+                        new HashMap<String, DynamoDBEntry>(expected);
+                assertNull(document.remove("missing"));
+                for (int i = 0; i < size; i += 3) {
+                    assertEquals(reference.remove("k" + i), document.remove("k" + i));
+                }
+                assertNull(document.remove("k0"));
+                assertSameContents(reference, document);
+            }
+        }
+    }
+
+    @Test
+    public void testClear() {
+        for (final int size : SIZES) {
+            for (final Document document : compactDocuments(attributes(size))) {
+                document.clear();
+                assertTrue(document.isEmpty());
+                assertNull(document.get("k0"));
+                document.put("k0", new Primitive("v"));
+                assertEquals(1, document.size());
+            }
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveInCompactForm() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            for (final Document document : compactDocuments(expected)) {
+                final Map<String, DynamoDBEntry> reference =
+                        new HashMap<String, DynamoDBEntry>(expected);
+                final Iterator<String> keys = document.keySet().iterator();
+                int visited = 0;
+                while (keys.hasNext()) {
+                    final String key = keys.next();
+                    if (visited++ % 2 == 0) {
+                        keys.remove();
+                        reference.remove(key);
+                        try {
+                            keys.remove();
+                            fail();
+                        } catch (final IllegalStateException expectedException) {
+                        }
+                    }
+                }
+                assertEquals(size, visited);
+                assertSameContents(reference, document);
+
+                // the values iterator now runs over the map form
+                final Iterator<DynamoDBEntry> values = document.values().iterator();
+                while (values.hasNext()) {
+                    values.next();
+                    values.remove();
+                }
+                assertTrue(document.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void testEntrySetValueWritesThrough() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            for (final Document document : compactDocuments(expected)) {
+                final Map<String, DynamoDBEntry> reference =
+                        new HashMap<String, DynamoDBEntry>(expected);
+                // the first write leaves the compact form in the middle of
+                // the iteration
+                for (final Entry<String, DynamoDBEntry> entry : document.entrySet()) {
+                    final DynamoDBEntry replaced = new Primitive("set-" + entry.getKey());
+                    assertEquals(reference.get(entry.getKey()), entry.setValue(replaced));
+                    assertEquals(replaced, entry.getValue());
+                    reference.put(entry.getKey(), replaced);
+                }
+                assertSameContents(reference, document);
+
+                // and once more over the map form
+                for (final Entry<String, DynamoDBEntry> entry : document.entrySet()) {
+                    entry.setValue(new Primitive("again"));
+                }
+                for (final DynamoDBEntry value : document.values()) {
+                    assertEquals(new Primitive("again"), value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEqualsAndHashCodeAcrossForms() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            final Document mapForm = Document.fromJson(json(expected));
+            mapForm.put("removed", new Primitive("value"));
+            mapForm.remove("removed");
+            for (final Document document : compactDocuments(expected)) {
+                assertEquals(mapForm, document);
+                assertEquals(document, mapForm);
+                assertEquals(expected.hashCode(), document.hashCode());
+                assertEquals(expected.hashCode(), mapForm.hashCode());
+                assertEquals(expected.entrySet(), document.entrySet());
+                assertEquals(expected.keySet(), document.keySet());
+                assertTrue(document.entrySet().containsAll(expected.entrySet()));
+            }
+            final Document different = Document.fromJson(json(expected));
+            different.put("k0", new Primitive("different"));
+            assertNotEquals(mapForm, different);
+        }
+    }
+
+    @Test
+    public void testCommitTracksChanges() {
+        for (final int size : SIZES) {
+            if (size == 0) {
+                continue;
+            }
+            for (final Document document : compactDocuments(attributes(size))) {
+                document.commit();
+                assertFalse(document.hasAttributeChanged("k0"));
+                document.put("k0", new Primitive("changed"));
+                assertTrue(document.hasAttributeChanged("k0"));
+                if (size > 1) {
+                    assertFalse(document.hasAttributeChanged("k" + (size - 1)));
+                }
+
+                document.commit();
+                assertFalse(document.hasAttributeChanged("k0"));
+                assertEquals(new Primitive("changed"), document.get("k0"));
+            }
+        }
+    }
+
+    @Test
+    public void testNullNameInLargeDocument() {
+        final Document document = new Document(attributes(12));
+        document.put(null, new Primitive("null name"));
+        document.commit();
+        document.put("k3", new Primitive("changed"));
+        assertTrue(document.hasAttributeChanged("k3"));
+        assertFalse(document.hasAttributeChanged("k4"));
+        assertEquals(new Primitive("null name"), document.get(null));
+    }
+
+    @Test
+    public void testRepeatedJsonNameKeepsLastValue() {
+        for (final int size : SIZES) {
+            final Map<String, DynamoDBEntry> expected = attributes(size);
+            final StringBuilder json = new StringBuilder(json(expected));
+            json.setLength(json.length() - 1);
+            for (int i = 0; i < size; i += 2) {
+                json.append(",\"k").append(i).append("\":\"last").append(i).append('"');
+                expected.put("k" + i, new Primitive("last" + i));
+            }
+            json.append('}');
+            assertSameContents(expected, Document.fromJson(json.toString()));
+        }
+    }
+
+    /**
+     * Attributes named k0, k1... put in an order that isn't sorted.
+     */
+    private static Map<String, DynamoDBEntry> attributes(int size) {
+        final Map<String, DynamoDBEntry> attributes = new LinkedHashMap<String, DynamoDBEntry>();
+        for (int i = size - 1; i >= 0; i--) {
+            final int name = (i * 7) % size;
+            attributes.put("k" + name, new Primitive("v" + name));
+        }
+        return attributes;
+    }
+
+    private static List<Document> compactDocuments(Map<String, DynamoDBEntry> attributes) {
+        final Map<String, AttributeValue> attributeMap = new LinkedHashMap<String, AttributeValue>();
+        for (final Entry<String, DynamoDBEntry> entry : attributes.entrySet()) {
+            attributeMap.put(entry.getKey(), new AttributeValue(entry.getValue().asString()));
+        }
+        final List<Document> documents = new ArrayList<Document>();
+        documents.add(new Document(attributes));
+        documents.add(Document.fromJson(json(attributes)));
+        documents.add(Document.fromAttributeMap(attributeMap));
+        documents.add(Document.fromAttributeMap(attributeMap, new HashMap<String, String>()));
+        return documents;
+    }
+
+    private static String json(Map<String, DynamoDBEntry> attributes) {
+        final StringBuilder json = new StringBuilder("{");
+        for (final Entry<String, DynamoDBEntry> entry : attributes.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey()).append("\":\"")
+                    .append(entry.getValue().asString()).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    private static void assertSameContents(Map<String, DynamoDBEntry> expected,
+            Document document) {
+        assertEquals(expected.size(), document.size());
+        assertEquals(expected.isEmpty(), document.isEmpty());
+        for (final Entry<String, DynamoDBEntry> entry : expected.entrySet()) {
+            assertTrue(entry.getKey(), document.containsKey(entry.getKey()));
+            assertEquals(entry.getKey(), entry.getValue(), document.get(entry.getKey()));
+        }
+        final Map<String, DynamoDBEntry> iterated = new HashMap<String, DynamoDBEntry>();
+        for (final Entry<String, DynamoDBEntry> entry : document.entrySet()) {
+            assertNull("visited twice: " + entry.getKey(),
+                    iterated.put(entry.getKey(), entry.getValue()));
+        }
+        assertEquals(expected, iterated);
+        assertEquals(expected.keySet(), new HashSet<String>(document.keySet()));
+        assertEquals(new HashSet<DynamoDBEntry>(expected.values()),
+                new HashSet<DynamoDBEntry>(document.values()));
+        assertEquals(expected.size(), document.values().size());
+    }
+}
@@ -78,6 +78,7 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Object mapper for domain-object interaction with DynamoDB.
@@ -184,6 +185,18 @@ public class DynamoDBMapper {
 
     private final AttributeTransformer transformer;
 
+    /** The max number of pages scanned at once by the parallel scans */
+    private final int parallelScanThreads;
+    /** The max number of pages a parallel scan segment scans ahead */
+    private final int parallelScanPrefetchPages;
+    /** Created when the first parallel scan runs. Guarded by this mapper. */
+    private ExecutorService parallelScanExecutor;
+
+    /** The default max number of pages scanned at once by the parallel scans */
+    static final int DEFAULT_PARALLEL_SCAN_THREADS = 10;
+    /** The default max number of pages a parallel scan segment scans ahead */
+    static final int DEFAULT_PARALLEL_SCAN_PREFETCH_PAGES = 1;
+
     /** The max back off time for batch write */
     static final long MAX_BACKOFF_IN_MILLISECONDS = 1000 * 3;
 
@@ -239,6 +252,8 @@ public class DynamoDBMapper {
         private AttributeTransformer transformer;
         private AWSCredentialsProvider s3CredentialProvider;
         private AWSConfiguration awsConfig;
+        private int parallelScanThreads = DEFAULT_PARALLEL_SCAN_THREADS;
+        private int parallelScanPrefetchPages = DEFAULT_PARALLEL_SCAN_PREFETCH_PAGES;
         
         protected Builder() { }
         
@@ -307,6 +322,41 @@ public class DynamoDBMapper {
             this.awsConfig = awsConfig;
             return this;
         }
+
+        /**
+         * The max number of pages the parallel scans of the mapper scan at
+         * once. All the parallel scans share these threads, whatever their
+         * number of segments. Defaults to 10.
+         *
+         * @param threads the max number of pages scanned at once.
+         * @return builder
+         */
+        public Builder parallelScanThreads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Parallel scan threads must be at least 1");
+            }
+            this.parallelScanThreads = threads;
+            return this;
+        }
+
+        /**
+         * The max number of pages a segment of a parallel scan scans ahead of
+         * the caller. The segment resumes when the caller takes its pages, so
+         * a slow consumer bounds the memory held by the scan. With 0, pages
+         * are scanned only when the caller needs more results, one page of
+         * every segment at a time. Defaults to 1.
+         *
+         * @param prefetchPages the max number of pages scanned ahead.
+         * @return builder
+         */
+        public Builder parallelScanPrefetchPages(int prefetchPages) {
+            if (prefetchPages < 0) {
+                throw new IllegalArgumentException(
+                        "Parallel scan prefetch pages must not be negative");
+            }
+            this.parallelScanPrefetchPages = prefetchPages;
+            return this;
+        }
         
         /**
          * 
@@ -334,7 +384,9 @@ public class DynamoDBMapper {
                     this.config == null ? DynamoDBMapperConfig.DEFAULT : this.config,
                     this.transformer,
                     this.s3CredentialProvider,
-                    this.awsConfig);
+                    this.awsConfig,
+                    this.parallelScanThreads,
+                    this.parallelScanPrefetchPages);
         }
     }
 
@@ -353,11 +405,15 @@ public class DynamoDBMapper {
             final DynamoDBMapperConfig config,
             final AttributeTransformer transformer,
             final AWSCredentialsProvider s3CredentialsProvider,
-            final AWSConfiguration awsConfig) {
+            final AWSConfiguration awsConfig,
+            final int parallelScanThreads,
+            final int parallelScanPrefetchPages) {
 
         this.db = dynamoDB;
         this.config = config;
         this.transformer = transformer;
+        this.parallelScanThreads = parallelScanThreads;
+        this.parallelScanPrefetchPages = parallelScanPrefetchPages;
         if (s3CredentialsProvider == null) {
             this.s3cc = null;
         } else {
@@ -502,6 +558,8 @@ public class DynamoDBMapper {
         this.db = dynamoDB;
         this.config = config;
         this.transformer = transformer;
+        this.parallelScanThreads = DEFAULT_PARALLEL_SCAN_THREADS;
+        this.parallelScanPrefetchPages = DEFAULT_PARALLEL_SCAN_PREFETCH_PAGES;
         if (s3CredentialsProvider == null) {
             this.s3cc = null;
         } else {
@@ -694,7 +752,7 @@ public class DynamoDBMapper {
         boolean seenHashKey = false;
         boolean seenRangeKey = false;
         for (final Method getter : reflector.getPrimaryKeyGetters(clazz)) {
-            if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class)) {
+            if (reflector.isPrimaryHashKeyGetter(getter)) {
                 if (seenHashKey) {
                     throw new DynamoDBMappingException(
                             "Found more than one method annotated with "
@@ -705,7 +763,7 @@ public class DynamoDBMapper {
                 }
                 seenHashKey = true;
                 ReflectionUtils.safeInvoke(reflector.getSetter(getter), keyObject, hashKey);
-            } else if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class)) {
+            } else if (reflector.isPrimaryRangeKeyGetter(getter)) {
                 if (seenRangeKey) {
                     throw new DynamoDBMappingException(
                             "Found more than one method annotated with "
@@ -749,10 +807,8 @@ public class DynamoDBMapper {
         }
 
         for (final Method getter : reflector.getRelevantGetters(obj.getClass())) {
-            if (ReflectionUtils.getterOrFieldHasAnnotation(
-                    getter, DynamoDBHashKey.class)
-                    || ReflectionUtils.getterOrFieldHasAnnotation(
-                            getter, DynamoDBIndexHashKey.class)) {
+            if (reflector.isPrimaryHashKeyGetter(getter)
+                    || reflector.isIndexHashKeyGetter(getter)) {
 
                 final Object getterReturnResult =
                         ReflectionUtils.safeInvoke(getter, obj);
@@ -936,7 +992,7 @@ public class DynamoDBMapper {
             if (getterResult == null && reflector.isAssignableKey(method)) {
                 forcePut = true;
             }
-            if (ReflectionUtils.getterOrFieldHasAnnotation(method, DynamoDBHashKey.class)) {
+            if (reflector.isPrimaryHashKeyGetter(method)) {
                 hashKeyGetterFound = true;
             }
         }
@@ -1252,7 +1308,8 @@ public class DynamoDBMapper {
             for (final Method method : reflector.getRelevantGetters(clazz)) {
 
                 // Skip any key methods, since they are handled separately
-                if (keyGetters.contains(method)) {
+                if (reflector.isPrimaryHashKeyGetter(method)
+                        || reflector.isPrimaryRangeKeyGetter(method)) {
                     continue;
                 }
 
@@ -2286,9 +2343,14 @@ public class DynamoDBMapper {
 
     /**
      * Scans through an Amazon DynamoDB table on logically partitioned segments
-     * in parallel. This method will create a thread pool of the specified size,
-     * and each thread will issue scan requests for its assigned segment,
-     * following the returned continuation token, until the end of its segment.
+     * in parallel. The scan requests of every segment, following the returned
+     * continuation token until the end of the segment, are issued on a thread
+     * pool shared by all the parallel scans of this mapper, whose size is set
+     * with {@link Builder#parallelScanThreads(int)}. A segment scans at most
+     * {@link Builder#parallelScanPrefetchPages(int)} pages ahead of the
+     * caller, so with
+     * {@link PaginationLoadingStrategy#ITERATION_ONLY} the items are streamed
+     * as their pages arrive and the memory of the scan stays bounded.
      * Callers should be responsible for setting the appropriate number of total
      * segments. More scan segments would result in better performance but more
      * consumed capacity of the table. The results are returned in one
@@ -2327,12 +2389,20 @@ public class DynamoDBMapper {
         // segment number.
         final List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz,
                 scanExpression, totalSegments, config);
-        final ParallelScanTask parallelScanTask = new ParallelScanTask(this, db, parallelScanRequests);
+        final ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests,
+                getParallelScanExecutor(), parallelScanPrefetchPages);
 
         return new PaginatedParallelScanList<T>(this, clazz, db, parallelScanTask,
                 config.getPaginationLoadingStrategy(), config);
     }
 
+    private synchronized ExecutorService getParallelScanExecutor() {
+        if (parallelScanExecutor == null) {
+            parallelScanExecutor = ParallelScanTask.newScanExecutor(parallelScanThreads);
+        }
+        return parallelScanExecutor;
+    }
+
     /**
      * Scans through an Amazon DynamoDB table and returns a single page of
      * matching results. The table to scan is determined by looking at the
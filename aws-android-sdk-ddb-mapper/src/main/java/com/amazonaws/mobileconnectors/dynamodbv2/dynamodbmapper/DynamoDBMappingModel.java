@@ -0,0 +1,233 @@
+/*
+ * Copyright 2011-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The mapping of a class to DynamoDB items, read from its annotations once by
+ * {@link DynamoDBReflector} and never changed afterwards, so it can be shared
+ * by threads without locking.
+ */
+final class DynamoDBMappingModel {
+
+    private final Class<?> clazz;
+    private final List<Property> properties;
+    private final List<Method> getters;
+    private final List<Method> keyGetters;
+    private final Property hashKey;
+    private final Property rangeKey;
+
+    DynamoDBMappingModel(Class<?> clazz, List<Property> properties) {
+        this.clazz = clazz;
+        this.properties = Collections.unmodifiableList(new ArrayList<Property>(properties));
+
+        final List<Method> allGetters = new ArrayList<Method>(properties.size());
+        final List<Method> allKeyGetters = new ArrayList<Method>();
+        Property firstHashKey = null;
+        Property firstRangeKey = null;
+        for (final Property property : properties) {
+            allGetters.add(property.getGetter());
+            if (property.isHashKey() || property.isRangeKey()) {
+                allKeyGetters.add(property.getGetter());
+            }
+            if (property.isHashKey() && firstHashKey == null) {
+                firstHashKey = property;
+            }
+            if (property.isRangeKey() && firstRangeKey == null) {
+                firstRangeKey = property;
+            }
+        }
+        this.getters = Collections.unmodifiableList(allGetters);
+        this.keyGetters = Collections.unmodifiableList(allKeyGetters);
+        this.hashKey = firstHashKey;
+        this.rangeKey = firstRangeKey;
+    }
+
+    /**
+     * @return the mapped class.
+     */
+    Class<?> getMappedClass() {
+        return clazz;
+    }
+
+    /**
+     * @return the mapped properties, in the order of the class's getters.
+     */
+    List<Property> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the getters of the mapped properties.
+     */
+    List<Method> getGetters() {
+        return getters;
+    }
+
+    /**
+     * @return the getters of the {@link DynamoDBHashKey} and
+     *         {@link DynamoDBRangeKey} properties.
+     */
+    List<Method> getKeyGetters() {
+        return keyGetters;
+    }
+
+    /**
+     * @return the {@link DynamoDBHashKey} property, or null.
+     */
+    Property getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * @return the {@link DynamoDBRangeKey} property, or null.
+     */
+    Property getRangeKey() {
+        return rangeKey;
+    }
+
+    /**
+     * A mapped property of a class, with everything its annotations say about
+     * it.
+     */
+    static final class Property {
+
+        private final Method getter;
+        private final String attributeName;
+        private final boolean hashKey;
+        private final boolean rangeKey;
+        private final boolean indexHashKey;
+        private final boolean versionAttribute;
+        private final boolean assignableKey;
+        /** Found when first needed, as saving doesn't require a setter. */
+        private volatile Method setter;
+
+        Property(Method getter) {
+            this.getter = getter;
+            this.attributeName = findAttributeName(getter);
+            this.hashKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBHashKey.class);
+            this.rangeKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBRangeKey.class);
+            this.indexHashKey = ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                    DynamoDBIndexHashKey.class);
+            this.versionAttribute = getter.getName().startsWith("get")
+                    && getter.getParameterTypes().length == 0
+                    && ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                            DynamoDBVersionAttribute.class);
+            this.assignableKey = (hashKey || rangeKey)
+                    && ReflectionUtils.getterOrFieldHasAnnotation(getter,
+                            DynamoDBAutoGeneratedKey.class);
+        }
+
+        Method getGetter() {
+            return getter;
+        }
+
+        /**
+         * Returns the setter of the property, throwing an exception if there
+         * isn't one.
+         */
+        Method getSetter() {
+            Method result = setter;
+            if (result == null) {
+                result = findSetter(getter);
+                setter = result;
+            }
+            return result;
+        }
+
+        String getAttributeName() {
+            return attributeName;
+        }
+
+        boolean isHashKey() {
+            return hashKey;
+        }
+
+        boolean isRangeKey() {
+            return rangeKey;
+        }
+
+        boolean isIndexHashKey() {
+            return indexHashKey;
+        }
+
+        boolean isVersionAttribute() {
+            return versionAttribute;
+        }
+
+        boolean isAssignableKey() {
+            return assignableKey;
+        }
+
+        private static String findAttributeName(Method getter) {
+            DynamoDBHashKey hashKeyAnnotation = ReflectionUtils.getAnnotationFromGetterOrField(
+                    getter, DynamoDBHashKey.class);
+            if (hashKeyAnnotation != null && hashKeyAnnotation.attributeName().length() > 0) {
+                return hashKeyAnnotation.attributeName();
+            }
+            DynamoDBIndexHashKey indexHashKey = ReflectionUtils.getAnnotationFromGetterOrField(
+                    getter, DynamoDBIndexHashKey.class);
+            if (indexHashKey != null && indexHashKey.attributeName().length() > 0) {
+                return indexHashKey.attributeName();
+            }
+            DynamoDBRangeKey rangeKey = ReflectionUtils.getAnnotationFromGetterOrField(getter,
+                    DynamoDBRangeKey.class);
+            if (rangeKey != null && rangeKey.attributeName().length() > 0) {
+                return rangeKey.attributeName();
+            }
+            DynamoDBIndexRangeKey indexRangeKey = ReflectionUtils.getAnnotationFromGetterOrField(
+                    getter, DynamoDBIndexRangeKey.class);
+            if (indexRangeKey != null && indexRangeKey.attributeName().length() > 0) {
+                return indexRangeKey.attributeName();
+            }
+            DynamoDBAttribute attribute = ReflectionUtils.getAnnotationFromGetterOrField(getter,
+                    DynamoDBAttribute.class);
+            if (attribute != null && attribute.attributeName().length() > 0) {
+                return attribute.attributeName();
+            }
+            DynamoDBVersionAttribute version = ReflectionUtils.getAnnotationFromGetterOrField(
+                    getter, DynamoDBVersionAttribute.class);
+            if (version != null && version.attributeName().length() > 0) {
+                return version.attributeName();
+            }
+            // Default to the camel-cased field name of the getter method,
+            // inferred according to the Java naming convention.
+            return ReflectionUtils.getFieldNameByGetter(getter, true);
+        }
+
+        private static Method findSetter(Method getter) {
+            String fieldName = ReflectionUtils.getFieldNameByGetter(getter, false);
+            String setterName = "set" + fieldName;
+            try {
+                return getter.getDeclaringClass().getMethod(setterName, getter.getReturnType());
+            } catch (NoSuchMethodException e) {
+                throw new DynamoDBMappingException(
+                        "Expected a public, one-argument method called " + setterName
+                                + " on class " + getter.getDeclaringClass(), e);
+            } catch (SecurityException e) {
+                throw new DynamoDBMappingException(
+                        "No access to public, one-argument method called " + setterName
+                                + " on class " + getter.getDeclaringClass(), e);
+            }
+        }
+    }
+}
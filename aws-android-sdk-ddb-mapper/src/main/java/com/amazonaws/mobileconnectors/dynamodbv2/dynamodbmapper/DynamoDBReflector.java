@@ -15,15 +15,15 @@
 
 package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMappingModel.Property;
+
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Reflection assistant for {@link DynamoDBMapper}
@@ -31,40 +31,56 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 class DynamoDBReflector {
 
     /*
-     * Several caches for performance. Collectively, they can make this class
-     * over twice as fast.
+     * The mapping of each class is read from its annotations once, and then
+     * looked up without locking. Properties are also indexed by getter, for
+     * the callers that only have the getter.
      */
-    private final Map<Class<?>, Collection<Method>> getterCache = new HashMap<Class<?>, Collection<Method>>();
-    private final Map<Class<?>, Method> primaryHashKeyGetterCache = new HashMap<Class<?>, Method>();
-    private final Map<Class<?>, Method> primaryRangeKeyGetterCache = new HashMap<Class<?>, Method>();
+    private final ConcurrentMap<Class<?>, DynamoDBMappingModel> modelCache =
+            new ConcurrentHashMap<Class<?>, DynamoDBMappingModel>();
+    private final ConcurrentMap<Method, Property> propertyCache =
+            new ConcurrentHashMap<Method, Property>();
 
-    /*
-     * All caches keyed by a Method use the getter for a particular mapped
-     * property
+    /**
+     * Returns the mapping of the class given, reading it from the class's
+     * annotations the first time.
      */
-    private final Map<Method, Method> setterCache = new HashMap<Method, Method>();
-
-    private final Map<Method, String> attributeNameCache = new HashMap<Method, String>();
-
-    private final Map<Method, Boolean> versionAttributeGetterCache = new HashMap<Method, Boolean>();
-    private final Map<Method, Boolean> autoGeneratedKeyGetterCache = new HashMap<Method, Boolean>();
+    DynamoDBMappingModel getModel(Class<?> clazz) {
+        DynamoDBMappingModel model = modelCache.get(clazz);
+        if (model == null) {
+            final List<Property> properties = new ArrayList<Property>();
+            for (final Method getter : findRelevantGetters(clazz)) {
+                properties.add(getProperty(getter));
+            }
+            model = new DynamoDBMappingModel(clazz, properties);
+            final DynamoDBMappingModel existing = modelCache.putIfAbsent(clazz, model);
+            if (existing != null) {
+                model = existing;
+            }
+        }
+        return model;
+    }
 
-    private final ReentrantReadWriteLock readWriteLockAttrName = new ReentrantReadWriteLock();
-    private final ReadLock readLockAttrName = readWriteLockAttrName.readLock();
-    private final WriteLock writeLockAttrName = readWriteLockAttrName.writeLock();
+    /**
+     * Returns the mapped property of the getter given.
+     */
+    Property getProperty(Method getter) {
+        Property property = propertyCache.get(getter);
+        if (property == null) {
+            property = new Property(getter);
+            final Property existing = propertyCache.putIfAbsent(getter, property);
+            if (existing != null) {
+                property = existing;
+            }
+        }
+        return property;
+    }
 
     /**
      * Returns the set of getter methods which are relevant when marshalling or
      * unmarshalling an object.
      */
     Collection<Method> getRelevantGetters(Class<?> clazz) {
-        synchronized (getterCache) {
-            if (!getterCache.containsKey(clazz)) {
-                List<Method> relevantGetters = findRelevantGetters(clazz);
-                getterCache.put(clazz, relevantGetters);
-            }
-            return getterCache.get(clazz);
-        }
+        return getModel(clazz).getGetters();
     }
 
     static List<Method> findRelevantGetters(Class<?> clazz) {
@@ -100,38 +116,16 @@ class DynamoDBReflector {
      * given, or null if the class doesn't have one.
      */
     <T> Method getPrimaryRangeKeyGetter(Class<T> clazz) {
-        synchronized (primaryRangeKeyGetterCache) {
-            if (!primaryRangeKeyGetterCache.containsKey(clazz)) {
-                Method rangeKeyMethod = null;
-                for (Method method : getRelevantGetters(clazz)) {
-                    if (method.getParameterTypes().length == 0
-                            && ReflectionUtils.getterOrFieldHasAnnotation(method,
-                                    DynamoDBRangeKey.class)) {
-                        rangeKeyMethod = method;
-                        break;
-                    }
-                }
-                primaryRangeKeyGetterCache.put(clazz, rangeKeyMethod);
-            }
-            return primaryRangeKeyGetterCache.get(clazz);
-        }
+        final Property rangeKey = getModel(clazz).getRangeKey();
+        return rangeKey == null ? null : rangeKey.getGetter();
     }
 
     /**
      * Returns all annotated {@link DynamoDBHashKey} and
-     * {@link DynamoDBRangeKey} getters for the class given, throwing an
-     * exception if there isn't one. TODO: caching
+     * {@link DynamoDBRangeKey} getters for the class given.
      */
     <T> Collection<Method> getPrimaryKeyGetters(Class<T> clazz) {
-        List<Method> keyGetters = new LinkedList<Method>();
-        for (Method getter : getRelevantGetters(clazz)) {
-            if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class)
-                    || ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class)) {
-                keyGetters.add(getter);
-            }
-        }
-
-        return keyGetters;
+        return getModel(clazz).getKeyGetters();
     }
 
     /**
@@ -139,27 +133,13 @@ class DynamoDBReflector {
      * throwing an exception if there isn't one.
      */
     <T> Method getPrimaryHashKeyGetter(Class<T> clazz) {
-        Method hashKeyMethod;
-        synchronized (primaryHashKeyGetterCache) {
-            if (!primaryHashKeyGetterCache.containsKey(clazz)) {
-                for (Method method : getRelevantGetters(clazz)) {
-                    if (method.getParameterTypes().length == 0
-                            && ReflectionUtils.getterOrFieldHasAnnotation(method,
-                                    DynamoDBHashKey.class)) {
-                        primaryHashKeyGetterCache.put(clazz, method);
-                        break;
-                    }
-                }
-            }
-            hashKeyMethod = primaryHashKeyGetterCache.get(clazz);
-        }
-
-        if (hashKeyMethod == null) {
+        final Property hashKey = getModel(clazz).getHashKey();
+        if (hashKey == null) {
             throw new DynamoDBMappingException(
                     "Public, zero-parameter hash key property must be annotated with "
                             + DynamoDBHashKey.class);
         }
-        return hashKeyMethod;
+        return hashKey.getGetter();
     }
 
     /**
@@ -178,99 +158,15 @@ class DynamoDBReflector {
      * Returns the attribute name corresponding to the given getter method.
      */
     String getAttributeName(Method getter) {
-        String attributeName;
-        readLockAttrName.lock();
-        try {
-            attributeName = attributeNameCache.get(getter);
-        } finally {
-            readLockAttrName.unlock();
-        }
-        if (attributeName != null)
-            return attributeName;
-        DynamoDBHashKey hashKeyAnnotation = ReflectionUtils.getAnnotationFromGetterOrField(getter,
-                DynamoDBHashKey.class);
-        if (hashKeyAnnotation != null) {
-            attributeName = hashKeyAnnotation.attributeName();
-            if (attributeName != null && attributeName.length() > 0)
-                return cacheAttributeName(getter, attributeName);
-        }
-        DynamoDBIndexHashKey indexHashKey = ReflectionUtils.getAnnotationFromGetterOrField(getter,
-                DynamoDBIndexHashKey.class);
-        if (indexHashKey != null) {
-            attributeName = indexHashKey.attributeName();
-            if (attributeName != null && attributeName.length() > 0)
-                return cacheAttributeName(getter, attributeName);
-        }
-        DynamoDBRangeKey rangeKey = ReflectionUtils.getAnnotationFromGetterOrField(getter,
-                DynamoDBRangeKey.class);
-        if (rangeKey != null) {
-            attributeName = rangeKey.attributeName();
-            if (attributeName != null && attributeName.length() > 0)
-                return cacheAttributeName(getter, attributeName);
-        }
-        DynamoDBIndexRangeKey indexRangeKey = ReflectionUtils.getAnnotationFromGetterOrField(
-                getter, DynamoDBIndexRangeKey.class);
-        if (indexRangeKey != null) {
-            attributeName = indexRangeKey.attributeName();
-            if (attributeName != null && attributeName.length() > 0)
-                return cacheAttributeName(getter, attributeName);
-        }
-        DynamoDBAttribute attribute = ReflectionUtils.getAnnotationFromGetterOrField(getter,
-                DynamoDBAttribute.class);
-        if (attribute != null) {
-            attributeName = attribute.attributeName();
-            if (attributeName != null && attributeName.length() > 0)
-                return cacheAttributeName(getter, attributeName);
-        }
-        DynamoDBVersionAttribute version = ReflectionUtils.getAnnotationFromGetterOrField(getter,
-                DynamoDBVersionAttribute.class);
-        if (version != null) {
-            attributeName = version.attributeName();
-            if (attributeName != null && attributeName.length() > 0)
-                return cacheAttributeName(getter, attributeName);
-        }
-        // Default to the camel-cased field name of the getter method, inferred
-        // according to the Java naming convention.
-        attributeName = ReflectionUtils.getFieldNameByGetter(getter, true);
-        return cacheAttributeName(getter, attributeName);
-    }
-
-    private String cacheAttributeName(Method getter, String attributeName) {
-        writeLockAttrName.lock();
-        try {
-            attributeNameCache.put(getter, attributeName);
-        } finally {
-            writeLockAttrName.unlock();
-        }
-        return attributeName;
+        return getProperty(getter).getAttributeName();
     }
 
     /**
-     * Returns the setter corresponding to the getter given, or null if no such
-     * setter exists.
+     * Returns the setter corresponding to the getter given, throwing an
+     * exception if no such setter exists.
      */
     Method getSetter(Method getter) {
-        synchronized (setterCache) {
-            if (!setterCache.containsKey(getter)) {
-                String fieldName = ReflectionUtils.getFieldNameByGetter(getter, false);
-                String setterName = "set" + fieldName;
-                Method setter = null;
-                try {
-                    setter = getter.getDeclaringClass().getMethod(setterName,
-                            getter.getReturnType());
-                } catch (NoSuchMethodException e) {
-                    throw new DynamoDBMappingException(
-                            "Expected a public, one-argument method called " + setterName
-                                    + " on class " + getter.getDeclaringClass(), e);
-                } catch (SecurityException e) {
-                    throw new DynamoDBMappingException(
-                            "No access to public, one-argument method called " + setterName
-                                    + " on class " + getter.getDeclaringClass(), e);
-                }
-                setterCache.put(getter, setter);
-            }
-            return setterCache.get(getter);
-        }
+        return getProperty(getter).getSetter();
     }
 
     /**
@@ -278,36 +174,36 @@ class DynamoDBReflector {
      * version attribute.
      */
     boolean isVersionAttributeGetter(Method getter) {
-        synchronized (versionAttributeGetterCache) {
-            if (!versionAttributeGetterCache.containsKey(getter)) {
-                versionAttributeGetterCache.put(
-                        getter,
-                        getter.getName().startsWith("get")
-                                && getter.getParameterTypes().length == 0
-                                && ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                        DynamoDBVersionAttribute.class));
-            }
-            return versionAttributeGetterCache.get(getter);
-        }
+        return getProperty(getter).isVersionAttribute();
     }
 
     /**
      * Returns whether the method given is an assignable key getter.
      */
     boolean isAssignableKey(Method getter) {
-        synchronized (autoGeneratedKeyGetterCache) {
-            if (!autoGeneratedKeyGetterCache.containsKey(getter)) {
-                autoGeneratedKeyGetterCache.put(
-                        getter,
-                        ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                DynamoDBAutoGeneratedKey.class)
-                                && (ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                        DynamoDBHashKey.class) ||
-                                ReflectionUtils.getterOrFieldHasAnnotation(getter,
-                                        DynamoDBRangeKey.class)));
-            }
-            return autoGeneratedKeyGetterCache.get(getter);
-        }
+        return getProperty(getter).isAssignableKey();
+    }
+
+    /**
+     * Returns whether the method given is a {@link DynamoDBHashKey} getter.
+     */
+    boolean isPrimaryHashKeyGetter(Method getter) {
+        return getProperty(getter).isHashKey();
+    }
+
+    /**
+     * Returns whether the method given is a {@link DynamoDBRangeKey} getter.
+     */
+    boolean isPrimaryRangeKeyGetter(Method getter) {
+        return getProperty(getter).isRangeKey();
+    }
+
+    /**
+     * Returns whether the method given is a {@link DynamoDBIndexHashKey}
+     * getter.
+     */
+    boolean isIndexHashKeyGetter(Method getter) {
+        return getProperty(getter).isIndexHashKey();
     }
 
     /**
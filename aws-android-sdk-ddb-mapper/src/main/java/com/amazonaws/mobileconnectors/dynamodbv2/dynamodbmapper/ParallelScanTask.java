@@ -19,22 +19,33 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.util.ThreadPools;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A task thats runs DynamoDB scan operations in parallel.
+ * <p>
+ * Each page of a segment is scanned by a separate task on a shared executor,
+ * so the number of threads is bounded by the executor rather than by the
+ * number of segments. A segment scans at most a prefetch depth of pages ahead
+ * of the caller, and is resumed as the caller takes its pages. With a depth
+ * of zero, pages are only scanned when the caller asks for the next batch,
+ * and a batch holds one page of every segment.
  */
 public class ParallelScanTask {
 
+    /** Threads of the executor shared by the tasks not given one. */
+    static final int DEFAULT_THREADS = 10;
+
+    /** Executor of the tasks not given one, created when first needed. */
+    private static ExecutorService defaultExecutor;
+
     /**
      * The list of hard copies of ScanRequest with different segment number.
      */
@@ -43,23 +54,14 @@ public class ParallelScanTask {
     private final int totalSegments;
 
     /**
-     * Cache all the future tasks, so that we can extract the exception when we
-     * see failed segment scan.
+     * The scan state of each segment. Guarded by this task.
      */
-    private final List<Future<ScanResult>> segmentScanFutureTasks;
+    private final List<SegmentScan> segmentScans;
 
-    /**
-     * Cache all the most recent ScanResult on each segment.
-     */
-    private final List<ScanResult> segmentScanResults;
+    private final Executor executor;
 
-    /**
-     * The current state of the scan on each segment. Used as the monitor for
-     * synchronization.
-     */
-    private final List<SegmentScanState> segmentScanStates;
-
-    private final ExecutorService executorService;
+    /** Pages a segment may scan ahead of the caller. */
+    private final int prefetchDepth;
 
     private final AmazonDynamoDB dynamo;
 
@@ -71,20 +73,38 @@ public class ParallelScanTask {
     }
 
     ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
+        this(dynamo, parallelScanRequests, getDefaultExecutor(), 0);
+    }
+
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests,
+            Executor executor, int prefetchDepth) {
         this.dynamo = dynamo;
         this.parallelScanRequests = parallelScanRequests;
         this.totalSegments = parallelScanRequests.size();
-        executorService = Executors.newCachedThreadPool();
+        this.executor = executor;
+        this.prefetchDepth = prefetchDepth;
 
-        // Create synchronized views of the list to guarantee any changes are
-        // visible across all threads.
-        segmentScanFutureTasks = Collections.synchronizedList(new ArrayList<Future<ScanResult>>(
-                totalSegments));
-        segmentScanResults = Collections.synchronizedList(new ArrayList<ScanResult>(totalSegments));
-        segmentScanStates = Collections.synchronizedList(new ArrayList<SegmentScanState>(
-                totalSegments));
+        segmentScans = new ArrayList<SegmentScan>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            segmentScans.add(new SegmentScan());
+        }
+    }
 
-        initSegmentScanStates();
+    /**
+     * Creates an executor for parallel scans, whose idle threads time out.
+     *
+     * @param threads the maximum number of pages scanned at once.
+     * @return the executor.
+     */
+    static ExecutorService newScanExecutor(int threads) {
+        return ThreadPools.newDaemonThreadPool("dynamodb-parallel-scan-", threads);
+    }
+
+    private static synchronized ExecutorService getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = newScanExecutor(DEFAULT_THREADS);
+        }
+        return defaultExecutor;
     }
 
     String getTableName() {
@@ -96,148 +116,146 @@ public class ParallelScanTask {
      *
      * @return true if scans are finished, false if it isnt.
      */
-    public boolean isAllSegmentScanFinished() {
-        synchronized (segmentScanStates) {
-            for (int segment = 0; segment < totalSegments; segment++) {
-                if (segmentScanStates.get(segment) != SegmentScanState.SegmentScanCompleted) {
-                    return false;
-                }
+    public synchronized boolean isAllSegmentScanFinished() {
+        for (final SegmentScan segmentScan : segmentScans) {
+            if (!segmentScan.completed || segmentScan.scanning
+                    || !segmentScan.pages.isEmpty()) {
+                return false;
             }
-            // Shut down if all data have been scanned and loaded.
-            executorService.shutdown();
-            return true;
         }
+        return true;
     }
 
     /**
-     * Gets the next batch of scan results.
-     * 
+     * Gets the next batch of scan results. When pages are scanned ahead, the
+     * batch holds the pages scanned so far, waiting for one if there are
+     * none yet.
+     *
      * @return list of {@link ScanResult}
      */
-    public List<ScanResult> getNextBatchOfScanResults() {
+    public synchronized List<ScanResult> getNextBatchOfScanResults() {
         /**
-         * Kick-off all the parallel scan tasks.
+         * Kick-off the scan of every segment without a page to return.
          */
-        startScanNextPages();
+        for (int segment = 0; segment < totalSegments; segment++) {
+            final SegmentScan segmentScan = segmentScans.get(segment);
+            if (segmentScan.pages.isEmpty() && !segmentScan.completed
+                    && !segmentScan.scanning && segmentScan.failure == null) {
+                startScanNextPage(segment);
+            }
+        }
+
         /**
-         * Wait till all the tasks have finished.
+         * Wait till a page is available, or till all the scans started have
+         * finished when pages aren't scanned ahead.
          */
-        synchronized (segmentScanStates) {
-            while (segmentScanStates.contains(SegmentScanState.Waiting)
-                    || segmentScanStates.contains(SegmentScanState.Scanning)) {
-                try {
-                    segmentScanStates.wait();
-                } catch (final InterruptedException ie) {
-                    throw new AmazonClientException("Parallel scan interrupted by other thread.",
-                            ie);
-                }
+        while (isScanning() && (prefetchDepth == 0 || !hasPages())) {
+            try {
+                wait();
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Parallel scan interrupted by other thread.",
+                        ie);
             }
-            /**
-             * Keep the lock on segmentScanStates until all the cached results
-             * are marshaled and returned.
-             */
-            return marshalParallelScanResults();
         }
-
+        return marshalParallelScanResults();
     }
 
-    private void startScanNextPages() {
-        for (int segment = 0; segment < totalSegments; segment++) {
-            final int currentSegment = segment;
-            final SegmentScanState currentSegmentState = segmentScanStates.get(currentSegment);
-            /**
-             * Assert: Should never see any task in state of "Scanning" when
-             * starting a new batch.
-             */
-            if (currentSegmentState == SegmentScanState.Scanning) {
-                throw new AmazonClientException(
-                        "Should never see a 'Scanning' state when starting parallel scans.");
+    private boolean isScanning() {
+        for (final SegmentScan segmentScan : segmentScans) {
+            if (segmentScan.scanning) {
+                return true;
             }
-            /**
-             * Skip any failed or completed segment, and clear the corresponding
-             * cached result.
-             */
-            else if (currentSegmentState == SegmentScanState.Failed
-                    || currentSegmentState == SegmentScanState.SegmentScanCompleted) {
-                segmentScanResults.set(currentSegment, null);
-                continue;
+        }
+        return false;
+    }
+
+    private boolean hasPages() {
+        for (final SegmentScan segmentScan : segmentScans) {
+            if (!segmentScan.pages.isEmpty() || segmentScan.failure != null) {
+                return true;
             }
-            /**
-             * Otherwise, submit a new future task and save it in
-             * segmentScanFutureTasks.
-             */
-            else {
-                // Update the state to "Scanning" and notify any waiting thread.
-                synchronized (segmentScanStates) {
-                    segmentScanStates.set(currentSegment, SegmentScanState.Scanning);
-                    segmentScanStates.notifyAll();
+        }
+        return false;
+    }
+
+    private void startScanNextPage(final int segment) {
+        final SegmentScan segmentScan = segmentScans.get(segment);
+        segmentScan.scanning = true;
+        final boolean checkLastEvaluatedKey = segmentScan.started;
+        segmentScan.started = true;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scanPage(segment, checkLastEvaluatedKey);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            segmentScan.scanning = false;
+            segmentScan.failure = e;
+        }
+    }
+
+    private void scanPage(int segment, boolean checkLastEvaluatedKey) {
+        ScanResult scanResult = null;
+        Throwable failure = null;
+        try {
+            scanResult = scanNextPageOfSegment(segment, checkLastEvaluatedKey);
+        } catch (final Throwable t) {
+            failure = t;
+        }
+
+        synchronized (this) {
+            final SegmentScan segmentScan = segmentScans.get(segment);
+            segmentScan.scanning = false;
+            if (failure != null) {
+                segmentScan.failure = failure;
+            } else {
+                segmentScan.pages.add(scanResult);
+                if (scanResult.getLastEvaluatedKey() == null) {
+                    segmentScan.completed = true;
+                } else if (segmentScan.pages.size() < prefetchDepth) {
+                    startScanNextPage(segment);
                 }
-                final Future<ScanResult> futureTask = executorService.submit(new Callable<ScanResult>() {
-                    @Override
-                    public ScanResult call() throws Exception {
-                        try {
-                            if (currentSegmentState == SegmentScanState.HasNextPage) {
-                                return scanNextPageOfSegment(currentSegment, true);
-                            }
-                            else if (currentSegmentState == SegmentScanState.Waiting) {
-                                return scanNextPageOfSegment(currentSegment, false);
-                            }
-                            else {
-                                throw new AmazonClientException(
-                                        "Should not start a new future task");
-                            }
-                        } catch (final Exception e) {
-                            synchronized (segmentScanStates) {
-                                segmentScanStates.set(currentSegment, SegmentScanState.Failed);
-                                segmentScanStates.notifyAll();
-                            }
-                            throw e;
-                        }
-                    }
-                });
-                // Cache the future task (for getting the Exceptions in the
-                // working thread).
-                segmentScanFutureTasks.set(currentSegment, futureTask);
             }
+            notifyAll();
         }
     }
 
     private List<ScanResult> marshalParallelScanResults() {
         final List<ScanResult> scanResults = new LinkedList<ScanResult>();
         for (int segment = 0; segment < totalSegments; segment++) {
-            final SegmentScanState currentSegmentState = segmentScanStates.get(segment);
+            final SegmentScan segmentScan = segmentScans.get(segment);
             /**
              * Rethrow the exception from any failed segment scan.
              */
-            if (currentSegmentState == SegmentScanState.Failed) {
-                try {
-                    segmentScanFutureTasks.get(segment).get();
-                    throw new AmazonClientException("No Exception found in the failed scan task.");
-                } catch (final ExecutionException ee) {
-                    if (ee.getCause() instanceof AmazonClientException) {
-                        throw (AmazonClientException) (ee.getCause());
-                    } else {
-                        throw new AmazonClientException(
-                                "Internal error during the scan on segment #" + segment + ".",
-                                ee.getCause());
-                    }
-                } catch (final Exception e) {
-                    throw new AmazonClientException("Error during the scan on segment #" + segment
-                            + ".", e);
+            if (segmentScan.failure != null) {
+                final Throwable cause = segmentScan.failure;
+                if (cause instanceof AmazonClientException) {
+                    throw (AmazonClientException) cause;
+                } else {
+                    throw new AmazonClientException(
+                            "Internal error during the scan on segment #" + segment + ".",
+                            cause);
                 }
             }
-            /**
-             * Get the ScanResult from cache if the segment scan has finished.
-             */
-            else if (currentSegmentState == SegmentScanState.HasNextPage
-                    || currentSegmentState == SegmentScanState.SegmentScanCompleted) {
-                final ScanResult scanResult = segmentScanResults.get(segment);
-                scanResults.add(scanResult);
-            }
-            else if (currentSegmentState == SegmentScanState.Waiting
-                    || currentSegmentState == SegmentScanState.Scanning) {
-                throw new AmazonClientException(
-                        "Should never see a 'Scanning' or 'Waiting' state when marshalling parallel scan results.");
+
+            if (prefetchDepth == 0) {
+                /**
+                 * One entry for every segment, null for the segments that
+                 * have been completed already.
+                 */
+                scanResults.add(segmentScan.pages.poll());
+            } else {
+                scanResults.addAll(segmentScan.pages);
+                segmentScan.pages.clear();
+                /**
+                 * Resume the segments that stopped at their prefetch depth.
+                 */
+                if (!segmentScan.completed && !segmentScan.scanning) {
+                    startScanNextPage(segment);
+                }
             }
         }
         return scanResults;
@@ -245,65 +263,37 @@ public class ParallelScanTask {
 
     ScanResult scanNextPageOfSegment(int currentSegment, boolean checkLastEvaluatedKey) {
         final ScanRequest segmentScanRequest = parallelScanRequests.get(currentSegment);
+        final SegmentScan segmentScan = segmentScans.get(currentSegment);
         if (checkLastEvaluatedKey) {
-            final ScanResult lastScanResult = segmentScanResults.get(currentSegment);
-            segmentScanRequest.setExclusiveStartKey(lastScanResult.getLastEvaluatedKey());
+            segmentScanRequest.setExclusiveStartKey(segmentScan.lastScanResult
+                    .getLastEvaluatedKey());
         } else {
             segmentScanRequest.setExclusiveStartKey(null);
         }
         final ScanResult scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(segmentScanRequest));
 
         /**
-         * Cache the scan result in segmentScanResults. We should never try to
-         * get these scan results by calling get() on the cached future tasks.
+         * Keep the last result, for the key to start the next page from.
          */
-        segmentScanResults.set(currentSegment, scanResult);
-
-        /**
-         * Update the state and notify any waiting thread.
-         */
-        synchronized (segmentScanStates) {
-            if (null == scanResult.getLastEvaluatedKey()) {
-                segmentScanStates.set(currentSegment, SegmentScanState.SegmentScanCompleted);
-            } else {
-                segmentScanStates.set(currentSegment, SegmentScanState.HasNextPage);
-            }
-            segmentScanStates.notifyAll();
-        }
+        segmentScan.lastScanResult = scanResult;
         return scanResult;
     }
 
-    private void initSegmentScanStates() {
-        for (int segment = 0; segment < totalSegments; segment++) {
-            segmentScanFutureTasks.add(null);
-            segmentScanResults.add(null);
-            segmentScanStates.add(SegmentScanState.Waiting);
-        }
-    }
-
     /**
-     * Enumeration of the possible states of the scan on a segment.
+     * The state of the scan on a segment.
      */
-    private static enum SegmentScanState {
-        /**
-         * The scan on the segment is waiting for resources to execute and has
-         * not started yet.
-         */
-        Waiting,
-
-        /** The scan is in process, and hasn't finished yet. */
-        Scanning,
-
-        /** The scan has already failed. */
-        Failed,
-
-        /**
-         * The scan on the current page has finished, but there are more pages
-         * in the segment to be scanned.
-         */
-        HasNextPage,
-
-        /** The scan on the whole segment has completed. */
-        SegmentScanCompleted,
+    private static final class SegmentScan {
+        /** Pages scanned and not yet returned to the caller. */
+        final LinkedList<ScanResult> pages = new LinkedList<ScanResult>();
+        /** The last page scanned, for its last evaluated key. */
+        volatile ScanResult lastScanResult;
+        /** Has the first page been requested? */
+        boolean started;
+        /** Is a page being scanned? */
+        boolean scanning;
+        /** Has the last page been scanned? */
+        boolean completed;
+        /** Why the scan failed, or null. */
+        Throwable failure;
     }
 }
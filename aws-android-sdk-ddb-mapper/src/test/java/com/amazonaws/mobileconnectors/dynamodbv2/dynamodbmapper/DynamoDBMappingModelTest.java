@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper.DynamoDBMappingModel.Property;
+
+import org.junit.Test;
+
+public class DynamoDBMappingModelTest {
+
+    private final DynamoDBReflector reflector = new DynamoDBReflector();
+
+    @Test
+    public void testModelIsBuiltOnce() {
+        final DynamoDBMappingModel model = reflector.getModel(RangeKeyClass.class);
+        assertSame(model, reflector.getModel(RangeKeyClass.class));
+        assertSame(RangeKeyClass.class, model.getMappedClass());
+        for (final Property property : model.getProperties()) {
+            assertSame(property, reflector.getProperty(property.getGetter()));
+        }
+    }
+
+    @Test
+    public void testKeyProperties() throws Exception {
+        final DynamoDBMappingModel model = reflector.getModel(RangeKeyClass.class);
+        assertEquals("key", model.getHashKey().getAttributeName());
+        assertEquals("rangeKey", model.getRangeKey().getAttributeName());
+        assertEquals(2, model.getKeyGetters().size());
+        assertTrue(model.getKeyGetters().contains(RangeKeyClass.class.getMethod("getKey")));
+        assertTrue(reflector.isPrimaryHashKeyGetter(RangeKeyClass.class.getMethod("getKey")));
+        assertTrue(reflector.isPrimaryRangeKeyGetter(RangeKeyClass.class.getMethod("getRangeKey")));
+        assertFalse(reflector.isPrimaryHashKeyGetter(RangeKeyClass.class.getMethod("getRangeKey")));
+        assertEquals("integerSetAttribute",
+                reflector.getAttributeName(RangeKeyClass.class.getMethod("getIntegerAttribute")));
+    }
+
+    @Test
+    public void testClassWithoutRangeKey() {
+        final DynamoDBMappingModel model = reflector.getModel(ReadOnlyClass.class);
+        assertNull(model.getRangeKey());
+        assertEquals(1, model.getKeyGetters().size());
+    }
+
+    @Test
+    public void testMissingSetterFailsOnlyWhenNeeded() throws Exception {
+        final Property property = reflector.getProperty(
+                ReadOnlyClass.class.getMethod("getComputed"));
+        assertEquals("computed", property.getAttributeName());
+        try {
+            property.getSetter();
+            fail("getComputed has no setter");
+        } catch (final DynamoDBMappingException e) {
+            assertTrue(e.getMessage().contains("setComputed"));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testModelIsImmutable() {
+        reflector.getModel(RangeKeyClass.class).getProperties().clear();
+    }
+
+    @DynamoDBTable(tableName = "table")
+    public static class ReadOnlyClass {
+        private String id;
+
+        @DynamoDBHashKey
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getComputed() {
+            return "computed";
+        }
+    }
+}
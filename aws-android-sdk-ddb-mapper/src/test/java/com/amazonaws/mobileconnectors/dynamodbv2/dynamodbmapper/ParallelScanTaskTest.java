@@ -18,6 +18,9 @@ package com.amazonaws.mobileconnectors.dynamodbv2.dynamodbmapper;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonServiceException;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
@@ -29,10 +32,16 @@ import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ParallelScanTaskTest {
 
@@ -192,4 +201,116 @@ public class ParallelScanTaskTest {
 
         assertTrue(testTask.isAllSegmentScanFinished());
     }
+
+    @Test
+    public void testPrefetchIsBoundedBySegment() throws InterruptedException {
+        final PagedTable table = new PagedTable(3);
+        final List<ScanRequest> list = scanRequests(2);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ParallelScanTask testTask = new ParallelScanTask(table.client(), list,
+                    executor, 1);
+
+            final List<ScanResult> firstBatch = testTask.getNextBatchOfScanResults();
+            assertTrue(firstBatch.size() >= 1);
+            Thread.sleep(100);
+            // one page of each segment is scanned ahead, and not taken yet
+            assertEquals(firstBatch.size() + 2, table.scans.get());
+
+            int pages = firstBatch.size();
+            while (!testTask.isAllSegmentScanFinished()) {
+                pages += testTask.getNextBatchOfScanResults().size();
+            }
+            assertEquals(6, pages);
+            assertEquals(6, table.scans.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSegmentsShareBoundedExecutor() {
+        final PagedTable table = new PagedTable(2);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ParallelScanTask testTask = new ParallelScanTask(table.client(),
+                    scanRequests(8), executor, 2);
+            int pages = 0;
+            do {
+                pages += testTask.getNextBatchOfScanResults().size();
+            } while (!testTask.isAllSegmentScanFinished());
+            assertEquals(16, pages);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testScanFailureIsRethrown() {
+        final PagedTable table = new PagedTable(2);
+        table.failure = new AmazonServiceException("throttled");
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ParallelScanTask testTask = new ParallelScanTask(table.client(),
+                    scanRequests(2), executor, 1);
+            testTask.getNextBatchOfScanResults();
+            fail("the scan of the segments failed");
+        } catch (final AmazonServiceException e) {
+            assertEquals("throttled", e.getErrorMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<ScanRequest> scanRequests(int totalSegments) {
+        final List<ScanRequest> list = new ArrayList<ScanRequest>();
+        for (int segment = 0; segment < totalSegments; segment++) {
+            list.add(new ScanRequest().withTableName(TABLE).withSegment(segment)
+                    .withTotalSegments(totalSegments));
+        }
+        return list;
+    }
+
+    /**
+     * A table whose segments have the same number of pages, the key of each
+     * page being the number of the next one.
+     */
+    private static final class PagedTable implements InvocationHandler {
+        private final int pagesPerSegment;
+        final AtomicInteger scans = new AtomicInteger();
+        volatile RuntimeException failure;
+
+        PagedTable(int pagesPerSegment) {
+            this.pagesPerSegment = pagesPerSegment;
+        }
+
+        AmazonDynamoDB client() {
+            return (AmazonDynamoDB) Proxy.newProxyInstance(AmazonDynamoDB.class.getClassLoader(),
+                    new Class<?>[] {
+                        AmazonDynamoDB.class
+                    }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (!"scan".equals(method.getName())) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            scans.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            final Map<String, AttributeValue> startKey = ((ScanRequest) args[0])
+                    .getExclusiveStartKey();
+            final int page = startKey == null ? 1
+                    : Integer.parseInt(startKey.get("page").getN());
+            final ScanResult result = new ScanResult();
+            if (page < pagesPerSegment) {
+                final Map<String, AttributeValue> lastKey = new HashMap<String, AttributeValue>();
+                lastKey.put("page", new AttributeValue().withN(String.valueOf(page + 1)));
+                result.setLastEvaluatedKey(lastKey);
+            }
+            return result;
+        }
+    }
 }
@@ -24,7 +24,7 @@ import com.amazonaws.util.json.AwsJsonReader;
  * JSON unmarshaller for response BatchGetItemResult
  */
 public class BatchGetItemResultJsonUnmarshaller implements
-        Unmarshaller<BatchGetItemResult, JsonUnmarshallerContext> {
+        Unmarshaller<BatchGetItemResult, JsonUnmarshallerContext>, Utf8JsonUnmarshaller {
 
     public BatchGetItemResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         BatchGetItemResult batchGetItemResult = new BatchGetItemResult();
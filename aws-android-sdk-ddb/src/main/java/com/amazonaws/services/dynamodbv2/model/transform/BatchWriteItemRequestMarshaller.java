@@ -33,6 +33,7 @@ import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.json.AwsJsonWriter;
 import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.Utf8JsonWriter;
 
 /**
  * JSON request marshaller for BatchWriteItemRequest
@@ -55,8 +56,7 @@ public class BatchWriteItemRequestMarshaller implements
         String uriResourcePath = "/";
         request.setResourcePath(uriResourcePath);
         try {
-            StringWriter stringWriter = new StringWriter();
-            AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(stringWriter);
+            Utf8JsonWriter jsonWriter = new Utf8JsonWriter();
             jsonWriter.beginObject();
 
             if (batchWriteItemRequest.getRequestItems() != null) {
@@ -95,10 +95,8 @@ public class BatchWriteItemRequestMarshaller implements
 
             jsonWriter.endObject();
             jsonWriter.close();
-            String snippet = stringWriter.toString();
-            byte[] content = snippet.getBytes(UTF8);
-            request.setContent(new StringInputStream(snippet));
-            request.addHeader("Content-Length", Integer.toString(content.length));
+            request.setContent(jsonWriter.toInputStream());
+            request.addHeader("Content-Length", Integer.toString(jsonWriter.size()));
         } catch (Throwable t) {
             throw new AmazonClientException(
                     "Unable to marshall request to JSON: " + t.getMessage(), t);
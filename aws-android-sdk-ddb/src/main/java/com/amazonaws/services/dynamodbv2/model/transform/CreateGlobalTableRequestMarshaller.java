@@ -33,6 +33,7 @@ import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.json.AwsJsonWriter;
 import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.Utf8JsonWriter;
 
 /**
  * JSON request marshaller for CreateGlobalTableRequest
@@ -56,8 +57,7 @@ public class CreateGlobalTableRequestMarshaller implements
         String uriResourcePath = "/";
         request.setResourcePath(uriResourcePath);
         try {
-            StringWriter stringWriter = new StringWriter();
-            AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(stringWriter);
+            Utf8JsonWriter jsonWriter = new Utf8JsonWriter();
             jsonWriter.beginObject();
 
             if (createGlobalTableRequest.getGlobalTableName() != null) {
@@ -81,10 +81,8 @@ public class CreateGlobalTableRequestMarshaller implements
 
             jsonWriter.endObject();
             jsonWriter.close();
-            String snippet = stringWriter.toString();
-            byte[] content = snippet.getBytes(UTF8);
-            request.setContent(new StringInputStream(snippet));
-            request.addHeader("Content-Length", Integer.toString(content.length));
+            request.setContent(jsonWriter.toInputStream());
+            request.addHeader("Content-Length", Integer.toString(jsonWriter.size()));
         } catch (Throwable t) {
             throw new AmazonClientException(
                     "Unable to marshall request to JSON: " + t.getMessage(), t);
@@ -24,7 +24,7 @@ import com.amazonaws.util.json.AwsJsonReader;
  * JSON unmarshaller for response GetItemResult
  */
 public class GetItemResultJsonUnmarshaller implements
-        Unmarshaller<GetItemResult, JsonUnmarshallerContext> {
+        Unmarshaller<GetItemResult, JsonUnmarshallerContext>, Utf8JsonUnmarshaller {
 
     public GetItemResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         GetItemResult getItemResult = new GetItemResult();
@@ -24,7 +24,7 @@ import com.amazonaws.util.json.AwsJsonReader;
  * JSON unmarshaller for response QueryResult
  */
 public class QueryResultJsonUnmarshaller implements
-        Unmarshaller<QueryResult, JsonUnmarshallerContext> {
+        Unmarshaller<QueryResult, JsonUnmarshallerContext>, Utf8JsonUnmarshaller {
 
     public QueryResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         QueryResult queryResult = new QueryResult();
@@ -24,7 +24,7 @@ import com.amazonaws.util.json.AwsJsonReader;
  * JSON unmarshaller for response ScanResult
  */
 public class ScanResultJsonUnmarshaller implements
-        Unmarshaller<ScanResult, JsonUnmarshallerContext> {
+        Unmarshaller<ScanResult, JsonUnmarshallerContext>, Utf8JsonUnmarshaller {
 
     public ScanResult unmarshall(JsonUnmarshallerContext context) throws Exception {
         ScanResult scanResult = new ScanResult();
@@ -39,14 +39,13 @@ import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
+import java.io.File;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 
 import javax.net.SocketFactory;
@@ -88,10 +87,24 @@ public class AWSIotMqttManager {
     public static final Boolean DEFAULT_OFFLINE_PUBLISH_QUEUE_ENABLED = true;
     /** Default value for offline publish queue bound. */
     public static final Integer DEFAULT_OFFLINE_PUBLISH_QUEUE_BOUND = 100;
+    /** Default value for offline publish queue bound in bytes. */
+    public static final Long DEFAULT_OFFLINE_PUBLISH_QUEUE_BYTE_BOUND = 16L * 1024 * 1024;
     /** Constant for milliseconds between queue publishes. */
     private static final Long DEFAULT_MILLIS_BETWEEN_QUEUE_PUBLISHES = 250L;
+    /** Maximum number of queued messages published and not yet delivered. */
+    private static final int MAX_QUEUED_PUBLISHES_IN_FLIGHT = 10;
     /** Default value for "connection established" hysteresis timer. */
     private static final Integer DEFAULT_CONNECTION_STABILITY_TIME_SECONDS = 10;
+    /** Hands an incoming message to the callback of a matching subscription. */
+    private static final TopicTrie.Visitor<AWSIotMqttTopic, byte[]> MESSAGE_DISPATCHER =
+            new TopicTrie.Visitor<AWSIotMqttTopic, byte[]>() {
+                @Override
+                public void visit(AWSIotMqttTopic topicModel, String topic, byte[] data) {
+                    if (topicModel.getCallback() != null) {
+                        topicModel.getCallback().onMessageArrived(topic, data);
+                    }
+                }
+            };
 
     /** The underlying Paho Java MQTT client. */
     private MqttAsyncClient mqttClient;
@@ -123,11 +136,16 @@ public class AWSIotMqttManager {
      * to proved per-topic message arrived callbacks.
      */
     private final Map<String, AWSIotMqttTopic> topicListeners;
+    /**
+     * MQTT subscriptions by topic filter. Used to find the per-topic message
+     * arrived callbacks of an incoming message.
+     */
+    private final TopicTrie<AWSIotMqttTopic> topicRouter;
     /**
      * Queue for messages attempted to publish while MQTT client was offline.
      * Republished upon reconnect.
      */
-    private final List<AWSIotMqttQueueMessage> mqttMessageQueue;
+    private final AWSIotMqttOfflineQueue mqttMessageQueue;
     /** KeepAlive interval specified by the user. */
     private int userKeepAlive;
     /** MQTT Will parameters. */
@@ -153,6 +171,8 @@ public class AWSIotMqttManager {
     private boolean offlinePublishQueueEnabled;
     /** Offline publish queue bound. */
     private Integer offlinePublishQueueBound;
+    /** Offline publish queue bound in bytes. */
+    private long offlinePublishQueueByteBound;
     /** Full queue behavior (keep oldest or keep newest)? */
     private boolean fullQueueKeepsOldest;
     /** Milliseconds between publishes when publishing queued messages (draining interval). */
@@ -374,7 +394,53 @@ public class AWSIotMqttManager {
     }
 
     /**
-     * Get the "draining interval" (the time between publish messages are sent from the offline queue when reconnected).
+     * Get the current value of the offline message queue bound in bytes.
+     *
+     * @return max total size of the topics and payloads of the messages
+     *         stored in the message queue.
+     */
+    public Long getOfflinePublishQueueByteBound() {
+        return offlinePublishQueueByteBound;
+    }
+
+    /**
+     * Set the bound for the total size of the messages queued while offline.
+     * The size of a message is the length of its topic and payload. A full
+     * queue keeps the oldest or the newest messages like it does when the
+     * number of messages reaches its bound.
+     *
+     * @param bound max total size in bytes of the messages to queue while
+     *            offline.
+     */
+    public void setOfflinePublishQueueByteBound(Long bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Offline queue byte bound must be > 0");
+        }
+        offlinePublishQueueByteBound = bound;
+    }
+
+    /**
+     * Save the offline publish queue to a file, so messages queued while
+     * offline are published after the application restarts. Messages already
+     * saved in the file are loaded and published once connected. Delivery
+     * callbacks and user data of the messages aren't saved. On Android use a
+     * file in the application's private storage, e.g.
+     * {@code new File(context.getFilesDir(), "mqtt-offline-queue")}. By
+     * default the queue is only kept in memory.
+     *
+     * @param file file to save the queue to, or null to keep the queue in
+     *            memory only.
+     * @throws AmazonClientException if the file can't be read or written.
+     */
+    public void setOfflinePublishQueueFile(File file) {
+        mqttMessageQueue.setJournalFile(file);
+    }
+
+    /**
+     * Get the "draining interval". Messages in the offline queue are published
+     * as soon as the broker acknowledges the previous ones, with up to 10 messages
+     * in flight. The draining interval is the time waited before publishing
+     * again when the MQTT client can't take more messages in flight.
      * @return long containing the number of milliseconds between publishes.
      */
     public Long getDrainingInterval() {
@@ -382,7 +448,8 @@ public class AWSIotMqttManager {
     }
 
     /**
-     * Set the "draining interval" (the time between publish messages are sent from the offline queue when reconnected).
+     * Set the "draining interval", the time waited before publishing from the
+     * offline queue again when the MQTT client can't take more messages in flight.
      * @param interval milliseconds between offline queue publishes.
      */
     public void setDrainingInterval(Long interval) {
@@ -475,7 +542,7 @@ public class AWSIotMqttManager {
      *
      * @return offline message queue.
      */
-    List<AWSIotMqttQueueMessage> getMqttMessageQueue() {
+    AWSIotMqttOfflineQueue getMqttMessageQueue() {
         return mqttMessageQueue;
     }
 
@@ -541,7 +608,8 @@ public class AWSIotMqttManager {
         }
 
         this.topicListeners = new ConcurrentHashMap<String, AWSIotMqttTopic>();
-        this.mqttMessageQueue = new LinkedList<AWSIotMqttQueueMessage>();
+        this.topicRouter = new TopicTrie<AWSIotMqttTopic>();
+        this.mqttMessageQueue = new AWSIotMqttOfflineQueue();
         this.accountEndpointPrefix = AwsIotEndpointUtility.getAccountPrefixFromEndpont(endpoint);
         this.mqttClientId = mqttClientId;
         this.region = AwsIotEndpointUtility.getRegionFromIotEndpoint(endpoint);
@@ -572,7 +640,8 @@ public class AWSIotMqttManager {
         }
 
         this.topicListeners = new ConcurrentHashMap<String, AWSIotMqttTopic>();
-        this.mqttMessageQueue = new LinkedList<AWSIotMqttQueueMessage>();
+        this.topicRouter = new TopicTrie<AWSIotMqttTopic>();
+        this.mqttMessageQueue = new AWSIotMqttOfflineQueue();
 
         this.accountEndpointPrefix = accountEndpointPrefix;
         this.mqttClientId = mqttClientId;
@@ -594,6 +663,7 @@ public class AWSIotMqttManager {
         mqttLWT = null;
         offlinePublishQueueEnabled = DEFAULT_OFFLINE_PUBLISH_QUEUE_ENABLED;
         offlinePublishQueueBound = DEFAULT_OFFLINE_PUBLISH_QUEUE_BOUND;
+        offlinePublishQueueByteBound = DEFAULT_OFFLINE_PUBLISH_QUEUE_BYTE_BOUND;
         drainingInterval = DEFAULT_MILLIS_BETWEEN_QUEUE_PUBLISHES;
         setFullQueueToKeepNewestMessages();
         connectionStabilityTime = DEFAULT_CONNECTION_STABILITY_TIME_SECONDS;
@@ -757,7 +827,10 @@ public class AWSIotMqttManager {
         LOGGER.info("metrics collection is " + (isMetricsEnabled() ? "enabled" : "disabled") + ", username: " + options.getUserName());
 
         topicListeners.clear();
-        mqttMessageQueue.clear();
+        topicRouter.clear();
+        if (!mqttMessageQueue.isPersistent()) {
+            mqttMessageQueue.clear();
+        }
 
         resetReconnect();
         userDisconnect = false;
@@ -776,7 +849,8 @@ public class AWSIotMqttManager {
 
                     lastConnackTime = getSystemTimeMs();
 
-                    if (mqttMessageQueue.size() > 0) {
+                    mqttMessageQueue.releaseAll();
+                    if (!mqttMessageQueue.isEmpty()) {
                         publishMessagesFromQueue();
                     }
 
@@ -830,6 +904,7 @@ public class AWSIotMqttManager {
         userDisconnect = true;
         reset();
         topicListeners.clear();
+        topicRouter.clear();
         connectionState = MqttManagerConnectionState.Disconnected;
         userConnectionCallback();
         return true;
@@ -914,7 +989,8 @@ public class AWSIotMqttManager {
                         if (needResubscribe) {
                             resubscribeToTopics();
                         }
-                        if (mqttMessageQueue.size() > 0) {
+                        mqttMessageQueue.releaseAll();
+                        if (!mqttMessageQueue.isEmpty()) {
                             publishMessagesFromQueue();
                         }
 
@@ -1015,6 +1091,7 @@ public class AWSIotMqttManager {
             }
             final AWSIotMqttTopic topicModel = new AWSIotMqttTopic(topic, qos, callback);
             topicListeners.put(topic, topicModel);
+            topicRouter.put(topic, topicModel);
         }
     }
 
@@ -1036,6 +1113,7 @@ public class AWSIotMqttManager {
                 throw new AmazonClientException("Client error while unsubscribing.", e);
             }
             topicListeners.remove(topic);
+            topicRouter.remove(topic);
         }
     }
 
@@ -1168,6 +1246,7 @@ public class AWSIotMqttManager {
                             AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
                             userData);
                 }
+                publishMessagesFromQueue();
             }
         } else if (connectionState == MqttManagerConnectionState.Reconnecting) {
             if (offlinePublishQueueEnabled) {
@@ -1188,8 +1267,9 @@ public class AWSIotMqttManager {
      * if the client is unable to publish (offline).
      * Behavior on a full queue is defined by fullQueueKeepsOldest.  If this is true
      * we keep the oldest values so we skip adding on a full queue.  If this is false
-     * we want the queue to always have the latest values so pop the first element out
-     * and append.
+     * we want the queue to always have the latest values so pop the first elements
+     * that aren't being published out and append. The queue is full when either the
+     * message bound or the byte bound is reached.
      *
      * @param data  byte array of message payload.
      * @param topic message topic.
@@ -1201,64 +1281,57 @@ public class AWSIotMqttManager {
     boolean putMessageInQueue(byte[] data, String topic, AWSIotMqttQos qos,
             PublishMessageUserData publishMessageUserData) {
         final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic, data, qos, publishMessageUserData);
-
-        if (mqttMessageQueue.size() >= offlinePublishQueueBound) {
-            if (fullQueueKeepsOldest) {
-                return false;
-            } else {
-                mqttMessageQueue.remove(0);
-            }
-        }
-
-        mqttMessageQueue.add(message);
-        return true;
+        return mqttMessageQueue.offer(message, offlinePublishQueueBound,
+                offlinePublishQueueByteBound, fullQueueKeepsOldest);
     }
 
     /**
      * Publish messages from the message queue.
      * Called to handle publishing messages accumulated in the message queue when the client was unable to publish.
+     * Publishes until a window of queued messages is in flight. Each completed delivery removes its message from
+     * the queue and publishes the next one, so the queue drains as fast as the broker acknowledges messages.
      */
     void publishMessagesFromQueue() {
-        if (connectionState == MqttManagerConnectionState.Connected && mqttMessageQueue != null
-                && !mqttMessageQueue.isEmpty()) {
-            final AWSIotMqttQueueMessage message = mqttMessageQueue.remove(0);
-            if (message != null) {
-                try {
-                    if (message.getUserData() != null && message.getUserData().getUserCallback() != null) {
-                        // this queued message has a callback, publish passing the user data
-                        mqttClient
-                                .publish(message.getTopic(), message.getMessage(), message.getQos()
-                                        .asInt(), false, message.getUserData(), null);
-                    } else {
-                        // this queued message does not have a callback
-                        mqttClient
-                                .publish(message.getTopic(), message.getMessage(), message.getQos()
-                                        .asInt(), false);
-                    }
-                } catch (final MqttException e) {
-                    // Call this message a failure.  It is possible that this is due to a
-                    // connection issue (we are in this path because the connection dropped),
-                    // however there are also exceptions inherent to the message (valid topic),
-                    // such that publishing this message would never succeed.  It is safer to
-                    // remove the message from the queue and notify failure than to block
-                    // the queue indefinitely.
-                    userPublishCallback(message.getUserData().getUserCallback(),
-                            AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
-                            message.getUserData().getUserData());
+        AWSIotMqttQueueMessage message;
+        while (connectionState == MqttManagerConnectionState.Connected
+                && (message = mqttMessageQueue.nextToPublish(MAX_QUEUED_PUBLISHES_IN_FLIGHT)) != null) {
+            try {
+                // the message is the user context, so its delivery removes it from the queue
+                mqttClient.publish(message.getTopic(), message.getMessage(), message.getQos().asInt(),
+                        false, message, null);
+            } catch (final MqttException e) {
+                if (e.getReasonCode() == MqttException.REASON_CODE_MAX_INFLIGHT) {
+                    // the client is busy with other publishes, try again later
+                    mqttMessageQueue.release(message);
+                    scheduleQueuePublish();
+                    return;
                 }
+                // Call this message a failure.  It is possible that this is due to a
+                // connection issue (we are in this path because the connection dropped),
+                // however there are also exceptions inherent to the message (valid topic),
+                // such that publishing this message would never succeed.  It is safer to
+                // remove the message from the queue and notify failure than to block
+                // the queue indefinitely.
+                mqttMessageQueue.complete(message);
+                userPublishCallback(message.getUserData().getUserCallback(),
+                        AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Fail,
+                        message.getUserData().getUserData());
             }
+        }
+    }
 
-            (new Handler(Looper.getMainLooper())).postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    if (!mqttMessageQueue.isEmpty()) {
-                        if (connectionState == MqttManagerConnectionState.Connected) {
-                            publishMessagesFromQueue();
-                        }
-                    }
+    /**
+     * Publish messages from the message queue after the draining interval.
+     */
+    private void scheduleQueuePublish() {
+        (new Handler(Looper.getMainLooper())).postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                if (!mqttMessageQueue.isEmpty()) {
+                    publishMessagesFromQueue();
                 }
-            }, drainingInterval);
-        }
+            }
+        }, drainingInterval);
     }
 
     /**
@@ -1290,20 +1363,12 @@ public class AWSIotMqttManager {
             }
 
             @Override
-            public void messageArrived(String topic, MqttMessage mqttMessage) throws Exception {
+            public void messageArrived(String topic, MqttMessage mqttMessage)
+                    throws Exception {
                 LOGGER.info("message arrived on topic: " + topic);
                 final byte[] data = mqttMessage.getPayload();
 
-                for (final String topicKey : topicListeners.keySet()) {
-                    if (isTopicMatch(topicKey, topic)) {
-                        final AWSIotMqttTopic topicModel = topicListeners.get(topicKey);
-                        if (topicModel != null) {
-                            if (topicModel.getCallback() != null) {
-                                topicModel.getCallback().onMessageArrived(topic, data);
-                            }
-                        }
-                    }
-                }
+                topicRouter.match(topic, data, MESSAGE_DISPATCHER);
             }
 
             @Override
@@ -1316,6 +1381,14 @@ public class AWSIotMqttManager {
                         userPublishCallback(pmud.getUserCallback(),
                                 AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Success,
                                 pmud.getUserData());
+                    } else if (o instanceof AWSIotMqttQueueMessage) {
+                        final AWSIotMqttQueueMessage message = (AWSIotMqttQueueMessage) o;
+                        if (mqttMessageQueue.complete(message)) {
+                            userPublishCallback(message.getUserData().getUserCallback(),
+                                    AWSIotMqttMessageDeliveryCallback.MessageDeliveryStatus.Success,
+                                    message.getUserData().getUserData());
+                        }
+                        publishMessagesFromQueue();
                     }
                 }
             }
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+import com.amazonaws.AmazonClientException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Queue of messages published while the MQTT client was offline. The queue is
+ * bounded both by a number of messages and by their size in bytes, and keeps
+ * either the oldest or the newest messages when full.
+ * <p>
+ * Messages stay in the queue while they are being published, and are removed
+ * only when their delivery completes, so at most a window of messages is in
+ * flight and the queue drains as fast as the broker acknowledges them.
+ * <p>
+ * When a journal file is set, every change is appended to it and the queue is
+ * loaded from it, so queued messages survive the process being killed. The
+ * journal is rewritten with only the queued messages when it grows well past
+ * them. Delivery callbacks and user data aren't saved.
+ */
+class AWSIotMqttOfflineQueue {
+
+    private static final Log LOGGER = LogFactory.getLog(AWSIotMqttOfflineQueue.class);
+
+    /** Journal record of a queued message. */
+    private static final byte RECORD_PUBLISH = 'P';
+    /** Journal record of a message removed from the queue. */
+    private static final byte RECORD_REMOVE = 'R';
+    /** Size of a remove record in bytes. */
+    private static final int REMOVE_RECORD_SIZE = 9;
+    /** Bytes of removed records the journal may hold before it's rewritten. */
+    private static final long MIN_JOURNAL_COMPACTION_SIZE = 64 * 1024;
+
+    private final LinkedList<AWSIotMqttQueueMessage> messages =
+            new LinkedList<AWSIotMqttQueueMessage>();
+    /** Size in bytes of the queued messages. */
+    private long sizeInBytes;
+    /** Number of queued messages in flight. */
+    private int inFlight;
+    /** Id of the next queued message. */
+    private long nextId;
+
+    /** The journal file, or null if the queue is only kept in memory. */
+    private File journalFile;
+    private DataOutputStream journal;
+    /** Size in bytes of the journal file. */
+    private long journalSize;
+
+    /**
+     * Sets the file the queue is saved to, and loads the messages saved in
+     * it in front of the messages already queued.
+     *
+     * @param file the journal file, or null to only keep the queue in memory.
+     */
+    synchronized void setJournalFile(File file) {
+        closeJournal();
+        journalFile = file;
+        if (file == null) {
+            return;
+        }
+        try {
+            if (file.exists()) {
+                load(file);
+            }
+            rewriteJournal();
+        } catch (final IOException e) {
+            closeJournal();
+            journalFile = null;
+            throw new AmazonClientException("Unable to load the offline publish queue from "
+                    + file, e);
+        }
+    }
+
+    /**
+     * @return true if the queue is saved to a file.
+     */
+    synchronized boolean isPersistent() {
+        return journal != null;
+    }
+
+    /**
+     * Adds a message to the end of the queue. When the message doesn't fit,
+     * either the message is rejected or the oldest messages that aren't in
+     * flight are dropped to make room for it.
+     *
+     * @param message the message.
+     * @param maxMessages the maximum number of messages in the queue.
+     * @param maxBytes the maximum size in bytes of the messages in the queue.
+     * @param keepOldest true to reject the message when the queue is full,
+     *            false to drop the oldest messages.
+     * @return true if the message was queued.
+     */
+    synchronized boolean offer(AWSIotMqttQueueMessage message, int maxMessages, long maxBytes,
+            boolean keepOldest) {
+        final long size = sizeOf(message);
+        if (size > maxBytes) {
+            return false;
+        }
+        if (messages.size() >= maxMessages || sizeInBytes + size > maxBytes) {
+            if (keepOldest) {
+                return false;
+            }
+            final Iterator<AWSIotMqttQueueMessage> iterator = messages.iterator();
+            while (iterator.hasNext()
+                    && (messages.size() >= maxMessages || sizeInBytes + size > maxBytes)) {
+                final AWSIotMqttQueueMessage oldest = iterator.next();
+                if (!oldest.isInFlight()) {
+                    iterator.remove();
+                    sizeInBytes -= sizeOf(oldest);
+                    appendRemove(oldest);
+                }
+            }
+            if (messages.size() >= maxMessages || sizeInBytes + size > maxBytes) {
+                // only messages in flight are left
+                return false;
+            }
+        }
+        message.setId(nextId++);
+        messages.add(message);
+        sizeInBytes += size;
+        appendPublish(message);
+        return true;
+    }
+
+    /**
+     * Takes the oldest message that isn't in flight, unless a window of
+     * messages is already in flight. The message stays queued until
+     * {@link #complete(AWSIotMqttQueueMessage)} or
+     * {@link #release(AWSIotMqttQueueMessage)} is called.
+     *
+     * @param window the maximum number of messages in flight.
+     * @return the message to publish, or null.
+     */
+    synchronized AWSIotMqttQueueMessage nextToPublish(int window) {
+        if (inFlight >= window) {
+            return null;
+        }
+        for (final AWSIotMqttQueueMessage message : messages) {
+            if (!message.isInFlight()) {
+                message.setInFlight(true);
+                inFlight++;
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a message whose publish completed or failed for good.
+     *
+     * @param message a message returned by {@link #nextToPublish(int)}.
+     * @return true if the message was still queued.
+     */
+    synchronized boolean complete(AWSIotMqttQueueMessage message) {
+        if (!messages.remove(message)) {
+            return false;
+        }
+        if (message.isInFlight()) {
+            message.setInFlight(false);
+            inFlight--;
+        }
+        sizeInBytes -= sizeOf(message);
+        appendRemove(message);
+        return true;
+    }
+
+    /**
+     * Makes a message that couldn't be handed to the MQTT client available to
+     * {@link #nextToPublish(int)} again.
+     *
+     * @param message a message returned by {@link #nextToPublish(int)}.
+     */
+    synchronized void release(AWSIotMqttQueueMessage message) {
+        if (message.isInFlight()) {
+            message.setInFlight(false);
+            inFlight--;
+        }
+    }
+
+    /**
+     * Makes all the messages available to {@link #nextToPublish(int)} again.
+     * Called when the connection is established, as the messages in flight
+     * on the previous connection may not have been delivered.
+     */
+    synchronized void releaseAll() {
+        for (final AWSIotMqttQueueMessage message : messages) {
+            message.setInFlight(false);
+        }
+        inFlight = 0;
+    }
+
+    /**
+     * Removes all the messages.
+     */
+    synchronized void clear() {
+        messages.clear();
+        sizeInBytes = 0;
+        inFlight = 0;
+        if (journal != null) {
+            try {
+                rewriteJournal();
+            } catch (final IOException e) {
+                journalFailed(e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of queued messages.
+     */
+    synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * @return true if no message is queued.
+     */
+    synchronized boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    /**
+     * @return the size in bytes of the queued messages.
+     */
+    synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * @return the number of queued messages in flight.
+     */
+    synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * @return a copy of the queued messages, oldest first.
+     */
+    synchronized List<AWSIotMqttQueueMessage> getMessages() {
+        return new ArrayList<AWSIotMqttQueueMessage>(messages);
+    }
+
+    private static long sizeOf(AWSIotMqttQueueMessage message) {
+        return message.getTopic().length() + message.getMessage().length;
+    }
+
+    private void load(File file) throws IOException {
+        final LinkedList<AWSIotMqttQueueMessage> saved = new LinkedList<AWSIotMqttQueueMessage>();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        try {
+            while (true) {
+                final int type = in.read();
+                if (type == -1) {
+                    break;
+                }
+                if (type == RECORD_PUBLISH) {
+                    final long id = in.readLong();
+                    final String topic = in.readUTF();
+                    final AWSIotMqttQos qos = in.readByte() == 0 ? AWSIotMqttQos.QOS0
+                            : AWSIotMqttQos.QOS1;
+                    final int length = in.readInt();
+                    if (length < 0 || length > file.length()) {
+                        LOGGER.warn("Ignoring the corrupt records at the end of " + file);
+                        break;
+                    }
+                    final byte[] data = new byte[length];
+                    in.readFully(data);
+                    final AWSIotMqttQueueMessage message = new AWSIotMqttQueueMessage(topic,
+                            data, qos, new PublishMessageUserData(null, null));
+                    message.setId(id);
+                    saved.add(message);
+                } else if (type == RECORD_REMOVE) {
+                    final long id = in.readLong();
+                    final Iterator<AWSIotMqttQueueMessage> iterator = saved.iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next().getId() == id) {
+                            iterator.remove();
+                            break;
+                        }
+                    }
+                } else {
+                    // only the last record can be partly written, but keep
+                    // what was read rather than losing the whole queue
+                    LOGGER.warn("Ignoring the corrupt records at the end of " + file);
+                    break;
+                }
+            }
+        } catch (final EOFException e) {
+            // the process was killed while appending the last record
+            LOGGER.warn("Ignoring the incomplete last record of " + file);
+        } finally {
+            in.close();
+        }
+
+        for (final AWSIotMqttQueueMessage message : saved) {
+            sizeInBytes += sizeOf(message);
+        }
+        saved.addAll(messages);
+        messages.clear();
+        messages.addAll(saved);
+        nextId = 0;
+        for (final AWSIotMqttQueueMessage message : messages) {
+            message.setId(nextId++);
+        }
+    }
+
+    /**
+     * Replaces the journal with one holding only the queued messages.
+     */
+    private void rewriteJournal() throws IOException {
+        closeJournal();
+        final File temp = new File(journalFile.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp)));
+        journalSize = 0;
+        try {
+            for (final AWSIotMqttQueueMessage message : messages) {
+                writePublish(out, message);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(journalFile)) {
+            throw new IOException("Unable to rename " + temp + " to " + journalFile);
+        }
+        journal = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(journalFile, true)));
+    }
+
+    private void appendPublish(AWSIotMqttQueueMessage message) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            writePublish(journal, message);
+            journal.flush();
+        } catch (final IOException e) {
+            journalFailed(e);
+        }
+    }
+
+    private void appendRemove(AWSIotMqttQueueMessage message) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (journalSize - sizeInBytes > Math.max(sizeInBytes, MIN_JOURNAL_COMPACTION_SIZE)) {
+                rewriteJournal();
+            } else {
+                journal.writeByte(RECORD_REMOVE);
+                journal.writeLong(message.getId());
+                journal.flush();
+                journalSize += REMOVE_RECORD_SIZE;
+            }
+        } catch (final IOException e) {
+            journalFailed(e);
+        }
+    }
+
+    private void writePublish(DataOutputStream out, AWSIotMqttQueueMessage message)
+            throws IOException {
+        final int start = out.size();
+        out.writeByte(RECORD_PUBLISH);
+        out.writeLong(message.getId());
+        out.writeUTF(message.getTopic());
+        out.writeByte(message.getQos().asInt());
+        out.writeInt(message.getMessage().length);
+        out.write(message.getMessage());
+        journalSize += out.size() - start;
+    }
+
+    /**
+     * Keeps the queue in memory after the journal can't be written, rather
+     * than failing the publishes.
+     */
+    private void journalFailed(IOException e) {
+        LOGGER.error("Unable to write the offline publish queue to " + journalFile
+                + ", the queue is now only kept in memory.", e);
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to close " + journalFile, e);
+            }
+            journal = null;
+        }
+    }
+}
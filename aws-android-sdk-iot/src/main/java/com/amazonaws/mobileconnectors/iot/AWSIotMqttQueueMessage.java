@@ -29,6 +29,10 @@ class AWSIotMqttQueueMessage {
     private AWSIotMqttQos qos;
     /** Message delivery user data. */
     private PublishMessageUserData userData;
+    /** Id of the message in the offline queue journal. */
+    private long id;
+    /** Was the message handed to the MQTT client and not yet delivered? */
+    private boolean inFlight;
 
     /**
      * Create a new AWSIotMqttQueueMessage.
@@ -80,4 +84,41 @@ class AWSIotMqttQueueMessage {
     PublishMessageUserData getUserData() {
         return userData;
     }
+
+    /**
+     * Get the id of the message in the offline queue journal.
+     *
+     * @return message id.
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Set the id of the message in the offline queue journal.
+     *
+     * @param id message id.
+     */
+    void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Is the message being published?
+     *
+     * @return true if the message was handed to the MQTT client and its
+     *         delivery isn't complete yet.
+     */
+    boolean isInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Set whether the message is being published.
+     *
+     * @param inFlight true if the message was handed to the MQTT client.
+     */
+    void setInFlight(boolean inFlight) {
+        this.inFlight = inFlight;
+    }
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+/**
+ * A trie of MQTT topic filters, used to find the subscriptions matching the
+ * topic of an incoming message. Each level of a filter is a node, and the
+ * wildcards {@code +} and {@code #} are kept apart from the literal levels,
+ * so a message only visits the branches that can match it instead of every
+ * subscription.
+ * <p>
+ * Literal children are held in an immutable open addressing table that is
+ * replaced as a whole on change. Subscribing and unsubscribing only copy the
+ * table of the node they change, and are serialized with each other.
+ * Matching never locks and doesn't allocate: topic levels are hashed and
+ * compared in place rather than split.
+ *
+ * @param <V> the type of the values stored for the filters
+ */
+class TopicTrie<V> {
+
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+    private static final char LEVEL_SEPARATOR = '/';
+
+    /**
+     * Receives the values of the filters matching a topic. The state of a
+     * match is passed in, so one visitor can serve every match.
+     *
+     * @param <V> the type of the values
+     * @param <A> the type of the argument passed through a match
+     */
+    interface Visitor<V, A> {
+        /**
+         * @param value the value of a matching filter
+         * @param topic the topic being matched
+         * @param argument the argument given to the match
+         */
+        void visit(V value, String topic, A argument);
+    }
+
+    private final Node<V> root = new Node<V>();
+    private int size;
+
+    /**
+     * Stores a value for a topic filter, replacing the value the filter had.
+     *
+     * @param topicFilter the topic filter, which may contain wildcards
+     * @param value the value, not null
+     * @return the previous value of the filter, or null
+     */
+    synchronized V put(String topicFilter, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value can't be null");
+        }
+        Node<V> node = root;
+        int start = 0;
+        while (true) {
+            int end = topicFilter.indexOf(LEVEL_SEPARATOR, start);
+            final boolean last = end < 0;
+            if (last) {
+                end = topicFilter.length();
+            }
+            final String level = topicFilter.substring(start, end);
+            if (MULTI_LEVEL_WILDCARD.equals(level)) {
+                if (!last) {
+                    throw new IllegalArgumentException("# must be the last level of a topic filter: "
+                            + topicFilter);
+                }
+                final V previous = node.multiLevelValue;
+                node.multiLevelValue = value;
+                return added(previous);
+            }
+            final Node<V> child = node.getOrCreateChild(level);
+            if (last) {
+                final V previous = child.value;
+                child.value = value;
+                return added(previous);
+            }
+            node = child;
+            start = end + 1;
+        }
+    }
+
+    private V added(V previous) {
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * Removes a topic filter.
+     *
+     * @param topicFilter the topic filter
+     * @return the value of the filter, or null if it wasn't stored
+     */
+    synchronized V remove(String topicFilter) {
+        final V previous = remove(root, topicFilter, 0);
+        if (previous != null) {
+            size--;
+        }
+        return previous;
+    }
+
+    private V remove(Node<V> node, String topicFilter, int start) {
+        int end = topicFilter.indexOf(LEVEL_SEPARATOR, start);
+        final boolean last = end < 0;
+        if (last) {
+            end = topicFilter.length();
+        }
+        final String level = topicFilter.substring(start, end);
+        if (last && MULTI_LEVEL_WILDCARD.equals(level)) {
+            final V previous = node.multiLevelValue;
+            node.multiLevelValue = null;
+            return previous;
+        }
+        final Node<V> child = node.getChild(level);
+        if (child == null) {
+            return null;
+        }
+        final V previous;
+        if (last) {
+            previous = child.value;
+            child.value = null;
+        } else {
+            previous = remove(child, topicFilter, end + 1);
+        }
+        if (child.isEmpty()) {
+            // prune the branch so the trie doesn't keep unsubscribed levels
+            node.removeChild(level);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes all topic filters.
+     */
+    synchronized void clear() {
+        root.value = null;
+        root.multiLevelValue = null;
+        root.singleLevelChild = null;
+        root.children = Children.empty();
+        size = 0;
+    }
+
+    /**
+     * @return the number of topic filters stored.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Visits the value of every stored filter matching a topic, once per
+     * filter.
+     *
+     * @param topic the topic of a message, without wildcards
+     * @param argument passed to the visitor with every value
+     * @param visitor receives the values of the matching filters
+     * @param <A> the type of the argument
+     */
+    <A> void match(String topic, A argument, Visitor<? super V, ? super A> visitor) {
+        match(root, topic, 0, argument, visitor);
+    }
+
+    private <A> void match(Node<V> node, String topic, int start, A argument,
+            Visitor<? super V, ? super A> visitor) {
+        // '#' matches this level and all the levels after it
+        final V multiLevelValue = node.multiLevelValue;
+        if (multiLevelValue != null) {
+            visitor.visit(multiLevelValue, topic, argument);
+        }
+
+        int end = topic.indexOf(LEVEL_SEPARATOR, start);
+        final boolean last = end < 0;
+        if (last) {
+            end = topic.length();
+        }
+        final Node<V> child = node.children.get(topic, start, end);
+        if (child != null) {
+            matchChild(child, topic, end, last, argument, visitor);
+        }
+        final Node<V> singleLevelChild = node.singleLevelChild;
+        if (singleLevelChild != null) {
+            matchChild(singleLevelChild, topic, end, last, argument, visitor);
+        }
+    }
+
+    private <A> void matchChild(Node<V> child, String topic, int end, boolean last, A argument,
+            Visitor<? super V, ? super A> visitor) {
+        if (last) {
+            final V value = child.value;
+            if (value != null) {
+                visitor.visit(value, topic, argument);
+            }
+        } else {
+            match(child, topic, end + 1, argument, visitor);
+        }
+    }
+
+    /**
+     * A level of topic filters. Fields are written while holding the trie's
+     * lock and read without it.
+     */
+    private static final class Node<V> {
+        /** The value of the filter ending at this level. */
+        volatile V value;
+        /** The value of the filter ending at the '#' after this level. */
+        volatile V multiLevelValue;
+        /** The '+' level after this level. */
+        volatile Node<V> singleLevelChild;
+        /** The literal levels after this level. */
+        volatile Children<V> children = Children.empty();
+
+        Node<V> getChild(String level) {
+            if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+                return singleLevelChild;
+            }
+            return children.get(level, 0, level.length());
+        }
+
+        Node<V> getOrCreateChild(String level) {
+            Node<V> child = getChild(level);
+            if (child == null) {
+                child = new Node<V>();
+                if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+                    singleLevelChild = child;
+                } else {
+                    children = children.with(level, child);
+                }
+            }
+            return child;
+        }
+
+        void removeChild(String level) {
+            if (SINGLE_LEVEL_WILDCARD.equals(level)) {
+                singleLevelChild = null;
+            } else {
+                children = children.without(level);
+            }
+        }
+
+        boolean isEmpty() {
+            return value == null && multiLevelValue == null && singleLevelChild == null
+                    && children.size == 0;
+        }
+    }
+
+    /**
+     * An immutable hash table of literal levels, probed with regions of a
+     * topic so no level string is created while matching.
+     */
+    private static final class Children<V> {
+        private static final Children<Object> EMPTY = new Children<Object>(1);
+
+        final String[] levels;
+        final Node<V>[] nodes;
+        final int size;
+
+        @SuppressWarnings("unchecked")
+        static <V> Children<V> empty() {
+            return (Children<V>) EMPTY;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Children(int capacity) {
+            levels = new String[capacity];
+            nodes = new Node[capacity];
+            size = 0;
+        }
+
+        private Children(String[] levels, Node<V>[] nodes, int size) {
+            this.levels = levels;
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        Node<V> get(String topic, int start, int end) {
+            final int length = end - start;
+            final int mask = levels.length - 1;
+            // the same as String.hashCode() of the level
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + topic.charAt(i);
+            }
+            for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+                final String level = levels[i];
+                if (level == null) {
+                    return null;
+                }
+                if (level.length() == length && topic.regionMatches(start, level, 0, length)) {
+                    return nodes[i];
+                }
+            }
+        }
+
+        Children<V> with(String level, Node<V> node) {
+            int capacity = levels.length;
+            // keep at least half of the slots free
+            while ((size + 1) * 2 > capacity) {
+                capacity <<= 1;
+            }
+            final Children<V> copy = new Children<V>(capacity);
+            for (int i = 0; i < levels.length; i++) {
+                if (levels[i] != null) {
+                    copy.insert(levels[i], nodes[i]);
+                }
+            }
+            copy.insert(level, node);
+            return new Children<V>(copy.levels, copy.nodes, size + 1);
+        }
+
+        Children<V> without(String level) {
+            final Children<V> copy = new Children<V>(levels.length);
+            for (int i = 0; i < levels.length; i++) {
+                if (levels[i] != null && !levels[i].equals(level)) {
+                    copy.insert(levels[i], nodes[i]);
+                }
+            }
+            return new Children<V>(copy.levels, copy.nodes, size - 1);
+        }
+
+        private void insert(String level, Node<V> node) {
+            final int mask = levels.length - 1;
+            int i = spread(level.hashCode()) & mask;
+            while (levels[i] != null) {
+                i = (i + 1) & mask;
+            }
+            levels[i] = level;
+            nodes[i] = node;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
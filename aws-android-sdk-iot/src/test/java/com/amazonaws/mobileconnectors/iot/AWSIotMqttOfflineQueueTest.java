@@ -0,0 +1,279 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AWSIotMqttOfflineQueueTest {
+
+    private static final int MAX_MESSAGES = 100;
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File journalFile;
+
+    @Before
+    public void setup() {
+        journalFile = new File(folder.getRoot(), "offline-queue");
+    }
+
+    @Test
+    public void testReloadAfterRestart() {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        assertTrue(queue.isPersistent());
+        offer(queue, message("topic/a", "first", AWSIotMqttQos.QOS0));
+        final AWSIotMqttQueueMessage second = message("topic/b", "second", AWSIotMqttQos.QOS1);
+        offer(queue, second);
+        offer(queue, message("topic/c", "third", AWSIotMqttQos.QOS1));
+        assertTrue(queue.complete(second));
+        queue.setJournalFile(null);
+
+        final AWSIotMqttOfflineQueue reloaded = persistentQueue();
+        final List<AWSIotMqttQueueMessage> messages = reloaded.getMessages();
+        assertEquals(2, messages.size());
+        assertMessage(messages.get(0), "topic/a", "first", AWSIotMqttQos.QOS0);
+        assertMessage(messages.get(1), "topic/c", "third", AWSIotMqttQos.QOS1);
+        assertEquals(queue.getSizeInBytes(), reloaded.getSizeInBytes());
+        assertEquals(0, reloaded.getInFlightCount());
+    }
+
+    @Test
+    public void testMessagesQueuedBeforeLoadGoAfterSavedOnes() {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        offer(queue, message("topic", "saved", AWSIotMqttQos.QOS1));
+        queue.setJournalFile(null);
+
+        final AWSIotMqttOfflineQueue restarted = new AWSIotMqttOfflineQueue();
+        offer(restarted, message("topic", "new", AWSIotMqttQos.QOS1));
+        restarted.setJournalFile(journalFile);
+        assertPayloads(restarted, "saved", "new");
+
+        // the ids given on load don't clash with the ones in the journal
+        assertTrue(restarted.complete(restarted.getMessages().get(0)));
+        restarted.setJournalFile(null);
+        assertPayloads(persistentQueue(), "new");
+    }
+
+    @Test
+    public void testEvictionAtCountCap() {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(queue.offer(message("topic", "m" + i, AWSIotMqttQos.QOS1), 3, MAX_BYTES, false));
+        }
+        assertFalse(queue.offer(message("topic", "rejected", AWSIotMqttQos.QOS1), 3, MAX_BYTES, true));
+        assertPayloads(queue, "m0", "m1", "m2");
+
+        assertTrue(queue.offer(message("topic", "m3", AWSIotMqttQos.QOS1), 3, MAX_BYTES, false));
+        assertPayloads(queue, "m1", "m2", "m3");
+
+        // messages in flight aren't dropped
+        assertEquals("m1", payload(queue.nextToPublish(1)));
+        assertTrue(queue.offer(message("topic", "m4", AWSIotMqttQos.QOS1), 3, MAX_BYTES, false));
+        assertPayloads(queue, "m1", "m3", "m4");
+
+        queue.setJournalFile(null);
+        assertPayloads(persistentQueue(), "m1", "m3", "m4");
+    }
+
+    @Test
+    public void testEvictionAtByteCap() {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        // each message is 5 bytes of topic and 5 bytes of payload
+        final long maxBytes = 30;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(queue.offer(message("topic", "msg-" + i, AWSIotMqttQos.QOS1), MAX_MESSAGES,
+                    maxBytes, false));
+        }
+        assertEquals(30, queue.getSizeInBytes());
+        assertFalse(queue.offer(message("topic", "msg-3", AWSIotMqttQos.QOS1), MAX_MESSAGES,
+                maxBytes, true));
+
+        // a message twice as big drops the two oldest
+        assertTrue(queue.offer(message("topic", "message-4-", AWSIotMqttQos.QOS1), MAX_MESSAGES,
+                maxBytes, false));
+        assertPayloads(queue, "msg-2", "message-4-");
+        assertEquals(25, queue.getSizeInBytes());
+
+        // a message bigger than the cap is never queued
+        assertFalse(queue.offer(message("topic", "a message that is much too big", AWSIotMqttQos.QOS1),
+                MAX_MESSAGES, maxBytes, false));
+        assertPayloads(queue, "msg-2", "message-4-");
+
+        // a queue holding only messages in flight rejects new ones
+        queue.nextToPublish(2);
+        queue.nextToPublish(2);
+        assertFalse(queue.offer(message("topic", "msg-5", AWSIotMqttQos.QOS1), MAX_MESSAGES,
+                maxBytes, false));
+        assertEquals(2, queue.getInFlightCount());
+
+        queue.setJournalFile(null);
+        final AWSIotMqttOfflineQueue reloaded = persistentQueue();
+        assertPayloads(reloaded, "msg-2", "message-4-");
+        assertEquals(25, reloaded.getSizeInBytes());
+    }
+
+    @Test
+    public void testTruncatedTailRecordIsIgnored() throws IOException {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        offer(queue, message("topic", "first", AWSIotMqttQos.QOS1));
+        offer(queue, message("topic", "second", AWSIotMqttQos.QOS1));
+        offer(queue, message("topic", "third", AWSIotMqttQos.QOS1));
+        queue.setJournalFile(null);
+
+        // the process was killed while writing the payload of the last record
+        final RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        try {
+            file.setLength(file.length() - 2);
+        } finally {
+            file.close();
+        }
+
+        final AWSIotMqttOfflineQueue reloaded = persistentQueue();
+        assertPayloads(reloaded, "first", "second");
+
+        // the journal was rewritten without the partial record
+        offer(reloaded, message("topic", "fourth", AWSIotMqttQos.QOS1));
+        reloaded.setJournalFile(null);
+        assertPayloads(persistentQueue(), "first", "second", "fourth");
+    }
+
+    @Test
+    public void testCorruptTailRecordIsIgnored() throws IOException {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        offer(queue, message("topic", "first", AWSIotMqttQos.QOS1));
+        offer(queue, message("topic", "second", AWSIotMqttQos.QOS1));
+        queue.setJournalFile(null);
+
+        final DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true));
+        try {
+            out.writeBytes("garbage");
+        } finally {
+            out.close();
+        }
+        final AWSIotMqttOfflineQueue reloaded = persistentQueue();
+        assertPayloads(reloaded, "first", "second");
+        reloaded.setJournalFile(null);
+
+        // a publish record with a length that can't be right
+        final DataOutputStream corrupt = new DataOutputStream(new FileOutputStream(journalFile, true));
+        try {
+            corrupt.writeByte('P');
+            corrupt.writeLong(2);
+            corrupt.writeUTF("topic");
+            corrupt.writeByte(1);
+            corrupt.writeInt(Integer.MAX_VALUE);
+        } finally {
+            corrupt.close();
+        }
+        assertPayloads(persistentQueue(), "first", "second");
+    }
+
+    @Test
+    public void testCompactionKeepsInFlightOrder() {
+        final AWSIotMqttOfflineQueue queue = persistentQueue();
+        final String payload = new String(new char[10 * 1024]).replace('\0', 'x');
+        final List<AWSIotMqttQueueMessage> inFlight = new ArrayList<AWSIotMqttQueueMessage>();
+        for (int i = 0; i < 3; i++) {
+            offer(queue, message("topic/" + i, payload, AWSIotMqttQos.QOS1));
+            inFlight.add(queue.nextToPublish(3));
+        }
+        offer(queue, message("topic/waiting", payload, AWSIotMqttQos.QOS1));
+        assertNull(queue.nextToPublish(3));
+
+        // delivered messages leave records behind until the journal is
+        // compacted
+        for (int i = 0; i < 20; i++) {
+            final AWSIotMqttQueueMessage delivered = message("topic/delivered", payload,
+                    AWSIotMqttQos.QOS1);
+            offer(queue, delivered);
+            assertTrue(queue.complete(delivered));
+        }
+        // without compaction the journal would hold all 24 payloads
+        assertTrue(journalFile.length() < 24 * payload.length() / 2);
+
+        final List<AWSIotMqttQueueMessage> messages = queue.getMessages();
+        assertEquals(4, messages.size());
+        for (int i = 0; i < 3; i++) {
+            assertSame(inFlight.get(i), messages.get(i));
+            assertTrue(messages.get(i).isInFlight());
+        }
+        assertEquals(3, queue.getInFlightCount());
+
+        // ids survive the compaction, so later removes match their records
+        assertTrue(queue.complete(inFlight.get(1)));
+        queue.setJournalFile(null);
+
+        final List<AWSIotMqttQueueMessage> reloaded = persistentQueue().getMessages();
+        assertEquals(3, reloaded.size());
+        assertEquals("topic/0", reloaded.get(0).getTopic());
+        assertEquals("topic/2", reloaded.get(1).getTopic());
+        assertEquals("topic/waiting", reloaded.get(2).getTopic());
+    }
+
+    private AWSIotMqttOfflineQueue persistentQueue() {
+        final AWSIotMqttOfflineQueue queue = new AWSIotMqttOfflineQueue();
+        queue.setJournalFile(journalFile);
+        return queue;
+    }
+
+    private static void offer(AWSIotMqttOfflineQueue queue, AWSIotMqttQueueMessage message) {
+        assertTrue(queue.offer(message, MAX_MESSAGES, MAX_BYTES, false));
+    }
+
+    private static AWSIotMqttQueueMessage message(String topic, String payload, AWSIotMqttQos qos) {
+        return new AWSIotMqttQueueMessage(topic, payload.getBytes(), qos,
+                new PublishMessageUserData(null, null));
+    }
+
+    private static String payload(AWSIotMqttQueueMessage message) {
+        return new String(message.getMessage());
+    }
+
+    private static void assertMessage(AWSIotMqttQueueMessage message, String topic, String payload,
+            AWSIotMqttQos qos) {
+        assertEquals(topic, message.getTopic());
+        assertArrayEquals(payload.getBytes(), message.getMessage());
+        assertEquals(qos, message.getQos());
+    }
+
+    private static void assertPayloads(AWSIotMqttOfflineQueue queue, String... payloads) {
+        final List<AWSIotMqttQueueMessage> messages = queue.getMessages();
+        assertEquals(payloads.length, messages.size());
+        for (int i = 0; i < payloads.length; i++) {
+            assertEquals(payloads[i], payload(messages.get(i)));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.iot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class TopicTrieTest {
+
+    private static final String[] LEVELS = {
+            "a", "b", "c", "thing-1", "$aws", ""
+    };
+
+    private static final TopicTrie.Visitor<String, List<String>> COLLECTOR =
+            new TopicTrie.Visitor<String, List<String>>() {
+                @Override
+                public void visit(String value, String topic, List<String> matches) {
+                    matches.add(value);
+                }
+            };
+
+    @Test
+    public void testMatchesLikeIsTopicMatch() {
+        final Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            final TopicTrie<String> trie = new TopicTrie<String>();
+            final Set<String> filters = new HashSet<String>();
+            final int filterCount = 1 + random.nextInt(30);
+            for (int i = 0; i < filterCount; i++) {
+                final String filter = randomFilter(random);
+                assertEquals(filters.add(filter) ? null : filter, trie.put(filter, filter));
+            }
+            assertEquals(filters.size(), trie.size());
+            assertSameMatches(random, trie, filters);
+
+            // removing filters prunes the trie without losing the others
+            final List<String> removed = new ArrayList<String>(filters);
+            Collections.shuffle(removed, random);
+            for (final String filter : removed.subList(0, removed.size() / 2)) {
+                assertEquals(filter, trie.remove(filter));
+                assertNull(trie.remove(filter));
+                filters.remove(filter);
+            }
+            assertEquals(filters.size(), trie.size());
+            assertSameMatches(random, trie, filters);
+        }
+    }
+
+    @Test
+    public void testTrailingSeparatorMatchesMultiLevelWildcard() {
+        final TopicTrie<String> trie = new TopicTrie<String>();
+        trie.put("a/#", "a/#");
+        assertEquals(Collections.singletonList("a/#"), match(trie, "a/"));
+        assertEquals(Collections.singletonList("a/#"), match(trie, "a/b/c"));
+        assertTrue(match(trie, "a").isEmpty());
+    }
+
+    @Test
+    public void testMultiLevelWildcardMustBeLast() {
+        try {
+            new TopicTrie<String>().put("a/#/b", "value");
+            fail();
+        } catch (final IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testClear() {
+        final TopicTrie<String> trie = new TopicTrie<String>();
+        trie.put("#", "#");
+        trie.put("a/+", "a/+");
+        trie.clear();
+        assertEquals(0, trie.size());
+        assertTrue(match(trie, "a/b").isEmpty());
+    }
+
+    private static void assertSameMatches(Random random, TopicTrie<String> trie,
+            Set<String> filters) {
+        for (int i = 0; i < 50; i++) {
+            final String topic = randomTopic(random);
+            final Set<String> expected = new HashSet<String>();
+            for (final String filter : filters) {
+                if (AWSIotMqttManager.isTopicMatch(filter, topic)) {
+                    expected.add(filter);
+                }
+            }
+            final List<String> matches = match(trie, topic);
+            // every matching filter is visited once
+            assertEquals(topic, matches.size(), new HashSet<String>(matches).size());
+            assertEquals(topic, expected, new HashSet<String>(matches));
+        }
+    }
+
+    private static List<String> match(TopicTrie<String> trie, String topic) {
+        final List<String> matches = new ArrayList<String>();
+        trie.match(topic, matches, COLLECTOR);
+        return matches;
+    }
+
+    /**
+     * isTopicMatch drops trailing empty levels, where the trie follows the
+     * MQTT spec, so the last level is never empty.
+     */
+    private static String randomTopic(Random random) {
+        final StringBuilder topic = new StringBuilder();
+        final int levels = 1 + random.nextInt(5);
+        for (int i = 0; i < levels; i++) {
+            if (i > 0) {
+                topic.append('/');
+            }
+            topic.append(LEVELS[random.nextInt(i == levels - 1 ? LEVELS.length - 1
+                    : LEVELS.length)]);
+        }
+        return topic.toString();
+    }
+
+    private static String randomFilter(Random random) {
+        final StringBuilder filter = new StringBuilder();
+        final int levels = 1 + random.nextInt(5);
+        for (int i = 0; i < levels; i++) {
+            if (i > 0) {
+                filter.append('/');
+            }
+            final int choice = random.nextInt(LEVELS.length + 2);
+            if (choice == LEVELS.length) {
+                filter.append('+');
+            } else if (choice == LEVELS.length + 1 && i == levels - 1) {
+                filter.append('#');
+            } else {
+                filter.append(LEVELS[random.nextInt(i == levels - 1 ? LEVELS.length - 1
+                        : LEVELS.length)]);
+            }
+        }
+        return filter.toString();
+    }
+}
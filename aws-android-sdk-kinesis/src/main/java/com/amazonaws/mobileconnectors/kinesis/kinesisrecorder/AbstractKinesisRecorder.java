@@ -18,14 +18,21 @@ package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordMark;
 import com.amazonaws.util.StringUtils;
+import com.amazonaws.util.ThreadPools;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * An abstract class for Amazon Kinesis recorders. It manages local file store
@@ -53,6 +60,10 @@ public abstract class AbstractKinesisRecorder {
     protected KinesisRecorderConfig config;
     protected FileRecordStore recordStore;
 
+    /** Sends the batches of pipelined submissions. Guarded by this recorder. */
+    private ExecutorService submitExecutor;
+    private int submitExecutorThreads;
+
     /**
      * Gets the sender to send saved records.
      *
@@ -74,6 +85,28 @@ public abstract class AbstractKinesisRecorder {
         this.config = config;
     }
 
+    /**
+     * Creates the local file store configured by the given config.
+     *
+     * @param directory working directory
+     * @param recordFileName name of the records file
+     * @param config configuration
+     * @return a {@link FileRecordStore}
+     */
+    static FileRecordStore newRecordStore(File directory, String recordFileName,
+            KinesisRecorderConfig config) {
+        if (config.isBinaryRecordFormatEnabled()) {
+            return new BinaryFileRecordStore(directory, recordFileName,
+                    config.getMaxStorageSize(), config.getSegmentSize(),
+                    config.isRecordChecksumEnabled());
+        }
+        if (config.isSegmentedStorageEnabled()) {
+            return new SegmentedFileRecordStore(directory, recordFileName,
+                    config.getMaxStorageSize(), config.getSegmentSize());
+        }
+        return new FileRecordStore(directory, recordFileName, config.getMaxStorageSize());
+    }
+
     /**
      * Saves a string to local storage to be sent later. It's a convenient
      * method to save the UTF-8 encoded bytes of the string.
@@ -97,7 +130,7 @@ public abstract class AbstractKinesisRecorder {
      */
     public void saveRecord(byte[] data, String streamName) {
         try {
-            recordStore.put(FileRecordParser.asString(streamName, data));
+            recordStore.putRecord(streamName, data);
         } catch (final IOException e) {
             throw new AmazonClientException("Error saving record", e);
         }
@@ -111,6 +144,11 @@ public abstract class AbstractKinesisRecorder {
      * invalid) will be deleted. Note: Since KinesisRecorder uses synchronous
      * methods to make calls to Amazon Kinesis, do not call submitAll() on the
      * main thread of your application.
+     * <p>
+     * If {@link KinesisRecorderConfig#getMaxInFlightBatches()} is greater than
+     * one, batches are sent concurrently, including batches of the same
+     * stream, so they may arrive out of order. Records are only removed once
+     * they and every record saved before them have been sent.
      *
      * @throws AmazonClientException Thrown if there was an unrecoverable error
      *             during submission. Note: If the request appears to be
@@ -118,6 +156,11 @@ public abstract class AbstractKinesisRecorder {
      *             to be valid, it will be kept.
      */
     public synchronized void submitAllRecords() {
+        if (config != null && config.getMaxInFlightBatches() > 1) {
+            submitAllRecordsPipelined(config.getMaxInFlightBatches());
+            return;
+        }
+
         final RecordSender sender = getRecordSender();
         final RecordIterator iterator = recordStore.iterator();
         final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
@@ -216,6 +259,189 @@ public abstract class AbstractKinesisRecorder {
         }
     }
 
+    /**
+     * Submits all saved records with up to the given number of batches in
+     * flight. Batches are read and records are removed on the calling thread,
+     * while the requests are made on the recorder's thread pool. Batches may
+     * complete out of order, but records are removed only up to the first
+     * batch that hasn't completed, and the failed records of a batch are only
+     * saved again once the batch has been removed.
+     *
+     * @param maxInFlight maximum number of batches in flight
+     */
+    private void submitAllRecordsPipelined(int maxInFlight) {
+        final RecordSender sender = getRecordSender();
+        final ExecutorService executor = getSubmitExecutor(maxInFlight);
+        final RecordIterator iterator = recordStore.iterator();
+        final BlockingQueue<Batch> completions = new LinkedBlockingQueue<Batch>();
+        // batches whose records haven't been removed, in the order read
+        final LinkedList<Batch> outstanding = new LinkedList<Batch>();
+        int inFlight = 0;
+        int retry = 0;
+        int count = 0;
+        boolean unknownErrorRetried = false;
+        RuntimeException error = null;
+        try {
+            while (true) {
+                while (error == null && inFlight < maxInFlight && retry < MAX_RETRY_COUNT) {
+                    final List<byte[]> data = new ArrayList<byte[]>(MAX_RECORDS_PER_BATCH);
+                    final String streamName = nextBatch(iterator, data, MAX_RECORDS_PER_BATCH,
+                            MAX_BATCH_RECORDS_SIZE_BYTES);
+                    if (streamName == null || data.isEmpty()) {
+                        break;
+                    }
+                    final Batch batch = new Batch(streamName, data, iterator.mark());
+                    outstanding.add(batch);
+                    inFlight++;
+                    send(executor, sender, batch, completions);
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+
+                final Batch batch = completions.take();
+                inFlight--;
+
+                final AmazonClientException ace = batch.error instanceof AmazonClientException
+                        ? (AmazonClientException) batch.error : null;
+                if (ace != null && !unknownErrorRetried && ace.getMessage() != null
+                        && ace.getMessage().contains("Unable to unmarshall error response")) {
+                    // Retry once for unforeseen error, possible kinesis error without shape
+                    unknownErrorRetried = true;
+                    batch.error = null;
+                    batch.failures = batch.data;
+                }
+
+                if (batch.error == null) {
+                    final int successCount = batch.data.size() - batch.failures.size();
+                    count += successCount;
+                    if (successCount == 0) {
+                        // no record went through, increase retry count.
+                        retry++;
+                    }
+                    batch.done = true;
+                } else if (ace == null || sender.isRecoverable(ace)) {
+                    if (ace != null) {
+                        LOGGER.error(
+                                "ServiceException in submit all, the values of the data inside the requests appears valid.  The request will be kept",
+                                ace);
+                    }
+                    if (error == null) {
+                        error = batch.error;
+                    }
+                } else {
+                    // Data is dead and should be added to dead letter queue
+                    try {
+                        this.config.getDeadLetterListener().onRecordsDropped(batch.streamName,
+                                batch.data);
+                    } catch (Exception e) {
+                        LOGGER.error("DeadLetterListener onRecordsDropped has thrown an exception (user code)", e);
+                    }
+                    LOGGER.error(
+                            "ServiceException in submit all, the last request is presumed to be the cause and will be dropped",
+                            ace);
+                    batch.done = true;
+                    if (error == null) {
+                        error = ace;
+                    }
+                }
+
+                // remove records up to the first batch still in flight
+                final List<Batch> removed = new ArrayList<Batch>();
+                while (!outstanding.isEmpty() && outstanding.getFirst().done) {
+                    removed.add(outstanding.removeFirst());
+                }
+                if (!removed.isEmpty()) {
+                    iterator.removeRecordsUpTo(removed.get(removed.size() - 1).mark);
+                    /*
+                     * The failed records of a batch are saved again only now
+                     * that the batch is removed. A batch kept because an
+                     * earlier one failed is sent again in full next time.
+                     */
+                    for (final Batch b : removed) {
+                        if (b.failures != null) {
+                            for (final byte[] bytes : b.failures) {
+                                saveRecord(bytes, b.streamName);
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (error != null) {
+                throw error;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while submitting records", e);
+        } catch (final IOException e) {
+            throw new AmazonClientException("Failed to remove read records", e);
+        } finally {
+            LOGGER.debug(String.format("submitAllRecords sent %d records", count));
+            try {
+                iterator.close();
+            } catch (final IOException e) {
+                throw new AmazonClientException("Failed to close record file", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the thread pool sending the batches of this recorder, created on
+     * first use. Its idle threads time out, so an idle recorder holds none.
+     *
+     * @param threads the maximum number of batches in flight
+     * @return the thread pool
+     */
+    private ExecutorService getSubmitExecutor(int threads) {
+        if (submitExecutor == null || submitExecutorThreads != threads) {
+            if (submitExecutor != null) {
+                submitExecutor.shutdown();
+            }
+            submitExecutor = ThreadPools.newDaemonThreadPool("kinesis-recorder-submit-",
+                    threads);
+            submitExecutorThreads = threads;
+        }
+        return submitExecutor;
+    }
+
+    private static void send(ExecutorService executor, final RecordSender sender,
+            final Batch batch, final BlockingQueue<Batch> completions) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    batch.failures = sender.sendBatch(batch.streamName, batch.data);
+                } catch (final RuntimeException e) {
+                    batch.error = e;
+                } finally {
+                    completions.add(batch);
+                }
+            }
+        });
+    }
+
+    /**
+     * A batch of records of one stream being submitted.
+     */
+    private static final class Batch {
+        final String streamName;
+        final List<byte[]> data;
+        /** Position just after the last record of the batch. */
+        final RecordMark mark;
+        /** The records to save again once the batch is removed, or null. */
+        List<byte[]> failures;
+        RuntimeException error;
+        /** Whether the records of the batch can be removed. */
+        boolean done;
+
+        Batch(String streamName, List<byte[]> data, RecordMark mark) {
+            this.streamName = streamName;
+            this.data = data;
+            this.mark = mark;
+        }
+    }
+
     /**
      * Reads a batch of records belong to the same stream into a list. If data
      * is read successfully, the stream name is returned.
@@ -235,21 +461,7 @@ public abstract class AbstractKinesisRecorder {
         int size = 0;
         int count = 0;
         final FileRecordParser frp = new FileRecordParser();
-        while (iterator.hasNext() && count < maxCount && size < maxSize) {
-            final String line = iterator.peek();
-            if (line == null || line.isEmpty()) {
-                iterator.next();
-                continue;
-            }
-            // parse a line. Skip in case of corrupted data
-            try {
-                frp.parse(line);
-            } catch (final Exception e) {
-                LOGGER.warn("Failed to read line. Skip.", e);
-                iterator.next();
-                continue;
-            }
-
+        while (count < maxCount && size < maxSize && iterator.peekRecord(frp)) {
             // check whether it belongs to previous batch
             if (lastStreamName == null || lastStreamName.equals(frp.streamName)) {
                 data.add(frp.bytes);
@@ -257,7 +469,7 @@ public abstract class AbstractKinesisRecorder {
                 count++;
                 size += frp.bytes.length;
                 lastStreamName = frp.streamName;
-                iterator.next();
+                iterator.skip();
             } else {
                 break;
             }
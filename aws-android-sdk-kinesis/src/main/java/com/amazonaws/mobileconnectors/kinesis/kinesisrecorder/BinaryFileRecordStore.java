@@ -0,0 +1,490 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.StringUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link SegmentedFileRecordStore} that stores records as binary frames
+ * rather than Base64 encoded lines. Each frame is laid out as
+ *
+ * <pre>
+ * flags (1 byte) | stream id (varint) | data length (varint) | data | CRC32 (4 bytes, optional)
+ * </pre>
+ *
+ * Stream names are interned in a table file next to the segments, so a frame
+ * only carries the id of its stream. The CRC32 of the data is present when the
+ * checksum flag is set. Records saved in the line format of
+ * {@link FileRecordStore} or {@link SegmentedFileRecordStore} are converted
+ * the first time this store is opened.
+ * <p>
+ * A frame that can't be parsed is skipped up to the next offset where a valid
+ * frame starts and is followed by another valid frame or the end of the
+ * segment, so a corrupted byte only loses the records around it.
+ */
+final class BinaryFileRecordStore extends SegmentedFileRecordStore {
+    private static final Log LOGGER = LogFactory.getLog(BinaryFileRecordStore.class);
+
+    /**
+     * Suffix of the directory holding the binary segments of a record store.
+     */
+    static final String BINARY_DIRECTORY_SUFFIX = ".binary";
+    /**
+     * Name of the file holding the stream name table.
+     */
+    static final String STREAMS_FILE_NAME = "streams";
+
+    private static final int FLAG_CHECKSUM = 0x01;
+    /** Flags byte plus two varints of at most 5 bytes each. */
+    private static final int MAX_HEADER_LENGTH = 11;
+    private static final int CHECKSUM_LENGTH = 4;
+
+    /**
+     * Binary frames. A torn frame at the end of the active segment is
+     * truncated.
+     */
+    private static final SegmentFormat BINARY_FORMAT = new SegmentFormat() {
+        @Override
+        public boolean isLineFormat() {
+            return false;
+        }
+
+        @Override
+        public void recover(FileManager fileManager, File active) throws IOException {
+            truncateTornFrame(fileManager, active);
+        }
+    };
+
+    private final boolean checksum;
+    private final List<String> streamNames = new ArrayList<String>();
+    private final Map<String, Integer> streamIds = new HashMap<String, Integer>();
+    private final byte[] header = new byte[MAX_HEADER_LENGTH];
+    private final byte[] trailer = new byte[CHECKSUM_LENGTH];
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Creates a BinaryFileRecordStore.
+     *
+     * @param workDirectory The directory (which the record store is only used
+     *            for the KinesisRecorder) to use to store requests in
+     * @param recordFileName Name of the record store
+     * @param maxStorageSize Maximum storage size in bytes
+     * @param segmentSize Size in bytes after which a new segment is started
+     * @param checksum Whether to store a CRC32 of each record
+     */
+    public BinaryFileRecordStore(File workDirectory, String recordFileName,
+            long maxStorageSize, long segmentSize, boolean checksum) {
+        super(workDirectory, recordFileName, maxStorageSize, segmentSize,
+                BINARY_DIRECTORY_SUFFIX, BINARY_FORMAT);
+        this.checksum = checksum;
+        try {
+            loadStreamNames();
+            migrateLineRecords(workDirectory, recordFileName, segmentSize);
+        } catch (final IOException ioe) {
+            throw new AmazonClientException("Failed to open binary file store", ioe);
+        }
+    }
+
+    private void migrateLineRecords(File workDirectory, String recordFileName, long segmentSize)
+            throws IOException {
+        final File recordsDir = fileManager.getDirectory(Constants.RECORDS_DIRECTORY);
+        final File legacyFile = new File(recordsDir, recordFileName);
+        final File lineSegmentsDir = new File(recordsDir, recordFileName
+                + SEGMENTS_DIRECTORY_SUFFIX);
+        if (!lineSegmentsDir.isDirectory() && legacyFile.length() == 0) {
+            legacyFile.delete();
+            return;
+        }
+
+        // the line formatted store picks up the records file on its own
+        final SegmentedFileRecordStore lineStore = new SegmentedFileRecordStore(workDirectory,
+                recordFileName, Long.MAX_VALUE, segmentSize);
+        final RecordIterator iterator = lineStore.iterator();
+        final FileRecordParser frp = new FileRecordParser();
+        int dropped = 0;
+        try {
+            while (iterator.peekRecord(frp)) {
+                if (!putRecord(frp.streamName, frp.bytes)) {
+                    dropped++;
+                }
+                iterator.skip();
+            }
+        } finally {
+            iterator.close();
+            lineStore.close();
+        }
+        if (dropped > 0) {
+            LOGGER.warn("Dropped " + dropped + " records exceeding the maximum storage size");
+        }
+
+        final File[] files = lineSegmentsDir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        lineSegmentsDir.delete();
+        legacyFile.delete();
+    }
+
+    private void loadStreamNames() throws IOException {
+        final File file = new File(segmentsDir, STREAMS_FILE_NAME);
+        if (!file.isFile()) {
+            return;
+        }
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                fileManager.newInputStream(file), StringUtils.UTF8));
+        try {
+            String name;
+            while ((name = reader.readLine()) != null) {
+                streamIds.put(name, streamNames.size());
+                streamNames.add(name);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns the id of a stream name, adding it to the table if it's new.
+     * The caller must hold {@link #accessLock}.
+     */
+    private int internStreamName(String streamName) throws IOException {
+        final Integer id = streamIds.get(streamName);
+        if (id != null) {
+            return id;
+        }
+        final OutputStream out = fileManager.newOutputStream(
+                new File(segmentsDir, STREAMS_FILE_NAME), true);
+        try {
+            out.write((streamName + "\n").getBytes(StringUtils.UTF8));
+        } finally {
+            out.close();
+        }
+        final int newId = streamNames.size();
+        streamIds.put(streamName, newId);
+        streamNames.add(streamName);
+        return newId;
+    }
+
+    @Override
+    public boolean put(String record) throws IOException {
+        final FileRecordParser frp = new FileRecordParser();
+        frp.parse(record);
+        return putRecord(frp.streamName, frp.bytes);
+    }
+
+    @Override
+    public boolean putRecord(String streamName, byte[] data) throws IOException {
+        accessLock.lock();
+        try {
+            final int streamId = internStreamName(streamName);
+            int headerLength = 0;
+            header[headerLength++] = (byte) (checksum ? FLAG_CHECKSUM : 0);
+            headerLength = writeVarint(header, headerLength, streamId);
+            headerLength = writeVarint(header, headerLength, data.length);
+            int trailerLength = 0;
+            if (checksum) {
+                crc.reset();
+                crc.update(data, 0, data.length);
+                final long value = crc.getValue();
+                trailer[0] = (byte) (value >>> 24);
+                trailer[1] = (byte) (value >>> 16);
+                trailer[2] = (byte) (value >>> 8);
+                trailer[3] = (byte) value;
+                trailerLength = CHECKSUM_LENGTH;
+            }
+            return append(header, headerLength, data, trailer, trailerLength);
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Truncates a frame torn by a crash at the end of the segment. Frames that
+     * can't be parsed before it are left for the iterator to skip. Stream ids
+     * aren't checked, as the stream names haven't been loaded yet.
+     */
+    private static void truncateTornFrame(FileManager fileManager, File active)
+            throws IOException {
+        final byte[] bytes = new byte[(int) active.length()];
+        final InputStream in = new BufferedInputStream(fileManager.newInputStream(active));
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                final int n = in.read(bytes, read, bytes.length - read);
+                if (n == -1) {
+                    break;
+                }
+                read += n;
+            }
+        } finally {
+            in.close();
+        }
+
+        final CRC32 crc = new CRC32();
+        int valid = 0;
+        int offset = 0;
+        while (offset < bytes.length) {
+            final int end = frameEnd(bytes, offset, Integer.MAX_VALUE, crc);
+            if (end < 0) {
+                offset = nextFrame(bytes, offset + 1, Integer.MAX_VALUE, crc);
+            } else {
+                offset = end;
+                valid = end;
+            }
+        }
+
+        if (valid < bytes.length) {
+            LOGGER.warn("Truncating " + (bytes.length - valid) + " bytes of a torn record");
+            final RandomAccessFile raf = new RandomAccessFile(active, "rw");
+            try {
+                raf.setLength(valid);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Parses the frame starting at the given offset.
+     *
+     * @param bytes the bytes of a segment
+     * @param start the offset of the frame
+     * @param streamCount the number of known streams
+     * @param crc used to verify the checksum of the frame
+     * @return the offset just after the frame, or -1 if there isn't a valid
+     *         and complete frame at the offset
+     */
+    static int frameEnd(byte[] bytes, int start, int streamCount, CRC32 crc) {
+        int offset = start;
+        if (offset >= bytes.length || (bytes[offset] & ~FLAG_CHECKSUM) != 0) {
+            return -1;
+        }
+        final boolean hasChecksum = (bytes[offset++] & FLAG_CHECKSUM) != 0;
+        int streamId = 0;
+        int dataLength = 0;
+        for (int field = 0; field < 2; field++) {
+            int value = 0;
+            int shift = 0;
+            while (true) {
+                if (offset >= bytes.length || shift >= 32) {
+                    return -1;
+                }
+                final int b = bytes[offset++];
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+                shift += 7;
+            }
+            if (value < 0) {
+                return -1;
+            }
+            if (field == 0) {
+                streamId = value;
+            } else {
+                dataLength = value;
+            }
+        }
+        if (streamId >= streamCount) {
+            return -1;
+        }
+        final long end = (long) offset + dataLength + (hasChecksum ? CHECKSUM_LENGTH : 0);
+        if (end > bytes.length) {
+            return -1;
+        }
+        if (hasChecksum) {
+            crc.reset();
+            crc.update(bytes, offset, dataLength);
+            final int c = offset + dataLength;
+            final long expected = (bytes[c] & 0xffL) << 24 | (bytes[c + 1] & 0xffL) << 16
+                    | (bytes[c + 2] & 0xffL) << 8 | (bytes[c + 3] & 0xffL);
+            if (crc.getValue() != expected) {
+                return -1;
+            }
+        }
+        return (int) end;
+    }
+
+    /**
+     * Looks for the first offset from the given one where a valid frame
+     * starts that is followed by another valid frame or ends the segment. A
+     * frame without checksum could start at a byte of a corrupted one by
+     * chance, which the following frame makes unlikely.
+     *
+     * @return the offset of the frame, or the length of the segment if there
+     *         is none
+     */
+    static int nextFrame(byte[] bytes, int from, int streamCount, CRC32 crc) {
+        for (int offset = from; offset < bytes.length; offset++) {
+            final int end = frameEnd(bytes, offset, streamCount, crc);
+            if (end == bytes.length
+                    || end > 0 && frameEnd(bytes, end, streamCount, crc) > 0) {
+                return offset;
+            }
+        }
+        return bytes.length;
+    }
+
+    static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public RecordIterator iterator() {
+        return new BinarySegmentIterator();
+    }
+
+    /**
+     * Iterates binary frames. Records are read straight into the
+     * {@link FileRecordParser} passed to {@link #peekRecord(FileRecordParser)}
+     * without going through a String.
+     */
+    class BinarySegmentIterator extends SegmentIterator {
+        private final CRC32 readCrc = new CRC32();
+        private int frameFlags;
+        private int frameStreamId;
+        private int frameLength;
+        /** Whether the buffered frame couldn't be decoded. */
+        private boolean corrupted;
+        private String streamName;
+        private byte[] data;
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                final int b = read();
+                if (b == -1) {
+                    return -1;
+                }
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        boolean readFrame() throws IOException {
+            final long start = position();
+            frameFlags = read();
+            if (frameFlags == -1) {
+                return false;
+            }
+            frameStreamId = readVarint();
+            frameLength = frameStreamId < 0 ? -1 : readVarint();
+            final int checksumLength = (frameFlags & FLAG_CHECKSUM) != 0 ? CHECKSUM_LENGTH : 0;
+            if ((frameFlags & ~FLAG_CHECKSUM) != 0 || frameLength < 0
+                    || !readFully(frameLength + checksumLength)) {
+                // the corrupted frame ends where the next valid one starts
+                final byte[] rest = readSegmentFrom(start);
+                final int next = nextFrame(rest, 1, streamNames.size(), readCrc);
+                LOGGER.error("Corrupted segment. Skip " + next + " bytes.");
+                frameLength = -1;
+                seek(start + next);
+            }
+            return true;
+        }
+
+        @Override
+        void decodeFrame() {
+            corrupted = true;
+            streamName = null;
+            data = null;
+            if (frameLength < 0) {
+                return;
+            }
+            final byte[] bytes = frame.bytes();
+            if ((frameFlags & FLAG_CHECKSUM) != 0) {
+                readCrc.reset();
+                readCrc.update(bytes, 0, frameLength);
+                final long expected = (bytes[frameLength] & 0xffL) << 24
+                        | (bytes[frameLength + 1] & 0xffL) << 16
+                        | (bytes[frameLength + 2] & 0xffL) << 8
+                        | (bytes[frameLength + 3] & 0xffL);
+                if (readCrc.getValue() != expected) {
+                    LOGGER.warn("Checksum mismatch. Skip.");
+                    return;
+                }
+            }
+            if (frameStreamId >= streamNames.size()) {
+                LOGGER.warn("Unknown stream id " + frameStreamId + ". Skip.");
+                return;
+            }
+            streamName = streamNames.get(frameStreamId);
+            data = new byte[frameLength];
+            System.arraycopy(bytes, 0, data, 0, frameLength);
+            corrupted = false;
+        }
+
+        @Override
+        String bufferedLine() {
+            return corrupted ? "" : FileRecordParser.asString(streamName, data);
+        }
+
+        @Override
+        public boolean peekRecord(FileRecordParser frp) {
+            accessLock.lock();
+            try {
+                while (fill()) {
+                    if (!corrupted) {
+                        frp.streamName = streamName;
+                        frp.bytes = data;
+                        return true;
+                    }
+                    skip();
+                }
+                return false;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+    }
+}
@@ -42,7 +42,8 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 class FileRecordStore {
     private static final Log LOGGER = LogFactory.getLog(FileRecordStore.class);
-    private final ReentrantLock accessLock = new ReentrantLock(true);
+    /** Guards the records, shared with the stores extending this one. */
+    final ReentrantLock accessLock = new ReentrantLock(true);
 
     /** The file the requests are stored in. **/
     private File recordFile;
@@ -94,6 +95,19 @@ class FileRecordStore {
         return success;
     }
 
+    /**
+     * Saves a record of the given stream.
+     *
+     * @param streamName the stream name of the record
+     * @param data the record
+     * @return true if the record was saved, false if it would exceed the
+     *         maximum storage size
+     * @throws IOException if the record can't be written
+     */
+    public boolean putRecord(String streamName, byte[] data) throws IOException {
+        return put(FileRecordParser.asString(streamName, data));
+    }
+
     public long getFileSize() {
         return recordFile == null ? 0 : recordFile.length();
     }
@@ -200,8 +214,26 @@ class FileRecordStore {
 
     }
 
+    /**
+     * A position in the record store just after a record, taken by
+     * {@link RecordIterator#mark()}. The offset is a line count for
+     * {@link FileRecordStore} and a byte offset into the given segment for
+     * {@link SegmentedFileRecordStore}.
+     */
+    static final class RecordMark {
+        final long segment;
+        final long offset;
+
+        RecordMark(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
     public class RecordIterator implements java.util.Iterator<String> {
         int linesRead = 0;
+        /** Lines removed from the file since this iterator was created. */
+        long linesRemoved = 0;
         String nextBuffer = null;
         BufferedReader reader = null;
         boolean isEndOfFile = false;
@@ -327,6 +359,37 @@ class FileRecordStore {
             }
         }
 
+        /**
+         * Parses the next record into the given parser without consuming it.
+         * Empty and corrupted lines are skipped.
+         *
+         * @param frp the parser to hold the record
+         * @return false if there are no more records
+         */
+        public boolean peekRecord(FileRecordParser frp) {
+            String line;
+            while ((line = peek()) != null) {
+                if (!line.isEmpty()) {
+                    // parse a line. Skip in case of corrupted data
+                    try {
+                        frp.parse(line);
+                        return true;
+                    } catch (final Exception e) {
+                        LOGGER.warn("Failed to read line. Skip.", e);
+                    }
+                }
+                next();
+            }
+            return false;
+        }
+
+        /**
+         * Consumes the next record.
+         */
+        public void skip() {
+            next();
+        }
+
         @Override
         public void remove() {
             throw new UnsupportedOperationException(
@@ -337,6 +400,7 @@ class FileRecordStore {
             accessLock.lock();
             try {
                 deleteReadRecords(linesRead);
+                linesRemoved += linesRead;
                 resetReader();
             } finally {
                 accessLock.unlock();
@@ -347,12 +411,61 @@ class FileRecordStore {
             accessLock.lock();
             try {
                 deleteAllRecords();
+                linesRemoved = 0;
                 resetReader();
             } finally {
                 accessLock.unlock();
             }
         }
 
+        /**
+         * Returns the position just after the last record returned by
+         * {@link #next()}.
+         */
+        public RecordMark mark() {
+            accessLock.lock();
+            try {
+                return new RecordMark(0, linesRemoved + linesRead);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        /**
+         * Removes the records before the given mark. Unlike
+         * {@link #removeReadRecords()}, the iterator carries on from where it
+         * was, so records read after the mark are not returned again.
+         *
+         * @param mark a mark taken by {@link #mark()}
+         * @throws IOException if the records can't be removed
+         */
+        public void removeRecordsUpTo(RecordMark mark) throws IOException {
+            accessLock.lock();
+            try {
+                final long lines = mark.offset - linesRemoved;
+                if (lines <= 0) {
+                    return;
+                }
+                deleteReadRecords((int) lines);
+                linesRemoved += lines;
+                linesRead -= lines;
+
+                // the file has been rewritten, skip to where we were
+                tryCloseReader();
+                isEndOfFile = false;
+                final int skip = linesRead + (nextBuffer != null ? 1 : 0);
+                if (tryOpenReader()) {
+                    for (int i = 0; i < skip; i++) {
+                        if (reader.readLine() == null) {
+                            break;
+                        }
+                    }
+                }
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
         private void resetReader() throws IOException {
             tryCloseReader();
             linesRead = 0;
@@ -160,8 +160,7 @@ public class KinesisFirehoseRecorder extends AbstractKinesisRecorder {
      */
     public KinesisFirehoseRecorder(File directory, Regions region,
             AWSCredentialsProvider credentialsProvider, KinesisRecorderConfig config) {
-        super(new FileRecordStore(directory, RECORD_FILE_NAME,
-                config.getMaxStorageSize()), config);
+        super(newRecordStore(directory, RECORD_FILE_NAME, config), config);
 
         AmazonKinesisFirehose client = new AmazonKinesisFirehoseClient(credentialsProvider,
                 config.getClientConfiguration());
@@ -143,8 +143,7 @@ public class KinesisRecorder extends AbstractKinesisRecorder {
      */
     public KinesisRecorder(File directory, Regions region,
             AWSCredentialsProvider credentialsProvider, KinesisRecorderConfig config) {
-        super(new FileRecordStore(directory, RECORD_FILE_NAME,
-                config.getMaxStorageSize()), config);
+        super(newRecordStore(directory, RECORD_FILE_NAME, config), config);
 
         if (directory == null || credentialsProvider == null || region == null || config == null) {
             throw new IllegalArgumentException(
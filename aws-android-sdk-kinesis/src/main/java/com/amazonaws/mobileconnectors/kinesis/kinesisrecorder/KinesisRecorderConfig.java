@@ -24,7 +24,13 @@ import com.amazonaws.ClientConfiguration;
 public class KinesisRecorderConfig {
 
     private static final long DEFAUT_MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final long DEFAULT_SEGMENT_SIZE = 256 * 1024L;
     private long maxStorageSize = DEFAUT_MAX_STORAGE_SIZE;
+    private boolean segmentedStorage = false;
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+    private boolean binaryRecordFormat = false;
+    private boolean recordChecksum = false;
+    private int maxInFlightBatches = 1;
     private final ClientConfiguration clientConfiguration;
     private String partitionKey;
     private DeadLetterListener mDeadLetterListener;
@@ -61,6 +67,11 @@ public class KinesisRecorderConfig {
         this.maxStorageSize = other.getMaxStorageSize();
         this.clientConfiguration = new ClientConfiguration(other.getClientConfiguration());
         this.partitionKey = other.partitionKey;
+        this.segmentedStorage = other.segmentedStorage;
+        this.segmentSize = other.segmentSize;
+        this.binaryRecordFormat = other.binaryRecordFormat;
+        this.recordChecksum = other.recordChecksum;
+        this.maxInFlightBatches = other.maxInFlightBatches;
     }
 
     /**
@@ -94,6 +105,120 @@ public class KinesisRecorderConfig {
         return this.maxStorageSize;
     }
 
+    /**
+     * Sets whether KinesisRecorder stores records in append-only segment files
+     * instead of a single records file. Segmented storage keeps its writer open
+     * and deletes acknowledged segments whole, instead of rewriting the records
+     * file after every submitted batch. Records saved by the single file store
+     * are picked up when segmented storage is first enabled.
+     *
+     * @param segmentedStorage true to enable segmented storage.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withSegmentedStorage(boolean segmentedStorage) {
+        this.segmentedStorage = segmentedStorage;
+        return this;
+    }
+
+    /**
+     * @return Whether KinesisRecorder stores records in segment files.
+     */
+    public boolean isSegmentedStorageEnabled() {
+        return segmentedStorage;
+    }
+
+    /**
+     * Sets the size in bytes after which segmented storage starts a new
+     * segment file. Only used when segmented storage is enabled. Defaults to
+     * 256KiB.
+     *
+     * @param segmentSize the segment size in bytes.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withSegmentSize(long segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * @return The size in bytes after which segmented storage starts a new
+     *         segment file.
+     */
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Sets whether KinesisRecorder stores records as length-prefixed binary
+     * frames instead of Base64 encoded lines. The binary format saves the
+     * Base64 overhead on disk and the encoding work on both saving and
+     * submitting records. It always uses segmented storage. Records saved in
+     * the line format are converted when the binary format is first enabled;
+     * the conversion can't be undone by disabling it again.
+     *
+     * @param binaryRecordFormat true to store records in the binary format.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withBinaryRecordFormat(boolean binaryRecordFormat) {
+        this.binaryRecordFormat = binaryRecordFormat;
+        return this;
+    }
+
+    /**
+     * @return Whether KinesisRecorder stores records in the binary format.
+     */
+    public boolean isBinaryRecordFormatEnabled() {
+        return binaryRecordFormat;
+    }
+
+    /**
+     * Sets whether a CRC32 is stored with each record in the binary format.
+     * Records failing the check are skipped when they are read back. Only
+     * used when the binary record format is enabled.
+     *
+     * @param recordChecksum true to store a checksum with each record.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withRecordChecksum(boolean recordChecksum) {
+        this.recordChecksum = recordChecksum;
+        return this;
+    }
+
+    /**
+     * @return Whether a CRC32 is stored with each record in the binary format.
+     */
+    public boolean isRecordChecksumEnabled() {
+        return recordChecksum;
+    }
+
+    /**
+     * Sets the maximum number of batches submitAllRecords() sends
+     * concurrently. Batches of the same stream are always sent one at a time
+     * so records of a stream keep their order. Defaults to 1, which sends all
+     * batches one after another.
+     *
+     * @param maxInFlightBatches the maximum number of batches in flight.
+     * @return This class for chaining
+     */
+    public KinesisRecorderConfig withMaxInFlightBatches(int maxInFlightBatches) {
+        if (maxInFlightBatches < 1) {
+            throw new IllegalArgumentException("Max in flight batches must be at least 1");
+        }
+        this.maxInFlightBatches = maxInFlightBatches;
+        return this;
+    }
+
+    /**
+     * @return The maximum number of batches submitAllRecords() sends
+     *         concurrently.
+     */
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches;
+    }
+
     /**
      * Returns the {@link DeadLetterListener} that will respond to records being dropped.
      * @return the {@link DeadLetterListener} that will respond to records being dropped.
@@ -0,0 +1,882 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.StringUtils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link FileRecordStore} that appends records to a series of rolling
+ * segment files instead of a single file. Records are written through a
+ * writer that stays open between calls to {@link #put(String)}, and the
+ * position of the first unacknowledged record is kept in a small checkpoint
+ * file. When records are acknowledged, segments that have been fully read are
+ * deleted whole rather than rewriting the surviving records into a new file.
+ * <p>
+ * Segments use the same one-record-per-line format as {@link FileRecordStore},
+ * so a records file left behind by {@link FileRecordStore} is adopted as the
+ * first segment the first time this store is opened.
+ */
+class SegmentedFileRecordStore extends FileRecordStore {
+    private static final Log LOGGER = LogFactory.getLog(SegmentedFileRecordStore.class);
+
+    /**
+     * Suffix of the directory holding the segments of a record store.
+     */
+    static final String SEGMENTS_DIRECTORY_SUFFIX = ".segments";
+    /**
+     * Suffix of a segment file.
+     */
+    static final String SEGMENT_FILE_SUFFIX = ".seg";
+    /**
+     * Name of the checkpoint file.
+     */
+    static final String CHECKPOINT_FILE_NAME = "checkpoint";
+
+    private static final int NEW_LINE = '\n';
+    private static final int CARRIAGE_RETURN = '\r';
+    private static final byte[] LINE_TERMINATOR = new byte[] {
+            NEW_LINE
+    };
+    private static final int WRITER_BUFFER_SIZE = 8 * 1024;
+    private static final int READER_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * How records are laid out in the segments. A store is given its format
+     * rather than overriding methods, since the format is used while the
+     * store is being constructed.
+     */
+    interface SegmentFormat {
+        /**
+         * @return whether records are stored as lines of
+         *         {@link FileRecordStore}, in which case its records file is
+         *         adopted as a segment
+         */
+        boolean isLineFormat();
+
+        /**
+         * Repairs the tail of the segment the writer is about to append to,
+         * in case the last record was torn by a crash. Called while the store
+         * is being opened, and each time the writer is reopened.
+         *
+         * @param fileManager the file manager of the store
+         * @param active the segment the writer appends to
+         * @throws IOException if the segment can't be repaired
+         */
+        void recover(FileManager fileManager, File active) throws IOException;
+    }
+
+    /**
+     * Records stored one per line, as {@link FileRecordStore} does.
+     */
+    static final SegmentFormat LINE_FORMAT = new SegmentFormat() {
+        @Override
+        public boolean isLineFormat() {
+            return true;
+        }
+
+        @Override
+        public void recover(FileManager fileManager, File active) throws IOException {
+            if (active.length() == 0 || endsWithNewLine(active)) {
+                return;
+            }
+            // terminate the torn record so the next one isn't glued to it
+            final OutputStream out = fileManager.newOutputStream(active, true);
+            try {
+                out.write(NEW_LINE);
+            } finally {
+                out.close();
+            }
+        }
+    };
+
+    final FileManager fileManager;
+    final File segmentsDir;
+    private final SegmentFormat format;
+    private final long maxStorageSize;
+    private final long segmentSize;
+
+    /** Sequence numbers of the segments on disk, in ascending order. */
+    private final List<Long> segments = new ArrayList<Long>();
+    /** Total bytes of all segments on disk. */
+    private long diskBytes;
+    /** Length of the segment the writer appends to. */
+    private long activeLength;
+    /** Sequence number of the segment holding the first unread record. */
+    private long checkpointSegment;
+    /** Byte offset of the first unread record in its segment. */
+    private long checkpointOffset;
+
+    private OutputStream writer;
+
+    /**
+     * Creates a SegmentedFileRecordStore.
+     *
+     * @param workDirectory The directory (which the record store is only used
+     *            for the KinesisRecorder) to use to store requests in
+     * @param recordFileName Name of the record store. A records file of this
+     *            name written by {@link FileRecordStore} is migrated.
+     * @param maxStorageSize Maximum storage size in bytes
+     * @param segmentSize Size in bytes after which a new segment is started
+     */
+    public SegmentedFileRecordStore(File workDirectory, String recordFileName,
+            long maxStorageSize, long segmentSize) {
+        this(workDirectory, recordFileName, maxStorageSize, segmentSize,
+                SEGMENTS_DIRECTORY_SUFFIX, LINE_FORMAT);
+    }
+
+    /**
+     * Creates a SegmentedFileRecordStore keeping its segments in a directory
+     * with the given suffix, in the given format.
+     */
+    SegmentedFileRecordStore(File workDirectory, String recordFileName,
+            long maxStorageSize, long segmentSize, String directorySuffix,
+            SegmentFormat format) {
+        super(workDirectory, recordFileName, maxStorageSize);
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.format = format;
+        this.fileManager = new FileManager(workDirectory);
+        this.maxStorageSize = maxStorageSize;
+        this.segmentSize = segmentSize;
+        final File recordsDir = fileManager.createDirectory(Constants.RECORDS_DIRECTORY);
+        this.segmentsDir = new File(recordsDir, recordFileName + directorySuffix);
+        try {
+            open(new File(recordsDir, recordFileName));
+        } catch (final IOException ioe) {
+            throw new AmazonClientException("Failed to open segmented file store", ioe);
+        }
+    }
+
+    private void open(File legacyFile) throws IOException {
+        if (!segmentsDir.isDirectory() && !segmentsDir.mkdirs()) {
+            throw new IOException("Failed to create segments directory");
+        }
+
+        final File[] files = segmentsDir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                final String name = file.getName();
+                if (!name.endsWith(SEGMENT_FILE_SUFFIX)) {
+                    continue;
+                }
+                try {
+                    segments.add(Long.parseLong(
+                            name.substring(0, name.length() - SEGMENT_FILE_SUFFIX.length())));
+                } catch (final NumberFormatException e) {
+                    LOGGER.warn("Ignoring unexpected file in segments directory: " + name);
+                }
+            }
+        }
+        Collections.sort(segments);
+
+        if (format.isLineFormat()) {
+            migrate(legacyFile);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(0L);
+            fileManager.createFile(segmentFile(0L));
+        }
+        for (final Long seq : segments) {
+            diskBytes += segmentFile(seq).length();
+        }
+
+        readCheckpoint();
+        openWriter();
+    }
+
+    /**
+     * Adopts a records file written by {@link FileRecordStore}. It becomes the
+     * first segment if there are none yet, otherwise its records are appended
+     * to the last segment. Called while the store is being opened.
+     *
+     * @param legacyFile the records file of {@link FileRecordStore}
+     * @throws IOException if the records file can't be migrated
+     */
+    private void migrate(File legacyFile) throws IOException {
+        if (!legacyFile.isFile()) {
+            return;
+        }
+        if (legacyFile.length() == 0) {
+            legacyFile.delete();
+            return;
+        }
+
+        if (segments.isEmpty()) {
+            if (!legacyFile.renameTo(segmentFile(0L))) {
+                throw new IOException("Failed to migrate records file");
+            }
+            segments.add(0L);
+            return;
+        }
+
+        final OutputStream out = fileManager.newOutputStream(
+                segmentFile(segments.get(segments.size() - 1)), true);
+        final InputStream in = fileManager.newInputStream(legacyFile);
+        try {
+            final byte[] buffer = new byte[WRITER_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+        legacyFile.delete();
+    }
+
+    private static boolean endsWithNewLine(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(file.length() - 1);
+            return raf.read() == NEW_LINE;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void readCheckpoint() throws IOException {
+        checkpointSegment = segments.get(0);
+        checkpointOffset = 0;
+
+        final File file = new File(segmentsDir, CHECKPOINT_FILE_NAME);
+        if (!file.isFile()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    fileManager.newInputStream(file), StringUtils.UTF8));
+            final String line = reader.readLine();
+            final String[] parts = line == null ? new String[0] : line.split(",");
+            if (parts.length != 2) {
+                LOGGER.warn("Ignoring corrupted checkpoint");
+                return;
+            }
+            final long seq = Long.parseLong(parts[0]);
+            final long offset = Long.parseLong(parts[1]);
+            if (segments.contains(seq) && offset <= segmentFile(seq).length()) {
+                checkpointSegment = seq;
+                checkpointOffset = offset;
+            }
+        } catch (final NumberFormatException e) {
+            LOGGER.warn("Ignoring corrupted checkpoint", e);
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+
+        // segments before the checkpoint were acknowledged but may have
+        // survived a crash between writing the checkpoint and deleting them
+        deleteSegmentsBefore(checkpointSegment);
+    }
+
+    private void writeCheckpoint() throws IOException {
+        final File file = new File(segmentsDir, CHECKPOINT_FILE_NAME);
+        final File tempFile = new File(segmentsDir, CHECKPOINT_FILE_NAME + ".tmp");
+        final OutputStream out = fileManager.newOutputStream(tempFile, false);
+        try {
+            out.write((checkpointSegment + "," + checkpointOffset).getBytes(StringUtils.UTF8));
+        } finally {
+            out.close();
+        }
+        if (file.exists() && !file.delete() || !tempFile.renameTo(file)) {
+            throw new IOException("Failed to persist checkpoint");
+        }
+    }
+
+    private void openWriter() throws IOException {
+        final File active = segmentFile(activeSegment());
+        final long length = active.length();
+        format.recover(fileManager, active);
+        activeLength = active.length();
+        diskBytes += activeLength - length;
+        writer = new BufferedOutputStream(fileManager.newOutputStream(active, true),
+                WRITER_BUFFER_SIZE);
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private long activeSegment() {
+        return segments.get(segments.size() - 1);
+    }
+
+    final File segmentFile(long seq) {
+        return new File(segmentsDir, String.format("%019d", seq) + SEGMENT_FILE_SUFFIX);
+    }
+
+    private void rollSegment() throws IOException {
+        closeWriter();
+        final long next = activeSegment() + 1;
+        fileManager.createFile(segmentFile(next));
+        segments.add(next);
+        openWriter();
+    }
+
+    private void deleteSegmentsBefore(long seq) {
+        while (!segments.isEmpty() && segments.get(0) < seq) {
+            final File file = segmentFile(segments.remove(0));
+            diskBytes -= file.length();
+            if (!file.delete()) {
+                LOGGER.error("Failed to delete segment " + file.getName());
+            }
+        }
+    }
+
+    @Override
+    public boolean put(final String record) throws IOException {
+        final byte[] bytes = record.getBytes(StringUtils.UTF8);
+        accessLock.lock();
+        try {
+            return append(null, 0, bytes, LINE_TERMINATOR, LINE_TERMINATOR.length);
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new segment first if
+     * the active one is full. The caller must hold {@link #accessLock}.
+     *
+     * @param head bytes written before the data, or null
+     * @param headLength number of bytes of head to write
+     * @param data the record
+     * @param tail bytes written after the data, or null
+     * @param tailLength number of bytes of tail to write
+     * @return true if the record was written, false if it would exceed the
+     *         maximum storage size
+     * @throws IOException if the record can't be written
+     */
+    final boolean append(byte[] head, int headLength, byte[] data, byte[] tail,
+            int tailLength)
+            throws IOException {
+        final int length = headLength + data.length + tailLength;
+        if (diskBytes + length > maxStorageSize) {
+            return false;
+        }
+        if (writer == null) {
+            openWriter();
+        }
+        if (activeLength > 0 && activeLength + length > segmentSize) {
+            rollSegment();
+        }
+        if (headLength > 0) {
+            writer.write(head, 0, headLength);
+        }
+        writer.write(data);
+        if (tailLength > 0) {
+            writer.write(tail, 0, tailLength);
+        }
+        writer.flush();
+        activeLength += length;
+        diskBytes += length;
+        return true;
+    }
+
+    /**
+     * Returns the number of bytes of records that haven't been acknowledged.
+     */
+    @Override
+    public long getFileSize() {
+        accessLock.lock();
+        try {
+            return diskBytes - checkpointOffset;
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of segment files on disk.
+     */
+    int getSegmentCount() {
+        accessLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the checkpoint to the given position and deletes every segment
+     * whose records are all before it.
+     */
+    private void acknowledge(long seq, long offset) throws IOException {
+        if (seq < checkpointSegment || seq == checkpointSegment && offset <= checkpointOffset) {
+            return;
+        }
+        if (seq == activeSegment() && offset >= activeLength) {
+            // everything has been read, start over with an empty segment
+            closeWriter();
+            deleteSegmentsBefore(seq);
+            rollSegment();
+            deleteSegmentsBefore(activeSegment());
+            checkpointSegment = activeSegment();
+            checkpointOffset = 0;
+        } else {
+            final int index = segments.indexOf(seq);
+            if (index >= 0 && index < segments.size() - 1
+                    && offset >= segmentFile(seq).length()) {
+                seq = segments.get(index + 1);
+                offset = 0;
+            }
+            checkpointSegment = seq;
+            checkpointOffset = offset;
+        }
+        writeCheckpoint();
+        deleteSegmentsBefore(checkpointSegment);
+    }
+
+    private void clear() throws IOException {
+        closeWriter();
+        rollSegment();
+        deleteSegmentsBefore(activeSegment());
+        checkpointSegment = activeSegment();
+        checkpointOffset = 0;
+        writeCheckpoint();
+    }
+
+    /**
+     * Closes the writer. The store reopens it on the next
+     * {@link #put(String)}.
+     *
+     * @throws IOException if the writer can't be closed
+     */
+    void close() throws IOException {
+        accessLock.lock();
+        try {
+            closeWriter();
+        } finally {
+            accessLock.unlock();
+        }
+    }
+
+    @Override
+    public RecordIterator iterator() {
+        return new SegmentIterator();
+    }
+
+    /**
+     * Iterates the records of all segments starting at the checkpoint.
+     * {@link #removeReadRecords()} moves the checkpoint past the records
+     * returned by {@link #next()}. Subclasses with a different record framing
+     * override {@link #readFrame()} and {@link #decodeFrame()}.
+     */
+    class SegmentIterator extends RecordIterator {
+        /** The bytes of the last frame read, without framing. */
+        final FrameBuffer frame = new FrameBuffer();
+        private final byte[] readBuffer = new byte[READER_BUFFER_SIZE];
+        private int bufferPos;
+        private int bufferLimit;
+        private InputStream in;
+        /** Segment and offset of the next byte to read. */
+        private long segment;
+        private long position;
+        /** Segment and offset just after the last record returned. */
+        private long readSegment;
+        private long readPosition;
+        /** Whether a record has been read but not yet returned. */
+        private boolean buffered;
+        /** Segment and offset just after the buffered record. */
+        private long bufferedSegment;
+        private long bufferedPosition;
+
+        SegmentIterator() {
+            rewind();
+        }
+
+        private void rewind() {
+            accessLock.lock();
+            try {
+                segment = checkpointSegment;
+                position = checkpointOffset;
+                readSegment = segment;
+                readPosition = position;
+                buffered = false;
+                nextBuffer = null;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        /**
+         * Reads the next byte of the current segment.
+         *
+         * @return the byte, or -1 at the end of the segment
+         */
+        final int read() throws IOException {
+            if (bufferPos == bufferLimit && !fillReadBuffer()) {
+                return -1;
+            }
+            position++;
+            return readBuffer[bufferPos++] & 0xff;
+        }
+
+        /**
+         * Reads exactly the given number of bytes of the current segment into
+         * {@link #frame}.
+         *
+         * @return false if the segment ends first
+         */
+        final boolean readFully(int length) throws IOException {
+            while (length > 0) {
+                if (bufferPos == bufferLimit && !fillReadBuffer()) {
+                    return false;
+                }
+                final int n = Math.min(length, bufferLimit - bufferPos);
+                frame.write(readBuffer, bufferPos, n);
+                bufferPos += n;
+                position += n;
+                length -= n;
+            }
+            return true;
+        }
+
+        /**
+         * Reads the current segment from the given offset to its end, without
+         * moving the iterator. Used to look for the next frame after one that
+         * can't be parsed.
+         *
+         * @param offset the offset to read from
+         * @return the bytes from the offset to the end of the segment
+         */
+        final byte[] readSegmentFrom(long offset) throws IOException {
+            final RandomAccessFile raf = new RandomAccessFile(segmentFile(segment), "r");
+            try {
+                final byte[] bytes = new byte[(int) Math.max(0, raf.length() - offset)];
+                raf.seek(offset);
+                raf.readFully(bytes);
+                return bytes;
+            } finally {
+                raf.close();
+            }
+        }
+
+        /**
+         * @return the offset of the next byte to read in the current segment
+         */
+        final long position() {
+            return position;
+        }
+
+        /**
+         * Moves the iterator to the given offset of the current segment. The
+         * frame being read ends there.
+         *
+         * @param offset the offset to read the next frame from
+         */
+        final void seek(long offset) throws IOException {
+            tryCloseStream();
+            position = offset;
+        }
+
+        private boolean fillReadBuffer() throws IOException {
+            final int read = in.read(readBuffer);
+            if (read <= 0) {
+                return false;
+            }
+            bufferPos = 0;
+            bufferLimit = read;
+            return true;
+        }
+
+        /**
+         * Reads the next frame of the current segment into {@link #frame}.
+         *
+         * @return false at the end of the segment
+         */
+        boolean readFrame() throws IOException {
+            final long start = position;
+            boolean terminated = false;
+            while (!terminated) {
+                if (bufferPos == bufferLimit && !fillReadBuffer()) {
+                    break;
+                }
+                int end = bufferPos;
+                while (end < bufferLimit && readBuffer[end] != NEW_LINE) {
+                    end++;
+                }
+                frame.write(readBuffer, bufferPos, end - bufferPos);
+                position += end - bufferPos;
+                if (end < bufferLimit) {
+                    // skip the new line
+                    end++;
+                    position++;
+                    terminated = true;
+                }
+                bufferPos = end;
+            }
+            return position > start;
+        }
+
+        /**
+         * Decodes the frame just read into the buffered record.
+         */
+        void decodeFrame() {
+            nextBuffer = frame.toLine();
+        }
+
+        /**
+         * Reads the next frame, moving on to the next segment at the end of a
+         * segment.
+         *
+         * @return false when there are no more records
+         */
+        private boolean advance() throws IOException {
+            while (true) {
+                if (in == null) {
+                    if (!segments.contains(segment)) {
+                        return false;
+                    }
+                    in = fileManager.newInputStream(segmentFile(segment));
+                    bufferPos = 0;
+                    bufferLimit = 0;
+                    long skipped = 0;
+                    while (skipped < position) {
+                        final long n = in.skip(position - skipped);
+                        if (n <= 0) {
+                            break;
+                        }
+                        skipped += n;
+                    }
+                }
+
+                frame.reset();
+                if (readFrame()) {
+                    return true;
+                }
+
+                // end of segment
+                final int index = segments.indexOf(segment);
+                if (index < 0 || index == segments.size() - 1) {
+                    return false;
+                }
+                tryCloseStream();
+                segment = segments.get(index + 1);
+                position = 0;
+            }
+        }
+
+        /**
+         * Makes sure a record is buffered.
+         *
+         * @return false when there are no more records
+         */
+        final boolean fill() {
+            accessLock.lock();
+            try {
+                if (!buffered && advance()) {
+                    decodeFrame();
+                    buffered = true;
+                    bufferedSegment = segment;
+                    bufferedPosition = position;
+                }
+                return buffered;
+            } catch (final FileNotFoundException fnfe) {
+                throw new AmazonClientException("Cannot find records file", fnfe);
+            } catch (final IOException ioe) {
+                throw new AmazonClientException("IO Error", ioe);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        /**
+         * Returns the buffered record as a line of {@link FileRecordStore}.
+         */
+        String bufferedLine() {
+            return nextBuffer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return fill();
+        }
+
+        @Override
+        public String next() {
+            accessLock.lock();
+            try {
+                if (!fill()) {
+                    return null;
+                }
+                final String next = bufferedLine();
+                skip();
+                return next;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public String peek() {
+            accessLock.lock();
+            try {
+                return fill() ? bufferedLine() : null;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void skip() {
+            accessLock.lock();
+            try {
+                if (!fill()) {
+                    return;
+                }
+                buffered = false;
+                nextBuffer = null;
+                readSegment = bufferedSegment;
+                readPosition = bufferedPosition;
+                linesRead++;
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeReadRecords() throws IOException {
+            accessLock.lock();
+            try {
+                tryCloseStream();
+                acknowledge(readSegment, readPosition);
+                linesRead = 0;
+                rewind();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public RecordMark mark() {
+            accessLock.lock();
+            try {
+                return new RecordMark(readSegment, readPosition);
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeRecordsUpTo(RecordMark mark) throws IOException {
+            accessLock.lock();
+            try {
+                acknowledge(mark.segment, mark.offset);
+                if (!segments.contains(segment)) {
+                    // everything was read and the segment has been replaced
+                    tryCloseStream();
+                    segment = checkpointSegment;
+                    position = checkpointOffset;
+                }
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        @Override
+        public void removeAllRecords() throws IOException {
+            accessLock.lock();
+            try {
+                tryCloseStream();
+                clear();
+                linesRead = 0;
+                rewind();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+
+        private void tryCloseStream() throws IOException {
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            accessLock.lock();
+            try {
+                tryCloseStream();
+            } finally {
+                accessLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A reusable byte buffer for a single frame.
+     */
+    static final class FrameBuffer {
+        private byte[] bytes = new byte[256];
+        private int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        void write(byte[] b, int off, int len) {
+            if (count + len > bytes.length) {
+                final byte[] grown = new byte[Math.max(bytes.length << 1, count + len)];
+                System.arraycopy(bytes, 0, grown, 0, count);
+                bytes = grown;
+            }
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int size() {
+            return count;
+        }
+
+        String toLine() {
+            // tolerate lines terminated by "\r\n"
+            final int length = count > 0 && bytes[count - 1] == CARRIAGE_RETURN ? count - 1 : count;
+            return new String(bytes, 0, length, StringUtils.UTF8);
+        }
+    }
+}
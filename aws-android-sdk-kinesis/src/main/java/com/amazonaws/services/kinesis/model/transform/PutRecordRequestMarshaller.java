@@ -32,10 +32,12 @@ import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.services.kinesis.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.ByteArrayContentInputStream;
 import com.amazonaws.util.StringUtils;
 import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.json.AwsJsonWriter;
 import com.amazonaws.util.json.JsonUtils;
+import com.amazonaws.util.json.Utf8JsonWriter;
 
 /**
  * Put Record Request Marshaller
@@ -55,10 +57,7 @@ public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordR
         request.setResourcePath("");
         
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
-            Writer writer = new OutputStreamWriter(gos, StringUtils.UTF8);
-            AwsJsonWriter jsonWriter = JsonUtils.getJsonWriter(writer);
+            Utf8JsonWriter jsonWriter = new Utf8JsonWriter();
 
             jsonWriter.beginObject();
             
@@ -79,12 +78,15 @@ public class PutRecordRequestMarshaller implements Marshaller<Request<PutRecordR
             }
 
             jsonWriter.endObject();
-            jsonWriter.flush();
-            gos.finish();
-            writer.close();
+            jsonWriter.close();
+            ByteArrayContentInputStream json = jsonWriter.toInputStream();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            GZIPOutputStream gos = new GZIPOutputStream(baos, 8192);
+            gos.write(json.getBuffer(), json.getOffset(), json.getLength());
+            gos.close();
 
             byte[] content = baos.toByteArray();
-            request.setContent(new ByteArrayInputStream(content));
+            request.setContent(new ByteArrayContentInputStream(content, 0, content.length));
             request.addHeader("Content-Length", Integer.toString(content.length));
             request.addHeader("Content-Type", "application/x-amz-json-1.1");
             request.addHeader("Content-Encoding", "gzip");
@@ -33,15 +33,26 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
@@ -317,6 +328,191 @@ public class AbstractKinesisRecorderTest {
         assertTrue("records not removed", recorder.getDiskBytesUsed() > 0);
     }
 
+    @Test
+    public void testSubmitAllRecordsPipelinedSendsEveryRecord() throws IOException {
+        usePipelinedRecorder(4);
+        final String[] streams = {
+                "stream_a", "stream_b", "stream_c"
+        };
+        final Map<String, List<String>> saved = new HashMap<String, List<String>>();
+        for (String stream : streams) {
+            saved.put(stream, new ArrayList<String>());
+        }
+        for (int i = 0; i < 900; i++) {
+            String stream = streams[i % streams.length];
+            byte[] data = randomBytes(64);
+            saved.get(stream).add(Arrays.toString(data));
+            recorder.saveRecord(data, stream);
+        }
+        final Map<String, List<String>> sent = new ConcurrentHashMap<String, List<String>>();
+        for (String stream : streams) {
+            sent.put(stream, Collections.synchronizedList(new ArrayList<String>()));
+        }
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation) {
+                        String stream = (String) invocation.getArguments()[0];
+                        @SuppressWarnings("unchecked")
+                        List<byte[]> data = (List<byte[]>) invocation.getArguments()[1];
+                        for (byte[] record : data) {
+                            sent.get(stream).add(Arrays.toString(record));
+                        }
+                        return new ArrayList<byte[]>();
+                    }
+                });
+        recorder.submitAllRecords();
+        assertEquals("no records after submitAllRecords", 0, recorder.getDiskBytesUsed());
+        for (String stream : streams) {
+            List<String> expected = saved.get(stream);
+            List<String> actual = new ArrayList<String>(sent.get(stream));
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals("every record sent once", expected, actual);
+        }
+    }
+
+    @Test
+    public void testSubmitAllRecordsPipelinedSendsBatchesOfOneStreamConcurrently()
+            throws IOException {
+        usePipelinedRecorder(2);
+        for (int i = 0; i < 4 * 128; i++) {
+            recorder.saveRecord(randomBytes(64), STREAM_NAME);
+        }
+        // each of the first two batches waits for the other one to be sent
+        final CountDownLatch bothSent = new CountDownLatch(2);
+        final AtomicBoolean concurrent = new AtomicBoolean(true);
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation)
+                            throws InterruptedException {
+                        bothSent.countDown();
+                        if (!bothSent.await(5, TimeUnit.SECONDS)) {
+                            concurrent.set(false);
+                        }
+                        return new ArrayList<byte[]>();
+                    }
+                });
+        recorder.submitAllRecords();
+        assertTrue("batches of one stream in flight together", concurrent.get());
+        assertEquals("no records after submitAllRecords", 0, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsPipelinedDoesNotSaveFailuresOfKeptBatches()
+            throws IOException {
+        usePipelinedRecorder(2);
+        for (int i = 0; i < 128; i++) {
+            recorder.saveRecord(randomBytes(64), STREAM_NAME);
+        }
+        for (int i = 0; i < 128; i++) {
+            recorder.saveRecord(randomBytes(64), "another_stream");
+        }
+        long size = recorder.getDiskBytesUsed();
+        final AmazonServiceException ase = new AmazonServiceException("first batch failed");
+        final CountDownLatch secondSent = new CountDownLatch(1);
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation)
+                            throws InterruptedException {
+                        String stream = (String) invocation.getArguments()[0];
+                        @SuppressWarnings("unchecked")
+                        List<byte[]> data = (List<byte[]>) invocation.getArguments()[1];
+                        if (STREAM_NAME.equals(stream)) {
+                            // the first batch fails after the second one completed
+                            secondSent.await(5, TimeUnit.SECONDS);
+                            throw ase;
+                        }
+                        secondSent.countDown();
+                        return new ArrayList<byte[]>(data.subList(0, 10));
+                    }
+                });
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+        assertEquals("both batches kept once", size, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsPipelinedReusesThreads() throws IOException {
+        usePipelinedRecorder(2);
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                .thenAnswer(new Answer<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> answer(InvocationOnMock invocation) {
+                        threads.add(Thread.currentThread());
+                        return new ArrayList<byte[]>();
+                    }
+                });
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 3 * 128; j++) {
+                recorder.saveRecord(randomBytes(64), STREAM_NAME);
+            }
+            recorder.submitAllRecords();
+            assertEquals("no records after submitAllRecords", 0, recorder.getDiskBytesUsed());
+        }
+        assertTrue("at most 2 threads, was " + threads.size(), threads.size() <= 2);
+    }
+
+    @Test
+    public void testSubmitAllRecordsPipelinedWithRecoverableFailures() throws IOException {
+        usePipelinedRecorder(4);
+        for (int i = 0; i < 200; i++) {
+            recorder.saveRecord(randomBytes(1024), STREAM_NAME);
+        }
+        String anotherStream = "another_stream";
+        for (int i = 0; i < 200; i++) {
+            recorder.saveRecord(randomBytes(1024), anotherStream);
+        }
+        long size = recorder.getDiskBytesUsed();
+        AmazonServiceException ase = new AmazonServiceException("some failures");
+        Mockito.when(sender.sendBatch(Mockito.eq(STREAM_NAME), Mockito.anyListOf(byte[].class)))
+                .thenThrow(ase);
+        Mockito.when(sender.sendBatch(Mockito.eq(anotherStream), Mockito.anyListOf(byte[].class)))
+                .thenReturn(new ArrayList<byte[]>());
+        Mockito.when(sender.isRecoverable(ase)).thenReturn(true);
+        try {
+            recorder.submitAllRecords();
+            fail("Should throw exception");
+        } catch (AmazonClientException ace) {
+            assertSame("same exception", ase, ace);
+        }
+        assertEquals("records after the failed batch kept", size, recorder.getDiskBytesUsed());
+    }
+
+    @Test
+    public void testSubmitAllRecordsPipelinedWithPartialFailures() throws IOException {
+        usePipelinedRecorder(2);
+        for (int i = 0; i < 300; i++) {
+            recorder.saveRecord(randomBytes(1024), STREAM_NAME);
+        }
+        Mockito.when(sender.sendBatch(Mockito.anyString(), Mockito.anyListOf(byte[].class)))
+                // one of the records fails, but succeeds the next time
+                .thenReturn(Arrays.asList(randomBytes(1024)))
+                .thenReturn(new ArrayList<byte[]>());
+        recorder.submitAllRecords();
+        assertEquals("records removed", 0, recorder.getDiskBytesUsed());
+    }
+
+    private void usePipelinedRecorder(int maxInFlightBatches) throws IOException {
+        KinesisRecorderConfig config = new KinesisRecorderConfig()
+                .withDeadLetterListener(deadLetterListener)
+                .withMaxInFlightBatches(maxInFlightBatches);
+        FileRecordStore recordStore = new FileRecordStore(temp.newFolder(), RECORD_FILE_NAME,
+                config.getMaxStorageSize());
+        MockAbstractKinesisRecorder mockRecorder = new MockAbstractKinesisRecorder(recordStore,
+                config);
+        mockRecorder.setRecordSender(sender);
+        recorder = mockRecorder;
+    }
+
     private byte[] randomBytes(int length) {
         byte[] data = new byte[length];
         new Random().nextBytes(data);
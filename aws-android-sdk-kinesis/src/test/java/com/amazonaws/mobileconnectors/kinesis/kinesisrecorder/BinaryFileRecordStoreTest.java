@@ -0,0 +1,295 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class BinaryFileRecordStoreTest {
+
+    private static final File TEST_DIRECTORY = new File("BinaryFileRecordStoreTest");
+    private static final String RECORD_FILE_NAME = "records";
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final long SEGMENT_SIZE = 256L;
+
+    private BinaryFileRecordStore recordStore;
+
+    @Before
+    public void setup() {
+        TEST_DIRECTORY.mkdir();
+        recordStore = newRecordStore(true);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        recordStore.close();
+        delete(TEST_DIRECTORY);
+    }
+
+    private BinaryFileRecordStore newRecordStore(boolean checksum) {
+        return new BinaryFileRecordStore(TEST_DIRECTORY, RECORD_FILE_NAME, MAX_STORAGE_SIZE,
+                SEGMENT_SIZE, checksum);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File subFile : f.listFiles()) {
+                delete(subFile);
+            }
+        }
+        f.delete();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StringUtils.UTF8);
+    }
+
+    @Test
+    public void testPutAndPeekRecords() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(recordStore.putRecord(i % 2 == 0 ? "even" : "odd", bytes("record " + i)));
+        }
+        assertTrue("records rolled into several segments", recordStore.getSegmentCount() > 1);
+
+        RecordIterator iter = recordStore.iterator();
+        FileRecordParser frp = new FileRecordParser();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(iter.peekRecord(frp));
+            assertEquals(i % 2 == 0 ? "even" : "odd", frp.streamName);
+            assertArrayEquals(bytes("record " + i), frp.bytes);
+            iter.skip();
+        }
+        assertFalse(iter.peekRecord(frp));
+        iter.removeReadRecords();
+        assertEquals(0, recordStore.getFileSize());
+    }
+
+    @Test
+    public void testNextReturnsLineFormat() throws IOException {
+        recordStore.putRecord("stream", bytes("data"));
+        RecordIterator iter = recordStore.iterator();
+        assertEquals(FileRecordParser.asString("stream", bytes("data")), iter.next());
+        iter.close();
+    }
+
+    @Test
+    public void testSmallerThanLineFormat() throws IOException {
+        byte[] data = new byte[300];
+        recordStore.putRecord("stream", data);
+        assertTrue(recordStore.getFileSize()
+                < FileRecordParser.asString("stream", data).length());
+    }
+
+    @Test
+    public void testStreamNamesSurviveReopen() throws IOException {
+        recordStore.putRecord("first", bytes("1"));
+        recordStore.putRecord("second", bytes("2"));
+        recordStore.close();
+
+        recordStore = newRecordStore(false);
+        recordStore.putRecord("second", bytes("3"));
+        RecordIterator iter = recordStore.iterator();
+        FileRecordParser frp = new FileRecordParser();
+        String[] expected = {
+                "first", "second", "second"
+        };
+        for (String streamName : expected) {
+            assertTrue(iter.peekRecord(frp));
+            assertEquals(streamName, frp.streamName);
+            iter.skip();
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testCorruptedRecordIsSkipped() throws IOException {
+        recordStore.putRecord("stream", bytes("good"));
+        recordStore.putRecord("stream", bytes("bad"));
+        recordStore.putRecord("stream", bytes("good"));
+        recordStore.close();
+
+        File segment = onlySegment();
+        // flip a byte of the second record's data
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        long offset = 3 + 4 + 4 + 3;
+        raf.seek(offset);
+        raf.write('X');
+        raf.close();
+
+        recordStore = newRecordStore(true);
+        RecordIterator iter = recordStore.iterator();
+        FileRecordParser frp = new FileRecordParser();
+        int count = 0;
+        while (iter.peekRecord(frp)) {
+            assertArrayEquals(bytes("good"), frp.bytes);
+            iter.skip();
+            count++;
+        }
+        assertEquals(2, count);
+        iter.removeReadRecords();
+        assertEquals("corrupted record removed too", 0, recordStore.getFileSize());
+    }
+
+    @Test
+    public void testCorruptedFrameHeaderResyncsAtNextFrame() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            recordStore.putRecord("stream", bytes("r" + i));
+        }
+        recordStore.close();
+
+        // frames are flags, stream id, length, 2 bytes of data and a CRC32
+        corrupt(9, 0xff);
+
+        recordStore = newRecordStore(true);
+        assertRecords("r0", "r2", "r3", "r4");
+    }
+
+    @Test
+    public void testCorruptedLengthWithoutChecksumResyncsAtNextFrame() throws IOException {
+        recordStore.close();
+        recordStore = newRecordStore(false);
+        for (int i = 0; i < 5; i++) {
+            recordStore.putRecord("stream", bytes("r" + i));
+        }
+        recordStore.close();
+
+        // frames are flags, stream id, length and 2 bytes of data
+        corrupt(5 + 2, 0x7f);
+
+        recordStore = newRecordStore(false);
+        assertRecords("r0", "r2", "r3", "r4");
+    }
+
+    @Test
+    public void testRecoveryKeepsRecordsAfterCorruptedFrame() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            recordStore.putRecord("stream", bytes("r" + i));
+        }
+        recordStore.close();
+        corrupt(9, 0xff);
+
+        // reopening repairs the active segment before appending to it
+        recordStore = newRecordStore(true);
+        recordStore.putRecord("stream", bytes("r3"));
+        assertRecords("r0", "r2", "r3");
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        recordStore.putRecord("stream", bytes("complete"));
+        recordStore.putRecord("stream", bytes("torn"));
+        recordStore.close();
+
+        File segment = onlySegment();
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        raf.setLength(raf.length() - 2);
+        raf.close();
+
+        recordStore = newRecordStore(true);
+        recordStore.putRecord("stream", bytes("after"));
+        RecordIterator iter = recordStore.iterator();
+        FileRecordParser frp = new FileRecordParser();
+        assertTrue(iter.peekRecord(frp));
+        assertArrayEquals(bytes("complete"), frp.bytes);
+        iter.skip();
+        assertTrue(iter.peekRecord(frp));
+        assertArrayEquals(bytes("after"), frp.bytes);
+        iter.skip();
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testMigratesLineRecords() throws IOException {
+        recordStore.close();
+        delete(TEST_DIRECTORY);
+        TEST_DIRECTORY.mkdir();
+
+        FileRecordStore legacyStore = new FileRecordStore(TEST_DIRECTORY, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE);
+        legacyStore.putRecord("stream", bytes("1"));
+        legacyStore.putRecord("stream", bytes("2"));
+
+        recordStore = newRecordStore(true);
+        RecordIterator iter = recordStore.iterator();
+        FileRecordParser frp = new FileRecordParser();
+        assertTrue(iter.peekRecord(frp));
+        assertArrayEquals(bytes("1"), frp.bytes);
+        iter.skip();
+        assertTrue(iter.peekRecord(frp));
+        assertArrayEquals(bytes("2"), frp.bytes);
+        iter.skip();
+        assertFalse(iter.hasNext());
+        iter.close();
+
+        File recordsDir = new File(TEST_DIRECTORY, Constants.RECORDS_DIRECTORY);
+        assertFalse(new File(recordsDir, RECORD_FILE_NAME).exists());
+        assertFalse(new File(recordsDir, RECORD_FILE_NAME
+                + SegmentedFileRecordStore.SEGMENTS_DIRECTORY_SUFFIX).exists());
+    }
+
+    private void corrupt(long offset, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(onlySegment(), "rw");
+        raf.seek(offset);
+        raf.write(value);
+        raf.close();
+    }
+
+    /**
+     * Reads all records, then removes them and checks nothing is left.
+     */
+    private void assertRecords(String... expected) throws IOException {
+        RecordIterator iter = recordStore.iterator();
+        FileRecordParser frp = new FileRecordParser();
+        for (String data : expected) {
+            assertTrue("record " + data, iter.peekRecord(frp));
+            assertArrayEquals(bytes(data), frp.bytes);
+            iter.skip();
+        }
+        assertFalse(iter.peekRecord(frp));
+        iter.removeReadRecords();
+        iter.close();
+        assertEquals("corrupted bytes removed too", 0, recordStore.getFileSize());
+    }
+
+    private File onlySegment() {
+        File segmentsDir = new File(new File(TEST_DIRECTORY, Constants.RECORDS_DIRECTORY),
+                RECORD_FILE_NAME + BinaryFileRecordStore.BINARY_DIRECTORY_SUFFIX);
+        File[] segments = segmentsDir.listFiles();
+        File segment = null;
+        for (File f : segments) {
+            if (f.getName().endsWith(SegmentedFileRecordStore.SEGMENT_FILE_SUFFIX)) {
+                assertEquals("single segment", null, segment);
+                segment = f;
+            }
+        }
+        return segment;
+    }
+}
@@ -153,6 +153,35 @@ public class FileRecordStoreTest {
 
     }
 
+    @Test
+    public void testRemoveRecordsUpToMark() throws IOException {
+        FileRecordStore recordStore = new FileRecordStore(TEST_DIRECTORY,
+                RECORDER_FILE_NAME, MAX_STORAGE_SIZE);
+        for (int i = 1; i <= 10; i++) {
+            recordStore.put(String.valueOf(i));
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 1; i <= 3; i++) {
+            iter.next();
+        }
+        FileRecordStore.RecordMark mark = iter.mark();
+        for (int i = 4; i <= 6; i++) {
+            iter.next();
+        }
+        assertEquals("7", iter.peek());
+        iter.removeRecordsUpTo(mark);
+        // reading continues where it was
+        assertEquals("7", iter.next());
+        iter.close();
+
+        iter = recordStore.iterator();
+        for (int i = 4; i <= 10; i++) {
+            assertEquals(String.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
     @Test
     public void
             testWhenRecordssFileIsMissingAndRecordssDirectoryIsReadOnly_error() throws IOException {
@@ -16,6 +16,7 @@
 package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import com.amazonaws.ClientConfiguration;
 
@@ -72,6 +73,26 @@ public class KinesisRecorderConfigTest {
         KinesisRecorderConfig kConfig = new KinesisRecorderConfig();
         kConfig.withMaxStorageSize(100);
         assertEquals(kConfig.getMaxStorageSize(), 100);
+        kConfig.withSegmentedStorage(true).withSegmentSize(1024);
+        assertTrue(kConfig.isSegmentedStorageEnabled());
+        assertEquals(kConfig.getSegmentSize(), 1024);
+
+        KinesisRecorderConfig copiedConfig = new KinesisRecorderConfig(kConfig);
+        assertTrue(copiedConfig.isSegmentedStorageEnabled());
+        assertEquals(copiedConfig.getSegmentSize(), 1024);
+
+        kConfig.withBinaryRecordFormat(true).withRecordChecksum(true);
+        assertTrue(kConfig.isBinaryRecordFormatEnabled());
+        assertTrue(kConfig.isRecordChecksumEnabled());
+        copiedConfig = new KinesisRecorderConfig(kConfig);
+        assertTrue(copiedConfig.isBinaryRecordFormatEnabled());
+        assertTrue(copiedConfig.isRecordChecksumEnabled());
+
+        assertEquals(kConfig.getMaxInFlightBatches(), 1);
+        kConfig.withMaxInFlightBatches(4);
+        assertEquals(kConfig.getMaxInFlightBatches(), 4);
+        copiedConfig = new KinesisRecorderConfig(kConfig);
+        assertEquals(copiedConfig.getMaxInFlightBatches(), 4);
     }
 
 }
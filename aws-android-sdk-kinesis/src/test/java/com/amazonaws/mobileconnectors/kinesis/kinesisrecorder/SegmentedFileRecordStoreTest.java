@@ -0,0 +1,205 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.kinesis.kinesisrecorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.amazonaws.mobileconnectors.kinesis.kinesisrecorder.FileRecordStore.RecordIterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class SegmentedFileRecordStoreTest {
+
+    private static final File TEST_DIRECTORY = new File("SegmentedFileRecordStoreTest");
+    private static final String RECORD_FILE_NAME = "records";
+    private static final long MAX_STORAGE_SIZE = 1024 * 1024 * 5L;
+    private static final long SEGMENT_SIZE = 64L;
+
+    private SegmentedFileRecordStore recordStore;
+
+    @Before
+    public void setup() {
+        TEST_DIRECTORY.mkdir();
+        recordStore = new SegmentedFileRecordStore(TEST_DIRECTORY, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE, SEGMENT_SIZE);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        recordStore.close();
+        delete(TEST_DIRECTORY);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File subFile : f.listFiles()) {
+                delete(subFile);
+            }
+        }
+        f.delete();
+    }
+
+    @Test
+    public void testPutIterateAndRemoveAcrossSegments() throws IOException {
+        for (int i = 1; i <= 30; i++) {
+            assertTrue(recordStore.put(String.valueOf(i)));
+        }
+        assertTrue("records rolled into several segments", recordStore.getSegmentCount() > 1);
+
+        RecordIterator iter = recordStore.iterator();
+        int counter = 0;
+        while (iter.hasNext()) {
+            counter++;
+            assertEquals(String.valueOf(counter), iter.next());
+            if (counter % 10 == 0) {
+                iter.removeReadRecords();
+            }
+        }
+        assertEquals(30, counter);
+        assertEquals("no records left", 0, recordStore.getFileSize());
+        assertEquals("acknowledged segments deleted", 1, recordStore.getSegmentCount());
+
+        iter = recordStore.iterator();
+        assertFalse(iter.hasNext());
+        assertNull(iter.next());
+    }
+
+    @Test
+    public void testUnreadRecordsSurviveRemoveReadRecords() throws IOException {
+        for (int i = 1; i <= 20; i++) {
+            recordStore.put(String.valueOf(i));
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(String.valueOf(i), iter.next());
+        }
+        // a peeked record is not acknowledged
+        assertEquals("13", iter.peek());
+        iter.removeReadRecords();
+
+        iter = recordStore.iterator();
+        for (int i = 13; i <= 20; i++) {
+            assertEquals(String.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testCheckpointPersistsAcrossReopen() throws IOException {
+        for (int i = 1; i <= 20; i++) {
+            recordStore.put(String.valueOf(i));
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 1; i <= 15; i++) {
+            iter.next();
+        }
+        iter.removeReadRecords();
+        long size = recordStore.getFileSize();
+        recordStore.close();
+
+        recordStore = new SegmentedFileRecordStore(TEST_DIRECTORY, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        assertEquals(size, recordStore.getFileSize());
+        recordStore.put("21");
+        iter = recordStore.iterator();
+        for (int i = 16; i <= 21; i++) {
+            assertEquals(String.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testRemoveRecordsUpToMark() throws IOException {
+        for (int i = 1; i <= 20; i++) {
+            recordStore.put(String.valueOf(i));
+        }
+        RecordIterator iter = recordStore.iterator();
+        for (int i = 1; i <= 8; i++) {
+            iter.next();
+        }
+        FileRecordStore.RecordMark mark = iter.mark();
+        for (int i = 9; i <= 14; i++) {
+            iter.next();
+        }
+        iter.removeRecordsUpTo(mark);
+        // reading continues where it was
+        assertEquals("15", iter.next());
+        iter.close();
+
+        iter = recordStore.iterator();
+        for (int i = 9; i <= 20; i++) {
+            assertEquals(String.valueOf(i), iter.next());
+        }
+        assertFalse(iter.hasNext());
+        iter.close();
+    }
+
+    @Test
+    public void testMigratesRecordsFile() throws IOException {
+        recordStore.close();
+        delete(TEST_DIRECTORY);
+        TEST_DIRECTORY.mkdir();
+
+        FileRecordStore legacyStore = new FileRecordStore(TEST_DIRECTORY, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE);
+        legacyStore.put("1");
+        legacyStore.put("2");
+
+        recordStore = new SegmentedFileRecordStore(TEST_DIRECTORY, RECORD_FILE_NAME,
+                MAX_STORAGE_SIZE, SEGMENT_SIZE);
+        recordStore.put("3");
+        RecordIterator iter = recordStore.iterator();
+        assertEquals("1", iter.next());
+        assertEquals("2", iter.next());
+        assertEquals("3", iter.next());
+        assertFalse(iter.hasNext());
+        iter.close();
+        assertFalse("records file migrated", new File(new File(TEST_DIRECTORY,
+                Constants.RECORDS_DIRECTORY), RECORD_FILE_NAME).exists());
+    }
+
+    @Test
+    public void testRemoveAllRecords() throws IOException {
+        for (int i = 1; i <= 20; i++) {
+            recordStore.put(String.valueOf(i));
+        }
+        recordStore.iterator().removeAllRecords();
+        assertEquals(0, recordStore.getFileSize());
+        assertEquals(1, recordStore.getSegmentCount());
+        assertFalse(recordStore.iterator().hasNext());
+    }
+
+    @Test
+    public void testWhenWritingExceedsMaxStorageSize_noMoreRecordsWritten() throws IOException {
+        recordStore.close();
+        recordStore = new SegmentedFileRecordStore(TEST_DIRECTORY, "small", 100L, SEGMENT_SIZE);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(recordStore.put("ten bytes"));
+        }
+        assertEquals(100L, recordStore.getFileSize());
+        assertFalse(recordStore.put("ten bytes"));
+    }
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright 2016-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.amazonaws.services.pinpointanalytics.model.Event;
+import com.amazonaws.services.pinpointanalytics.model.Session;
+import com.amazonaws.util.DateUtils;
+import com.amazonaws.util.json.AwsJsonReader;
+import com.amazonaws.util.json.AwsJsonToken;
+import com.amazonaws.util.json.JsonUtils;
+
+/**
+ * A batch of stored events read from consecutive rows of the event table,
+ * ready to be sent in one PutEvents request. Each stored JSON row is read
+ * once with a streaming reader straight into the {@link Event} sent on the
+ * wire.
+ */
+final class EventBatch {
+
+    private final List<Event> events = new ArrayList<Event>();
+    private int firstId = -1;
+    private int lastId = -1;
+    private long size;
+    private boolean sizeKnown = true;
+    private String lastEventJson;
+
+    /**
+     * Adds a stored row to the batch. A row that can't be read is still part
+     * of the batch, so that it's deleted with the batch.
+     *
+     * @param id the row id
+     * @param rowSize the size column of the row, or null if unknown
+     * @param json the stored JSON of the event
+     * @return whether the row was read into an event
+     */
+    boolean add(final int id, final Integer rowSize, final String json) {
+        if (firstId < 0 || id < firstId) {
+            firstId = id;
+        }
+        lastId = Math.max(lastId, id);
+        if (rowSize == null || json == null || rowSize != json.length()) {
+            // recalculate the total size after the batch is deleted
+            sizeKnown = false;
+        } else {
+            size += rowSize;
+        }
+        final Event event = json == null ? null : readEvent(json);
+        if (event == null) {
+            return false;
+        }
+        events.add(event);
+        lastEventJson = json;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return firstId < 0;
+    }
+
+    List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * @return the lowest row id in the batch.
+     */
+    int getFirstId() {
+        return firstId;
+    }
+
+    /**
+     * @return the highest row id in the batch.
+     */
+    int getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return the total size of the rows in the batch, or null if a row had
+     *         no valid size.
+     */
+    Integer getSize() {
+        return sizeKnown ? Integer.valueOf((int) size) : null;
+    }
+
+    /**
+     * @return the stored JSON of the last event read, which describes the
+     *         client sending the batch.
+     */
+    String getLastEventJson() {
+        return lastEventJson;
+    }
+
+    /**
+     * Reads an event stored by {@link com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent#toJSONObject()}.
+     *
+     * @param json the stored JSON
+     * @return the event, or null if the JSON is invalid or misses a required
+     *         field
+     */
+    static Event readEvent(final String json) {
+        final AwsJsonReader reader = JsonUtils.getJsonReader(new StringReader(json));
+        try {
+            String eventType = null;
+            String timestamp = null;
+            Session session = null;
+            boolean hasEventId = false;
+            boolean hasUniqueId = false;
+            Map<String, String> attributes = new HashMap<String, String>();
+            Map<String, Double> metrics = new HashMap<String, Double>();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if ("event_type".equals(name)) {
+                    eventType = reader.nextString();
+                } else if ("timestamp".equals(name)) {
+                    timestamp = formatTimestamp(reader.nextString());
+                } else if ("event_id".equals(name)) {
+                    hasEventId = reader.nextString() != null;
+                } else if ("unique_id".equals(name)) {
+                    hasUniqueId = reader.nextString() != null;
+                } else if ("session".equals(name)) {
+                    session = readSession(reader);
+                } else if ("attributes".equals(name) && reader.peek() == AwsJsonToken.BEGIN_OBJECT) {
+                    attributes = readAttributes(reader);
+                } else if ("metrics".equals(name) && reader.peek() == AwsJsonToken.BEGIN_OBJECT) {
+                    metrics = readMetrics(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (eventType == null || timestamp == null || session == null || !hasEventId || !hasUniqueId) {
+                return null;
+            }
+            return new Event()
+                .withAttributes(attributes)
+                .withMetrics(metrics)
+                .withEventType(eventType)
+                .withTimestamp(timestamp)
+                .withSession(session);
+        } catch (final IOException e) {
+            return null;
+        } catch (final RuntimeException e) {
+            // malformed JSON or numbers
+            return null;
+        } finally {
+            try {
+                reader.close();
+            } catch (final IOException e) {
+                // reading from a string
+            }
+        }
+    }
+
+    private static Session readSession(final AwsJsonReader reader) throws IOException {
+        String id = null;
+        String start = null;
+        long stop = 0;
+        long duration = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if ("id".equals(name)) {
+                id = reader.nextString();
+            } else if ("startTimestamp".equals(name)) {
+                start = formatTimestamp(reader.nextString());
+            } else if ("stopTimestamp".equals(name)) {
+                stop = Long.parseLong(reader.nextString());
+            } else if ("duration".equals(name)) {
+                duration = Long.parseLong(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (id == null || start == null) {
+            return null;
+        }
+        final Session session = new Session().withId(id).withStartTimestamp(start);
+        if (stop != 0L) {
+            session.withStopTimestamp(DateUtils.formatISO8601Date(new Date(stop)));
+        }
+        if (duration != 0L) {
+            session.withDuration(duration);
+        }
+        return session;
+    }
+
+    private static Map<String, String> readAttributes(final AwsJsonReader reader) throws IOException {
+        final Map<String, String> attributes = new HashMap<String, String>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.isContainer()) {
+                reader.skipValue();
+            } else {
+                attributes.put(name, reader.nextString());
+            }
+        }
+        reader.endObject();
+        return attributes;
+    }
+
+    private static Map<String, Double> readMetrics(final AwsJsonReader reader) throws IOException {
+        final Map<String, Double> metrics = new HashMap<String, Double>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.isContainer()) {
+                reader.skipValue();
+                continue;
+            }
+            final String value = reader.nextString();
+            try {
+                metrics.put(name, Double.valueOf(value));
+            } catch (final NumberFormatException e) {
+                // skip metrics that aren't numbers, as before
+            }
+        }
+        reader.endObject();
+        return metrics;
+    }
+
+    private static String formatTimestamp(final String millis) {
+        return DateUtils.formatISO8601Date(new Date(Long.parseLong(millis)));
+    }
+}
@@ -21,10 +21,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.json.JSONArray;
@@ -43,10 +50,14 @@ import com.amazonaws.util.Base64;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.VersionInfoUtils;
 import android.database.Cursor;
-import android.net.Uri;
 
 /**
  * Provides methods to record events and submit events to Pinpoint.
+ * <p>
+ * Recorded events are captured in an in-memory ring buffer without blocking
+ * the caller. A background writer drains the buffer into the local database
+ * in transactional batches. Events recorded while the buffer is full are
+ * dropped and counted, see {@link #getDroppedEventCount()}.
  */
 public class EventRecorder {
 
@@ -56,19 +67,77 @@ public class EventRecorder {
     static final long DEFAULT_MAX_PENDING_SIZE = 5 * 1024 * 1024;
     static final String KEY_MAX_SUBMISSIONS_ALLOWED = "maxSubmissionAllowed";
     static final int DEFAULT_MAX_SUBMISSIONS_ALLOWED = 3;
+    static final String KEY_MAX_CONCURRENT_SUBMISSIONS = "maxConcurrentSubmissions";
+    static final int DEFAULT_MAX_CONCURRENT_SUBMISSIONS = 3;
+    /**
+     * The most batches ever sent at the same time.
+     */
+    private static final int MAX_CONCURRENT_SUBMISSIONS = 8;
     private static final String USER_AGENT = PinpointManager.class.getName() + "/" + VersionInfoUtils.getVersion();
     private static int clippedEventLength = 10;
     private final static int MAX_EVENT_OPERATIONS = 1000;
+    /**
+     * The number of recorded events that can wait to be written to database.
+     */
+    private static final int MAX_PENDING_EVENTS = 1024;
+    /**
+     * The most events written to database in one transaction.
+     */
+    private static final int MAX_EVENTS_PER_TRANSACTION = 128;
+    private static final long WRITER_KEEP_ALIVE_SECONDS = 30;
     private static final long MINIMUM_PENDING_SIZE = 16 * 1024;
     private static final Log log = LogFactory.getLog(EventRecorder.class);
     private final PinpointDBUtil dbUtil;
     private final ExecutorService submissionRunnableQueue;
     private final PinpointContext pinpointContext;
+    private final ExecutorService eventWriter;
+    /**
+     * Sends all but one of the batches of a round of submissions.
+     */
+    private final ExecutorService submissionWorkers = newSubmissionWorkers();
+    private final EventRingBuffer<AnalyticsEvent> pendingEvents =
+        new EventRingBuffer<AnalyticsEvent>(MAX_PENDING_EVENTS);
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final Object writeLock = new Object();
+    private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // events recorded from now on schedule another write
+            writeScheduled.set(false);
+            flushEvents();
+        }
+    };
 
     EventRecorder(final PinpointContext pinpointContext, final PinpointDBUtil dbUtil, final ExecutorService submissionRunnableQueue) {
+        this(pinpointContext, dbUtil, submissionRunnableQueue, newEventWriter());
+    }
+
+    EventRecorder(final PinpointContext pinpointContext, final PinpointDBUtil dbUtil, final ExecutorService submissionRunnableQueue,
+                  final ExecutorService eventWriter) {
         this.pinpointContext = pinpointContext;
         this.dbUtil = dbUtil;
         this.submissionRunnableQueue = submissionRunnableQueue;
+        this.eventWriter = eventWriter;
+    }
+
+    private static ExecutorService newSubmissionWorkers() {
+        final ThreadPoolExecutor workers = new ThreadPoolExecutor(MAX_CONCURRENT_SUBMISSIONS, MAX_CONCURRENT_SUBMISSIONS,
+                                                                  WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                                  new LinkedBlockingQueue<Runnable>());
+        workers.allowCoreThreadTimeOut(true);
+        return workers;
+    }
+
+    /**
+     * A single thread that stops when idle. At most one write is queued at a
+     * time, so the queue doesn't need a bound.
+     */
+    private static ExecutorService newEventWriter() {
+        final ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, WRITER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<Runnable>());
+        writer.allowCoreThreadTimeOut(true);
+        return writer;
     }
 
     /**
@@ -84,7 +153,7 @@ public class EventRecorder {
         final ExecutorService submissionRunnableQueue = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
                                                                                new LinkedBlockingQueue<Runnable>(
                                                                                    MAX_EVENT_OPERATIONS),
-                                                                               new ThreadPoolExecutor.DiscardPolicy());
+                                                                               new CountingDiscardPolicy());
         return new EventRecorder(pinpointContext, dbUtil, submissionRunnableQueue);
     }
 
@@ -98,42 +167,159 @@ public class EventRecorder {
     }
 
     public void closeDB() {
+        flushEvents();
         dbUtil.closeDB();
     }
 
-    public Uri recordEvent(final AnalyticsEvent event) {
-        if (event != null) {
-            log.info(String.format("Event Recorded to database with EventType: %s",
-                                   StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
+    /**
+     * Records an event. The event is written to the local database in the
+     * background, together with other recent events.
+     *
+     * @param event the event to record
+     * @return false if the event was dropped because too many events are
+     *         waiting to be written, true otherwise
+     */
+    public boolean recordEvent(final AnalyticsEvent event) {
+        if (event == null) {
+            log.warn("The provided event was null.");
+            return false;
+        }
+        if (!pendingEvents.offer(event)) {
+            final long dropped = droppedEvents.incrementAndGet();
+            log.warn(String.format(Locale.US, "Event: '%s' dropped because %d events are waiting to be saved. "
+                                   + "Events dropped: %d",
+                                   StringUtil.clipString(event.getEventType(), clippedEventLength, true),
+                                   pendingEvents.capacity(), dropped));
+            return false;
+        }
+        log.info(String.format("Event Recorded with EventType: %s",
+                               StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                eventWriter.execute(writeRunnable);
+            } catch (final RejectedExecutionException e) {
+                writeScheduled.set(false);
+                log.warn("Unable to schedule writing events, they will be saved on next submission.", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes all recorded events waiting in memory to the local database,
+     * a batch per transaction, then drops the oldest events until the
+     * database fits in the configured maximum pending size.
+     *
+     * @return the number of events written
+     */
+    public int flushEvents() {
+        synchronized (writeLock) {
+            final List<AnalyticsEvent> batch = new ArrayList<AnalyticsEvent>(MAX_EVENTS_PER_TRANSACTION);
+            int written = 0;
+            while (true) {
+                AnalyticsEvent event;
+                while (batch.size() < MAX_EVENTS_PER_TRANSACTION && (event = pendingEvents.poll()) != null) {
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                written += saveEvents(batch);
+                batch.clear();
+            }
+            if (written > 0) {
+                trimEvents();
+            }
+            return written;
+        }
+    }
+
+    private int saveEvents(final List<AnalyticsEvent> events) {
+        int saved = 0;
+        try {
+            dbUtil.beginTransaction();
+            try {
+                for (final AnalyticsEvent event : events) {
+                    if (dbUtil.saveEvent(event) != null) {
+                        saved++;
+                    } else {
+                        log.warn(String.format("Event: '%s' failed to record to local database.",
+                                               StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
+                    }
+                }
+                dbUtil.setTransactionSuccessful();
+            } finally {
+                dbUtil.endTransaction();
+            }
+        } catch (final Exception e) {
+            log.error(String.format(Locale.US, "Failed to record %d events to local database.", events.size()), e);
+            return 0;
         }
+        return saved;
+    }
+
+    private void trimEvents() {
         long maxPendingSize = pinpointContext.getConfiguration().optLong(KEY_MAX_PENDING_SIZE, DEFAULT_MAX_PENDING_SIZE);
         if (maxPendingSize < MINIMUM_PENDING_SIZE) {
             maxPendingSize = MINIMUM_PENDING_SIZE;
         }
 
-        final Uri uri = this.dbUtil.saveEvent(event);
-        if (uri != null) {
-            while (this.dbUtil.getTotalSize() > maxPendingSize) {
-                Cursor cursor = null;
-                try {
-                    cursor = this.dbUtil.queryOldestEvents(5);
-                    while (this.dbUtil.getTotalSize() > maxPendingSize && cursor.moveToNext()) {
-                        this.dbUtil.deleteEvent(
-                            cursor.getInt(EventTable.COLUMN_INDEX.ID.getValue()),
-                            cursor.getInt(EventTable.COLUMN_INDEX.SIZE.getValue()));
-                    }
-                } finally {
-                    if (cursor != null) {
-                        cursor.close();
-                    }
+        while (this.dbUtil.getTotalSize() > maxPendingSize) {
+            Cursor cursor = null;
+            try {
+                cursor = this.dbUtil.queryOldestEvents(5);
+                while (this.dbUtil.getTotalSize() > maxPendingSize && cursor.moveToNext()) {
+                    this.dbUtil.deleteEvent(
+                        cursor.getInt(EventTable.COLUMN_INDEX.ID.getValue()),
+                        cursor.getInt(EventTable.COLUMN_INDEX.SIZE.getValue()));
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
                 }
             }
+        }
+    }
 
-            return uri;
-        } else {
-            log.warn(String.format("Event: '%s' failed to record to local database.",
-                                   StringUtil.clipString(event.getEventType(), clippedEventLength, true)));
-            return null;
+    /**
+     * @return the number of recorded events dropped because too many events
+     *         were waiting to be written to the local database.
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * @return the number of submission requests dropped because too many
+     *         submissions were queued.
+     */
+    public long getDroppedSubmissionCount() {
+        if (submissionRunnableQueue instanceof ThreadPoolExecutor) {
+            final RejectedExecutionHandler handler =
+                ((ThreadPoolExecutor) submissionRunnableQueue).getRejectedExecutionHandler();
+            if (handler instanceof CountingDiscardPolicy) {
+                return ((CountingDiscardPolicy) handler).getDropped();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Discards the submission requests that don't fit in the queue. Every
+     * queued submission sends all saved events, so a dropped one loses no
+     * events, but drops are counted and logged.
+     */
+    static final class CountingDiscardPolicy implements RejectedExecutionHandler {
+        private final AtomicLong dropped = new AtomicLong();
+
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+            log.warn("Submission dropped because too many submissions are queued. Submissions dropped: "
+                     + dropped.incrementAndGet());
+        }
+
+        long getDropped() {
+            return dropped.get();
         }
     }
 
@@ -207,28 +393,47 @@ public class EventRecorder {
         });
     }
 
-    JSONArray getBatchOfEvents(final Cursor cursor, final List<Integer> idsToDelete, final List<Integer> sizeToDelete) {
-        final JSONArray eventArray = new JSONArray();
+    /**
+     * Reads consecutive rows from the cursor into a batch, up to the
+     * configured maximum submission size in bytes. Leaves the cursor on the
+     * last row read.
+     */
+    EventBatch readBatch(final Cursor cursor, final long maxRequestSize) {
+        final EventBatch batch = new EventBatch();
         long currentRequestSize = 0;
-        long eventLength;
-        final long maxRequestSize = pinpointContext.getConfiguration().optLong(KEY_MAX_SUBMISSION_SIZE, DEFAULT_MAX_SUBMISSION_SIZE);
-
         do {
-            JSONObject json = readEventFromCursor(cursor, idsToDelete, sizeToDelete);
-            if (json != null) {
-                eventLength = json.length();
-                currentRequestSize += eventLength;
-                eventArray.put(json);
+            if (cursor.isNull(ID_COLUMN_INDEX)) {
+                log.error("Column 'ID' for event was NULL.");
+                continue;
             }
+            final int rowId = cursor.getInt(ID_COLUMN_INDEX);
+            Integer size = null;
+            if (cursor.isNull(SIZE_COLUMN_INDEX)) {
+                log.error("Column 'SIZE' for event was NULL.");
+            } else {
+                size = cursor.getInt(SIZE_COLUMN_INDEX);
+            }
+            String message = null;
+            try {
+                message = cursor.isNull(JSON_COLUMN_INDEX) ? null : cursor.getString(JSON_COLUMN_INDEX);
+            } catch (final Exception ex) {
+                log.error("Failed accessing cursor to get next event.", ex);
+            }
+            // the row is deleted with the batch even if it's invalid, so a
+            // corrupted row doesn't stay in the database
+            if (!batch.add(rowId, size, message)) {
+                log.error(String.format(Locale.US, "Unable to read event with ID=%d.", rowId));
+            }
+            currentRequestSize += message == null ? 0 : message.length();
             if (currentRequestSize > maxRequestSize) {
                 break;
             }
         } while (cursor.moveToNext());
-
-        return eventArray;
+        return batch;
     }
 
     public List<JSONObject> getAllEvents() {
+        flushEvents();
         final List<JSONObject> events = new ArrayList<JSONObject>();
         Cursor cursor = null;
         try {
@@ -247,13 +452,20 @@ public class EventRecorder {
         return events;
     }
 
+    /**
+     * Submits saved events, several batches at a time, until the configured
+     * number of batches has been submitted successfully or there are no more
+     * events. Successfully submitted batches are deleted by id range.
+     */
     void processEvents() {
         final long start = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        flushEvents();
 
         Cursor cursor = null;
 
         try {
-            cursor = dbUtil.queryAllEvents();
+            // batches are deleted by id range, so they must be read in id order
+            cursor = dbUtil.queryAllEventsById();
 
             if (!cursor.moveToFirst()) {
                 // if the cursor is empty there is nothing to do.
@@ -261,38 +473,36 @@ public class EventRecorder {
                 return;
             }
 
-            final List<Integer> idsToDelete = new ArrayList<Integer>();
-            final List<Integer> sizeToDelete = new ArrayList<Integer>();
-            boolean successful;
-            int submissions = 0;
-            final long maxSubmissionsAllowed = pinpointContext
+            final long maxRequestSize = pinpointContext.getConfiguration()
+                .optLong(KEY_MAX_SUBMISSION_SIZE, DEFAULT_MAX_SUBMISSION_SIZE);
+            final int maxSubmissionsAllowed = pinpointContext
                 .getConfiguration()
                 .optInt(KEY_MAX_SUBMISSIONS_ALLOWED, DEFAULT_MAX_SUBMISSIONS_ALLOWED);
+            final int maxInFlight = Math.max(1, Math.min(MAX_CONCURRENT_SUBMISSIONS, pinpointContext
+                .getConfiguration()
+                .optInt(KEY_MAX_CONCURRENT_SUBMISSIONS, DEFAULT_MAX_CONCURRENT_SUBMISSIONS)));
+            int submissions = 0;
+            boolean moreEvents = true;
 
             do {
-                final List<Integer> batchIdsToDelete = new ArrayList<Integer>();
-                final List<Integer> batchSizeToDelete = new ArrayList<Integer>();
-                successful = submitEvents(
-                    this.getBatchOfEvents(cursor, batchIdsToDelete, batchSizeToDelete));
-                if (successful) {
-                    idsToDelete.addAll(batchIdsToDelete);
-                    sizeToDelete.addAll(batchSizeToDelete);
+                // never have more batches in flight than may still succeed
+                final int round = Math.max(1, Math.min(maxInFlight, maxSubmissionsAllowed - submissions));
+                final List<EventBatch> batches = new ArrayList<EventBatch>(round);
+                do {
+                    batches.add(readBatch(cursor, maxRequestSize));
+                    moreEvents = cursor.moveToNext();
+                } while (moreEvents && batches.size() < round);
+
+                for (final EventBatch batch : submitBatches(batches)) {
                     submissions++;
-                }
-                if (submissions >= maxSubmissionsAllowed) {
-                    break;
-                }
-            } while (cursor.moveToNext());
-
-            if (sizeToDelete.size() > 0) {
-                for (int i = 0; i < sizeToDelete.size(); i++) {
                     try {
-                        dbUtil.deleteEvent(idsToDelete.get(i), sizeToDelete.get(i));
+                        dbUtil.deleteEvents(batch.getFirstId(), batch.getLastId(), batch.getSize());
                     } catch (final Exception exc) {
-                        log.error("Failed to delete event: " + idsToDelete.get(i), exc);
+                        log.error(String.format(Locale.US, "Failed to delete events: %d to %d",
+                                                batch.getFirstId(), batch.getLastId()), exc);
                     }
                 }
-            }
+            } while (moreEvents && submissions < maxSubmissionsAllowed);
 
             log.info(String.format(Locale.US, "Time of attemptDelivery: %d",
                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime()) - start));
@@ -303,12 +513,67 @@ public class EventRecorder {
         }
     }
 
-    boolean submitEvents(final JSONArray eventArray) {
+    /**
+     * Sends the batches concurrently.
+     *
+     * @return the batches that can be deleted.
+     */
+    private List<EventBatch> submitBatches(final List<EventBatch> batches) {
+        final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(batches.size());
+        for (final EventBatch batch : batches.subList(1, batches.size())) {
+            futures.add(submissionWorkers.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return submitBatch(batch);
+                }
+            }));
+        }
+
+        final List<EventBatch> submitted = new ArrayList<EventBatch>(batches.size());
+        // the first batch is sent from this thread
+        if (submitBatch(batches.get(0))) {
+            submitted.add(batches.get(0));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                if (futures.get(i).get()) {
+                    submitted.add(batches.get(i + 1));
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while submitting events. Events will be saved.");
+            } catch (final ExecutionException e) {
+                log.warn("Unable to successfully deliver events to server. Events will be saved.", e.getCause());
+            }
+        }
+        return submitted;
+    }
+
+    /**
+     * @return whether the batch was delivered or rejected for good, so it
+     *         can be deleted.
+     */
+    boolean submitBatch(final EventBatch batch) {
+        if (batch.getEvents().isEmpty()) {
+            // nothing left to send, the rows are only deleted
+            return true;
+        }
+        final PutEventsRequest request = new PutEventsRequest().withEvents(batch.getEvents());
+        try {
+            final AnalyticsEvent clientEvent = AnalyticsEvent.translateToEvent(new JSONObject(batch.getLastEventJson()));
+            withClientContext(request, clientEvent, pinpointContext.getNetworkType(),
+                              pinpointContext.getTargetingClient());
+        } catch (final JSONException e) {
+            // Do not log JSONException due to potentially sensitive information
+            log.error("Stored event was invalid JSON.");
+            return true;
+        }
+        return submitEvents(request, batch.getEvents().size());
+    }
+
+    boolean submitEvents(final PutEventsRequest request, final int eventCount) {
         boolean submitted = false;
 
-        // package them into an ers request
-        final PutEventsRequest request = this.createRecordEventsRequest(eventArray, pinpointContext.getNetworkType(),
-                                                                        pinpointContext.getTargetingClient());
         request.withClientContextEncoding("base64");
 
         request.getRequestClientOptions().appendUserAgent(USER_AGENT);
@@ -316,7 +581,7 @@ public class EventRecorder {
         try {
             pinpointContext.getAnalyticsServiceClient().putEvents(request);
             submitted = true;
-            log.info(String.format("Successful submission of %d events.", eventArray.length()));
+            log.info(String.format("Successful submission of %d events.", eventCount));
 
             return submitted;
         } catch (final AmazonServiceException e) {
@@ -328,7 +593,7 @@ public class EventRecorder {
                 submitted = true;
                 log.error(
                     String.format("Failed to submit events to EventService: statusCode: " + e.getStatusCode() + " errorCode: ", errorCode));
-                log.error(String.format("Failed submission of %d events, events will be removed", eventArray.length()), e);
+                log.error(String.format("Failed submission of %d events, events will be removed", eventCount), e);
 
                 return submitted;
             } else {
@@ -358,7 +623,7 @@ public class EventRecorder {
         final PutEventsRequest putRequest = new PutEventsRequest();
         final List<Event> eventList = new ArrayList<Event>();
 
-        ClientContext clientContext = null;
+        AnalyticsEvent clientEvent = null;
         for (int i = 0; i < events.length(); i++) {
             JSONObject eventJSON = null;
             AnalyticsEvent internalEvent = null;
@@ -370,20 +635,7 @@ public class EventRecorder {
                 log.error("Stored event was invalid JSON.");
                 continue;
             }
-            clientContext = internalEvent.createClientContext(networkType);
-
-            //Add EndpointProfile profile to client pinpointContext
-            if (targetingClient != null &&
-                targetingClient.currentEndpoint() != null) {
-                final String endpoint = targetingClient.currentEndpoint().toJSONObject().toString();
-                final Map<String, String> customAttribute = new HashMap<String, String>();
-                customAttribute.put("endpoint", endpoint);
-                clientContext.setCustom(customAttribute);
-                // Do not log client context due to potentially sensitive information
-                log.info("Recorded profile to client pinpointContext.");
-            } else {
-                log.error("Event Client is null.");
-            }
+            clientEvent = internalEvent;
 
             final Event event = new Event();
             final Session session = new Session();
@@ -406,12 +658,37 @@ public class EventRecorder {
             eventList.add(event);
         }
 
-        if (clientContext != null && eventList.size() > 0) {
-            putRequest.withEvents(eventList).withClientContext(Base64.encodeAsString(clientContext.toJSONObject().toString().getBytes()));
+        if (clientEvent != null && eventList.size() > 0) {
+            putRequest.withEvents(eventList);
+            withClientContext(putRequest, clientEvent, networkType, targetingClient);
         } else {
             log.error("ClientContext is null or event list is empty.");
         }
         return putRequest;
     }
 
+    /**
+     * Sets the client context of the last event of a request, with the
+     * current endpoint profile, to the request. The client context is built
+     * once per request.
+     */
+    private static void withClientContext(final PutEventsRequest request, final AnalyticsEvent clientEvent,
+                                          final String networkType, final TargetingClient targetingClient) {
+        final ClientContext clientContext = clientEvent.createClientContext(networkType);
+
+        //Add EndpointProfile profile to client pinpointContext
+        if (targetingClient != null &&
+            targetingClient.currentEndpoint() != null) {
+            final String endpoint = targetingClient.currentEndpoint().toJSONObject().toString();
+            final Map<String, String> customAttribute = new HashMap<String, String>();
+            customAttribute.put("endpoint", endpoint);
+            clientContext.setCustom(customAttribute);
+            // Do not log client context due to potentially sensitive information
+            log.info("Recorded profile to client pinpointContext.");
+        } else {
+            log.error("Event Client is null.");
+        }
+        request.withClientContext(Base64.encodeAsString(clientContext.toJSONObject().toString().getBytes()));
+    }
+
 }
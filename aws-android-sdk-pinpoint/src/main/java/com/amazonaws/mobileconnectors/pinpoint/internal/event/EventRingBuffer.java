@@ -0,0 +1,124 @@
+/**
+ * Copyright 2016-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer that many threads can offer elements to
+ * and poll elements from. Each slot carries a sequence number telling whether
+ * it's ready to be written or read in the current lap, so producers and
+ * consumers only contend on a compare-and-set of their own position.
+ *
+ * @param <E> the type of elements
+ */
+class EventRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param minimumCapacity the least number of elements the buffer holds,
+     *            rounded up to a power of two
+     */
+    EventRingBuffer(final int minimumCapacity) {
+        if (minimumCapacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int capacity = 1;
+        while (capacity < minimumCapacity) {
+            capacity <<= 1;
+        }
+        mask = capacity - 1;
+        elements = new AtomicReferenceArray<E>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return the number of elements the buffer holds.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an element to the buffer without blocking.
+     *
+     * @param element the element to add
+     * @return false if the buffer is full, true otherwise
+     */
+    boolean offer(final E element) {
+        if (element == null) {
+            throw new IllegalArgumentException("Element can't be null");
+        }
+        while (true) {
+            final long position = tail.get();
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    // publish the slot to consumers
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // the slot still holds an element from the previous lap
+                return false;
+            }
+            // another producer claimed the slot, try the next one
+        }
+    }
+
+    /**
+     * Removes the oldest element of the buffer without blocking.
+     *
+     * @return the element, or null if the buffer is empty
+     */
+    E poll() {
+        while (true) {
+            final long position = head.get();
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    final E element = elements.getAndSet(index, null);
+                    // release the slot to producers of the next lap
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return the approximate number of elements in the buffer.
+     */
+    int size() {
+        final long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+}
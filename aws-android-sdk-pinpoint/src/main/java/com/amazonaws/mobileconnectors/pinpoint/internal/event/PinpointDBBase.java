@@ -40,6 +40,7 @@ public class PinpointDBBase {
     private final UriMatcher uriMatcher;
     private final PinpointDatabaseHelper databaseHelper;
     private long totalSize = -1;
+    private boolean transactionSuccessful;
 
     /**
      * Constructs TransferDBBase with the given Context.
@@ -104,6 +105,35 @@ public class PinpointDBBase {
         return Uri.parse(BASE_PATH + "/" + id);
     }
 
+    /**
+     * Begins a transaction on the calling thread, so that records inserted
+     * until {@link #endTransaction()} are committed together.
+     */
+    public void beginTransaction() {
+        databaseHelper.getWritableDatabase().beginTransaction();
+        transactionSuccessful = false;
+    }
+
+    /**
+     * Marks the current transaction as successful.
+     */
+    public void setTransactionSuccessful() {
+        databaseHelper.getWritableDatabase().setTransactionSuccessful();
+        transactionSuccessful = true;
+    }
+
+    /**
+     * Ends the current transaction. Records written by an unsuccessful
+     * transaction are rolled back.
+     */
+    public void endTransaction() {
+        databaseHelper.getWritableDatabase().endTransaction();
+        if (!transactionSuccessful) {
+            // the running total may count rolled back records
+            totalSize = -1;
+        }
+    }
+
     /**
      * Get total size of event records.
      *
@@ -194,6 +224,27 @@ public class PinpointDBBase {
         return rowsUpdated;
     }
 
+    /**
+     * Deletes the records whose ids are in a range, in a single statement.
+     *
+     * @param firstId   The first id of the range, inclusive.
+     * @param lastId    The last id of the range, inclusive.
+     * @param knownSize Known total size of the records (If known).
+     * @return Number of rows deleted.
+     */
+    public int deleteRange(final int firstId, final int lastId, final Integer knownSize) {
+        final SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        final long size = getTotalSize();
+        final int rowsDeleted = db.delete(TABLE_EVENT, EventTable.COLUMN_ID + " BETWEEN ? AND ?",
+                                          new String[] { Integer.toString(firstId), Integer.toString(lastId) });
+        if (rowsDeleted > 0 && knownSize != null) {
+            totalSize = size - knownSize;
+        } else if (rowsDeleted > 0) {
+            totalSize = -1;
+        }
+        return rowsDeleted;
+    }
+
     /**
      * Deletes a record in the table.
      *
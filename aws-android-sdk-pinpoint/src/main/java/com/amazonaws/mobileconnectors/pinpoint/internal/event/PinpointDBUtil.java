@@ -64,6 +64,29 @@ public class PinpointDBUtil {
         return pinpointDBBase.insert(pinpointDBBase.getContentUri(), generateContentValuesFromEvent(event));
     }
 
+    /**
+     * Begins a transaction. Events saved on the calling thread until
+     * {@link #endTransaction()} are committed together.
+     */
+    public void beginTransaction() {
+        pinpointDBBase.beginTransaction();
+    }
+
+    /**
+     * Marks the current transaction as successful.
+     */
+    public void setTransactionSuccessful() {
+        pinpointDBBase.setTransactionSuccessful();
+    }
+
+    /**
+     * Ends the current transaction, committing it if it was marked
+     * successful and rolling it back otherwise.
+     */
+    public void endTransaction() {
+        pinpointDBBase.endTransaction();
+    }
+
     private ContentValues generateContentValuesFromEvent(final AnalyticsEvent event) {
         ContentValues values = new ContentValues();
         String json = event.toJSONObject().toString();
@@ -81,14 +104,24 @@ public class PinpointDBUtil {
         return pinpointDBBase.query(pinpointDBBase.getContentUri(), null, null, null, null, null);
     }
 
+    /**
+     * Queries all the events in ascending id order, so that consecutive rows
+     * form an id range that holds no other rows.
+     *
+     * @return A Cursor pointing to records in the database.
+     */
+    public Cursor queryAllEventsById() {
+        return pinpointDBBase.query(pinpointDBBase.getContentUri(), null, null, null, COLUMN_ID + " ASC", null);
+    }
+
     /**
      * Queries all events from oldest. Does not include JSON.
      *
      * @return A Cursor pointing to records in the database.
      */
     public Cursor queryOldestEvents(final int limit) {
-        return pinpointDBBase.query(pinpointDBBase.getContentUri(), new String[] { COLUMN_ID, COLUMN_SIZE }, null, null, null,
-                                    Integer.toString(limit));
+        return pinpointDBBase.query(pinpointDBBase.getContentUri(), new String[] { COLUMN_ID, COLUMN_SIZE }, null, null,
+                                    COLUMN_ID + " ASC", Integer.toString(limit));
     }
 
     /**
@@ -112,6 +145,19 @@ public class PinpointDBUtil {
         return pinpointDBBase.delete(getEventUri(id), null, null, size);
     }
 
+    /**
+     * Deletes the events whose ids are in a range. Ids only grow, so the
+     * range doesn't cover events saved after the range was read.
+     *
+     * @param firstId The first id of the range, inclusive.
+     * @param lastId  The last id of the range, inclusive.
+     * @param size    Known total size of the events in the range.
+     * @return Number of rows deleted.
+     */
+    public int deleteEvents(final int firstId, final int lastId, final Integer size) {
+        return pinpointDBBase.deleteRange(firstId, lastId, size);
+    }
+
     /**
      * Gets the Uri of the event table.
      *
@@ -102,6 +102,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -128,6 +129,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -257,6 +259,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
     public void recordEvent_nullEvent_noObserverNotified() {
         final AnalyticsEvent event = null;
         target.recordEvent(event);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(0)).saveEvent(any(AnalyticsEvent.class));
     }
 
@@ -284,6 +287,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -334,6 +338,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -354,6 +359,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -384,6 +390,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -431,6 +438,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(1)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent recievedEvent = eventCaptor.getAllValues().get(0);
@@ -466,6 +474,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent firstReceivedEvent = eventCaptor.getAllValues()
@@ -514,6 +523,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent firstRecievedEvent = eventCaptor.getAllValues()
@@ -567,6 +577,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent firstRecievedEvent = eventCaptor.getAllValues()
@@ -619,6 +630,7 @@ public class AnalyticsClientTest extends MobileAnalyticsTestBase {
 
         ArgumentCaptor<AnalyticsEvent> eventCaptor = ArgumentCaptor
                                                              .forClass(AnalyticsEvent.class);
+        eventRecorder.flushEvents();
         verify(dbUtil, times(2)).saveEvent(eventCaptor.capture());
 
         final AnalyticsEvent firstRecievedEvent = eventCaptor.getAllValues()
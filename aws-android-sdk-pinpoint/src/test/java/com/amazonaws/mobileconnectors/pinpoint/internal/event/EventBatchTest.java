@@ -0,0 +1,94 @@
+/**
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import com.amazonaws.services.pinpointanalytics.model.Event;
+import com.amazonaws.util.DateUtils;
+import java.util.Date;
+
+public class EventBatchTest {
+
+    private static final String EVENT_JSON = "{\"event_id\":\"id1\",\"event_type\":\"type\",\"unique_id\":\"abc\","
+        + "\"timestamp\":1370111901909,\"platform\":\"ANDROID\","
+        + "\"session\":{\"id\":\"s1\",\"startTimestamp\":100,\"stopTimestamp\":1000,\"duration\":900},"
+        + "\"sdk_version\":\"test\",\"attributes\":{\"a\":\"1\",\"b\":true},\"metrics\":{\"m\":1.5}}";
+
+    @Test
+    public void testReadEvent() {
+        final Event event = EventBatch.readEvent(EVENT_JSON);
+        assertEquals("type", event.getEventType());
+        assertEquals(DateUtils.formatISO8601Date(new Date(1370111901909L)), event.getTimestamp());
+        assertEquals("s1", event.getSession().getId());
+        assertEquals(DateUtils.formatISO8601Date(new Date(100L)), event.getSession().getStartTimestamp());
+        assertEquals(DateUtils.formatISO8601Date(new Date(1000L)), event.getSession().getStopTimestamp());
+        assertEquals(Long.valueOf(900L), event.getSession().getDuration());
+        assertEquals("1", event.getAttributes().get("a"));
+        assertEquals("true", event.getAttributes().get("b"));
+        assertEquals(Double.valueOf(1.5), event.getMetrics().get("m"));
+    }
+
+    @Test
+    public void testOpenSessionHasNoStopOrDuration() {
+        final Event event = EventBatch.readEvent("{\"event_id\":\"id1\",\"event_type\":\"type\",\"unique_id\":\"abc\","
+            + "\"timestamp\":1,\"session\":{\"id\":\"s1\",\"startTimestamp\":100}}");
+        assertNull(event.getSession().getStopTimestamp());
+        assertNull(event.getSession().getDuration());
+        assertTrue(event.getAttributes().isEmpty());
+        assertTrue(event.getMetrics().isEmpty());
+    }
+
+    @Test
+    public void testInvalidEventsAreNotRead() {
+        assertNull(EventBatch.readEvent("{\"event_id\":\"id1\""));
+        assertNull(EventBatch.readEvent("not json"));
+        // missing unique_id
+        assertNull(EventBatch.readEvent("{\"event_id\":\"id1\",\"event_type\":\"type\",\"timestamp\":1,"
+            + "\"session\":{\"id\":\"s1\",\"startTimestamp\":100}}"));
+    }
+
+    @Test
+    public void testBatchTracksRangeAndSize() {
+        final EventBatch batch = new EventBatch();
+        assertTrue(batch.isEmpty());
+        assertTrue(batch.add(3, EVENT_JSON.length(), EVENT_JSON));
+        assertFalse(batch.add(4, 8, "not json"));
+        assertEquals(3, batch.getFirstId());
+        assertEquals(4, batch.getLastId());
+        assertEquals(Integer.valueOf(EVENT_JSON.length() + 8), batch.getSize());
+        assertEquals(1, batch.getEvents().size());
+        assertEquals(EVENT_JSON, batch.getLastEventJson());
+
+        // a size that doesn't match the row makes the total unknown
+        batch.add(5, 1, EVENT_JSON);
+        assertNull(batch.getSize());
+    }
+
+    @Test
+    public void testBatchRangeCoversRowsReadOutOfOrder() {
+        final EventBatch batch = new EventBatch();
+        batch.add(7, EVENT_JSON.length(), EVENT_JSON);
+        batch.add(2, EVENT_JSON.length(), EVENT_JSON);
+        batch.add(5, EVENT_JSON.length(), EVENT_JSON);
+        assertEquals(2, batch.getFirstId());
+        assertEquals(7, batch.getLastId());
+    }
+}
@@ -44,12 +44,12 @@ import com.amazonaws.mobileconnectors.pinpoint.analytics.AnalyticsEvent;
 import com.amazonaws.mobileconnectors.pinpoint.analytics.utils.AnalyticsContextBuilder;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.PinpointContext;
 import com.amazonaws.mobileconnectors.pinpoint.internal.core.system.MockDeviceDetails;
+import com.amazonaws.mobileconnectors.pinpoint.internal.core.configuration.AndroidPreferencesConfiguration;
 import com.amazonaws.services.pinpointanalytics.AmazonPinpointAnalyticsClient;
+import com.amazonaws.services.pinpointanalytics.model.PutEventsRequest;
 import android.database.Cursor;
-import android.net.Uri;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -75,6 +75,8 @@ public class EventRecorderTest {
     AmazonPinpointAnalyticsClient mockAnalyticsService;
     @Mock
     ExecutorService submissionRunnable;
+    @Mock
+    ExecutorService eventWriter;
     private PinpointDBUtil dbUtil;
 
     @Before
@@ -96,8 +98,9 @@ public class EventRecorderTest {
                                                            EVENT_NAME);
         dbUtil = new PinpointDBUtil(RuntimeEnvironment.application
                                             .getApplicationContext());
+        // events are written when the test flushes them
         eventRecorder = new EventRecorder(mockContext, dbUtil,
-                                                 submissionRunnable);
+                                                 submissionRunnable, eventWriter);
     }
 
     @After
@@ -107,10 +110,9 @@ public class EventRecorderTest {
 
     @Test
     public void testRecordEvent() {
-        final Uri uri = eventRecorder.recordEvent(analyticsEvent);
-        final int idInserted = Integer.parseInt(uri.getLastPathSegment());
-        assertNotEquals(idInserted, 0);
-        final Cursor c = dbUtil.queryEventById(idInserted);
+        assertTrue(eventRecorder.recordEvent(analyticsEvent));
+        assertEquals(1, eventRecorder.flushEvents());
+        final Cursor c = dbUtil.queryAllEvents();
         assertNotNull(c);
         assertEquals(c.getCount(), 1);
         while (c.moveToNext()) {
@@ -156,16 +158,61 @@ public class EventRecorderTest {
         assertTrue(dbUtil.queryAllEvents().getCount() == 0);
     }
 
+    @Test
+    public void testProcessEventsSendsBatchesConcurrently() {
+        final AndroidPreferencesConfiguration config = Mockito.mock(AndroidPreferencesConfiguration.class);
+        Mockito.when(config.optLong(EventRecorder.KEY_MAX_SUBMISSION_SIZE, EventRecorder.DEFAULT_MAX_SUBMISSION_SIZE))
+               .thenReturn(1L);
+        Mockito.when(config.optLong(EventRecorder.KEY_MAX_PENDING_SIZE, EventRecorder.DEFAULT_MAX_PENDING_SIZE))
+               .thenReturn(EventRecorder.DEFAULT_MAX_PENDING_SIZE);
+        Mockito.when(config.optInt(EventRecorder.KEY_MAX_SUBMISSIONS_ALLOWED, EventRecorder.DEFAULT_MAX_SUBMISSIONS_ALLOWED))
+               .thenReturn(5);
+        Mockito.when(config.optInt(EventRecorder.KEY_MAX_CONCURRENT_SUBMISSIONS,
+                                   EventRecorder.DEFAULT_MAX_CONCURRENT_SUBMISSIONS))
+               .thenReturn(3);
+        final PinpointContext context = new AnalyticsContextBuilder()
+                                            .withSdkInfo(SDK_NAME, SDK_VERSION)
+                                            .withUniqueIdValue(UNIQUE_ID)
+                                            .withDeviceDetails(testDeviceDetails)
+                                            .withConfiguration(config)
+                                            .withERSClient(mockAnalyticsService)
+                                            .withContext(RuntimeEnvironment.application
+                                                             .getApplicationContext())
+                                            .build();
+        final EventRecorder recorder = new EventRecorder(context, dbUtil, submissionRunnable);
+        for (int i = 0; i < 10; i++) {
+            recorder.recordEvent(analyticsEvent);
+        }
+
+        recorder.processEvents();
+
+        // every event is a batch of its own, and 5 batches may succeed
+        Mockito.verify(mockAnalyticsService, Mockito.times(5)).putEvents(Mockito.any(PutEventsRequest.class));
+        final Cursor c = dbUtil.queryAllEvents();
+        assertEquals(5, c.getCount());
+        c.close();
+        assertEquals(5 * analyticsEvent.toJSONObject().toString().length(), dbUtil.getTotalSize());
+    }
+
     @Test
     public void testTrimming() {
-        final List<Uri> uris = new ArrayList<Uri>();
+        final List<Integer> ids = new ArrayList<Integer>();
         for (int i = 0; i < 100; i++) {
-            uris.add(eventRecorder.recordEvent(analyticsEvent));
+            eventRecorder.recordEvent(analyticsEvent);
+            eventRecorder.flushEvents();
             assertTrue(dbUtil.getTotalSize() <= 16 * 1024);
+            final Cursor c = dbUtil.queryAllEvents();
+            while (c.moveToNext()) {
+                final int id = c.getInt(EventTable.COLUMN_INDEX.ID.getValue());
+                if (!ids.contains(id)) {
+                    ids.add(id);
+                }
+            }
+            c.close();
         }
         Boolean existing = null;
-        for (final Uri uri : uris) {
-            final Cursor c = dbUtil.queryEventById(Integer.parseInt(uri.getLastPathSegment()));
+        for (final int id : ids) {
+            final Cursor c = dbUtil.queryEventById(id);
             if (c.moveToNext()) {
                 assertTrue(existing != null);
                 dbUtil.deleteEvent(c.getInt(EventTable.COLUMN_INDEX.ID
@@ -177,7 +224,43 @@ public class EventRecorderTest {
                 assertTrue(existing == null || !existing);
                 existing = false;
             }
+            c.close();
         }
         assertTrue(dbUtil.getTotalSize() == 0);
     }
+
+    @Test
+    public void testBatchIsWrittenInOneTransaction() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(eventRecorder.recordEvent(analyticsEvent));
+        }
+        assertEquals(10, eventRecorder.flushEvents());
+        assertEquals(0, eventRecorder.flushEvents());
+        final Cursor c = dbUtil.queryAllEvents();
+        assertEquals(10, c.getCount());
+        c.close();
+    }
+
+    @Test
+    public void testOverflowIsCounted() {
+        final ExecutorService idleWriter = Mockito.mock(ExecutorService.class);
+        final EventRecorder recorder = new EventRecorder(mockContext, dbUtil, submissionRunnable, idleWriter);
+        int recorded = 0;
+        for (int i = 0; i < 1100; i++) {
+            if (recorder.recordEvent(analyticsEvent)) {
+                recorded++;
+            }
+        }
+        assertEquals(1024, recorded);
+        assertEquals(1100 - 1024, recorder.getDroppedEventCount());
+        Mockito.verify(idleWriter, Mockito.times(1)).execute(Mockito.any(Runnable.class));
+    }
+
+    @Test
+    public void testDroppedSubmissionsAreCounted() {
+        final EventRecorder.CountingDiscardPolicy policy = new EventRecorder.CountingDiscardPolicy();
+        policy.rejectedExecution(null, null);
+        policy.rejectedExecution(null, null);
+        assertEquals(2, policy.getDropped());
+    }
 }
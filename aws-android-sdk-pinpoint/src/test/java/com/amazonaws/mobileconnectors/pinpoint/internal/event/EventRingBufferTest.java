@@ -0,0 +1,95 @@
+/**
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.pinpoint.internal.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class EventRingBufferTest {
+
+    @Test
+    public void testCapacityIsRoundedUp() {
+        assertEquals(1024, new EventRingBuffer<Integer>(1000).capacity());
+        assertEquals(1, new EventRingBuffer<Integer>(1).capacity());
+    }
+
+    @Test
+    public void testOfferAndPollInOrderAcrossLaps() {
+        final EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(4);
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(lap * 4 + i));
+            }
+            assertFalse(buffer.offer(-1));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(lap * 4 + i), buffer.poll());
+            }
+            assertNull(buffer.poll());
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 10000;
+        final EventRingBuffer<Integer> buffer = new EventRingBuffer<Integer>(64);
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final int base = p * perProducer;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        final Set<Integer> received = new HashSet<Integer>();
+        final int[] lastByProducer = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            lastByProducer[p] = -1;
+        }
+        while (received.size() < producers * perProducer) {
+            final Integer element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(received.add(element));
+            // elements of one producer keep their order
+            final int producer = element / perProducer;
+            assertTrue(element % perProducer > lastByProducer[producer]);
+            lastByProducer[producer] = element % perProducer;
+        }
+        done.await();
+        assertNull(buffer.poll());
+    }
+}
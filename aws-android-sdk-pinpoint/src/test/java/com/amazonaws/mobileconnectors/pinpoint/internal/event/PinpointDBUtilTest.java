@@ -33,6 +33,7 @@ import android.net.Uri;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE, sdk=23)
@@ -124,6 +125,30 @@ public class PinpointDBUtilTest {
         c.close();
     }
 
+    @Test
+    public void testQueryAllById() {
+        AnalyticsEvent analyticsEvent = AnalyticsEvent.newInstance(mockContext,
+                                                                          SESSION_ID,
+                                                                          SESSION_START,
+                                                                          SESSION_END,
+                                                                          SESSION_DURATION,
+                                                                          TIME_STAMP,
+                                                                          EVENT_NAME);
+        for (int i = 0; i < 5; i++) {
+            dbUtil.saveEvent(analyticsEvent);
+        }
+        Cursor c = dbUtil.queryAllEventsById();
+        assertNotNull(c);
+        assertEquals(c.getCount(), 5);
+        int previousId = -1;
+        while (c.moveToNext()) {
+            int id = c.getInt(c.getColumnIndex(EventTable.COLUMN_ID));
+            assertTrue(id > previousId);
+            previousId = id;
+        }
+        c.close();
+    }
+
     @Test
     public void testDelete() {
         AnalyticsEvent analyticsEvent = AnalyticsEvent.newInstance(mockContext,
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.Callable;
+
+/**
+ * Downloads one ranged part of a parallel download and writes it into place
+ * in the preallocated file. The bytes written so far are saved in
+ * the part record, so a resumed part only fetches the rest of its range.
+ */
+class DownloadPartTask implements Callable<Boolean> {
+    private static final Log LOGGER = LogFactory.getLog(DownloadPartTask.class);
+    private static final int SIXTEEN_KB = 1024 * 16;
+
+    /**
+     * How many bytes are written between saves of the part progress.
+     */
+    static final long PROGRESS_SAVE_INTERVAL = 1024 * 1024;
+
+    private final TransferRecord part;
+    private final String eTag;
+    private final AmazonS3 s3;
+    private final TransferDBUtil dbUtil;
+    private final ProgressListener progressListener;
+    private final NetworkInfoReceiver networkInfoReceiver;
+
+    /**
+     * @param part the part record, holding its range and the bytes of it that
+     *            are already written
+     * @param eTag the ETag of the object the other parts were fetched from,
+     *            or null
+     * @param s3 Low-level S3 client
+     * @param dbUtil database util
+     * @param progressListener listener of the progress of the whole download
+     * @param networkInfoReceiver network info
+     */
+    public DownloadPartTask(TransferRecord part, String eTag, AmazonS3 s3,
+            TransferDBUtil dbUtil, ProgressListener progressListener,
+            NetworkInfoReceiver networkInfoReceiver) {
+        this.part = part;
+        this.eTag = eTag;
+        this.s3 = s3;
+        this.dbUtil = dbUtil;
+        this.progressListener = progressListener;
+        this.networkInfoReceiver = networkInfoReceiver;
+    }
+
+    /*
+     * Runs part download task and returns whether successfully downloaded.
+     */
+    @Override
+    public Boolean call() throws Exception {
+        if (part.bytesCurrent >= part.bytesTotal) {
+            dbUtil.updateState(part.id, TransferState.PART_COMPLETED);
+            return true;
+        }
+        try {
+            dbUtil.updateState(part.id, TransferState.IN_PROGRESS);
+            final GetObjectRequest getObjectRequest = new GetObjectRequest(part.bucketName,
+                    part.key);
+            TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectRequest);
+            getObjectRequest.setRange(part.rangeStart + part.bytesCurrent, part.rangeLast);
+            if (eTag != null) {
+                getObjectRequest.withMatchingETagConstraint(eTag);
+            }
+            getObjectRequest.setGeneralProgressListener(progressListener);
+
+            final S3Object object = s3.getObject(getObjectRequest);
+            if (object == null) {
+                throw new AmazonClientException("The object changed during the download of "
+                        + part.key);
+            }
+            writeToFile(object.getObjectContent());
+            dbUtil.updateBytesTransferred(part.id, part.bytesCurrent);
+            dbUtil.updateState(part.id, TransferState.PART_COMPLETED);
+            return true;
+        } catch (final Exception e) {
+            dbUtil.updateBytesTransferred(part.id, part.bytesCurrent);
+            if (RetryUtils.isInterrupted(e)) {
+                // thread interrupted by user
+                return false;
+            }
+            if (networkInfoReceiver != null
+                && !networkInfoReceiver.isNetworkConnected()) {
+                /*
+                 * Network connection is being interrupted. Moving the TransferState
+                 * to WAITING_FOR_NETWORK till the network availability resumes.
+                 */
+                dbUtil.updateState(part.id, TransferState.WAITING_FOR_NETWORK);
+                LOGGER.debug("Network Connection Interrupted: " +
+                        "Moving the TransferState to WAITING_FOR_NETWORK");
+            } else {
+                dbUtil.updateState(part.id, TransferState.FAILED);
+                LOGGER.error("Encountered error downloading part ", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the content of the part to its range of the file, saving the
+     * progress of the part every {@link #PROGRESS_SAVE_INTERVAL} bytes.
+     *
+     * @param is content of the part
+     */
+    private void writeToFile(InputStream is) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(new File(part.file), "rw");
+            /*
+             * Every part writes through its own file pointer, so parts can be
+             * written concurrently. A RandomAccessFile rather than a
+             * FileChannel is used since an interrupt, i.e. a pause, closes a
+             * channel and would be reported as a failure.
+             */
+            raf.seek(part.rangeStart + part.bytesCurrent);
+            final byte[] buffer = new byte[SIXTEEN_KB];
+            long unsaved = 0;
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                raf.write(buffer, 0, bytesRead);
+                part.bytesCurrent += bytesRead;
+                unsaved += bytesRead;
+                if (unsaved >= PROGRESS_SAVE_INTERVAL) {
+                    dbUtil.updateBytesTransferred(part.id, part.bytesCurrent);
+                    unsaved = 0;
+                }
+            }
+        } catch (final IOException e) {
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+            try {
+                is.close();
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+        }
+    }
+}
@@ -15,12 +15,15 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
+import android.content.ContentValues;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 
 import org.apache.commons.logging.Log;
@@ -32,22 +35,42 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Performs download operation and returns a Boolean value indicating whether
- * the file has been downloaded successfully.
+ * the file has been downloaded successfully. When a download part size is
+ * configured, objects larger than a part are split into ranged parts that are
+ * downloaded concurrently by {@link DownloadPartTask}s. The parts in flight
+ * are limited to the download's share of the part threads, which
+ * {@link UploadConcurrencyController} divides between all the transfers.
  */
 class DownloadTask implements Callable<Boolean> {
 
     private static final Log LOGGER = LogFactory.getLog(DownloadTask.class);
     private static final int SIXTEEN_KB = 1024 * 16;
 
+    /**
+     * The maximum number of parts of a parallel download.
+     */
+    static final int MAXIMUM_DOWNLOAD_PARTS = 10000;
+
     private final AmazonS3 s3;
     private final TransferRecord download;
+    private final TransferDBUtil dbUtil;
     private final TransferStatusUpdater updater;
     private final NetworkInfoReceiver networkInfo;
+    private final long partSize;
 
     /**
      * Constructs a DownloadTask with the given download info and S3 client.
@@ -55,15 +78,20 @@ class DownloadTask implements Callable<Boolean> {
      * @param download A TransferRecord object storing all the information of
      *            the download
      * @param s3 Low-level S3 client
+     * @param dbUtil database util
      * @param updater status updater
      * @param networkInfo network info
+     * @param partSize the part size of parallel downloads, 0 to download
+     *            new transfers in a single request
      */
-    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferStatusUpdater updater,
-            NetworkInfoReceiver networkInfo) {
+    public DownloadTask(TransferRecord download, AmazonS3 s3, TransferDBUtil dbUtil,
+            TransferStatusUpdater updater, NetworkInfoReceiver networkInfo, long partSize) {
         this.download = download;
         this.s3 = s3;
+        this.dbUtil = dbUtil;
         this.updater = updater;
         this.networkInfo = networkInfo;
+        this.partSize = partSize;
     }
 
     /**
@@ -77,10 +105,32 @@ class DownloadTask implements Callable<Boolean> {
         }
         updater.updateState(download.id, TransferState.IN_PROGRESS);
 
+        final File file = new File(download.file);
+        List<TransferRecord> parts = dbUtil.queryPartRecords(download.id);
+        if (!parts.isEmpty() && (!file.isFile() || file.length() != download.bytesTotal)) {
+            /*
+             * The partially downloaded file is gone, e.g. the download was
+             * canceled, so the saved progress of its parts no longer applies.
+             */
+            LOGGER.debug("Restart parallel download " + download.id);
+            dbUtil.deletePartRecords(download.id);
+            parts = Collections.emptyList();
+        }
+        if (parts.isEmpty() && partSize > 0 && file.length() == 0) {
+            try {
+                parts = createPartRecords(file);
+            } catch (final Exception e) {
+                handleFailure(e);
+                return false;
+            }
+        }
+        if (!parts.isEmpty()) {
+            return downloadPartsAndWaitForCompletion(parts);
+        }
+
         final GetObjectRequest getObjectRequest = new GetObjectRequest(download.bucketName,
                 download.key);
         TransferUtility.appendTransferServiceUserAgentString(getObjectRequest);
-        final File file = new File(download.file);
         final long bytesCurrent = file.length();
         if (bytesCurrent > 0) {
             LOGGER.debug(String.format("Resume transfer %d from %d bytes", download.id,
@@ -109,24 +159,187 @@ class DownloadTask implements Callable<Boolean> {
             updater.updateState(download.id, TransferState.COMPLETED);
             return true;
         } catch (final Exception e) {
-            if (RetryUtils.isInterrupted(e)) {
-                /*
-                 * thread is interrupted by user. don't update the state as it's
-                 * set by caller who interrupted
-                 */
-                LOGGER.debug("Transfer " + download.id + " is interrupted by user");
-            } else if (e.getCause() != null &&
-                    (e.getCause() instanceof IOException || e.getCause() instanceof AmazonClientException)
-                    && !networkInfo.isNetworkConnected()) {
-                LOGGER.debug("Transfer " + download.id + " waits for network");
+            handleFailure(e);
+        }
+        return false;
+    }
+
+    /**
+     * Updates the state of the download after it failed with the given
+     * exception.
+     *
+     * @param e the failure
+     */
+    private void handleFailure(Exception e) {
+        if (RetryUtils.isInterrupted(e)) {
+            /*
+             * thread is interrupted by user. don't update the state as it's
+             * set by caller who interrupted
+             */
+            LOGGER.debug("Transfer " + download.id + " is interrupted by user");
+        } else if (e.getCause() != null &&
+                (e.getCause() instanceof IOException || e.getCause() instanceof AmazonClientException)
+                && !networkInfo.isNetworkConnected()) {
+            LOGGER.debug("Transfer " + download.id + " waits for network");
+            updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
+        } else {
+            LOGGER.debug("Failed to download: " + download.id + " due to " + e.getMessage());
+            updater.throwError(download.id, e);
+            updater.updateState(download.id, TransferState.FAILED);
+        }
+    }
+
+    /**
+     * Splits the object into ranged parts if it's larger than the part size,
+     * saves the part records and preallocates the file.
+     *
+     * @param file file to be written
+     * @return the part records, or an empty list if the object is downloaded
+     *         in a single request
+     */
+    private List<TransferRecord> createPartRecords(File file) {
+        final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
+                download.bucketName, download.key);
+        TransferUtility.appendMultipartTransferServiceUserAgentString(getObjectMetadataRequest);
+        final ObjectMetadata metadata = s3.getObjectMetadata(getObjectMetadataRequest);
+        final long bytesTotal = metadata.getContentLength();
+        final long optimalPartSize = Math.max(partSize,
+                (long) Math.ceil((double) bytesTotal / MAXIMUM_DOWNLOAD_PARTS));
+        if (bytesTotal <= optimalPartSize) {
+            return Collections.emptyList();
+        }
+
+        final int partCount = (int) Math.ceil((double) bytesTotal / optimalPartSize);
+        final ContentValues[] valuesArray = new ContentValues[partCount];
+        for (int i = 0; i < partCount; i++) {
+            final long rangeStart = i * optimalPartSize;
+            final long rangeLast = Math.min(rangeStart + optimalPartSize, bytesTotal) - 1;
+            valuesArray[i] = dbUtil.generateContentValuesForDownloadPart(download.bucketName,
+                    download.key, file, i + 1, rangeStart, rangeLast,
+                    i == partCount - 1 ? 1 : 0);
+        }
+        if (!dbUtil.insertDownloadPartRecords(download.id, valuesArray)) {
+            return Collections.emptyList();
+        }
+        download.bytesTotal = bytesTotal;
+        download.eTag = metadata.getETag();
+        dbUtil.updateBytesTotalForDownload(download.id, bytesTotal);
+        dbUtil.updateETag(download.id, download.eTag);
+        preallocate(file, bytesTotal);
+        LOGGER.debug("parallel download " + download.id + " in " + partCount + " parts.");
+        return dbUtil.queryPartRecords(download.id);
+    }
+
+    /**
+     * Creates the file with the full size of the object so the parts can be
+     * written into place in any order.
+     *
+     * @param file file to be written
+     * @param length the size of the object
+     */
+    private static void preallocate(File file, long length) {
+        // attempt to create the parent if it doesn't exist
+        final File parentDirectory = file.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            parentDirectory.mkdirs();
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(length);
+        } catch (final IOException e) {
+            throw new AmazonClientException(
+                    "Unable to store object contents to disk: " + e.getMessage(), e);
+        } finally {
+            try {
+                if (raf != null) {
+                    raf.close();
+                }
+            } catch (final IOException ioe) {
+                LOGGER.warn("got exception", ioe);
+            }
+        }
+    }
+
+    private Boolean downloadPartsAndWaitForCompletion(List<TransferRecord> parts) {
+        long bytesAlreadyTransferred = 0;
+        for (final TransferRecord part : parts) {
+            bytesAlreadyTransferred += part.bytesCurrent;
+        }
+        if (bytesAlreadyTransferred > 0) {
+            LOGGER.debug(String.format("Resume transfer %d from %d bytes", download.id,
+                    bytesAlreadyTransferred));
+        }
+        updater.updateProgress(download.id, bytesAlreadyTransferred, download.bytesTotal);
+
+        final List<TransferRecord> remainingParts = new ArrayList<TransferRecord>();
+        for (final TransferRecord part : parts) {
+            if (!TransferState.PART_COMPLETED.equals(part.state)) {
+                remainingParts.add(part);
+            }
+        }
+        final UploadConcurrencyController controller = UploadConcurrencyController.getInstance();
+        final CompletionService<Boolean> completionService = TransferThreadPool
+                .newPartCompletionService();
+        final Set<Future<Boolean>> futures = new HashSet<Future<Boolean>>();
+        controller.registerTransfer();
+        try {
+            boolean isSuccess = true;
+            int nextPart = 0;
+            /*
+             * Parts are submitted as earlier ones complete, keeping no more
+             * in flight than this download's share of the part threads.
+             */
+            while (nextPart < remainingParts.size() || !futures.isEmpty()) {
+                while (isSuccess && nextPart < remainingParts.size()
+                        && futures.size() < controller.getTransferLimit()) {
+                    futures.add(completionService.submit(new DownloadPartTask(
+                            remainingParts.get(nextPart++), download.eTag, s3, dbUtil,
+                            updater.newProgressListener(download.id), networkInfo)));
+                }
+                if (futures.isEmpty()) {
+                    break;
+                }
+                // blocks the current thread until a part completes
+                final Future<Boolean> f = completionService.take();
+                futures.remove(f);
+                // DownloadPartTask returns false when it's interrupted by user
+                // and the state is set by caller
+                isSuccess &= f.get();
+            }
+            if (!isSuccess) {
+                return false;
+            }
+        } catch (final InterruptedException e) {
+            /*
+             * Future.get() will catch InterruptedException, but it's not a
+             * failure, it may be caused by a pause operation from applications.
+             */
+            for (final Future<?> f : futures) {
+                f.cancel(true);
+            }
+            LOGGER.debug("Transfer " + download.id + " is interrupted by user");
+            return false;
+        } catch (final ExecutionException ee) {
+            for (final Future<?> f : futures) {
+                f.cancel(true);
+            }
+            if (dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id)) {
+                LOGGER.debug("Network Connection Interrupted: Transfer " + download.id
+                        + " waits for network");
                 updater.updateState(download.id, TransferState.WAITING_FOR_NETWORK);
-            } else {
-                LOGGER.debug("Failed to download: " + download.id + " due to " + e.getMessage());
-                updater.throwError(download.id, e);
-                updater.updateState(download.id, TransferState.FAILED);
+                return false;
             }
+            final Throwable cause = ee.getCause();
+            handleFailure(cause instanceof Exception ? (Exception) cause : ee);
+            return false;
+        } finally {
+            controller.unregisterTransfer();
         }
-        return false;
+
+        updater.updateProgress(download.id, download.bytesTotal, download.bytesTotal);
+        updater.updateState(download.id, TransferState.COMPLETED);
+        return true;
     }
 
     /**
@@ -27,6 +27,8 @@ import android.text.TextUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.Map;
+
 /**
  * Provides methods to access database through which applications can interact
  * with transfer tasks.
@@ -269,6 +271,58 @@ class TransferDBBase {
         return mainUploadId;
     }
 
+    /**
+     * Inserts the part records of a transfer whose main record already exists
+     * in a single transaction, so either all or none of the parts are saved.
+     *
+     * @param mainUploadId The id of the main record of the parts.
+     * @param valuesArray A array of values of the parts to insert.
+     * @return Whether the parts are inserted.
+     */
+    public boolean bulkInsertParts(int mainUploadId, ContentValues[] valuesArray) {
+        ensureDatabaseOpen();
+        try {
+            database.beginTransaction();
+            for (final ContentValues values : valuesArray) {
+                values.put(TransferTable.COLUMN_MAIN_UPLOAD_ID, mainUploadId);
+                database.insertOrThrow(TransferTable.TABLE_TRANSFER, null, values);
+            }
+            database.setTransactionSuccessful();
+            return true;
+        } catch (final Exception e) {
+            LOGGER.error("bulkInsertParts error : ", e);
+            return false;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Updates several transfer records in a single transaction.
+     *
+     * @param valuesById The values to update keyed by the id of the record.
+     * @return Number of rows updated, or -1 if the transaction failed and
+     *         nothing was updated.
+     */
+    public synchronized int bulkUpdate(Map<Integer, ContentValues> valuesById) {
+        int rowsUpdated = 0;
+        ensureDatabaseOpen();
+        try {
+            database.beginTransaction();
+            for (final Map.Entry<Integer, ContentValues> entry : valuesById.entrySet()) {
+                rowsUpdated += database.update(TransferTable.TABLE_TRANSFER, entry.getValue(),
+                        TransferTable.COLUMN_ID + "=" + entry.getKey(), null);
+            }
+            database.setTransactionSuccessful();
+        } catch (final Exception e) {
+            LOGGER.error("bulkUpdate error : ", e);
+            rowsUpdated = -1;
+        } finally {
+            database.endTransaction();
+        }
+        return rowsUpdated;
+    }
+
     private void ensureDatabaseOpen() {
         // close and reopen database.
         if (!database.isOpen()) {
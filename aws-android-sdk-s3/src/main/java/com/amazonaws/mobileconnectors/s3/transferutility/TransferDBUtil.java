@@ -31,7 +31,9 @@ import org.apache.commons.logging.LogFactory;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Provides methods to conveniently perform database operations.
@@ -139,6 +141,25 @@ class TransferDBUtil {
                 new ObjectMetadata());
     }
 
+    /**
+     * Inserts a download record into database with the given values. The
+     * part size is saved with the record, so the download is split into the
+     * same parts whenever it starts.
+     *
+     * @param bucket The name of the bucket to download from.
+     * @param key The key of the object to download.
+     * @param file The file to download to.
+     * @param partSize The part size of a parallel download, 0 to download in
+     *            a single request.
+     * @return An Uri of the record inserted.
+     */
+    public Uri insertDownloadRecord(String bucket, String key, File file, long partSize) {
+        final ContentValues values = generateContentValuesForSinglePartTransfer(
+                TransferType.DOWNLOAD, bucket, key, file, new ObjectMetadata(), null);
+        values.put(TransferTable.COLUMN_PART_SIZE, partSize);
+        return transferDBBase.insert(transferDBBase.getContentUri(), values);
+    }
+
     /**
      * Inserts multiple records at a time.
      *
@@ -178,6 +199,23 @@ class TransferDBUtil {
         return transferDBBase.update(getRecordUri(id), values, null, null);
     }
 
+    /**
+     * Updates the current bytes of several transfer records in a single
+     * transaction.
+     *
+     * @param bytesById The bytes currently transferred keyed by transfer id.
+     * @return Number of rows updated, or -1 if nothing could be written.
+     */
+    public int updateBytesTransferred(Map<Integer, Long> bytesById) {
+        final Map<Integer, ContentValues> valuesById = new HashMap<Integer, ContentValues>();
+        for (final Map.Entry<Integer, Long> entry : bytesById.entrySet()) {
+            final ContentValues values = new ContentValues();
+            values.put(TransferTable.COLUMN_BYTES_CURRENT, entry.getValue());
+            valuesById.put(entry.getKey(), values);
+        }
+        return transferDBBase.bulkUpdate(valuesById);
+    }
+
     /**
      * Updates the total bytes of a download record.
      *
@@ -590,6 +628,60 @@ class TransferDBUtil {
         return list;
     }
 
+    /**
+     * Queries the part records of a multipart transfer, ordered by part
+     * number.
+     *
+     * @param mainTransferId The id of the main record of the transfer.
+     * @return A list of the part records.
+     */
+    public List<TransferRecord> queryPartRecords(int mainTransferId) {
+        final List<TransferRecord> parts = new ArrayList<TransferRecord>();
+        Cursor c = null;
+        try {
+            c = transferDBBase.query(getPartUri(mainTransferId), null, null, null,
+                    TransferTable.COLUMN_PART_NUM);
+            while (c.moveToNext()) {
+                final TransferRecord part = new TransferRecord(
+                        c.getInt(c.getColumnIndexOrThrow(TransferTable.COLUMN_ID)));
+                part.updateFromDB(c);
+                parts.add(part);
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Inserts the part records of a parallel download in one transaction.
+     *
+     * @param mainDownloadId The id of the main record of the download.
+     * @param valuesArray The values of the part records, see
+     *            {@link #generateContentValuesForDownloadPart}.
+     * @return Whether the part records are inserted.
+     */
+    public boolean insertDownloadPartRecords(int mainDownloadId, ContentValues[] valuesArray) {
+        return transferDBBase.bulkInsertParts(mainDownloadId, valuesArray);
+    }
+
+    /**
+     * Deletes the part records of a multipart transfer.
+     *
+     * @param mainTransferId The id of the main record of the transfer.
+     * @return Number of rows deleted.
+     */
+    public int deletePartRecords(int mainTransferId) {
+        return transferDBBase.delete(transferDBBase.getContentUri(),
+                TransferTable.COLUMN_MAIN_UPLOAD_ID + "=? and "
+                        + TransferTable.COLUMN_PART_NUM + ">0",
+                new String[] {
+                    String.valueOf(mainTransferId)
+                });
+    }
+
     /**
      * Queries waiting for network partUpload tasks of a multipart upload and returns
      * true if one such partUpload tasks
@@ -683,6 +775,38 @@ class TransferDBUtil {
         return values;
     }
 
+    /**
+     * Generates the values of a part record of a parallel download. The part
+     * covers the bytes from rangeStart to rangeLast inclusive.
+     *
+     * @param bucket The name of the bucket.
+     * @param key The key of the object.
+     * @param file The file the object is downloaded to.
+     * @param partNumber The number of the part, starting from 1.
+     * @param rangeStart The offset of the first byte of the part.
+     * @param rangeLast The offset of the last byte of the part.
+     * @param isLastPart 1 if the part is the last one, 0 otherwise.
+     * @return The values of the part record.
+     */
+    public ContentValues generateContentValuesForDownloadPart(String bucket, String key,
+            File file, int partNumber, long rangeStart, long rangeLast, int isLastPart) {
+        final ContentValues values = new ContentValues();
+        values.put(TransferTable.COLUMN_TYPE, TransferType.DOWNLOAD.toString());
+        values.put(TransferTable.COLUMN_STATE, TransferState.WAITING.toString());
+        values.put(TransferTable.COLUMN_BUCKET_NAME, bucket);
+        values.put(TransferTable.COLUMN_KEY, key);
+        values.put(TransferTable.COLUMN_FILE, file.getAbsolutePath());
+        values.put(TransferTable.COLUMN_BYTES_CURRENT, 0L);
+        values.put(TransferTable.COLUMN_BYTES_TOTAL, rangeLast - rangeStart + 1);
+        values.put(TransferTable.COLUMN_IS_MULTIPART, 1);
+        values.put(TransferTable.COLUMN_PART_NUM, partNumber);
+        values.put(TransferTable.COLUMN_DATA_RANGE_START, rangeStart);
+        values.put(TransferTable.COLUMN_DATA_RANGE_LAST, rangeLast);
+        values.put(TransferTable.COLUMN_IS_LAST_PART, isLastPart);
+        values.put(TransferTable.COLUMN_IS_ENCRYPTED, 0);
+        return values;
+    }
+
     /**
      * Adds mappings to a ContentValues object for the data in the passed in
      * ObjectMetadata
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A write-behind journal of the bytes transferred by active transfers.
+ * Progress events only record the latest byte count of their transfer in
+ * memory; the counts of all transfers are written to the database together
+ * in a single transaction at most once per flush interval, or earlier when
+ * {@link #flush()} is called, e.g. when a part completes. A flush is also
+ * scheduled one interval after progress is recorded, so the progress of a
+ * transfer that stalls is still written. Progress that fails to be written is
+ * kept and written by the next flush.
+ */
+class TransferProgressJournal {
+
+    private static final Log LOGGER = LogFactory.getLog(TransferProgressJournal.class);
+
+    /** How long the thread of the shared scheduler is kept while idle */
+    private static final long SCHEDULER_KEEP_ALIVE_SECONDS = 10;
+    private static ScheduledExecutorService sharedScheduler;
+
+    private final TransferDBUtil dbUtil;
+    private final long flushIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * Latest bytes transferred of the transfers that have changed since the
+     * last flush.
+     */
+    private final Map<Integer, Long> pending = new HashMap<Integer, Long>();
+    private long lastFlushTime;
+    private boolean flushScheduled;
+    private final Runnable scheduledFlush = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (TransferProgressJournal.this) {
+                flushScheduled = false;
+                flush();
+            }
+        }
+    };
+
+    /**
+     * @param dbUtil Database util to save progress.
+     * @param flushIntervalMillis The longest time progress stays in memory.
+     */
+    TransferProgressJournal(TransferDBUtil dbUtil, long flushIntervalMillis) {
+        this(dbUtil, flushIntervalMillis, getSharedScheduler());
+    }
+
+    /**
+     * @param dbUtil Database util to save progress.
+     * @param flushIntervalMillis The longest time progress stays in memory.
+     * @param scheduler Runs the scheduled flushes.
+     */
+    TransferProgressJournal(TransferDBUtil dbUtil, long flushIntervalMillis,
+            ScheduledExecutorService scheduler) {
+        this.dbUtil = dbUtil;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.scheduler = scheduler;
+        this.lastFlushTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the bytes transferred of a transfer, replacing the unsaved
+     * count of the same transfer. Flushes the journal when the flush interval
+     * has elapsed, otherwise makes sure a flush is scheduled.
+     *
+     * @param id id of the transfer
+     * @param bytesCurrent current transferred bytes
+     */
+    synchronized void record(int id, long bytesCurrent) {
+        pending.put(id, bytesCurrent);
+        if (System.currentTimeMillis() - lastFlushTime >= flushIntervalMillis) {
+            flush();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Drops the unsaved progress of a transfer whose progress was written
+     * to the database by other means.
+     *
+     * @param id id of the transfer
+     */
+    synchronized void discard(int id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Writes all unsaved progress to the database in a single transaction.
+     * If the transaction fails, the progress is kept and a flush is
+     * scheduled to try again.
+     */
+    synchronized void flush() {
+        lastFlushTime = System.currentTimeMillis();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (dbUtil.updateBytesTransferred(new HashMap<Integer, Long>(pending)) < 0) {
+            LOGGER.warn("Failed to save the progress of " + pending.size() + " transfers");
+            scheduleFlush();
+            return;
+        }
+        pending.clear();
+    }
+
+    /**
+     * @return the number of transfers with unsaved progress.
+     */
+    synchronized int size() {
+        return pending.size();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(scheduledFlush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * A single daemon thread runs the scheduled flushes of all journals, and
+     * goes away while no flush is scheduled.
+     */
+    private static synchronized ScheduledExecutorService getSharedScheduler() {
+        if (sharedScheduler == null) {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread thread = new Thread(r, "TransferProgressJournal");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            executor.setKeepAliveTime(SCHEDULER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            sharedScheduler = executor;
+        }
+        return sharedScheduler;
+    }
+}
@@ -82,6 +82,12 @@ class TransferRecord {
     public String md5;
     public String cannedAcl;
 
+    /**
+     * The part size of a parallel download, 0 to download in a single
+     * request, or -1 if the record predates the part size column.
+     */
+    public long partSize;
+
     private Future<?> submittedTask;
 
     /**
@@ -150,6 +156,8 @@ class TransferRecord {
         this.cannedAcl = c.getString(c.getColumnIndexOrThrow(TransferTable.COLUMN_CANNED_ACL));
         this.headerStorageClass = c
                 .getString(c.getColumnIndexOrThrow(TransferTable.COLUMN_HEADER_STORAGE_CLASS));
+        final int partSizeIndex = c.getColumnIndexOrThrow(TransferTable.COLUMN_PART_SIZE);
+        this.partSize = c.isNull(partSizeIndex) ? -1 : c.getLong(partSizeIndex);
     }
 
     /**
@@ -164,10 +172,32 @@ class TransferRecord {
      */
     public boolean start(AmazonS3 s3, TransferDBUtil dbUtil, TransferStatusUpdater updater,
             NetworkInfoReceiver networkInfo) {
+        return start(s3, dbUtil, updater, networkInfo, null);
+    }
+
+    /**
+     * Checks the state of the transfer and starts a thread to run the transfer
+     * task if possible.
+     *
+     * @param s3 s3 instance
+     * @param dbUtil database util
+     * @param updater status updater
+     * @param networkInfo network info
+     * @param tuOptions transfer utility options, or null for the defaults.
+     *            Only downloads saved without a part size use their download
+     *            part size.
+     * @return Whether the task is running.
+     */
+    public boolean start(AmazonS3 s3, TransferDBUtil dbUtil, TransferStatusUpdater updater,
+            NetworkInfoReceiver networkInfo, TransferUtilityOptions tuOptions) {
         if (!isRunning() && checkIsReadyToRun()) {
             if (type.equals(TransferType.DOWNLOAD)) {
-                submittedTask = TransferThreadPool
-                        .submitTask(new DownloadTask(this, s3, updater, networkInfo));
+                long downloadPartSize = partSize;
+                if (downloadPartSize < 0) {
+                    downloadPartSize = tuOptions == null ? 0 : tuOptions.getDownloadPartSize();
+                }
+                submittedTask = TransferThreadPool.submitTask(new DownloadTask(this, s3, dbUtil,
+                        updater, networkInfo, downloadPartSize));
             } else {
                 submittedTask = TransferThreadPool
                         .submitTask(new UploadTask(this, s3, dbUtil, updater, networkInfo));
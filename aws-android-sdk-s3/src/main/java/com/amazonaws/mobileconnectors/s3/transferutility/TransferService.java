@@ -141,6 +141,12 @@ public class TransferService extends Service {
      */
     private long transferServiceCheckTimeInterval;
 
+    /**
+     * The options of the last {@link TransferUtility} that sent an intent,
+     * used to start the transfers.
+     */
+    private TransferUtilityOptions transferUtilityOptions;
+
     @Override
     public IBinder onBind(Intent intent) {
         throw new UnsupportedOperationException("Can't bind to TransferService");
@@ -245,6 +251,7 @@ public class TransferService extends Service {
         
         TransferThreadPool.init(tuOptions.getTransferThreadPoolSize());
         transferServiceCheckTimeInterval = tuOptions.getTransferServiceCheckTimeInterval();
+        transferUtilityOptions = tuOptions;
         LOGGER.debug("ThreadPoolSize: " + tuOptions.getTransferThreadPoolSize()
             + " transferServiceCheckTimeInterval: " + tuOptions.getTransferServiceCheckTimeInterval());
 
@@ -373,7 +380,8 @@ public class TransferService extends Service {
                 final TransferRecord transfer = dbUtil.getTransferById(id);
                 if (transfer != null) {
                     updater.addTransfer(transfer);
-                    transfer.start(s3, dbUtil, updater, networkInfoReceiver);
+                    transfer.start(s3, dbUtil, updater, networkInfoReceiver,
+                            transferUtilityOptions);
                 } else {
                     LOGGER.error("Can't find transfer: " + id);
                 }
@@ -397,7 +405,8 @@ public class TransferService extends Service {
                 }
             }
             if (transfer != null) {
-                transfer.start(s3, dbUtil, updater, networkInfoReceiver);
+                transfer.start(s3, dbUtil, updater, networkInfoReceiver,
+                        transferUtilityOptions);
             }
         } else if (INTENT_ACTION_TRANSFER_CANCEL.equals(action)) {
             TransferRecord transfer = updater.getTransfer(id);
@@ -481,7 +490,8 @@ public class TransferService extends Service {
                     // Check if it's running. If not, start the transfer.
                     final TransferRecord transfer = updater.getTransfer(id);
                     if (transfer != null && !transfer.isRunning()) {
-                        transfer.start(s3, dbUtil, updater, networkInfoReceiver);
+                        transfer.start(s3, dbUtil, updater, networkInfoReceiver,
+                                transferUtilityOptions);
                     }
                 }
             }
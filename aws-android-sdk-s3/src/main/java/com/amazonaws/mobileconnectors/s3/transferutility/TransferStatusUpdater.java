@@ -50,6 +50,11 @@ class TransferStatusUpdater {
      * listeners too often.
      */
     private static final int UPDATE_THRESHOLD_MS = 1000;
+    /**
+     * The longest time in milliseconds progress is kept in memory before it's
+     * written to database.
+     */
+    private static final int PROGRESS_FLUSH_INTERVAL_MS = 1000;
 
     /**
      * A map of listeners.
@@ -69,16 +74,38 @@ class TransferStatusUpdater {
      * Database util to update transfer status.
      */
     private final TransferDBUtil dbUtil;
+    /**
+     * Coalesces progress of all transfers and writes it to database in
+     * batches.
+     */
+    private final TransferProgressJournal journal;
     /**
      * The handler of main thread that runs callbacks.
      */
     private final Handler mainHandler;
+    /**
+     * Progress waiting to be delivered to listeners, keyed by transfer id. All
+     * of it is delivered by a single callback on main thread.
+     */
+    private final Map<Integer, PendingProgress> pendingProgress;
+    /**
+     * Whether the callback that delivers pending progress has been posted.
+     */
+    private boolean progressDispatchPosted;
+    private final Runnable progressDispatcher = new Runnable() {
+        @Override
+        public void run() {
+            dispatchProgress();
+        }
+    };
 
     /**
      * This class is instantiated by TransferService.
      */
     TransferStatusUpdater(TransferDBUtil dbUtil) {
         this.dbUtil = dbUtil;
+        journal = new TransferProgressJournal(dbUtil, PROGRESS_FLUSH_INTERVAL_MS);
+        pendingProgress = new HashMap<Integer, PendingProgress>();
         mainHandler = new Handler(Looper.getMainLooper());
         transfers = new HashMap<Integer, TransferRecord>();
         lastUpdateTime = new HashMap<Integer, Long>();
@@ -118,6 +145,7 @@ class TransferStatusUpdater {
      * @param id id of the transfer to remove
      */
     void removeTransfer(int id) {
+        journal.flush();
         transfers.remove(id);
         LISTENERS.remove(id);
         lastUpdateTime.remove(id);
@@ -130,6 +158,7 @@ class TransferStatusUpdater {
      */
     void removeTransferRecordFromDB(final int id) {
         S3ClientReference.remove(id);
+        journal.discard(id);
         dbUtil.deleteTransferRecords(id);
     }
 
@@ -160,6 +189,8 @@ class TransferStatusUpdater {
         } else {
             shouldNotNotify |= newState.equals(transfer.state);
             transfer.state = newState;
+            // the record carries the latest progress too
+            journal.discard(id);
             // save to database
             if (dbUtil.updateTransferRecord(transfer) == 0) {
                 LOGGER.warn("Failed to update the status of transfer " + id);
@@ -202,7 +233,9 @@ class TransferStatusUpdater {
     }
 
     /**
-     * Updates the transfer progress of a transfer. It will trigger
+     * Updates the transfer progress of a transfer. The progress is saved to
+     * database in batches with that of other transfers, and immediately once
+     * the last byte is transferred. It will trigger
      * {@link TransferListener#onProgressChanged(int, long, long)} of associated
      * LISTENERS if the update exceeds either time threshold.
      *
@@ -223,7 +256,10 @@ class TransferStatusUpdater {
 
         // update bytes transfered so that the transfer observer may pick it
         // up.
-        dbUtil.updateBytesTransferred(id, bytesCurrent);
+        journal.record(id, bytesCurrent);
+        if (bytesCurrent == bytesTotal) {
+            journal.flush();
+        }
 
         // invoke LISTENERS
         final List<TransferListener> list = LISTENERS.get(id);
@@ -236,16 +272,43 @@ class TransferStatusUpdater {
                 || timeInMillis - lastUpdateTime.get(id) > UPDATE_THRESHOLD_MS
                 || bytesCurrent == bytesTotal) {
             lastUpdateTime.put(id, timeInMillis);
+            postProgress(id, list, bytesCurrent, bytesTotal);
+        }
+    }
 
-            // invoke on main thread
-            mainHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    for (final TransferListener l : list) {
-                        l.onProgressChanged(id, bytesCurrent, bytesTotal);
-                    }
-                }
-            });
+    /**
+     * Queues progress for the listeners of a transfer. Progress of the same
+     * transfer that hasn't been delivered yet is replaced, and one callback on
+     * main thread delivers the progress of all transfers.
+     */
+    private void postProgress(int id, List<TransferListener> list, long bytesCurrent,
+            long bytesTotal) {
+        synchronized (pendingProgress) {
+            pendingProgress.put(id, new PendingProgress(list, bytesCurrent, bytesTotal));
+            if (progressDispatchPosted) {
+                return;
+            }
+            progressDispatchPosted = true;
+        }
+        mainHandler.post(progressDispatcher);
+    }
+
+    /**
+     * Delivers all pending progress to listeners. Runs on main thread.
+     */
+    private void dispatchProgress() {
+        final Map<Integer, PendingProgress> batch;
+        synchronized (pendingProgress) {
+            batch = new HashMap<Integer, PendingProgress>(pendingProgress);
+            pendingProgress.clear();
+            progressDispatchPosted = false;
+        }
+        for (final Map.Entry<Integer, PendingProgress> entry : batch.entrySet()) {
+            final PendingProgress progress = entry.getValue();
+            for (final TransferListener l : progress.listeners) {
+                l.onProgressChanged(entry.getKey(), progress.bytesCurrent,
+                        progress.bytesTotal);
+            }
         }
     }
 
@@ -277,6 +340,7 @@ class TransferStatusUpdater {
      * Clears all transfers, LISTENERS, etc.
      */
     void clear() {
+        journal.flush();
         LISTENERS.clear();
         transfers.clear();
         lastUpdateTime.clear();
@@ -353,6 +417,25 @@ class TransferStatusUpdater {
                 transfer.bytesCurrent += progressEvent.getBytesTransferred();
             }
             updateProgress(transfer.id, transfer.bytesCurrent, transfer.bytesTotal);
+            if (progressEvent.getEventCode() == ProgressEvent.PART_COMPLETED_EVENT_CODE) {
+                // checkpoint the progress of a completed part right away
+                journal.flush();
+            }
+        }
+    }
+
+    /**
+     * Progress of a transfer waiting to be delivered to its listeners.
+     */
+    private static final class PendingProgress {
+        private final List<TransferListener> listeners;
+        private final long bytesCurrent;
+        private final long bytesTotal;
+
+        PendingProgress(List<TransferListener> listeners, long bytesCurrent, long bytesTotal) {
+            this.listeners = listeners;
+            this.bytesCurrent = bytesCurrent;
+            this.bytesTotal = bytesTotal;
         }
     }
 
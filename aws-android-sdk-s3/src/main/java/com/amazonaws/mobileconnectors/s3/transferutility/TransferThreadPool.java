@@ -16,9 +16,13 @@
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -42,18 +46,31 @@ class TransferThreadPool {
         }
         if (executorPartTask == null) {
             executorPartTask = buildExecutor(poolSize);
+            UploadConcurrencyController.getInstance().setMaxConcurrency(poolSize);
         }
     }
 
     public static <T> Future<T> submitTask(Callable<T> c) {
         init(TransferUtilityOptions.getDefaultThreadPoolSize());
-        if (c instanceof UploadPartTask) {
+        if (c instanceof UploadPartTask || c instanceof DownloadPartTask) {
             return executorPartTask.submit(c);
         } else {
             return executorMainTask.submit(c);
         }
     }
 
+    /**
+     * Creates a completion service that runs tasks on the part thread pool,
+     * for a transfer that submits its parts gradually.
+     *
+     * @param <T> the result type of the tasks.
+     * @return a new completion service.
+     */
+    static synchronized <T> CompletionService<T> newPartCompletionService() {
+        init(TransferUtilityOptions.getDefaultThreadPoolSize());
+        return new ExecutorCompletionService<T>(executorPartTask);
+    }
+
     public static void closeThreadPool() {
         if (executorPartTask != null) {
             shutdown(executorPartTask);
@@ -67,6 +84,12 @@ class TransferThreadPool {
 
     private static final int WAIT_TIME = 250;
 
+    /**
+     * Number of tasks that may wait for each thread of a pool before
+     * submitters are blocked.
+     */
+    private static final int QUEUED_TASKS_PER_THREAD = 64;
+
     private static void shutdown(ExecutorService executor) {
         if (executor == null) {
             return;
@@ -92,13 +115,33 @@ class TransferThreadPool {
          */
         final ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreadsAllowed,
                 maxThreadsAllowed, 10, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<Runnable>());
+                new LinkedBlockingQueue<Runnable>(maxThreadsAllowed * QUEUED_TASKS_PER_THREAD));
         /*
-         * It's safe to discard tasks, as they are saved in database and will be
-         * recovered on next database scan.
+         * A dropped task would leave its transfer in progress with nothing
+         * running it, so a full queue blocks the submitter until there is
+         * room instead.
          */
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setRejectedExecutionHandler(new BlockingRejectionPolicy());
         executor.allowCoreThreadTimeOut(true);
         return executor;
     }
+
+    /**
+     * Waits for room in the queue of a saturated executor. Only tasks
+     * submitted after shutdown are rejected.
+     */
+    private static final class BlockingRejectionPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Transfer thread pool is shut down");
+            }
+            try {
+                executor.getQueue().put(r);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting to queue a task", e);
+            }
+        }
+    }
 }
@@ -15,7 +15,6 @@
 
 package com.amazonaws.mobileconnectors.s3.transferutility;
 
-import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 import static com.amazonaws.services.s3.internal.Constants.MB;
 
 import android.content.ContentValues;
@@ -365,8 +364,8 @@ public class TransferUtility {
         if (file == null || file.isDirectory()) {
             throw new IllegalArgumentException("Invalid file: " + file);
         }
-        final Uri uri = dbUtil.insertSingleTransferRecord(TransferType.DOWNLOAD,
-                bucket, key, file);
+        final Uri uri = dbUtil.insertDownloadRecord(bucket, key, file,
+                transferUtilityOptions.getDownloadPartSize());
         final int recordId = Integer.parseInt(uri.getLastPathSegment());
         if (file.isFile()) {
             LOGGER.warn("Overwrite existing file: " + file);
@@ -707,9 +706,8 @@ public class TransferUtility {
     private int createMultipartUploadRecords(String bucket, String key, File file,
             ObjectMetadata metadata, CannedAccessControlList cannedAcl) {
         long remainingLenth = file.length();
-        double partSize = (double) remainingLenth / (double) MAXIMUM_UPLOAD_PARTS;
-        partSize = Math.ceil(partSize);
-        final long optimalPartSize = (long) Math.max(partSize, MINIMUM_UPLOAD_PART_SIZE);
+        final long optimalPartSize = UploadConcurrencyController.getInstance()
+                .getPartSize(remainingLenth, MINIMUM_UPLOAD_PART_SIZE);
         long fileOffset = 0;
         int partNumber = 1;
 
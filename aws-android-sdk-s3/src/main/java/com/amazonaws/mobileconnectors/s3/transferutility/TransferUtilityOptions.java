@@ -27,6 +27,7 @@ import java.io.Serializable;
  * TransferUtilityOptions tuOptions = new TransferUtilityOptions();
  * tuOptions.setTransferServiceCheckTimeInterval(5 * 60 * 1000); // Scan for unfinished transfers every 5 minutes.
  * tuOptions.setTransferThreadPoolSize(10); // 10 threads for upload and download operations.
+ * tuOptions.setDownloadPartSize(8 * 1024 * 1024); // Download large objects in 8 MB parts in parallel.
  *
  * // Initializes TransferUtility
  * TransferUtility transferUtility = TransferUtility
@@ -50,6 +51,11 @@ public class TransferUtilityOptions implements Serializable {
      */
     private static final int MILLIS_IN_MINUTE = 60 * 1000;
 
+    /**
+     * The smallest part size for parallel downloads.
+     */
+    static final long MINIMUM_DOWNLOAD_PART_SIZE = 1024 * 1024;
+
     /**
      * TransferService checks for the transfers that are waiting or in progress
      * and restarts the transfer for every time interval in milliseconds.
@@ -60,7 +66,14 @@ public class TransferUtilityOptions implements Serializable {
      * Number of threads in the pool for the all the transfers.
      */
     private int transferThreadPoolSize;
-    
+
+    /**
+     * Objects larger than this size in bytes are downloaded in parts of this
+     * size that are fetched concurrently with ranged requests. 0 downloads
+     * every object in a single request.
+     */
+    private long downloadPartSize;
+
     /**
      * Constructor that sets the options to the
      * default values.
@@ -112,6 +125,33 @@ public class TransferUtilityOptions implements Serializable {
         }
     }
     
+    /**
+     * Retrieve the part size of parallel downloads.
+     *
+     * @return the downloadPartSize, 0 if parallel downloads are disabled
+     */
+    public long getDownloadPartSize() {
+        return downloadPartSize;
+    }
+
+    /**
+     * Set the part size of parallel downloads. Objects larger than the part
+     * size are split into ranged parts which are downloaded concurrently on
+     * the transfer thread pool and written into place in the file; the
+     * progress of every part is saved so a resumed download only fetches
+     * the missing ranges. 0, the default, disables parallel downloads. A
+     * positive size smaller than 1 MB is raised to 1 MB.
+     *
+     * @param downloadPartSize the downloadPartSize to set
+     */
+    public void setDownloadPartSize(final long downloadPartSize) {
+        if (downloadPartSize <= 0) {
+            this.downloadPartSize = 0;
+        } else {
+            this.downloadPartSize = Math.max(downloadPartSize, MINIMUM_DOWNLOAD_PART_SIZE);
+        }
+    }
+
     /**
      * Return the default thread pool size.
      * 
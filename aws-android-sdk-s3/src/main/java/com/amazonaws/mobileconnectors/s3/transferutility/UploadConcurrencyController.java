@@ -0,0 +1,187 @@
+/**
+ * Copyright 2015-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Adapts multipart uploads to the observed network conditions. The number of
+ * parts uploaded concurrently follows an additive increase, multiplicative
+ * decrease scheme: it grows by one part after every limit's worth of parts
+ * completed at a healthy rate, and it is halved when a part fails or its
+ * throughput drops below half of the best recently observed. The limit is
+ * shared fairly between the multipart uploads and parallel downloads in
+ * progress, so a large transfer cannot take every part thread from a small
+ * one. The measured part throughput also determines the part size of new
+ * uploads.
+ */
+class UploadConcurrencyController {
+
+    private static final Log LOGGER = LogFactory.getLog(UploadConcurrencyController.class);
+
+    /**
+     * New uploads use parts that take about this long at the measured part
+     * throughput, which bounds the work lost when a part has to be retried.
+     */
+    static final long TARGET_PART_DURATION_MILLIS = 10 * 1000;
+
+    /**
+     * Upper bound of adaptive part sizes, unless the file needs larger parts
+     * to fit into the maximum number of parts.
+     */
+    static final long MAXIMUM_ADAPTIVE_PART_SIZE = 128L * MB;
+
+    /** A part slower than this fraction of the best throughput is congested. */
+    private static final double CONGESTION_THRESHOLD = 0.5;
+
+    /** Decay of the best observed throughput per completed part. */
+    private static final double BEST_THROUGHPUT_DECAY = 0.98;
+
+    /** Weight of a new sample in the throughput moving average. */
+    private static final double THROUGHPUT_SMOOTHING = 0.2;
+
+    private static final UploadConcurrencyController INSTANCE = new UploadConcurrencyController(
+            TransferUtilityOptions.getDefaultThreadPoolSize());
+
+    private int maxConcurrency;
+    private int limit;
+    private int completedSinceChange;
+    private int activeTransfers;
+    /** In bytes per second, 0 until the first part completes. */
+    private double bestThroughput;
+    private double averageThroughput;
+
+    UploadConcurrencyController(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+        this.limit = Math.max(1, this.maxConcurrency / 2);
+    }
+
+    /**
+     * @return the controller shared by all uploads of the process.
+     */
+    static UploadConcurrencyController getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the largest number of parts uploaded concurrently, which is the
+     * size of the part thread pool.
+     *
+     * @param maxConcurrency the largest concurrency limit.
+     */
+    synchronized void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        limit = Math.min(limit, this.maxConcurrency);
+    }
+
+    /**
+     * @return the number of parts all uploads may upload concurrently.
+     */
+    synchronized int getLimit() {
+        return Math.max(1, limit);
+    }
+
+    /**
+     * Registers a multipart upload or a parallel download that is about to
+     * transfer parts. Every call must be followed by {@link #unregisterTransfer()}.
+     */
+    synchronized void registerTransfer() {
+        activeTransfers++;
+    }
+
+    synchronized void unregisterTransfer() {
+        activeTransfers = Math.max(0, activeTransfers - 1);
+    }
+
+    /**
+     * @return the number of parts a single transfer may transfer concurrently,
+     *         its fair share of the limit.
+     */
+    synchronized int getTransferLimit() {
+        return Math.max(1, getLimit() / Math.max(1, activeTransfers));
+    }
+
+    /**
+     * Records a successfully uploaded part.
+     *
+     * @param bytes the size of the part.
+     * @param elapsedMillis how long the part upload took.
+     */
+    synchronized void onPartCompleted(long bytes, long elapsedMillis) {
+        final double throughput = bytes * 1000.0 / Math.max(1, elapsedMillis);
+        averageThroughput = averageThroughput == 0 ? throughput
+                : averageThroughput + THROUGHPUT_SMOOTHING * (throughput - averageThroughput);
+        bestThroughput = Math.max(throughput, bestThroughput * BEST_THROUGHPUT_DECAY);
+
+        completedSinceChange++;
+        if (throughput < bestThroughput * CONGESTION_THRESHOLD) {
+            decrease();
+        } else if (completedSinceChange >= limit && limit < maxConcurrency) {
+            limit++;
+            completedSinceChange = 0;
+        }
+    }
+
+    /**
+     * Records a part that failed for another reason than a user interruption
+     * or a lost network connection.
+     */
+    synchronized void onPartFailed() {
+        completedSinceChange++;
+        decrease();
+    }
+
+    /**
+     * Halves the limit, at most once per limit's worth of parts so the parts
+     * that were in flight when the limit changed don't shrink it again.
+     */
+    private void decrease() {
+        if (completedSinceChange < limit) {
+            return;
+        }
+        limit = Math.max(1, limit / 2);
+        completedSinceChange = 0;
+        LOGGER.debug("Upload part concurrency reduced to " + limit);
+    }
+
+    /**
+     * Chooses the part size of a new multipart upload. Without throughput
+     * measurements this is the minimum part size. Otherwise parts take about
+     * {@link #TARGET_PART_DURATION_MILLIS} at the measured throughput, but
+     * small enough to keep the allowed number of parts busy.
+     *
+     * @param fileLength the size of the file to upload.
+     * @param minimumPartSize the smallest part size.
+     * @return the part size.
+     */
+    synchronized long getPartSize(long fileLength, long minimumPartSize) {
+        final long lowerBound = Math.max(minimumPartSize,
+                (long) Math.ceil((double) fileLength / MAXIMUM_UPLOAD_PARTS));
+        if (averageThroughput == 0) {
+            return lowerBound;
+        }
+        long partSize = (long) (averageThroughput * TARGET_PART_DURATION_MILLIS / 1000);
+        partSize = Math.min(partSize, MAXIMUM_ADAPTIVE_PART_SIZE);
+        partSize = Math.min(partSize, (long) Math.ceil((double) fileLength / getLimit()));
+        // whole megabytes
+        partSize = (partSize + MB - 1) / MB * MB;
+        return Math.max(partSize, lowerBound);
+    }
+}
@@ -60,8 +60,12 @@ class UploadPartTask implements Callable<Boolean> {
      */
     @Override
     public Boolean call() throws Exception {
+        final UploadConcurrencyController controller = UploadConcurrencyController.getInstance();
         try {
+            final long startTime = System.currentTimeMillis();
             final UploadPartResult putPartResult = s3.uploadPart(request);
+            controller.onPartCompleted(request.getPartSize(),
+                    System.currentTimeMillis() - startTime);
             dbUtil.updateState(request.getId(), TransferState.PART_COMPLETED);
             dbUtil.updateETag(request.getId(), putPartResult.getETag());
             return true;
@@ -80,6 +84,7 @@ class UploadPartTask implements Callable<Boolean> {
                 LOGGER.debug("Network Connection Interrupted: " +
                         "Moving the TransferState to WAITING_FOR_NETWORK");
             } else {
+                controller.onPartFailed();
                 dbUtil.updateState(request.getId(), TransferState.FAILED);
                 LOGGER.error("Encountered error uploading part ", e);
             }
@@ -40,9 +40,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -130,19 +133,33 @@ class UploadTask implements Callable<Boolean> {
         final List<UploadPartRequest> requestList = dbUtil.getNonCompletedPartRequestsFromDB(upload.id,
                 upload.multipartId);
         LOGGER.debug("multipart upload " + upload.id + " in " + requestList.size() + " parts.");
-        final ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
-        for (final UploadPartRequest request : requestList) {
-            TransferUtility.appendMultipartTransferServiceUserAgentString(request);
-            request.setGeneralProgressListener(updater.newProgressListener(upload.id));
-            futures.add(TransferThreadPool.submitTask(new UploadPartTask(request, s3, dbUtil, networkInfo)));
-        }
+        final UploadConcurrencyController controller = UploadConcurrencyController.getInstance();
+        final CompletionService<Boolean> completionService = TransferThreadPool
+                .newPartCompletionService();
+        final Set<Future<Boolean>> futures = new HashSet<Future<Boolean>>();
+        controller.registerTransfer();
         try {
             boolean isSuccess = true;
+            int nextPart = 0;
             /*
-             * Future.get() will block the current thread until the method
-             * returns.
+             * Parts are submitted as earlier ones complete, keeping no more
+             * in flight than this upload's share of the adaptive limit.
              */
-            for (final Future<Boolean> f : futures) {
+            while (nextPart < requestList.size() || !futures.isEmpty()) {
+                while (isSuccess && nextPart < requestList.size()
+                        && futures.size() < controller.getTransferLimit()) {
+                    final UploadPartRequest request = requestList.get(nextPart++);
+                    TransferUtility.appendMultipartTransferServiceUserAgentString(request);
+                    request.setGeneralProgressListener(updater.newProgressListener(upload.id));
+                    futures.add(completionService.submit(
+                            new UploadPartTask(request, s3, dbUtil, networkInfo)));
+                }
+                if (futures.isEmpty()) {
+                    break;
+                }
+                // blocks the current thread until a part completes
+                final Future<Boolean> f = completionService.take();
+                futures.remove(f);
                 // UploadPartTask returns false when it's interrupted by user
                 // and the state is set by caller
                 final boolean b = f.get();
@@ -190,6 +207,8 @@ class UploadTask implements Callable<Boolean> {
             }
             updater.updateState(upload.id, TransferState.FAILED);
             return false;
+        } finally {
+            controller.unregisterTransfer();
         }
 
         try {
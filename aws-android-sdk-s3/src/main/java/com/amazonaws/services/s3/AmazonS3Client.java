@@ -1612,7 +1612,12 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             // Always set the content length, even if it's already set
             metadata.setContentLength(file.length());
 
-            final boolean calculateMD5 = metadata.getContentMD5() == null;
+            /*
+             * In single pass mode the MD5 digest is calculated while the file
+             * is uploaded, so it isn't read twice.
+             */
+            final boolean calculateMD5 = metadata.getContentMD5() == null
+                    && !clientOptions.isSinglePassUploadEnabled();
 
             // Only set the content type if it hasn't already been set
             if (metadata.getContentType() == null) {
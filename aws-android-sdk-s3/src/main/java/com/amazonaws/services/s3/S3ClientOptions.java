@@ -29,6 +29,8 @@ public class S3ClientOptions {
     public static final boolean DEFAULT_ACCELERATE_MODE_ENABLED = false;
     /** S3 dualstack endpoint is by default not enabled */
     public static final boolean DEFAULT_DUALSTACK_ENABLED = false;
+    /** File uploads by default pre-calculate their Content-MD5 */
+    public static final boolean DEFAULT_SINGLE_PASS_UPLOAD_ENABLED = false;
 
     /** Flag for use of path-style access */
     private boolean pathStyleAccess;
@@ -36,6 +38,7 @@ public class S3ClientOptions {
     private final boolean accelerateModeEnabled;
     private final boolean payloadSigningEnabled;
     private final boolean dualstackEnabled;
+    private final boolean singlePassUploadEnabled;
 
     /**
      * @return a new S3ClientOptions builder.
@@ -54,6 +57,7 @@ public class S3ClientOptions {
         private boolean accelerateModeEnabled = DEFAULT_ACCELERATE_MODE_ENABLED;
         private boolean payloadSigningEnabled = DEFAULT_PAYLOAD_SIGNING_ENABLED;
         private boolean dualstackEnabled = DEFAULT_DUALSTACK_ENABLED;
+        private boolean singlePassUploadEnabled = DEFAULT_SINGLE_PASS_UPLOAD_ENABLED;
 
         private Builder() {
         }
@@ -67,7 +71,8 @@ public class S3ClientOptions {
                     chunkedEncodingDisabled,
                     accelerateModeEnabled,
                     payloadSigningEnabled,
-                    dualstackEnabled);
+                    dualstackEnabled,
+                    singlePassUploadEnabled);
         }
 
         /**
@@ -178,6 +183,30 @@ public class S3ClientOptions {
             this.dualstackEnabled = true;
             return this;
         }
+
+        /**
+         * <p>
+         * Configures the client to read a file uploaded with a
+         * PutObjectRequest only once.
+         * </p>
+         * <p>
+         * By default the client reads the whole file to calculate the
+         * Content-MD5 header before it starts sending it. With single pass
+         * uploads enabled the MD5 digest is instead calculated while the file
+         * is sent and compared with the ETag returned by Amazon S3, as is
+         * already done for streams and parts. The payload is still protected
+         * in transit by the chunk signatures unless chunked encoding is
+         * disabled. An explicitly set Content-MD5 is always sent.
+         * </p>
+         *
+         * @param singlePassUploadEnabled True to read uploaded files only once.
+         * @return Builder for S3ClientOptions.
+         */
+        @SuppressWarnings("checkstyle:hiddenfield")
+        public Builder setSinglePassUploadEnabled(boolean singlePassUploadEnabled) {
+            this.singlePassUploadEnabled = singlePassUploadEnabled;
+            return this;
+        }
     }
 
     /**
@@ -191,6 +220,7 @@ public class S3ClientOptions {
         this.accelerateModeEnabled = DEFAULT_ACCELERATE_MODE_ENABLED;
         this.payloadSigningEnabled = DEFAULT_PAYLOAD_SIGNING_ENABLED;
         this.dualstackEnabled = DEFAULT_DUALSTACK_ENABLED;
+        this.singlePassUploadEnabled = DEFAULT_SINGLE_PASS_UPLOAD_ENABLED;
     }
 
     /**
@@ -205,18 +235,21 @@ public class S3ClientOptions {
         this.accelerateModeEnabled = other.accelerateModeEnabled;
         this.payloadSigningEnabled = other.payloadSigningEnabled;
         this.dualstackEnabled = other.dualstackEnabled;
+        this.singlePassUploadEnabled = other.singlePassUploadEnabled;
     }
 
     private S3ClientOptions(boolean pathStyleAccess,
             boolean chunkedEncodingDisabled,
             boolean accelerateModeEnabled,
             boolean payloadSigningEnabled,
-            boolean dualstackEnabled) {
+            boolean dualstackEnabled,
+            boolean singlePassUploadEnabled) {
         this.pathStyleAccess = pathStyleAccess;
         this.chunkedEncodingDisabled = chunkedEncodingDisabled;
         this.accelerateModeEnabled = accelerateModeEnabled;
         this.payloadSigningEnabled = payloadSigningEnabled;
         this.dualstackEnabled = dualstackEnabled;
+        this.singlePassUploadEnabled = singlePassUploadEnabled;
     }
 
     /**
@@ -341,6 +374,19 @@ public class S3ClientOptions {
         return dualstackEnabled;
     }
 
+    /**
+     * <p>
+     * Returns whether files uploaded with a PutObjectRequest are read only
+     * once, calculating their MD5 digest while they are sent instead of
+     * before.
+     * </p>
+     *
+     * @return True if single pass uploads are enabled
+     */
+    public boolean isSinglePassUploadEnabled() {
+        return singlePassUploadEnabled;
+    }
+
 
     /**
      * <p>
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Filtered input stream that replaces every carriage return (0x0D) byte of
+ * the wrapped UTF-8 XML document with the character reference
+ * <code>&amp;#013;</code>, so the SAX parser does not normalize it into a line
+ * feed. The document is rewritten as it is read instead of being buffered in
+ * memory first. Since 0x0D never occurs inside a multi-byte UTF-8 sequence the
+ * replacement is done on the raw bytes without decoding them.
+ */
+public final class CarriageReturnEscapingInputStream extends SdkFilterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] ESCAPED_CARRIAGE_RETURN = {
+            '&', '#', '0', '1', '3', ';'
+    };
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    /**
+     * Position in {@link #ESCAPED_CARRIAGE_RETURN} of the next byte of a
+     * partially returned escape sequence, or the array length if there is
+     * none.
+     */
+    private int pending = ESCAPED_CARRIAGE_RETURN.length;
+
+    /**
+     * @param in The XML document to escape.
+     */
+    public CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] b = new byte[1];
+        final int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = 0;
+        while (count < len) {
+            if (pending < ESCAPED_CARRIAGE_RETURN.length) {
+                final int n = Math.min(len - count, ESCAPED_CARRIAGE_RETURN.length - pending);
+                System.arraycopy(ESCAPED_CARRIAGE_RETURN, pending, b, off + count, n);
+                pending += n;
+                count += n;
+                continue;
+            }
+            if (position == limit) {
+                // only block on the wrapped stream when nothing was read yet
+                if (count > 0) {
+                    break;
+                }
+                final int read = super.read(buffer, 0, buffer.length);
+                if (read == -1) {
+                    return -1;
+                }
+                position = 0;
+                limit = read;
+                continue;
+            }
+            final int end = position + Math.min(len - count, limit - position);
+            int i = position;
+            while (i < end && buffer[i] != CARRIAGE_RETURN) {
+                i++;
+            }
+            System.arraycopy(buffer, position, b, off + count, i - position);
+            count += i - position;
+            position = i;
+            if (i < end) {
+                position++;
+                pending = 0;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final byte[] b = new byte[(int) Math.min(BUFFER_SIZE, Math.max(n, 0))];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(b, 0, (int) Math.min(b.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return ESCAPED_CARRIAGE_RETURN.length - pending + limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // mark/reset is not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.iterable;
+
+import com.amazonaws.AmazonClientException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A listing page requested ahead of time on an {@link Executor} while the
+ * caller is still iterating the previous page.
+ *
+ * @param <T> the listing type.
+ */
+final class NextPage<T> {
+
+    private final FutureTask<T> task;
+
+    NextPage(Executor executor, Callable<T> request) {
+        task = new FutureTask<T>(request);
+        executor.execute(task);
+    }
+
+    /**
+     * Waits for the requested page. Exceptions thrown by the request are
+     * rethrown as they would have been by a synchronous call.
+     *
+     * @return the page.
+     */
+    T get() {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Interrupted while waiting for the next page", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AmazonClientException("Unable to list the next page", cause);
+        }
+    }
+}
@@ -21,6 +21,8 @@ import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * Provides an easy way to iterate Amazon S3 objects in a "foreach" statement.
@@ -34,7 +36,9 @@ import java.util.Iterator;
  * <p>
  * The list of {@link S3ObjectSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
- * {@link S3Objects#withBatchSize(int)} method.
+ * {@link S3Objects#withBatchSize(int)} method. When an executor is set with
+ * {@link S3Objects#withPrefetchExecutor(Executor)}, the next page is requested
+ * in the background while the current one is being iterated.
  */
 public final class S3Objects implements Iterable<S3ObjectSummary> {
 
@@ -42,6 +46,7 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
     private String prefix = null;
     private String bucketName;
     private Integer batchSize = null;
+    private Executor prefetchExecutor = null;
 
     private S3Objects(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -92,6 +97,26 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
         return batchSize;
     }
 
+    /**
+     * Sets the executor used to request the next page of {@link S3ObjectSummary}s
+     * while the caller is iterating the current one, so the listing latency
+     * of all but the first page overlaps with the caller's work. A page is
+     * requested ahead only if the current one is truncated. By default pages
+     * are requested on the iterating thread when they are needed.
+     *
+     * @param prefetchExecutor The executor, or null to disable prefetching.
+     * @return the S3Objects.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Objects withPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+        return this;
+    }
+
+    public Executor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
     public String getPrefix() {
         return prefix;
     }
@@ -108,6 +133,8 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
 
         private ObjectListing currentListing = null;
 
+        private NextPage<ObjectListing> nextListing = null;
+
         private Iterator<S3ObjectSummary> currentIterator = null;
 
         @Override
@@ -137,12 +164,30 @@ public final class S3Objects implements Iterable<S3ObjectSummary> {
                     req.setPrefix(getPrefix());
                     req.setMaxKeys(getBatchSize());
                     currentListing = getS3().listObjects(req);
+                } else if (nextListing != null) {
+                    currentListing = nextListing.get();
+                    nextListing = null;
                 } else {
                     currentListing = getS3().listNextBatchOfObjects(currentListing);
                 }
 
                 currentIterator = currentListing.getObjectSummaries().iterator();
+                prefetchNextListing();
+            }
+        }
+
+        private void prefetchNextListing() {
+            if (getPrefetchExecutor() == null || !currentListing.isTruncated()) {
+                return;
             }
+            final ObjectListing previousListing = currentListing;
+            nextListing = new NextPage<ObjectListing>(getPrefetchExecutor(),
+                    new Callable<ObjectListing>() {
+                        @Override
+                        public ObjectListing call() {
+                            return getS3().listNextBatchOfObjects(previousListing);
+                        }
+                    });
         }
 
     }
@@ -21,6 +21,8 @@ import com.amazonaws.services.s3.model.S3VersionSummary;
 import com.amazonaws.services.s3.model.VersionListing;
 
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 /**
  * Provides an easy way to iterate Amazon S3 object versions in a "foreach"
@@ -34,7 +36,9 @@ import java.util.Iterator;
  * <p>
  * The list of {@link S3VersionSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
- * {@link S3Versions#withBatchSize(int)} method.
+ * {@link S3Versions#withBatchSize(int)} method. When an executor is set with
+ * {@link S3Versions#withPrefetchExecutor(Executor)}, the next page is requested
+ * in the background while the current one is being iterated.
  */
 public final class S3Versions implements Iterable<S3VersionSummary> {
 
@@ -43,6 +47,7 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
     private String prefix;
     private String key;
     private Integer batchSize;
+    private Executor prefetchExecutor;
 
     private S3Versions(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -109,6 +114,26 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
         return batchSize;
     }
 
+    /**
+     * Sets the executor used to request the next page of {@link S3VersionSummary}s
+     * while the caller is iterating the current one, so the listing latency
+     * of all but the first page overlaps with the caller's work. A page is
+     * requested ahead only if the current one is truncated. By default pages
+     * are requested on the iterating thread when they are needed.
+     *
+     * @param prefetchExecutor The executor, or null to disable prefetching.
+     * @return the S3Versions.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public S3Versions withPrefetchExecutor(Executor prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+        return this;
+    }
+
+    public Executor getPrefetchExecutor() {
+        return prefetchExecutor;
+    }
+
     public String getPrefix() {
         return prefix;
     }
@@ -128,6 +153,7 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
     private class VersionIterator implements Iterator<S3VersionSummary> {
 
         private VersionListing currentListing = null;
+        private NextPage<VersionListing> nextListing = null;
         private Iterator<S3VersionSummary> currentIterator = null;
         private S3VersionSummary nextSummary = null;
 
@@ -176,12 +202,16 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
 
                     req.setMaxResults(getBatchSize());
                     currentListing = getS3().listVersions(req);
+                } else if (nextListing != null) {
+                    currentListing = nextListing.get();
+                    nextListing = null;
                 } else {
                     currentListing = getS3().listNextBatchOfVersions(
                             currentListing);
                 }
                 currentIterator = currentListing.getVersionSummaries()
                         .iterator();
+                prefetchNextListing();
             }
 
             if (nextSummary == null && currentIterator.hasNext()) {
@@ -189,6 +219,20 @@ public final class S3Versions implements Iterable<S3VersionSummary> {
             }
         }
 
+        private void prefetchNextListing() {
+            if (getPrefetchExecutor() == null || !currentListing.isTruncated()) {
+                return;
+            }
+            final VersionListing previousListing = currentListing;
+            nextListing = new NextPage<VersionListing>(getPrefetchExecutor(),
+                    new Callable<VersionListing>() {
+                        @Override
+                        public VersionListing call() {
+                            return getS3().listNextBatchOfVersions(previousListing);
+                        }
+                    });
+        }
+
     }
 
     @Override
@@ -18,9 +18,8 @@
 
 package com.amazonaws.services.s3.model.transform;
 
-import static com.amazonaws.util.StringUtils.UTF8;
-
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.internal.CarriageReturnEscapingInputStream;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.ObjectExpirationResult;
@@ -123,7 +122,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -217,56 +215,13 @@ public class XmlResponsesSaxParser {
                 log.debug("Sanitizing XML document destined for handler " + handler.getClass());
             }
 
-            InputStream sanitizedInputStream = null;
-
-            try {
-
-                /*
-                 * Read object listing XML document from input stream provided
-                 * into a string buffer, so we can replace troublesome
-                 * characters before sending the document to the XML parser.
-                 */
-                final StringBuilder listingDocBuffer = new StringBuilder();
-                final BufferedReader br = new BufferedReader(
-                        new InputStreamReader(inputStream, Constants.DEFAULT_ENCODING));
-
-                final char[] buf = new char[8192];
-                int read = -1;
-                while ((read = br.read(buf)) != -1) {
-                    listingDocBuffer.append(buf, 0, read);
-                }
-                br.close();
-
-                /*
-                 * Replace any carriage return (\r) characters with explicit XML
-                 * character entities, to prevent the SAX parser from
-                 * misinterpreting 0x0D characters as 0x0A and being unable to
-                 * parse the XML.
-                 */
-                final String listingDoc = listingDocBuffer.toString().replaceAll("\r", "&#013;");
-
-                sanitizedInputStream = new ByteArrayInputStream(
-                        listingDoc.getBytes(UTF8));
-
-            } catch (final IOException e) {
-                throw e;
-
-            } catch (final Throwable t) {
-                try {
-                    inputStream.close();
-                } catch (final IOException e) {
-                    if (log.isErrorEnabled()) {
-                        log.error(
-                                "Unable to close response InputStream after failure sanitizing XML document",
-                                e);
-                    }
-                }
-                throw new AmazonClientException(
-                        "Failed to sanitize XML document destined for handler "
-                                + handler.getClass(),
-                        t);
-            }
-            return sanitizedInputStream;
+            /*
+             * Replace any carriage return (\r) characters with explicit XML
+             * character entities while the document is read, to prevent the
+             * SAX parser from misinterpreting 0x0D characters as 0x0A and
+             * being unable to parse the XML.
+             */
+            return new CarriageReturnEscapingInputStream(inputStream);
         }
     }
 
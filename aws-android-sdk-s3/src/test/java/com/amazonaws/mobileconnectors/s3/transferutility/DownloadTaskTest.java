@@ -0,0 +1,278 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.ContentValues;
+import android.net.Uri;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.mobileconnectors.s3.transferutility.TransferService.NetworkInfoReceiver;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class DownloadTaskTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "key";
+    private static final String ETAG = "etag";
+    private static final long PART_SIZE = TransferUtilityOptions.MINIMUM_DOWNLOAD_PART_SIZE;
+
+    private TransferDBUtil dbUtil;
+    private TransferStatusUpdater updater;
+    private NetworkInfoReceiver networkInfo;
+    private AmazonS3 s3;
+    private File file;
+    private byte[] content;
+    /** The ranges requested, as {first, last}. */
+    private final List<long[]> ranges = Collections.synchronizedList(new ArrayList<long[]>());
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    /** The first byte of the range that fails, or -1. */
+    private volatile long failingRangeStart = -1;
+
+    @Before
+    public void setup() throws Exception {
+        dbUtil = new TransferDBUtil(RuntimeEnvironment.application.getApplicationContext());
+        updater = mock(TransferStatusUpdater.class);
+        networkInfo = mock(NetworkInfoReceiver.class);
+        when(networkInfo.isNetworkConnected()).thenReturn(true);
+        file = File.createTempFile("download", ".tmp");
+        file.delete();
+
+        content = new byte[(int) (PART_SIZE * 3 + 12345)];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31 + i / 251);
+        }
+        s3 = mock(AmazonS3.class);
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(content.length);
+        metadata.setHeader("ETag", ETAG);
+        when(s3.getObjectMetadata(any(GetObjectMetadataRequest.class))).thenReturn(metadata);
+        when(s3.getObject(any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+            @Override
+            public S3Object answer(InvocationOnMock invocation) throws Throwable {
+                final GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+                final long[] range = request.getRange() == null ? new long[] {
+                        0, content.length - 1
+                } : request.getRange();
+                ranges.add(range);
+                final int running = inFlight.incrementAndGet();
+                try {
+                    synchronized (maxInFlight) {
+                        maxInFlight.set(Math.max(maxInFlight.get(), running));
+                    }
+                    Thread.sleep(20);
+                    if (range[0] == failingRangeStart) {
+                        throw new AmazonServiceException("part failed");
+                    }
+                    final S3Object object = new S3Object();
+                    object.setObjectContent(new ByteArrayInputStream(content, (int) range[0],
+                            (int) (range[1] - range[0] + 1)));
+                    return object;
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        dbUtil.closeDB();
+        file.delete();
+    }
+
+    @Test
+    public void testDownloadsRangedPartsInParallel() throws Exception {
+        final TransferRecord download = insertDownload();
+
+        assertTrue(newDownloadTask(download).call());
+
+        assertArrayEquals(content, readFile());
+        assertEquals(4, ranges.size());
+        final List<TransferRecord> parts = dbUtil.queryPartRecords(download.id);
+        assertEquals(4, parts.size());
+        long expectedStart = 0;
+        for (final TransferRecord part : parts) {
+            assertEquals(expectedStart, part.rangeStart);
+            assertEquals(TransferState.PART_COMPLETED, part.state);
+            assertEquals(part.bytesTotal, part.bytesCurrent);
+            expectedStart = part.rangeLast + 1;
+        }
+        assertEquals(content.length, expectedStart);
+        assertEquals(ETAG, dbUtil.getTransferById(download.id).eTag);
+        verify(updater).updateState(download.id, TransferState.COMPLETED);
+    }
+
+    @Test
+    public void testPartsInFlightStayWithinTheTransferLimit() throws Exception {
+        final UploadConcurrencyController controller = UploadConcurrencyController.getInstance();
+        controller.registerTransfer();
+        controller.registerTransfer();
+        controller.registerTransfer();
+        try {
+            final int limit = Math.max(1, controller.getLimit() / 4);
+            assertTrue(newDownloadTask(insertDownload()).call());
+            assertTrue("at most " + limit + " parts in flight, was " + maxInFlight.get(),
+                    maxInFlight.get() <= limit);
+        } finally {
+            controller.unregisterTransfer();
+            controller.unregisterTransfer();
+            controller.unregisterTransfer();
+        }
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void testResumeFetchesOnlyTheRestOfEachPart() throws Exception {
+        final TransferRecord download = insertDownload();
+        failingRangeStart = PART_SIZE * 2;
+        assertFalse(newDownloadTask(download).call());
+        verify(updater).updateState(download.id, TransferState.FAILED);
+
+        List<TransferRecord> parts = dbUtil.queryPartRecords(download.id);
+        assertEquals(TransferState.FAILED, parts.get(2).state);
+        assertEquals(0, parts.get(2).bytesCurrent);
+        // the last part was paused after writing 1000 bytes
+        final TransferRecord last = parts.get(3);
+        dbUtil.updateBytesTransferred(last.id, 1000);
+        dbUtil.updateState(last.id, TransferState.IN_PROGRESS);
+        writeFile(last.rangeStart, last.rangeStart + 1000, last.rangeLast);
+
+        failingRangeStart = -1;
+        ranges.clear();
+        parts = dbUtil.queryPartRecords(download.id);
+        final List<String> expected = new ArrayList<String>();
+        for (final TransferRecord part : parts) {
+            if (!TransferState.PART_COMPLETED.equals(part.state)) {
+                expected.add((part.rangeStart + part.bytesCurrent) + "-" + part.rangeLast);
+            }
+        }
+        assertTrue(expected.contains((last.rangeStart + 1000) + "-" + last.rangeLast));
+
+        assertTrue(newDownloadTask(dbUtil.getTransferById(download.id)).call());
+
+        assertArrayEquals(content, readFile());
+        final List<String> requested = new ArrayList<String>();
+        for (final long[] range : ranges) {
+            requested.add(range[0] + "-" + range[1]);
+        }
+        Collections.sort(expected);
+        Collections.sort(requested);
+        assertEquals(expected, requested);
+    }
+
+    @Test
+    public void testDeletedFileRestartsTheDownload() throws Exception {
+        final TransferRecord download = insertDownload();
+        dbUtil.insertDownloadPartRecords(download.id, new ContentValues[] {
+                dbUtil.generateContentValuesForDownloadPart(BUCKET, KEY, file, 1, 0, 9, 1)
+        });
+        dbUtil.updateBytesTotalForDownload(download.id, 10);
+
+        assertTrue(newDownloadTask(dbUtil.getTransferById(download.id)).call());
+
+        assertArrayEquals(content, readFile());
+        assertEquals(4, dbUtil.queryPartRecords(download.id).size());
+    }
+
+    @Test
+    public void testSmallObjectIsDownloadedInOneRequest() throws Exception {
+        final TransferRecord download = insertDownload();
+
+        assertTrue(new DownloadTask(download, s3, dbUtil, updater, networkInfo,
+                content.length).call());
+
+        assertArrayEquals(content, readFile());
+        assertEquals(1, ranges.size());
+        assertTrue(dbUtil.queryPartRecords(download.id).isEmpty());
+        verify(updater).updateState(download.id, TransferState.COMPLETED);
+    }
+
+    private TransferRecord insertDownload() {
+        final Uri uri = dbUtil.insertDownloadRecord(BUCKET, KEY, file, PART_SIZE);
+        return dbUtil.getTransferById(Integer.parseInt(uri.getLastPathSegment()));
+    }
+
+    private DownloadTask newDownloadTask(TransferRecord download) {
+        return new DownloadTask(download, s3, dbUtil, updater, networkInfo, download.partSize);
+    }
+
+    private byte[] readFile() throws Exception {
+        final byte[] bytes = new byte[(int) file.length()];
+        final FileInputStream in = new FileInputStream(file);
+        try {
+            int offset = 0;
+            while (offset < bytes.length) {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the content from first to written, excluded, into the file and
+     * garbage from written to last, which a resumed part must write again.
+     */
+    private void writeFile(long first, long written, long last) throws Exception {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(first);
+            raf.write(content, (int) first, (int) (written - first));
+            final byte[] garbage = new byte[(int) (last - written + 1)];
+            Arrays.fill(garbage, (byte) 7);
+            raf.write(garbage);
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ContentValues;
+import android.net.Uri;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class TransferDBUtilTest {
+
+    private static final String BUCKET = "bucket";
+    private static final String KEY = "key";
+
+    private TransferDBUtil dbUtil;
+    private File file;
+
+    @Before
+    public void setup() throws Exception {
+        dbUtil = new TransferDBUtil(RuntimeEnvironment.application.getApplicationContext());
+        file = File.createTempFile("download", ".tmp");
+    }
+
+    @After
+    public void tearDown() {
+        dbUtil.closeDB();
+        file.delete();
+    }
+
+    @Test
+    public void testDownloadRecordKeepsItsPartSize() {
+        final TransferRecord parallel = insertDownload(8 * 1024 * 1024);
+        assertEquals(TransferType.DOWNLOAD, parallel.type);
+        assertEquals(TransferState.WAITING, parallel.state);
+        assertEquals(8 * 1024 * 1024, parallel.partSize);
+
+        assertEquals(0, insertDownload(0).partSize);
+    }
+
+    @Test
+    public void testRecordWithoutPartSizeUsesTheOptions() {
+        final Uri uri = dbUtil.insertSingleTransferRecord(TransferType.DOWNLOAD, BUCKET, KEY,
+                file);
+        final TransferRecord record = dbUtil
+                .getTransferById(Integer.parseInt(uri.getLastPathSegment()));
+        assertEquals(-1, record.partSize);
+    }
+
+    @Test
+    public void testDownloadPartRecords() {
+        final TransferRecord download = insertDownload(100);
+        final TransferRecord other = insertDownload(100);
+        assertTrue(dbUtil.insertDownloadPartRecords(download.id, new ContentValues[] {
+                part(3, 200, 249, 1), part(1, 0, 99, 0), part(2, 100, 199, 0)
+        }));
+        assertTrue(dbUtil.insertDownloadPartRecords(other.id, new ContentValues[] {
+                part(1, 0, 9, 1)
+        }));
+
+        final List<TransferRecord> parts = dbUtil.queryPartRecords(download.id);
+        assertEquals(3, parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            final TransferRecord part = parts.get(i);
+            assertEquals("ordered by part number", i + 1, part.partNumber);
+            assertEquals(download.id, part.mainUploadId);
+            assertEquals(i * 100, part.rangeStart);
+            assertEquals(Math.min(i * 100 + 99, 249), part.rangeLast);
+            assertEquals(part.rangeLast - part.rangeStart + 1, part.bytesTotal);
+            assertEquals(0, part.bytesCurrent);
+            assertEquals(TransferState.WAITING, part.state);
+            assertEquals(i == 2 ? 1 : 0, part.isLastPart);
+            assertEquals(file.getAbsolutePath(), part.file);
+        }
+        assertTrue(dbUtil.queryPartRecords(download.id + other.id + 1).isEmpty());
+    }
+
+    @Test
+    public void testPartProgressAndState() {
+        final TransferRecord download = insertDownload(100);
+        dbUtil.insertDownloadPartRecords(download.id, new ContentValues[] {
+                part(1, 0, 99, 0), part(2, 100, 149, 1)
+        });
+        final List<TransferRecord> parts = dbUtil.queryPartRecords(download.id);
+
+        dbUtil.updateBytesTransferred(parts.get(0).id, 40);
+        dbUtil.updateState(parts.get(0).id, TransferState.WAITING_FOR_NETWORK);
+        dbUtil.updateState(parts.get(1).id, TransferState.PART_COMPLETED);
+
+        final List<TransferRecord> saved = dbUtil.queryPartRecords(download.id);
+        assertEquals(40, saved.get(0).bytesCurrent);
+        assertEquals(TransferState.WAITING_FOR_NETWORK, saved.get(0).state);
+        assertEquals(TransferState.PART_COMPLETED, saved.get(1).state);
+        assertTrue(dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id));
+
+        dbUtil.updateState(parts.get(0).id, TransferState.IN_PROGRESS);
+        assertFalse(dbUtil.checkWaitingForNetworkPartRequestsFromDB(download.id));
+    }
+
+    @Test
+    public void testDeletePartRecordsKeepsTheMainRecord() {
+        final TransferRecord download = insertDownload(100);
+        dbUtil.insertDownloadPartRecords(download.id, new ContentValues[] {
+                part(1, 0, 99, 0), part(2, 100, 149, 1)
+        });
+
+        assertEquals(2, dbUtil.deletePartRecords(download.id));
+        assertTrue(dbUtil.queryPartRecords(download.id).isEmpty());
+        assertNotNull(dbUtil.getTransferById(download.id));
+    }
+
+    @Test
+    public void testDownloadTotalAndETag() {
+        final TransferRecord download = insertDownload(100);
+        dbUtil.updateBytesTotalForDownload(download.id, 1234);
+        dbUtil.updateETag(download.id, "etag");
+
+        final TransferRecord saved = dbUtil.getTransferById(download.id);
+        assertEquals(1234, saved.bytesTotal);
+        assertEquals("etag", saved.eTag);
+    }
+
+    private TransferRecord insertDownload(long partSize) {
+        final Uri uri = dbUtil.insertDownloadRecord(BUCKET, KEY, file, partSize);
+        return dbUtil.getTransferById(Integer.parseInt(uri.getLastPathSegment()));
+    }
+
+    private ContentValues part(int partNumber, long rangeStart, long rangeLast, int isLastPart) {
+        return dbUtil.generateContentValuesForDownloadPart(BUCKET, KEY, file, partNumber,
+                rangeStart, rangeLast, isLastPart);
+    }
+}
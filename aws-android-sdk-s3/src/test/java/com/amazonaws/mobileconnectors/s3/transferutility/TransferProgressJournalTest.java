@@ -0,0 +1,126 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class TransferProgressJournalTest {
+
+    private TransferDBUtil dbUtil;
+
+    @Before
+    public void setup() {
+        dbUtil = mock(TransferDBUtil.class);
+    }
+
+    @Test
+    public void testCoalescesProgressUntilFlush() {
+        final TransferProgressJournal journal = new TransferProgressJournal(dbUtil, Long.MAX_VALUE);
+        journal.record(1, 10);
+        journal.record(1, 20);
+        journal.record(2, 5);
+        assertEquals(2, journal.size());
+        verify(dbUtil, never()).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+
+        journal.flush();
+        final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        expected.put(1, 20L);
+        expected.put(2, 5L);
+        verify(dbUtil).updateBytesTransferred(expected);
+        assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void testFlushesWhenIntervalElapsed() {
+        final TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 0);
+        journal.record(1, 10);
+        final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        expected.put(1, 10L);
+        verify(dbUtil).updateBytesTransferred(expected);
+        assertEquals(0, journal.size());
+    }
+
+    @Test
+    public void testDiscardedProgressIsNotWritten() {
+        final TransferProgressJournal journal = new TransferProgressJournal(dbUtil, Long.MAX_VALUE);
+        journal.record(1, 10);
+        journal.discard(1);
+        journal.flush();
+        verify(dbUtil, never()).updateBytesTransferred(anyMapOf(Integer.class, Long.class));
+    }
+
+    @Test
+    public void testScheduledFlushWritesStalledProgress() {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        try {
+            final TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 50,
+                    scheduler);
+            // no more progress is recorded after this
+            journal.record(1, 10);
+            final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+            expected.put(1, 10L);
+            verify(dbUtil, timeout(2000)).updateBytesTransferred(expected);
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedFlushKeepsProgress() {
+        final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        when(dbUtil.updateBytesTransferred(anyMapOf(Integer.class, Long.class)))
+                .thenReturn(-1).thenReturn(1);
+        final TransferProgressJournal journal = new TransferProgressJournal(dbUtil, 1000,
+                scheduler);
+        journal.record(1, 10);
+        final ArgumentCaptor<Runnable> scheduledFlush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(scheduledFlush.capture(), eq(1000L),
+                eq(TimeUnit.MILLISECONDS));
+
+        scheduledFlush.getValue().run();
+        assertEquals("progress kept after a failed write", 1, journal.size());
+        // a new flush is scheduled to try again
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(),
+                any(TimeUnit.class));
+
+        journal.record(1, 20);
+        scheduledFlush.getValue().run();
+        final Map<Integer, Long> expected = new HashMap<Integer, Long>();
+        expected.put(1, 20L);
+        verify(dbUtil).updateBytesTransferred(expected);
+        assertEquals(0, journal.size());
+    }
+}
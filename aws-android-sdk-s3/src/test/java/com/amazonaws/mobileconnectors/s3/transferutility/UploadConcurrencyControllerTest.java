@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.mobileconnectors.s3.transferutility;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class UploadConcurrencyControllerTest {
+
+    private static final long MINIMUM_PART_SIZE = 5 * MB;
+
+    @Test
+    public void testAdditiveIncreaseUpToMaximum() {
+        final UploadConcurrencyController controller = new UploadConcurrencyController(4);
+        assertEquals(2, controller.getLimit());
+
+        completeParts(controller, 2, MB, 1000);
+        assertEquals(3, controller.getLimit());
+        completeParts(controller, 3, MB, 1000);
+        assertEquals(4, controller.getLimit());
+        completeParts(controller, 20, MB, 1000);
+        assertEquals("limited by the part threads", 4, controller.getLimit());
+    }
+
+    @Test
+    public void testMultiplicativeDecreaseOnSlowPartsAndFailures() {
+        final UploadConcurrencyController controller = new UploadConcurrencyController(8);
+        completeParts(controller, 4 + 5 + 6 + 7, MB, 1000);
+        assertEquals(8, controller.getLimit());
+
+        completeParts(controller, 8, MB, 3000);
+        assertEquals(4, controller.getLimit());
+
+        controller.onPartFailed();
+        assertEquals("halved at most once per window", 4, controller.getLimit());
+        completeParts(controller, 2, MB, 1000);
+        controller.onPartFailed();
+        assertEquals(2, controller.getLimit());
+        controller.onPartFailed();
+        controller.onPartFailed();
+        assertEquals(1, controller.getLimit());
+    }
+
+    @Test
+    public void testTransfersShareTheLimit() {
+        final UploadConcurrencyController controller = new UploadConcurrencyController(8);
+        assertEquals(4, controller.getTransferLimit());
+        controller.registerTransfer();
+        assertEquals(4, controller.getTransferLimit());
+        controller.registerTransfer();
+        assertEquals(2, controller.getTransferLimit());
+        controller.registerTransfer();
+        controller.registerTransfer();
+        controller.registerTransfer();
+        assertEquals(1, controller.getTransferLimit());
+        controller.unregisterTransfer();
+        controller.unregisterTransfer();
+        controller.unregisterTransfer();
+        controller.unregisterTransfer();
+        assertEquals(4, controller.getTransferLimit());
+    }
+
+    @Test
+    public void testPartSizeFollowsThroughput() {
+        final UploadConcurrencyController controller = new UploadConcurrencyController(2);
+        assertEquals(MINIMUM_PART_SIZE, controller.getPartSize(100 * MB, MINIMUM_PART_SIZE));
+        assertEquals("fits into the maximum number of parts", 6 * MB,
+                controller.getPartSize(60000L * MB, MINIMUM_PART_SIZE));
+
+        // 2 MB per second, 10 seconds per part
+        controller.onPartCompleted(2 * MB, 1000);
+        assertEquals(20 * MB, controller.getPartSize(1000 * MB, MINIMUM_PART_SIZE));
+        assertEquals("keeps every allowed part busy", 15 * MB,
+                controller.getPartSize(30 * MB, MINIMUM_PART_SIZE));
+        assertEquals(MINIMUM_PART_SIZE, controller.getPartSize(6 * MB, MINIMUM_PART_SIZE));
+
+        controller.onPartCompleted(100 * MB, 1000);
+        assertEquals(UploadConcurrencyController.MAXIMUM_ADAPTIVE_PART_SIZE,
+                controller.getPartSize(100000L * MB, MINIMUM_PART_SIZE));
+    }
+
+    private static void completeParts(UploadConcurrencyController controller, int parts,
+            long bytes, long elapsedMillis) {
+        for (int i = 0; i < parts; i++) {
+            controller.onPartCompleted(bytes, elapsedMillis);
+        }
+    }
+}
@@ -15,6 +15,7 @@
 
 package com.amazonaws.services.s3;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -26,5 +27,10 @@ public class S3ClientOptionsTest {
                 .setPathStyleAccess(true).build();
         assertTrue(options.isAccelerateModeEnabled());
         assertTrue(options.isPathStyleAccess());
+        assertFalse(options.isSinglePassUploadEnabled());
+
+        options = S3ClientOptions.builder().setSinglePassUploadEnabled(true).build();
+        assertTrue(options.isSinglePassUploadEnabled());
+        assertTrue(new S3ClientOptions(options).isSinglePassUploadEnabled());
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.http.HttpClient;
+import com.amazonaws.http.HttpRequest;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.internal.StaticCredentialsProvider;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.Md5Utils;
+import com.amazonaws.util.StringUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class SinglePassUploadTest {
+
+    private static final byte[] DATA = "single pass upload".getBytes(StringUtils.UTF8);
+
+    private File file;
+    private RecordingHttpClient httpClient;
+    private AmazonS3Client s3;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("single-pass", ".txt");
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(DATA);
+        out.close();
+
+        httpClient = new RecordingHttpClient();
+        s3 = new AmazonS3Client(
+                new StaticCredentialsProvider(new BasicAWSCredentials("accessKey", "secretKey")),
+                new ClientConfiguration().withMaxErrorRetry(0), httpClient);
+    }
+
+    @After
+    public void teardown() {
+        file.delete();
+    }
+
+    @Test
+    public void testContentMd5IsPrecalculatedByDefault() {
+        httpClient.etag = BinaryUtils.toHex(Md5Utils.computeMD5Hash(DATA));
+        s3.putObject(new PutObjectRequest("bucket", "key", file));
+
+        assertEquals(BinaryUtils.toBase64(Md5Utils.computeMD5Hash(DATA)),
+                httpClient.headers.get(0).get("Content-MD5"));
+    }
+
+    @Test
+    public void testSinglePassUploadValidatesEtag() {
+        s3.setS3ClientOptions(S3ClientOptions.builder().setSinglePassUploadEnabled(true).build());
+        httpClient.etag = BinaryUtils.toHex(Md5Utils.computeMD5Hash(DATA));
+        s3.putObject(new PutObjectRequest("bucket", "key", file));
+        assertFalse(httpClient.headers.get(0).containsKey("Content-MD5"));
+
+        httpClient.etag = BinaryUtils.toHex(Md5Utils.computeMD5Hash(new byte[1]));
+        try {
+            s3.putObject(new PutObjectRequest("bucket", "key", file));
+            fail("the ETag doesn't match the uploaded data");
+        } catch (final AmazonClientException e) {
+            assertTrue(e.getMessage().startsWith("Unable to verify integrity of data upload"));
+        }
+    }
+
+    /**
+     * Consumes the uploaded data and answers with the configured ETag.
+     */
+    private static final class RecordingHttpClient implements HttpClient {
+        final List<Map<String, String>> headers = new ArrayList<Map<String, String>>();
+        String etag;
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            // the client looks up the bucket region with a HEAD request first
+            if ("PUT".equals(request.getMethod())) {
+                headers.add(request.getHeaders());
+                IOUtils.toByteArray(request.getContent());
+            }
+            return HttpResponse.builder()
+                    .statusCode(200)
+                    .statusText("OK")
+                    .header(Headers.ETAG, "\"" + etag + "\"")
+                    .content(new ByteArrayInputStream(new byte[0]))
+                    .build();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
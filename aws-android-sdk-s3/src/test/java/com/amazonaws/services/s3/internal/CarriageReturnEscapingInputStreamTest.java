@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010-2018 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.util.StringUtils;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CarriageReturnEscapingInputStreamTest {
+
+    private static InputStream escaping(String s) {
+        return new CarriageReturnEscapingInputStream(
+                new ByteArrayInputStream(s.getBytes(StringUtils.UTF8)));
+    }
+
+    @Test
+    public void testEscapesCarriageReturns() throws IOException {
+        assertEquals("a&#013;\nb&#013;&#013;é&#013;",
+                IOUtils.toString(escaping("a\r\nb\r\ré\r"), "UTF-8"));
+        assertEquals("", IOUtils.toString(escaping(""), "UTF-8"));
+    }
+
+    @Test
+    public void testSmallReadsSplitEscapes() throws IOException {
+        final InputStream in = escaping("x\r\ry");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] b = new byte[4];
+        int read;
+        while ((read = in.read(b, 1, 3)) != -1) {
+            out.write(b, 1, read);
+        }
+        assertEquals("x&#013;&#013;y", new String(out.toByteArray(), StringUtils.UTF8));
+
+        final InputStream single = escaping("\ré");
+        final ByteArrayOutputStream singleOut = new ByteArrayOutputStream();
+        while ((read = single.read()) != -1) {
+            singleOut.write(read);
+        }
+        assertEquals("&#013;é", new String(singleOut.toByteArray(), StringUtils.UTF8));
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        final InputStream in = escaping("a\rb");
+        assertEquals(3, in.skip(3));
+        assertEquals("013;b", IOUtils.toString(in, "UTF-8"));
+    }
+
+    @Test
+    public void testListingKeysKeepCarriageReturns() throws IOException {
+        final StringBuilder xml = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                        + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><IsTruncated>false</IsTruncated>");
+        for (int i = 0; i < 2000; i++) {
+            xml.append("<Contents><Key>key\r").append(i).append("</Key></Contents>\r\n");
+        }
+        xml.append("</ListBucketResult>");
+
+        final ObjectListing listing = new XmlResponsesSaxParser().parseListBucketObjectsResponse(
+                new ByteArrayInputStream(xml.toString().getBytes(StringUtils.UTF8)), false)
+                .getObjectListing();
+        assertEquals(2000, listing.getObjectSummaries().size());
+        assertEquals("key\r1999", listing.getObjectSummaries().get(1999).getKey());
+    }
+}
@@ -20,12 +20,15 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
@@ -38,6 +41,8 @@ import org.mockito.ArgumentCaptor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
 
 public abstract class S3ObjectsTestCommon {
 
@@ -148,4 +153,69 @@ public abstract class S3ObjectsTestCommon {
         assertFalse(iter.hasNext());
     }
 
+    @Test
+    public void testPrefetchesNextPageOnExecutor() throws Exception {
+        when(objectListing.isTruncated()).thenReturn(true);
+        when(objectListing.getObjectSummaries()).thenReturn(
+                Arrays.asList(firstSummary));
+
+        ObjectListing secondPage = mock(ObjectListing.class);
+        when(secondPage.isTruncated()).thenReturn(false);
+        when(secondPage.getObjectSummaries()).thenReturn(
+                Arrays.asList(secondSummary));
+        when(s3.listNextBatchOfObjects(objectListing)).thenReturn(secondPage);
+
+        QueueingExecutor executor = new QueueingExecutor();
+        Iterator<S3ObjectSummary> iter = s3Objects.withPrefetchExecutor(executor).iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(1, executor.tasks.size());
+        verify(s3, never()).listNextBatchOfObjects(objectListing);
+
+        executor.runAll();
+        assertSame(firstSummary, iter.next());
+        assertSame(secondSummary, iter.next());
+        assertFalse(iter.hasNext());
+        assertTrue("no prefetch after the last page", executor.tasks.isEmpty());
+        verify(s3, times(1)).listNextBatchOfObjects(objectListing);
+    }
+
+    @Test
+    public void testPrefetchFailureIsThrownToCaller() throws Exception {
+        when(objectListing.isTruncated()).thenReturn(true);
+        AmazonClientException failure = new AmazonClientException("failed");
+        when(s3.listNextBatchOfObjects(objectListing)).thenThrow(failure);
+
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                task.run();
+            }
+        };
+        Iterator<S3ObjectSummary> iter = s3Objects.withPrefetchExecutor(executor).iterator();
+        try {
+            iter.hasNext();
+            fail("prefetch failure is expected");
+        } catch (AmazonClientException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    /**
+     * Holds the submitted tasks until they are run explicitly.
+     */
+    static final class QueueingExecutor implements Executor {
+        final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.removeFirst().run();
+            }
+        }
+    }
+
 }
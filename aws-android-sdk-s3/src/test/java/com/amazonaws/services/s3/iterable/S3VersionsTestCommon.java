@@ -22,6 +22,7 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -119,4 +120,25 @@ public abstract class S3VersionsTestCommon {
 
         verify(s3).listNextBatchOfVersions(versionListing);
     }
+
+    @Test
+    public void testPrefetchesNextPageOnExecutor() throws Exception {
+        when(versionListing.isTruncated()).thenReturn(true);
+        when(versionListing.getVersionSummaries()).thenReturn(Arrays.asList(firstSummary));
+        VersionListing secondPage = mock(VersionListing.class);
+        when(secondPage.getVersionSummaries()).thenReturn(Arrays.asList(secondSummary));
+        when(s3.listNextBatchOfVersions(versionListing)).thenReturn(secondPage);
+
+        S3ObjectsTestCommon.QueueingExecutor executor = new S3ObjectsTestCommon.QueueingExecutor();
+        Iterator<S3VersionSummary> iter = s3Versions.withPrefetchExecutor(executor).iterator();
+        assertTrue(iter.hasNext());
+        assertEquals(1, executor.tasks.size());
+        verify(s3, never()).listNextBatchOfVersions(versionListing);
+
+        executor.runAll();
+        assertSame(firstSummary, iter.next());
+        assertSame(secondSummary, iter.next());
+        assertFalse(iter.hasNext());
+        verify(s3).listNextBatchOfVersions(versionListing);
+    }
 }